@@ -15,6 +15,7 @@ import com.amazonaws.services.ec2.AmazonEC2;
 import com.amazonaws.services.ec2.AmazonEC2Client;
 import com.amazonaws.services.ec2.model.*;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.oscm.app.aws.controller.PropertyHandler;
 import org.oscm.app.aws.i18n.Messages;
 import org.oscm.app.v2_0.exceptions.APPlatformException;
@@ -38,6 +39,15 @@ public class EC2Communication {
     // EC2 client stub for unit testing
     private static AmazonEC2Client ec2_stub;
 
+    /**
+     * Shared clients not used within this time are shut down.
+     */
+    static final long CLIENT_IDLE_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    // EC2 clients shared by all communications with the same configuration,
+    // keyed without the plain secrets
+    private static final Map<String, SharedClient> clients = new HashMap<String, SharedClient>();
+
     private final PropertyHandler ph;
     private final AWSCredentialsProvider credentialsProvider;
     private AmazonEC2Client ec2;
@@ -134,10 +144,16 @@ public class EC2Communication {
      */
     public static void useMock(AmazonEC2Client ec2) {
         ec2_stub = ec2;
+        removeIdleClients(Long.MAX_VALUE);
+        EC2StatusPoller.getInstance().clear();
     }
 
     /**
-     * Allow mocking of EC2 client by having it in separate creation method
+     * Allow mocking of EC2 client by having it in separate creation method.
+     * The clients are thread safe and shared by all communications using the
+     * same region, credentials and proxy settings. Clients that have not been
+     * used for {@link #CLIENT_IDLE_TIMEOUT_MS}, e.g. because the credentials
+     * have been changed, are shut down.
      * 
      * @param credentialsProvider
      * @param clientConfiguration
@@ -145,12 +161,86 @@ public class EC2Communication {
     AmazonEC2Client getEC2(AWSCredentialsProvider credentialsProvider,
             ClientConfiguration clientConfiguration) {
         if (ec2 == null) {
-            ec2 = (ec2_stub != null) ? ec2_stub : new AmazonEC2Client(
-                    credentialsProvider, clientConfiguration);
+            if (ec2_stub != null) {
+                ec2 = ec2_stub;
+            } else {
+                String key = getClientKey(credentialsProvider.getCredentials(),
+                        clientConfiguration);
+                long now = System.currentTimeMillis();
+                synchronized (clients) {
+                    removeIdleClients(now);
+                    SharedClient shared = clients.get(key);
+                    if (shared == null) {
+                        shared = new SharedClient(createClient(
+                                credentialsProvider, clientConfiguration));
+                        clients.put(key, shared);
+                    }
+                    shared.lastUsed = now;
+                    ec2 = shared.client;
+                }
+            }
         }
         return ec2;
     }
 
+    AmazonEC2Client createClient(AWSCredentialsProvider credentialsProvider,
+            ClientConfiguration clientConfiguration) {
+        return new AmazonEC2Client(credentialsProvider, clientConfiguration);
+    }
+
+    /**
+     * Shuts down and removes the shared clients that have not been used since
+     * the idle timeout before the given time.
+     */
+    static void removeIdleClients(long now) {
+        synchronized (clients) {
+            Iterator<SharedClient> it = clients.values().iterator();
+            while (it.hasNext()) {
+                SharedClient shared = it.next();
+                if (now - shared.lastUsed > CLIENT_IDLE_TIMEOUT_MS) {
+                    it.remove();
+                    shared.client.shutdown();
+                }
+            }
+        }
+    }
+
+    static int getClientCount() {
+        synchronized (clients) {
+            return clients.size();
+        }
+    }
+
+    private String getClientKey(AWSCredentials credentials,
+            ClientConfiguration clientConfiguration) {
+        return ph.getRegion() + "\n" + credentials.getAWSAccessKeyId() + "\n"
+                + DigestUtils.sha256Hex(credentials.getAWSSecretKey() + "\n"
+                        + clientConfiguration.getProxyPassword())
+                + "\n" + clientConfiguration.getProxyHost() + "\n"
+                + clientConfiguration.getProxyPort() + "\n"
+                + clientConfiguration.getProxyUsername();
+    }
+
+    /**
+     * An EC2 client shared by all communications with the same configuration.
+     * Access is synchronized on the client map.
+     */
+    private static class SharedClient {
+        final AmazonEC2Client client;
+        long lastUsed;
+
+        SharedClient(AmazonEC2Client client) {
+            this.client = client;
+        }
+    }
+
+    /**
+     * Identifies the account and region in the shared status snapshots.
+     */
+    private String getAccountKey() {
+        return ph.getRegion() + "/" + ph.getAccessKeyId();
+    }
+
     /**
      * Checks whether system proxy settings tell to omit proxying for given
      * endpoint.
@@ -413,8 +503,9 @@ public class EC2Communication {
         if (image.getPlatform() != null) {
             ph.setInstancePlatform(image.getPlatform());
         }
-        String publicDNS = this.getPublicDNS(ph.getAwsInstanceId());
-        ph.setInstancePublicDNS(publicDNS);
+        Instance created = describeInstance(ph.getAwsInstanceId());
+        ph.setInstancePublicDNS(
+                created == null ? null : created.getPublicDnsName());
     }
 
     public void modifyInstance() throws APPlatformException {
@@ -424,32 +515,28 @@ public class EC2Communication {
     public void terminateInstance(String instanceId) {
         getEC2().terminateInstances(
                 new TerminateInstancesRequest().withInstanceIds(instanceId));
+        EC2StatusPoller.getInstance().invalidate(getAccountKey(), instanceId);
     }
 
     public void startInstance(String instanceId) {
         getEC2().startInstances(
                 new StartInstancesRequest().withInstanceIds(instanceId));
+        EC2StatusPoller.getInstance().invalidate(getAccountKey(), instanceId);
     }
 
     public void stopInstance(String instanceId) {
         getEC2().stopInstances(
                 new StopInstancesRequest().withInstanceIds(instanceId));
+        EC2StatusPoller.getInstance().invalidate(getAccountKey(), instanceId);
     }
 
     public String getInstanceState(String instanceId) {
         LOGGER.debug("getInstanceState('{}') entered", instanceId);
-        DescribeInstancesResult result = getEC2().describeInstances(
-                new DescribeInstancesRequest().withInstanceIds(instanceId));
-        List<Reservation> reservations = result.getReservations();
-        Set<Instance> instances = new HashSet<Instance>();
-
-        for (Reservation reservation : reservations) {
-            instances.addAll(reservation.getInstances());
-            if (instances.size() > 0) {
-                String state = instances.iterator().next().getState().getName();
-                LOGGER.debug("  InstanceState: {}", state);
-                return state;
-            }
+        Instance instance = findInstance(instanceId);
+        if (instance != null) {
+            String state = instance.getState().getName();
+            LOGGER.debug("  InstanceState: {}", state);
+            return state;
         }
         LOGGER.debug("getInstanceState('{}') left", instanceId);
         return null;
@@ -457,15 +544,11 @@ public class EC2Communication {
 
     public boolean isInstanceReady(String instanceId) {
         LOGGER.debug("isInstanceReady('{}') entered", instanceId);
-        DescribeInstanceStatusResult result = getEC2()
-                .describeInstanceStatus(
-                        new DescribeInstanceStatusRequest()
-                                .withInstanceIds(instanceId));
-        List<InstanceStatus> statusList = result.getInstanceStatuses();
+        InstanceStatus status = findInstanceStatus(instanceId);
         boolean instanceStatus = false;
         boolean systemStatus = false;
 
-        for (InstanceStatus status : statusList) {
+        if (status != null) {
             LOGGER.debug("  InstanceState:    {}", status.getInstanceState());
             LOGGER.debug("  InstanceStatus:   {}", status.getInstanceStatus()
                     .getStatus());
@@ -482,15 +565,48 @@ public class EC2Communication {
     }
 
     public String getPublicDNS(String instanceId) {
+        Instance instance = findInstance(instanceId);
+        return instance == null ? null : instance.getPublicDnsName();
+    }
+
+    /**
+     * Returns the instance from the shared status snapshot of the account and
+     * region.
+     */
+    private Instance findInstance(String instanceId) {
+        if (instanceId == null) {
+            return describeInstance(instanceId);
+        }
+        return EC2StatusPoller.getInstance().findInstance(getAccountKey(),
+                getEC2(), instanceId);
+    }
+
+    /**
+     * Returns the instance status from the shared status snapshot of the
+     * account and region.
+     */
+    private InstanceStatus findInstanceStatus(String instanceId) {
+        if (instanceId == null) {
+            DescribeInstanceStatusResult result = getEC2()
+                    .describeInstanceStatus(new DescribeInstanceStatusRequest()
+                            .withInstanceIds(instanceId));
+            List<InstanceStatus> statusList = result.getInstanceStatuses();
+            return statusList.isEmpty() ? null
+                    : statusList.get(statusList.size() - 1);
+        }
+        return EC2StatusPoller.getInstance().findInstanceStatus(getAccountKey(),
+                getEC2(), instanceId);
+    }
+
+    /**
+     * Reads the instance directly, bypassing the shared status snapshot.
+     */
+    private Instance describeInstance(String instanceId) {
         DescribeInstancesResult result = getEC2().describeInstances(
                 new DescribeInstancesRequest().withInstanceIds(instanceId));
-        List<Reservation> reservations = result.getReservations();
-        Set<Instance> instances = new HashSet<Instance>();
-
-        for (Reservation reservation : reservations) {
-            instances.addAll(reservation.getInstances());
-            if (instances.size() > 0) {
-                return instances.iterator().next().getPublicDnsName();
+        for (Reservation reservation : result.getReservations()) {
+            if (!reservation.getInstances().isEmpty()) {
+                return reservation.getInstances().get(0);
             }
         }
         return null;
@@ -0,0 +1,339 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.aws;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.ec2.model.DescribeInstanceStatusRequest;
+import com.amazonaws.services.ec2.model.DescribeInstanceStatusResult;
+import com.amazonaws.services.ec2.model.DescribeInstancesRequest;
+import com.amazonaws.services.ec2.model.DescribeInstancesResult;
+import com.amazonaws.services.ec2.model.Filter;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.InstanceStatus;
+import com.amazonaws.services.ec2.model.Reservation;
+
+/**
+ * Shared, short-lived snapshot of the EC2 instances that are polled by the
+ * controller. All instance ids asked for within one account and region are
+ * collected and resolved together with paginated
+ * <code>DescribeInstances</code> and <code>DescribeInstanceStatus</code>
+ * calls, so that the status checks of many pending instances cost only a few
+ * API calls per snapshot instead of one call per instance and check.
+ * <p>
+ * All ids are read again once per {@link #SNAPSHOT_VALIDITY_MS}. Ids asked
+ * for the first time within that window are read on their own, together with
+ * the ids of all requests waiting for the snapshot at that time; the ids
+ * already read are not read again.
+ */
+public class EC2StatusPoller {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(EC2StatusPoller.class);
+
+    /**
+     * Time in milliseconds a snapshot is used before it is read again.
+     */
+    static final long SNAPSHOT_VALIDITY_MS = 10000;
+
+    /**
+     * Instance ids not asked for within this time are no longer polled.
+     */
+    static final long IDLE_TIMEOUT_MS = 10 * 60 * 1000L;
+
+    /**
+     * Maximum number of instance ids in one filter of DescribeInstances.
+     */
+    static final int MAX_FILTER_IDS = 1000;
+
+    /**
+     * Maximum number of explicit instance ids in one DescribeInstanceStatus
+     * request.
+     */
+    static final int MAX_STATUS_IDS = 100;
+
+    private static final String ERROR_INSTANCE_NOT_FOUND = "InvalidInstanceID.NotFound";
+
+    private static final EC2StatusPoller INSTANCE = new EC2StatusPoller();
+
+    private final ConcurrentMap<String, Snapshot> snapshots = new ConcurrentHashMap<String, Snapshot>();
+
+    /**
+     * Returns the poller shared by all EC2 communications.
+     */
+    public static EC2StatusPoller getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the instance with the given id from the snapshot of the given
+     * account and region, or <code>null</code> if it does not exist.
+     *
+     * @param accountKey
+     *            identifies the account and region of the client
+     * @param ec2
+     *            the client used if the snapshot has to be read again
+     * @param instanceId
+     *            the instance id
+     */
+    public Instance findInstance(String accountKey, AmazonEC2 ec2,
+            String instanceId) {
+        Snapshot snapshot = getSnapshot(accountKey);
+        snapshot.request(instanceId, currentTime());
+        synchronized (snapshot) {
+            long now = currentTime();
+            if (now - snapshot.instancesRead >= SNAPSHOT_VALIDITY_MS) {
+                snapshot.removeIdle(now);
+                List<String> ids = snapshot.getRequested();
+                snapshot.instances = readInstances(ec2, ids);
+                snapshot.instancesIds = new HashSet<String>(ids);
+                snapshot.instancesRead = now;
+            } else if (!snapshot.instancesIds.contains(instanceId)) {
+                List<String> ids = snapshot.getPending(instanceId,
+                        snapshot.instancesIds);
+                snapshot.instances.putAll(readInstances(ec2, ids));
+                snapshot.instancesIds.addAll(ids);
+            }
+            return snapshot.instances.get(instanceId);
+        }
+    }
+
+    /**
+     * Returns the status of the instance with the given id from the snapshot
+     * of the given account and region, or <code>null</code> if no status is
+     * available, e.g. because the instance is not running.
+     *
+     * @param accountKey
+     *            identifies the account and region of the client
+     * @param ec2
+     *            the client used if the snapshot has to be read again
+     * @param instanceId
+     *            the instance id
+     */
+    public InstanceStatus findInstanceStatus(String accountKey, AmazonEC2 ec2,
+            String instanceId) {
+        Snapshot snapshot = getSnapshot(accountKey);
+        snapshot.request(instanceId, currentTime());
+        synchronized (snapshot) {
+            long now = currentTime();
+            if (now - snapshot.statusRead >= SNAPSHOT_VALIDITY_MS) {
+                snapshot.removeIdle(now);
+                List<String> ids = snapshot.getRequested();
+                snapshot.status = readStatus(ec2, ids);
+                snapshot.statusIds = new HashSet<String>(ids);
+                snapshot.statusRead = now;
+            } else if (!snapshot.statusIds.contains(instanceId)) {
+                List<String> ids = snapshot.getPending(instanceId,
+                        snapshot.statusIds);
+                snapshot.status.putAll(readStatus(ec2, ids));
+                snapshot.statusIds.addAll(ids);
+            }
+            return snapshot.status.get(instanceId);
+        }
+    }
+
+    /**
+     * Forces the next request for the given instance to read the snapshot
+     * again, e.g. after the instance has been started or stopped.
+     */
+    public void invalidate(String accountKey, String instanceId) {
+        Snapshot snapshot = snapshots.get(accountKey);
+        if (snapshot != null) {
+            synchronized (snapshot) {
+                snapshot.instancesIds.remove(instanceId);
+                snapshot.statusIds.remove(instanceId);
+            }
+        }
+    }
+
+    /**
+     * Removes all snapshots.
+     */
+    public void clear() {
+        snapshots.clear();
+    }
+
+    private Snapshot getSnapshot(String accountKey) {
+        Snapshot snapshot = snapshots.get(accountKey);
+        if (snapshot == null) {
+            Snapshot created = new Snapshot();
+            snapshot = snapshots.putIfAbsent(accountKey, created);
+            if (snapshot == null) {
+                snapshot = created;
+            }
+        }
+        return snapshot;
+    }
+
+    long currentTime() {
+        return System.currentTimeMillis();
+    }
+
+    private Map<String, Instance> readInstances(AmazonEC2 ec2,
+            List<String> ids) {
+        Map<String, Instance> instances = new HashMap<String, Instance>();
+        int calls = 0;
+        for (List<String> chunk : partition(ids, MAX_FILTER_IDS)) {
+            String nextToken = null;
+            do {
+                DescribeInstancesResult result = ec2
+                        .describeInstances(new DescribeInstancesRequest()
+                                .withFilters(new Filter("instance-id", chunk))
+                                .withNextToken(nextToken));
+                calls++;
+                if (result == null) {
+                    break;
+                }
+                for (Reservation reservation : result.getReservations()) {
+                    for (Instance instance : reservation.getInstances()) {
+                        instances.put(instance.getInstanceId(), instance);
+                    }
+                }
+                nextToken = result.getNextToken();
+            } while (nextToken != null);
+        }
+        LOGGER.debug("Read {} of {} instances with {} DescribeInstances calls",
+                new Object[] { Integer.valueOf(instances.size()),
+                        Integer.valueOf(ids.size()), Integer.valueOf(calls) });
+        return instances;
+    }
+
+    private Map<String, InstanceStatus> readStatus(AmazonEC2 ec2,
+            List<String> ids) {
+        Map<String, InstanceStatus> status = new HashMap<String, InstanceStatus>();
+        for (List<String> chunk : partition(ids, MAX_STATUS_IDS)) {
+            try {
+                describeStatus(ec2, chunk, status);
+            } catch (AmazonServiceException e) {
+                if (!ERROR_INSTANCE_NOT_FOUND.equals(e.getErrorCode())
+                        || chunk.size() == 1) {
+                    throw e;
+                }
+                // one unknown id fails the whole request, ask separately
+                for (String id : chunk) {
+                    try {
+                        describeStatus(ec2, Collections.singletonList(id),
+                                status);
+                    } catch (AmazonServiceException notFound) {
+                        if (!ERROR_INSTANCE_NOT_FOUND
+                                .equals(notFound.getErrorCode())) {
+                            throw notFound;
+                        }
+                    }
+                }
+            }
+        }
+        return status;
+    }
+
+    private void describeStatus(AmazonEC2 ec2, List<String> ids,
+            Map<String, InstanceStatus> status) {
+        String nextToken = null;
+        do {
+            DescribeInstanceStatusResult result = ec2.describeInstanceStatus(
+                    new DescribeInstanceStatusRequest().withInstanceIds(ids)
+                            .withNextToken(nextToken));
+            if (result == null) {
+                return;
+            }
+            for (InstanceStatus instanceStatus : result
+                    .getInstanceStatuses()) {
+                status.put(instanceStatus.getInstanceId(), instanceStatus);
+            }
+            nextToken = result.getNextToken();
+        } while (nextToken != null);
+    }
+
+    private static List<List<String>> partition(List<String> ids, int size) {
+        List<List<String>> chunks = new ArrayList<List<String>>();
+        for (int i = 0; i < ids.size(); i += size) {
+            chunks.add(ids.subList(i, Math.min(i + size, ids.size())));
+        }
+        return chunks;
+    }
+
+    int size(String accountKey) {
+        Snapshot snapshot = snapshots.get(accountKey);
+        if (snapshot == null) {
+            return 0;
+        }
+        synchronized (snapshot.requested) {
+            return snapshot.requested.size();
+        }
+    }
+
+    /**
+     * The instances and status of one account and region. The requested ids
+     * are synchronized on the map, so that they can be added while the
+     * snapshot is read. All other access is synchronized on the snapshot.
+     */
+    private static class Snapshot {
+        final Map<String, Long> requested = new HashMap<String, Long>();
+        Map<String, Instance> instances = new HashMap<String, Instance>();
+        Set<String> instancesIds = new HashSet<String>();
+        long instancesRead = Long.MIN_VALUE / 2;
+        Map<String, InstanceStatus> status = new HashMap<String, InstanceStatus>();
+        Set<String> statusIds = new HashSet<String>();
+        long statusRead = Long.MIN_VALUE / 2;
+
+        void request(String instanceId, long now) {
+            synchronized (requested) {
+                requested.put(instanceId, Long.valueOf(now));
+            }
+        }
+
+        List<String> getRequested() {
+            synchronized (requested) {
+                return new ArrayList<String>(requested.keySet());
+            }
+        }
+
+        /**
+         * Returns the given id and all other requested ids that are not yet
+         * read.
+         */
+        List<String> getPending(String instanceId, Set<String> read) {
+            List<String> ids = new ArrayList<String>();
+            ids.add(instanceId);
+            synchronized (requested) {
+                for (String id : requested.keySet()) {
+                    if (!read.contains(id) && !id.equals(instanceId)) {
+                        ids.add(id);
+                    }
+                }
+            }
+            return ids;
+        }
+
+        void removeIdle(long now) {
+            synchronized (requested) {
+                Iterator<Long> it = requested.values().iterator();
+                while (it.hasNext()) {
+                    if (now - it.next().longValue() > IDLE_TIMEOUT_MS) {
+                        it.remove();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -33,6 +33,7 @@ import java.util.HashMap;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
 public class EC2CommunicationTest {
@@ -284,6 +285,66 @@ public class EC2CommunicationTest {
     assertTrue(client == ec2);
   }
 
+  @Test
+  public void testEC2SharedClient() throws Exception {
+    // given
+    AmazonEC2Client shared = mock(AmazonEC2Client.class);
+    AmazonEC2 client1 = sharingCommunication(ph, shared).getEC2();
+
+    // when
+    AmazonEC2 client2 =
+        sharingCommunication(ph, mock(AmazonEC2Client.class)).getEC2();
+
+    // then
+    assertSame(shared, client1);
+    assertSame(shared, client2);
+    assertEquals(1, EC2Communication.getClientCount());
+  }
+
+  @Test
+  public void testEC2SharedClient_credentialsChanged() throws Exception {
+    // given
+    sharingCommunication(ph, mock(AmazonEC2Client.class)).getEC2();
+    configSettings.put(PropertyHandler.SECRET_KEY_PWD, new Setting(
+        PropertyHandler.SECRET_KEY_PWD, "new_secret_key"));
+    PropertyHandler newPh = PropertyHandler.withSettings(
+        new ProvisioningSettings(parameters, configSettings, "en"));
+    AmazonEC2Client rotated = mock(AmazonEC2Client.class);
+
+    // when
+    AmazonEC2 client = sharingCommunication(newPh, rotated).getEC2();
+
+    // then
+    assertSame(rotated, client);
+    assertEquals(2, EC2Communication.getClientCount());
+  }
+
+  @Test
+  public void testEC2SharedClient_idle() throws Exception {
+    // given
+    AmazonEC2Client shared = mock(AmazonEC2Client.class);
+    sharingCommunication(ph, shared).getEC2();
+
+    // when
+    EC2Communication.removeIdleClients(System.currentTimeMillis()
+        + EC2Communication.CLIENT_IDLE_TIMEOUT_MS + 1);
+
+    // then
+    verify(shared).shutdown();
+    assertEquals(0, EC2Communication.getClientCount());
+  }
+
+  private static EC2Communication sharingCommunication(PropertyHandler ph,
+      final AmazonEC2Client client) {
+    return new EC2Communication(ph) {
+      @Override
+      AmazonEC2Client createClient(AWSCredentialsProvider credentialsProvider,
+          ClientConfiguration clientConfiguration) {
+        return client;
+      }
+    };
+  }
+
   @Test
   public void testAWSCredentials() throws Exception {
     // Ask for connection
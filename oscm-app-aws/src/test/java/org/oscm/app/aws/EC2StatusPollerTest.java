@@ -0,0 +1,326 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.aws;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.ec2.AmazonEC2;
+import com.amazonaws.services.ec2.model.DescribeInstanceStatusRequest;
+import com.amazonaws.services.ec2.model.DescribeInstanceStatusResult;
+import com.amazonaws.services.ec2.model.DescribeInstancesRequest;
+import com.amazonaws.services.ec2.model.DescribeInstancesResult;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ec2.model.InstanceState;
+import com.amazonaws.services.ec2.model.InstanceStatus;
+import com.amazonaws.services.ec2.model.Reservation;
+
+public class EC2StatusPollerTest {
+
+    private static final String ACCOUNT = "region/key";
+
+    private EC2StatusPoller poller;
+    private AmazonEC2 ec2;
+    private long now = 1000000L;
+
+    @Before
+    public void setUp() {
+        poller = new EC2StatusPoller() {
+            @Override
+            long currentTime() {
+                return now;
+            }
+        };
+        ec2 = mock(AmazonEC2.class);
+        doAnswer(new Answer<DescribeInstancesResult>() {
+            @Override
+            public DescribeInstancesResult answer(InvocationOnMock invocation)
+                    throws Throwable {
+                DescribeInstancesRequest request = (DescribeInstancesRequest) invocation
+                        .getArguments()[0];
+                List<Instance> instances = new ArrayList<Instance>();
+                for (String id : request.getFilters().get(0).getValues()) {
+                    if (!id.startsWith("unknown")) {
+                        instances.add(new Instance().withInstanceId(id)
+                                .withState(new InstanceState()
+                                        .withName("running")));
+                    }
+                }
+                return new DescribeInstancesResult().withReservations(
+                        new Reservation().withInstances(instances));
+            }
+        }).when(ec2).describeInstances(any(DescribeInstancesRequest.class));
+        doAnswer(new Answer<DescribeInstanceStatusResult>() {
+            @Override
+            public DescribeInstanceStatusResult answer(
+                    InvocationOnMock invocation) throws Throwable {
+                DescribeInstanceStatusRequest request = (DescribeInstanceStatusRequest) invocation
+                        .getArguments()[0];
+                List<InstanceStatus> status = new ArrayList<InstanceStatus>();
+                for (String id : request.getInstanceIds()) {
+                    if (id.startsWith("unknown")) {
+                        AmazonServiceException e = new AmazonServiceException(
+                                "not found");
+                        e.setErrorCode("InvalidInstanceID.NotFound");
+                        throw e;
+                    }
+                    status.add(new InstanceStatus().withInstanceId(id));
+                }
+                return new DescribeInstanceStatusResult()
+                        .withInstanceStatuses(status);
+            }
+        }).when(ec2).describeInstanceStatus(
+                any(DescribeInstanceStatusRequest.class));
+    }
+
+    @Test
+    public void getInstance() {
+        // when
+        Instance instance = poller.findInstance(ACCOUNT, ec2, "i-1");
+
+        // then
+        assertEquals("i-1", instance.getInstanceId());
+        assertEquals("running", instance.getState().getName());
+    }
+
+    @Test
+    public void getInstance_unknown() {
+        assertNull(poller.findInstance(ACCOUNT, ec2, "unknown-1"));
+    }
+
+    @Test
+    public void getInstance_snapshot() {
+        // given
+        poller.findInstance(ACCOUNT, ec2, "i-1");
+        poller.findInstance(ACCOUNT, ec2, "i-2");
+
+        // when
+        poller.findInstance(ACCOUNT, ec2, "i-1");
+        poller.findInstance(ACCOUNT, ec2, "i-2");
+
+        // then
+        verify(ec2, times(2))
+                .describeInstances(any(DescribeInstancesRequest.class));
+    }
+
+    @Test
+    public void getInstance_invalidated() {
+        // given
+        poller.findInstance(ACCOUNT, ec2, "i-1");
+        poller.findInstance(ACCOUNT, ec2, "i-2");
+        poller.invalidate(ACCOUNT, "i-1");
+
+        // when
+        poller.findInstance(ACCOUNT, ec2, "i-1");
+
+        // then
+        ArgumentCaptor<DescribeInstancesRequest> captor = ArgumentCaptor
+                .forClass(DescribeInstancesRequest.class);
+        verify(ec2, times(3)).describeInstances(captor.capture());
+        List<String> ids = captor.getValue().getFilters().get(0).getValues();
+        assertEquals(Arrays.asList("i-1"), ids);
+        assertEquals(2, poller.size(ACCOUNT));
+    }
+
+    @Test
+    public void getInstance_newIdsReadOnce() {
+        // given
+        for (int i = 0; i < 5; i++) {
+            poller.findInstance(ACCOUNT, ec2, "i-" + i);
+        }
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            poller.findInstance(ACCOUNT, ec2, "i-" + i);
+        }
+
+        // then
+        ArgumentCaptor<DescribeInstancesRequest> captor = ArgumentCaptor
+                .forClass(DescribeInstancesRequest.class);
+        verify(ec2, times(5)).describeInstances(captor.capture());
+        for (DescribeInstancesRequest request : captor.getAllValues()) {
+            assertEquals(1, request.getFilters().get(0).getValues().size());
+        }
+    }
+
+    @Test
+    public void getInstance_expired() {
+        // given
+        for (int i = 0; i < 5; i++) {
+            poller.findInstance(ACCOUNT, ec2, "i-" + i);
+        }
+        now += EC2StatusPoller.SNAPSHOT_VALIDITY_MS;
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            poller.findInstance(ACCOUNT, ec2, "i-" + i);
+        }
+
+        // then
+        ArgumentCaptor<DescribeInstancesRequest> captor = ArgumentCaptor
+                .forClass(DescribeInstancesRequest.class);
+        verify(ec2, times(6)).describeInstances(captor.capture());
+        assertEquals(5, captor.getValue().getFilters().get(0).getValues()
+                .size());
+    }
+
+    @Test
+    public void getInstance_waitingRequestsReadTogether() throws Exception {
+        // given
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AmazonEC2 blocking = mock(AmazonEC2.class);
+        doAnswer(new Answer<DescribeInstancesResult>() {
+            @Override
+            public DescribeInstancesResult answer(InvocationOnMock invocation)
+                    throws Throwable {
+                reading.countDown();
+                release.await();
+                return ec2.describeInstances(
+                        (DescribeInstancesRequest) invocation.getArguments()[0]);
+            }
+        }).when(blocking).describeInstances(any(DescribeInstancesRequest.class));
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 3; i++) {
+            final String id = "i-" + i;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    poller.findInstance(ACCOUNT, blocking, id);
+                }
+            }));
+        }
+        threads.get(0).start();
+        reading.await();
+        threads.get(1).start();
+        threads.get(2).start();
+        while (poller.size(ACCOUNT) < 3) {
+            Thread.sleep(10);
+        }
+
+        // when
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // then
+        verify(blocking, times(2))
+                .describeInstances(any(DescribeInstancesRequest.class));
+    }
+
+    @Test
+    public void getInstance_otherAccount() {
+        // given
+        poller.findInstance(ACCOUNT, ec2, "i-1");
+
+        // when
+        poller.findInstance("other/key", ec2, "i-1");
+
+        // then
+        verify(ec2, times(2))
+                .describeInstances(any(DescribeInstancesRequest.class));
+    }
+
+    @Test
+    public void getInstance_paginated() {
+        // given
+        AmazonEC2 paged = mock(AmazonEC2.class);
+        doAnswer(new Answer<DescribeInstancesResult>() {
+            @Override
+            public DescribeInstancesResult answer(InvocationOnMock invocation)
+                    throws Throwable {
+                DescribeInstancesRequest request = (DescribeInstancesRequest) invocation
+                        .getArguments()[0];
+                if (request.getNextToken() == null) {
+                    return new DescribeInstancesResult()
+                            .withReservations(new Reservation().withInstances(
+                                    new Instance().withInstanceId("i-1")))
+                            .withNextToken("page2");
+                }
+                return new DescribeInstancesResult().withReservations(
+                        new Reservation().withInstances(
+                                new Instance().withInstanceId("i-2")));
+            }
+        }).when(paged).describeInstances(any(DescribeInstancesRequest.class));
+        poller.findInstance(ACCOUNT, paged, "i-1");
+
+        // when
+        Instance instance = poller.findInstance(ACCOUNT, paged, "i-2");
+
+        // then
+        assertEquals("i-2", instance.getInstanceId());
+    }
+
+    @Test
+    public void getInstanceStatus() {
+        // given
+        poller.findInstance(ACCOUNT, ec2, "i-1");
+
+        // when
+        InstanceStatus status = poller.findInstanceStatus(ACCOUNT, ec2, "i-2");
+
+        // then
+        assertEquals("i-2", status.getInstanceId());
+        ArgumentCaptor<DescribeInstanceStatusRequest> captor = ArgumentCaptor
+                .forClass(DescribeInstanceStatusRequest.class);
+        verify(ec2).describeInstanceStatus(captor.capture());
+        assertEquals(Arrays.asList("i-1", "i-2"),
+                sorted(captor.getValue().getInstanceIds()));
+    }
+
+    @Test
+    public void getInstanceStatus_unknownInstance() {
+        // given
+        poller.findInstance(ACCOUNT, ec2, "unknown-1");
+
+        // when
+        InstanceStatus status = poller.findInstanceStatus(ACCOUNT, ec2, "i-1");
+
+        // then
+        assertEquals("i-1", status.getInstanceId());
+        assertNull(poller.findInstanceStatus(ACCOUNT, ec2, "unknown-1"));
+    }
+
+    @Test
+    public void clear() {
+        // given
+        poller.findInstance(ACCOUNT, ec2, "i-1");
+
+        // when
+        poller.clear();
+
+        // then
+        assertEquals(0, poller.size(ACCOUNT));
+    }
+
+    private static List<String> sorted(List<String> values) {
+        List<String> result = new ArrayList<String>(values);
+        Collections.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright FUJITSU LIMITED 2018
+ *
+ * <p>*****************************************************************************
+ */
+package org.oscm.app.azure;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.microsoft.azure.management.compute.ComputeManagementClient;
+import com.microsoft.azure.management.network.NetworkResourceProviderClient;
+import com.microsoft.azure.management.resources.ResourceManagementClient;
+import com.microsoft.azure.management.storage.StorageManagementClient;
+
+/**
+ * Process-wide cache of the Azure management clients. The clients are kept per tenant, client,
+ * subscription and credentials and are created again with a new access token shortly before the
+ * token of the cached clients expires. Clients for tokens without expiration date are not cached.
+ */
+public class AzureClientCache {
+
+  /** * Logger. */
+  private static final Logger logger = LoggerFactory.getLogger(AzureClientCache.class);
+
+  /** * Clients are created again this many milliseconds before their access token expires. */
+  static final long REFRESH_MARGIN_MS = 5 * 60 * 1000L;
+
+  private static class SingletonHolder {
+    public static final AzureClientCache INSTANCE = new AzureClientCache();
+  }
+
+  /** * Returns the cache shared by all Azure communications. */
+  public static AzureClientCache getInstance() {
+    return SingletonHolder.INSTANCE;
+  }
+
+  private final ConcurrentMap<String, Clients> clients = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+  AzureClientCache() {}
+
+  /**
+   * Returns the cached clients for the given account or creates them with the given factory if
+   * none are cached or their access token is about to expire. Concurrent requests for the same
+   * account wait for a single token acquisition.
+   */
+  public Clients get(
+      String tenantId,
+      String clientId,
+      String subscriptionId,
+      String credentials,
+      Supplier<Clients> factory) {
+    String key = key(tenantId, clientId, subscriptionId, credentials);
+    Clients cached = clients.get(key);
+    if (cached != null && cached.isValid(System.currentTimeMillis())) {
+      return cached;
+    }
+
+    synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+      cached = clients.get(key);
+      if (cached != null && cached.isValid(System.currentTimeMillis())) {
+        return cached;
+      }
+      if (cached != null) {
+        logger.debug("Access token for tenant {} expires soon, refreshing", tenantId);
+      }
+      Clients created = factory.get();
+      removeExpired();
+      if (created.getExpiresAt() > 0) {
+        clients.put(key, created);
+      } else {
+        clients.remove(key);
+      }
+      return created;
+    }
+  }
+
+  /** * Removes all cached clients, so that they are created again on the next request. */
+  public void clear() {
+    clients.clear();
+  }
+
+  int size() {
+    return clients.size();
+  }
+
+  private void removeExpired() {
+    long now = System.currentTimeMillis();
+    for (Map.Entry<String, Clients> entry : clients.entrySet()) {
+      if (!entry.getValue().isValid(now)) {
+        clients.remove(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  private static String key(
+      String tenantId, String clientId, String subscriptionId, String credentials) {
+    return tenantId + "\n" + clientId + "\n" + subscriptionId + "\n" + digest(credentials);
+  }
+
+  private static String digest(String credentials) {
+    if (credentials == null) {
+      return "";
+    }
+    try {
+      byte[] hash =
+          MessageDigest.getInstance("SHA-256").digest(credentials.getBytes(StandardCharsets.UTF_8));
+      StringBuilder sb = new StringBuilder();
+      for (byte b : hash) {
+        sb.append(String.format("%02x", Byte.valueOf(b)));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** * The management clients of one account together with the expiration of their token. */
+  public static class Clients {
+
+    private final ResourceManagementClient resourceClient;
+    private final ComputeManagementClient computeClient;
+    private final NetworkResourceProviderClient networkClient;
+    private final StorageManagementClient storageClient;
+    private final long expiresAt;
+
+    public Clients(
+        ResourceManagementClient resourceClient,
+        ComputeManagementClient computeClient,
+        NetworkResourceProviderClient networkClient,
+        StorageManagementClient storageClient,
+        long expiresAt) {
+      this.resourceClient = resourceClient;
+      this.computeClient = computeClient;
+      this.networkClient = networkClient;
+      this.storageClient = storageClient;
+      this.expiresAt = expiresAt;
+    }
+
+    public ResourceManagementClient getResourceClient() {
+      return resourceClient;
+    }
+
+    public ComputeManagementClient getComputeClient() {
+      return computeClient;
+    }
+
+    public NetworkResourceProviderClient getNetworkClient() {
+      return networkClient;
+    }
+
+    public StorageManagementClient getStorageClient() {
+      return storageClient;
+    }
+
+    public long getExpiresAt() {
+      return expiresAt;
+    }
+
+    boolean isValid(long now) {
+      return now < expiresAt - REFRESH_MARGIN_MS;
+    }
+  }
+}
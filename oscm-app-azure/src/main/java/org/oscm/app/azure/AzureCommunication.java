@@ -18,14 +18,18 @@ import java.security.InvalidKeyException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.naming.ServiceUnavailableException;
 
@@ -59,6 +63,7 @@ import com.microsoft.azure.management.compute.models.InstanceViewStatus;
 import com.microsoft.azure.management.compute.models.NetworkInterfaceReference;
 import com.microsoft.azure.management.compute.models.VirtualMachine;
 import com.microsoft.azure.management.compute.models.VirtualMachineInstanceView;
+import com.microsoft.azure.management.compute.models.VirtualMachineListResponse;
 import com.microsoft.azure.management.network.NetworkResourceProviderClient;
 import com.microsoft.azure.management.network.NetworkResourceProviderService;
 import com.microsoft.azure.management.network.models.NetworkInterface;
@@ -116,12 +121,50 @@ public class AzureCommunication {
 
   private static boolean exisitingStorageAccount = false;
 
+  /** * Whether the proxy settings have been applied to this JVM. */
+  private static final AtomicBoolean proxyInitialized = new AtomicBoolean(false);
+
   /**
    * *
    *
-   * <p>Connection With Azure and initializing the clients
+   * <p>Connection With Azure and initializing the clients. The clients are taken from the {@link
+   * AzureClientCache} and only created with a new access token if none are cached for the account
+   * or the cached token is about to expire.
    */
   public AzureCommunication(PropertyHandler ph) {
+    initProxySettings();
+
+    this.ph = ph;
+    AzureClientCache.Clients clients =
+        getClientCache()
+            .get(
+                ph.getTenantId(),
+                ph.getClientId(),
+                ph.getSubscriptionId(),
+                getCredentials(ph),
+                this::createClients);
+    this.resourceClient = clients.getResourceClient();
+    this.computeClient = clients.getComputeClient();
+    this.networkClient = clients.getNetworkClient();
+    this.storageClient = clients.getStorageClient();
+  }
+
+  public PropertyHandler getPh() {
+    return this.ph;
+  }
+
+  protected AzureClientCache getClientCache() {
+    return AzureClientCache.getInstance();
+  }
+
+  /**
+   * Sets the proxy authenticator and removes empty proxy properties. Both are JVM wide, so this is
+   * done only once.
+   */
+  private static void initProxySettings() {
+    if (!proxyInitialized.compareAndSet(false, true)) {
+      return;
+    }
     // Proxy Authenticator
     String proxyUser = System.getProperty(ProxySettings.HTTPS_PROXY_USER);
     String proxyPassword = System.getProperty(ProxySettings.HTTPS_PROXY_PASSWORD);
@@ -129,21 +172,10 @@ public class AzureCommunication {
       Authenticator.setDefault(new ProxyAuthenticator(proxyUser, proxyPassword));
     }
 
-    this.clearProxyProperties();
-
-    this.ph = ph;
-    Configuration config = createConfiguration();
-    this.resourceClient = ResourceManagementService.create(config);
-    this.computeClient = ComputeManagementService.create(config);
-    this.networkClient = NetworkResourceProviderService.create(config);
-    this.storageClient = StorageManagementService.create(config);
-  }
-
-  public PropertyHandler getPh() {
-    return this.ph;
+    clearProxyProperties();
   }
 
-  private void clearProxyProperties() {
+  private static void clearProxyProperties() {
     List<String> properties =
         Arrays.asList("http.proxyHost", "http.proxyPort", "https.proxyHost", "https.proxyPort");
 
@@ -154,23 +186,35 @@ public class AzureCommunication {
     }
   }
 
-  /**
-   * *
-   *
-   * <p>Creating the configuration for connection
-   */
-  private Configuration createConfiguration() {
-    AuthenticationResult result;
+  /** The credentials distinguishing accounts with the same tenant, client and subscription */
+  private static String getCredentials(PropertyHandler ph) {
+    if (ph.getClientSecret() == null) {
+      return ph.getUserName() + "\n" + ph.getPassword();
+    }
+    return ph.getClientSecret();
+  }
+
+  /** Creating the clients with a new access token */
+  private AzureClientCache.Clients createClients() {
+    AuthenticationResult result = acquireAccessToken();
+    Configuration config = createConfiguration(result);
+    Date expiresOn = result.getExpiresOnDate();
+    return new AzureClientCache.Clients(
+        ResourceManagementService.create(config),
+        ComputeManagementService.create(config),
+        NetworkResourceProviderService.create(config),
+        StorageManagementService.create(config),
+        expiresOn == null ? 0 : expiresOn.getTime());
+  }
+
+  private AuthenticationResult acquireAccessToken() {
     try {
       if (ph.getClientSecret() == null) {
-        result =
-            getAccessTokenFromUserCredentials(
-                ph.getTenantId(), ph.getClientId(), ph.getUserName(), ph.getPassword());
-      } else {
-        result =
-            getAccessTokenFromClientCredentials(
-                ph.getTenantId(), ph.getClientId(), ph.getClientSecret());
+        return getAccessTokenFromUserCredentials(
+            ph.getTenantId(), ph.getClientId(), ph.getUserName(), ph.getPassword());
       }
+      return getAccessTokenFromClientCredentials(
+          ph.getTenantId(), ph.getClientId(), ph.getClientSecret());
     } catch (MalformedURLException
         | ServiceUnavailableException
         | InterruptedException
@@ -178,6 +222,14 @@ public class AzureCommunication {
         | AuthenticationException e) {
       throw createAndLogAzureException("Get api access token failed: " + e.getMessage(), e);
     }
+  }
+
+  /**
+   * *
+   *
+   * <p>Creating the configuration for connection
+   */
+  private Configuration createConfiguration(AuthenticationResult result) {
     Configuration config;
     try {
       config =
@@ -1049,6 +1101,85 @@ public class AzureCommunication {
     }
   }
 
+  /**
+   * Returns the number of virtual machines of the instance which exist in its resource group. The
+   * virtual machines of the resource group are listed with one request instead of reading each
+   * virtual machine separately.
+   */
+  public int getVirtualMachinesNumber() {
+    return countVirtualMachines(ph, listVirtualMachineNames());
+  }
+
+  /**
+   * Returns the number of virtual machines of several instances which share the account and
+   * resource group of this instance, see {@link #getResourceGroupKey(PropertyHandler)}. The
+   * resource group is listed once for all of them.
+   *
+   * @param instances the property handlers of the instances by instance ID
+   * @return the number of virtual machines by instance ID
+   */
+  public Map<String, Integer> getVirtualMachinesNumbers(Map<String, PropertyHandler> instances) {
+    Set<String> existing = listVirtualMachineNames();
+    Map<String, Integer> numbers = new HashMap<>();
+    for (Map.Entry<String, PropertyHandler> entry : instances.entrySet()) {
+      numbers.put(entry.getKey(), Integer.valueOf(countVirtualMachines(entry.getValue(), existing)));
+    }
+    return numbers;
+  }
+
+  /**
+   * Returns a key which is equal for instances whose virtual machines are located in the same
+   * resource group of the same account.
+   */
+  public static List<String> getResourceGroupKey(PropertyHandler ph) {
+    return Arrays.asList(
+        ph.getTenantId(),
+        ph.getClientId(),
+        ph.getSubscriptionId(),
+        getCredentials(ph),
+        ph.getResourceGroupName());
+  }
+
+  private static int countVirtualMachines(PropertyHandler ph, Set<String> existing) {
+    int n = Integer.parseInt(ph.getInstanceCount());
+    if (n <= 1) {
+      return existing.contains(ph.getVMName()) ? 1 : 0;
+    }
+    int count = 0;
+    for (int i = 1; i <= n; i++) {
+      if (existing.contains(ph.getVMName() + i)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Lists the names of all virtual machines of the resource group */
+  private Set<String> listVirtualMachineNames() {
+    Set<String> names = new HashSet<>();
+    try {
+      VirtualMachineListResponse response =
+          getComputeClient().getVirtualMachinesOperations().list(ph.getResourceGroupName());
+      while (response != null) {
+        for (VirtualMachine vm : response.getVirtualMachines()) {
+          names.add(vm.getName());
+        }
+        String nextLink = response.getNextLink();
+        response =
+            nextLink == null || nextLink.isEmpty()
+                ? null
+                : getComputeClient().getVirtualMachinesOperations().listNext(nextLink);
+      }
+      return names;
+    } catch (IOException | URISyntaxException | ServiceException e) {
+      if (e instanceof ServiceException
+          && ((ServiceException) e).getHttpStatusCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+        return names;
+      }
+      throw createAndLogAzureException("List virtual machines failed: " + e.getMessage(), e);
+    }
+  }
+
   /**
    * *
    *
@@ -10,11 +10,11 @@ package org.oscm.app.azure.controller;
 import org.oscm.app.azure.AzureCommunication;
 import org.oscm.app.azure.data.FlowState;
 import org.oscm.app.azure.i18n.Messages;
+import org.oscm.app.common.intf.ServersNumberController;
 import org.oscm.app.v2_0.APPlatformServiceFactory;
 import org.oscm.app.v2_0.data.*;
 import org.oscm.app.v2_0.exceptions.APPlatformException;
 import org.oscm.app.v2_0.exceptions.LogAndExceptionConverter;
-import org.oscm.app.v2_0.intf.APPlatformController;
 import org.oscm.app.v2_0.intf.APPlatformService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,7 +24,10 @@ import javax.ejb.Remote;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
 
@@ -46,8 +49,8 @@ import java.util.UUID;
  * status and returns the corresponding overall instance status to APP.
  */
 @Stateless(mappedName = "bss/app/controller/" + AzureController.ID) //Custom
-@Remote(APPlatformController.class)
-public class AzureController implements APPlatformController {
+@Remote(ServersNumberController.class)
+public class AzureController implements ServersNumberController {
 
     /**
      * Logger.
@@ -68,7 +71,7 @@ public class AzureController implements APPlatformController {
     /**
      * Reference to an APPlatformService instance.
      */
-    private APPlatformService platformService;
+    protected APPlatformService platformService;
 
     /**
      * Retrieves an <code>APPlatformService</code> instance.
@@ -461,6 +464,64 @@ public class AzureController implements APPlatformController {
         // not applicable
     }
 
+    /**
+     * Returns the number of virtual machines of the given instance. The
+     * virtual machines of the instance's resource group are listed with one
+     * request.
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public int getServersNumber(String instanceId, String subscriptionId,
+                                String organizationId) throws APPlatformException {
+        ProvisioningSettings settings = platformService
+                .getServiceInstanceDetails(ID, instanceId, subscriptionId,
+                        organizationId);
+        PropertyHandler ph = new PropertyHandler(settings);
+        try {
+            return getAzureCommunication(ph).getVirtualMachinesNumber();
+        } catch (RuntimeException e) {
+            throw new APPlatformException(
+                    "Failed to get number of VMs of instance " + instanceId, e);
+        }
+    }
+
+    /**
+     * Returns the number of VMs of several instances. The VMs of each resource
+     * group are listed once for all instances located there.
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public Map<String, Integer> getServersNumbers(
+            Map<String, ProvisioningSettings> instances)
+            throws APPlatformException {
+        Map<List<String>, Map<String, PropertyHandler>> groups = new LinkedHashMap<>();
+        for (Map.Entry<String, ProvisioningSettings> entry : instances
+                .entrySet()) {
+            PropertyHandler ph = new PropertyHandler(entry.getValue());
+            try {
+                groups.computeIfAbsent(
+                        AzureCommunication.getResourceGroupKey(ph),
+                        k -> new LinkedHashMap<>()).put(entry.getKey(), ph);
+            } catch (RuntimeException e) {
+                logger.error("Failed to get number of VMs of instance "
+                        + entry.getKey(), e);
+            }
+        }
+
+        Map<String, Integer> numbers = new HashMap<>();
+        for (Map<String, PropertyHandler> group : groups.values()) {
+            try {
+                numbers.putAll(getAzureCommunication(
+                        group.values().iterator().next())
+                                .getVirtualMachinesNumbers(group));
+            } catch (RuntimeException e) {
+                logger.error("Failed to get number of VMs of instances "
+                        + group.keySet(), e);
+            }
+        }
+        return numbers;
+    }
+
     /**
      * Returns a small status text for the current provisioning step.
      *
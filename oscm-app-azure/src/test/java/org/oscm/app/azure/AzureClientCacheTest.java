@@ -0,0 +1,104 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright FUJITSU LIMITED 2018
+ *
+ * <p>*****************************************************************************
+ */
+package org.oscm.app.azure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.function.Supplier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AzureClientCacheTest {
+
+  private AzureClientCache cache;
+  private int created;
+
+  @Before
+  public void setUp() {
+    cache = new AzureClientCache();
+    created = 0;
+  }
+
+  @Test
+  public void get() {
+    // given
+    AzureClientCache.Clients clients = cache.get("t", "c", "s", "secret", factory(3600000L));
+
+    // when
+    AzureClientCache.Clients result = cache.get("t", "c", "s", "secret", factory(3600000L));
+
+    // then
+    assertSame(clients, result);
+    assertEquals(1, created);
+  }
+
+  @Test
+  public void get_otherAccount() {
+    // given
+    AzureClientCache.Clients clients = cache.get("t", "c", "s", "secret", factory(3600000L));
+
+    // when
+    AzureClientCache.Clients otherSubscription =
+        cache.get("t", "c", "s2", "secret", factory(3600000L));
+    AzureClientCache.Clients otherSecret = cache.get("t", "c", "s", "other", factory(3600000L));
+
+    // then
+    assertNotSame(clients, otherSubscription);
+    assertNotSame(clients, otherSecret);
+    assertEquals(3, created);
+    assertEquals(3, cache.size());
+  }
+
+  @Test
+  public void get_tokenExpiresSoon() {
+    // given
+    AzureClientCache.Clients clients =
+        cache.get("t", "c", "s", "secret", factory(AzureClientCache.REFRESH_MARGIN_MS - 1000L));
+
+    // when
+    AzureClientCache.Clients result = cache.get("t", "c", "s", "secret", factory(3600000L));
+
+    // then
+    assertNotSame(clients, result);
+    assertEquals(2, created);
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void get_noExpiration() {
+    // when
+    cache.get(
+        "t", "c", "s", "secret", () -> new AzureClientCache.Clients(null, null, null, null, 0));
+
+    // then
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void clear() {
+    // given
+    AzureClientCache.Clients clients = cache.get("t", "c", "s", "secret", factory(3600000L));
+
+    // when
+    cache.clear();
+
+    // then
+    assertNotSame(clients, cache.get("t", "c", "s", "secret", factory(3600000L)));
+  }
+
+  private Supplier<AzureClientCache.Clients> factory(final long validity) {
+    return () -> {
+      created++;
+      return new AzureClientCache.Clients(
+          null, null, null, null, System.currentTimeMillis() + validity);
+    };
+  }
+}
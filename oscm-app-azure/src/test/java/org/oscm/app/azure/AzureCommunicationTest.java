@@ -19,6 +19,7 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.security.InvalidKeyException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -53,6 +54,7 @@ import com.microsoft.azure.management.compute.models.NetworkProfile;
 import com.microsoft.azure.management.compute.models.VirtualMachine;
 import com.microsoft.azure.management.compute.models.VirtualMachineGetResponse;
 import com.microsoft.azure.management.compute.models.VirtualMachineInstanceView;
+import com.microsoft.azure.management.compute.models.VirtualMachineListResponse;
 import com.microsoft.azure.management.network.NetworkInterfaceOperations;
 import com.microsoft.azure.management.network.NetworkResourceProviderClient;
 import com.microsoft.azure.management.network.PublicIpAddressOperations;
@@ -137,6 +139,7 @@ public class AzureCommunicationTest {
 
   @Before
   public void setUp() {
+    AzureClientCache.getInstance().clear();
     ph = mock(PropertyHandler.class);
     resourceManagementClient = mock(ResourceManagementClient.class);
   }
@@ -241,6 +244,55 @@ public class AzureCommunicationTest {
     // no exceptions
   }
 
+  @Test
+  public void constructor_cachedClients() {
+    // given
+    when(ph.getTenantId()).thenReturn(TENANT_ID);
+    when(ph.getClientId()).thenReturn(CLIENT_ID);
+    when(ph.getClientSecret()).thenReturn(CLIENT_SECRET);
+    final int[] tokenRequests = new int[1];
+    AzureCommunication first = createCountingAzureComm(tokenRequests);
+
+    // when
+    AzureCommunication second = createCountingAzureComm(tokenRequests);
+
+    // then
+    Assert.assertEquals(1, tokenRequests[0]);
+    Assert.assertSame(first.getComputeClient(), second.getComputeClient());
+    Assert.assertSame(first.getResourceClient(), second.getResourceClient());
+  }
+
+  @Test
+  public void constructor_otherSecret() {
+    // given
+    when(ph.getTenantId()).thenReturn(TENANT_ID);
+    when(ph.getClientId()).thenReturn(CLIENT_ID);
+    when(ph.getClientSecret()).thenReturn(CLIENT_SECRET);
+    final int[] tokenRequests = new int[1];
+    AzureCommunication first = createCountingAzureComm(tokenRequests);
+    when(ph.getClientSecret()).thenReturn("otherSecret");
+
+    // when
+    AzureCommunication second = createCountingAzureComm(tokenRequests);
+
+    // then
+    Assert.assertEquals(2, tokenRequests[0]);
+    Assert.assertNotSame(first.getComputeClient(), second.getComputeClient());
+  }
+
+  private AzureCommunication createCountingAzureComm(final int[] tokenRequests) {
+    return new AzureCommunication(ph) {
+      @Override
+      protected AuthenticationResult acquireToken(
+          AuthenticationContext context, ClientCredential clientCredential)
+          throws ExecutionException, InterruptedException {
+        tokenRequests[0]++;
+        return new AuthenticationResult(
+            "accessTokenType", "accessToken", "refreshToken", 1000000L, "idToken", null, false);
+      }
+    };
+  }
+
   @Test
   public void createInstanceTest() throws Exception {
     // given
@@ -804,6 +856,53 @@ public class AzureCommunicationTest {
     Assert.assertEquals("DefaultSize", server.getType());
   }
 
+  @Test
+  public void getVirtualMachinesNumberTest() {
+    // given
+    when(ph.getRegion()).thenReturn(REGION);
+    when(ph.getResourceGroupName()).thenReturn(RERSOURCE_GROUP_NAME);
+    when(ph.getStorageAccount()).thenReturn(STORAGE_ACCOUNT_NAME);
+    when(ph.getTemplateUrl()).thenReturn(TEMPLATE_URL);
+    when(ph.getDeploymentName()).thenReturn(DEPLOYMENT_NAME);
+    when(ph.getTemplateParametersUrl()).thenReturn(TEMPLATE_PARAMETER_URL);
+    when(ph.getInstanceCount()).thenReturn("1");
+    when(ph.getVirtualMachineImageID()).thenReturn(IMAGE_ID_WINDOWS_SERVER_2012);
+    when(ph.getVMName()).thenReturn(VMNAME);
+    azureComm = prepareAzureCommWithMocks();
+    // when
+    final int number = azureComm.getVirtualMachinesNumber();
+    // then
+    Assert.assertEquals(1, number);
+  }
+
+  @Test
+  public void getVirtualMachinesNumbersTest() {
+    // given
+    when(ph.getResourceGroupName()).thenReturn(RERSOURCE_GROUP_NAME);
+    when(ph.getInstanceCount()).thenReturn("1");
+    when(ph.getVMName()).thenReturn(VMNAME);
+    PropertyHandler other = mock(PropertyHandler.class);
+    when(other.getInstanceCount()).thenReturn("1");
+    when(other.getVMName()).thenReturn("othervm");
+    PropertyHandler multiple = mock(PropertyHandler.class);
+    when(multiple.getInstanceCount()).thenReturn("2");
+    when(multiple.getVMName()).thenReturn(VMNAME);
+    Map<String, PropertyHandler> instances = new HashMap<>();
+    instances.put("instance1", ph);
+    instances.put("instance2", other);
+    instances.put("instance3", multiple);
+    azureComm = prepareAzureCommWithMocks();
+    // when
+    final Map<String, Integer> numbers = azureComm.getVirtualMachinesNumbers(instances);
+    // then
+    Assert.assertEquals(3, numbers.size());
+    Assert.assertEquals(Integer.valueOf(1), numbers.get("instance1"));
+    Assert.assertEquals(Integer.valueOf(1), numbers.get("instance2"));
+    Assert.assertEquals(Integer.valueOf(0), numbers.get("instance3"));
+    verify(computeManagementClient.getVirtualMachinesOperations(), times(1))
+        .list(RERSOURCE_GROUP_NAME);
+  }
+
   @Test
   public void getAccessInfoTest_prvIp() {
     // given
@@ -1040,6 +1139,12 @@ public class AzureCommunicationTest {
           when(vmMock.getInstanceView()).thenReturn(vmInstView);
           when(responseValue.getVirtualMachine()).thenReturn(vmMock);
           when(vmOps.get(any(String.class), any(String.class))).thenReturn(responseValue);
+          VirtualMachineListResponse listResponse = mock(VirtualMachineListResponse.class);
+          VirtualMachine otherVm = mock(VirtualMachine.class);
+          when(otherVm.getName()).thenReturn("othervm");
+          when(listResponse.getVirtualMachines())
+              .thenReturn(new ArrayList<>(Arrays.asList(vmMock, otherVm)));
+          when(vmOps.list(any(String.class))).thenReturn(listResponse);
           when(vmOps.beginDeleting(any(String.class), any(String.class))).thenReturn(null);
           VirtualMachineGetResponse vmGetResponse = mock(VirtualMachineGetResponse.class);
           when(vmGetResponse.getVirtualMachine()).thenReturn(vmMock);
@@ -13,14 +13,17 @@ import org.oscm.app.azure.AzureCommunication;
 import org.oscm.app.azure.data.FlowState;
 import org.oscm.app.v2_0.data.*;
 import org.oscm.app.v2_0.exceptions.APPlatformException;
+import org.oscm.app.v2_0.intf.APPlatformService;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Mockito.*;
 import static org.oscm.app.azure.controller.PropertyHandler.*;
 
@@ -306,6 +309,52 @@ public class AzureControllerTest {
         // not implemented
     }
 
+    @Test
+    public void getServersNumber() throws APPlatformException {
+        //given
+        givenPlatformService();
+        when(azureCommMock.getVirtualMachinesNumber()).thenReturn(2);
+        //when
+        final int serversNumber = ctrl.getServersNumber(INSTANCE_ID, "subscriptionId", "organizationId");
+        //then
+        assertEquals(2, serversNumber);
+    }
+
+    @Test(expected = APPlatformException.class)
+    public void getServersNumber_failed() throws APPlatformException {
+        //given
+        givenPlatformService();
+        when(azureCommMock.getVirtualMachinesNumber()).thenThrow(new RuntimeException());
+        //when
+        ctrl.getServersNumber(INSTANCE_ID, "subscriptionId", "organizationId");
+    }
+
+    @Test
+    public void getServersNumbers() throws APPlatformException {
+        //given
+        Map<String, ProvisioningSettings> instances = new HashMap<>();
+        instances.put("instance1", getServersNumbersSettings("res1"));
+        instances.put("instance2", getServersNumbersSettings("res1"));
+        instances.put("instance3", getServersNumbersSettings("res2"));
+        Map<String, Integer> res1Numbers = new HashMap<>();
+        res1Numbers.put("instance1", 1);
+        res1Numbers.put("instance2", 2);
+        when(azureCommMock.getVirtualMachinesNumbers(anyMapOf(String.class, PropertyHandler.class)))
+                .thenReturn(res1Numbers)
+                .thenThrow(new RuntimeException());
+        //when
+        final Map<String, Integer> numbers = ctrl.getServersNumbers(instances);
+        //then
+        assertEquals(res1Numbers, numbers);
+        verify(azureCommMock, times(2)).getVirtualMachinesNumbers(anyMapOf(String.class, PropertyHandler.class));
+    }
+
+    private void givenPlatformService() throws APPlatformException {
+        ctrl.platformService = mock(APPlatformService.class);
+        when(ctrl.platformService.getServiceInstanceDetails(AzureController.ID, INSTANCE_ID,
+                "subscriptionId", "organizationId")).thenReturn(provSettingsMock);
+    }
+
     private HashMap<String, Setting> fillParameters(String modifier) {
         HashMap<String, Setting> parameters = new HashMap<>();
 
@@ -319,6 +368,15 @@ public class AzureControllerTest {
         return parameters;
     }
 
+    private ProvisioningSettings getServersNumbersSettings(String resourceGroup) {
+        final HashMap<String, Setting> parameters = fillParameters("1");
+        parameters.put(SUBSCRIPTION_ID, new Setting(SUBSCRIPTION_ID, "subscription1"));
+        parameters.put(RESOURCE_GROUP_NAME, new Setting(RESOURCE_GROUP_NAME, resourceGroup));
+        ProvisioningSettings settings = mock(ProvisioningSettings.class);
+        doReturn(parameters).when(settings).getParameters();
+        return settings;
+    }
+
     private ProvisioningSettings getParametersMockWithFlowState(String modifier, FlowState flowState) {
         ProvisioningSettings provSettingsMock = mock(ProvisioningSettings.class);
         final HashMap<String, Setting> mockParameters = fillParameters(modifier);
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.common.intf;
+
+import java.util.Map;
+
+import org.oscm.app.v2_0.data.ProvisioningSettings;
+import org.oscm.app.v2_0.exceptions.APPlatformException;
+import org.oscm.app.v2_0.intf.APPlatformController;
+
+/**
+ * Remote interface of a controller which determines the number of servers of
+ * several service instances at once. The inventory of each cloud endpoint is
+ * queried once for all instances located there instead of once per instance.
+ * <p>
+ * APP invokes {@link #getServersNumbers(Map)} by its name, because this
+ * interface is loaded separately by each controller application. Controllers
+ * not implementing it are asked for each instance with
+ * {@link APPlatformController#getServersNumber(String, String, String)}.
+ */
+public interface ServersNumberController extends APPlatformController {
+
+    /**
+     * The name of the bulk method.
+     */
+    String GET_SERVERS_NUMBERS = "getServersNumbers";
+
+    /**
+     * Returns the number of servers of the given service instances.
+     *
+     * @param instances
+     *            the provisioning settings of the instances by instance ID
+     * @return the number of servers by instance ID; instances whose number
+     *         cannot be determined are missing
+     * @throws APPlatformException
+     *             if the numbers cannot be determined at all
+     */
+    Map<String, Integer> getServersNumbers(
+            Map<String, ProvisioningSettings> instances)
+            throws APPlatformException;
+}
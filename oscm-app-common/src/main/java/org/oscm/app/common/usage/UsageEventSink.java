@@ -0,0 +1,497 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.common.usage;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.oscm.app.v2_0.BSSWebServiceFactory;
+import org.oscm.app.v2_0.data.PasswordAuthentication;
+import org.oscm.app.v2_0.exceptions.ConfigurationException;
+import org.oscm.intf.EventService;
+import org.oscm.types.exceptions.DuplicateEventException;
+import org.oscm.types.exceptions.ObjectNotFoundException;
+import org.oscm.types.exceptions.OrganizationAuthoritiesException;
+import org.oscm.types.exceptions.ValidationException;
+import org.oscm.vo.VOGatheredEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Submits the usage events of all instances to the event service of BES.
+ * <p>
+ * Each event is first written to a spool directory and then sent by a
+ * background thread, so that the usage run neither waits for BES nor loses
+ * events while BES is not reachable. Events submitted within
+ * {@link #FLUSH_DELAY_MS} milliseconds are sent together by at most
+ * {@link #MAX_PARALLEL_REQUESTS} threads, each of which keeps one event
+ * service port per technology provider. Events which could not be sent are
+ * retried every {@link #RETRY_INTERVAL_MS} milliseconds; events rejected by
+ * BES are kept with the suffix {@value #SUFFIX_FAILED}.
+ * <p>
+ * The spool does not contain passwords. Events spooled before a restart are
+ * sent with the credentials of the {@link #setCredentialsLookup(Callable)
+ * credentials lookup} of the controller, or as soon as an event of the same
+ * technology provider is submitted again.
+ * <p>
+ * Each controller has its own sink and spool directory. The threads of all
+ * sinks are stopped with {@link #shutdown()} when the controller is
+ * undeployed.
+ */
+public class UsageEventSink {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(UsageEventSink.class);
+
+    /**
+     * System property for the spool directory. Each controller spools its
+     * events to a subdirectory named by its controller ID.
+     */
+    public static final String SPOOL_DIR_PROPERTY = "org.oscm.app.usage.spool";
+
+    /**
+     * Spool directory used if {@link #SPOOL_DIR_PROPERTY} is not set, located
+     * in the base directory of the server or else in the temporary directory.
+     */
+    static final String DEFAULT_SPOOL_DIR = "oscm-app-usage";
+
+    static final int MAX_PARALLEL_REQUESTS = 5;
+    static final int BATCH_SIZE = 500;
+    static final long FLUSH_DELAY_MS = 1000;
+    static final long RETRY_INTERVAL_MS = 5 * 60 * 1000L;
+
+    static final String SUFFIX_EVENT = ".event";
+    static final String SUFFIX_FAILED = ".failed";
+    private static final String SUFFIX_TMP = ".tmp";
+
+    private static final Map<String, UsageEventSink> INSTANCES = new HashMap<String, UsageEventSink>();
+
+    private final File spoolDir;
+    private final Map<String, PasswordAuthentication> credentials = new ConcurrentHashMap<String, PasswordAuthentication>();
+    private final ThreadLocal<Map<String, EventService>> ports = ThreadLocal
+            .withInitial(HashMap::new);
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private volatile Callable<PasswordAuthentication> credentialsLookup;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService senders;
+
+    UsageEventSink(File spoolDir) {
+        this.spoolDir = spoolDir;
+    }
+
+    /**
+     * Returns the sink shared by all instances of the given controller.
+     *
+     * @param controllerId
+     *            the ID of the controller
+     * @return the sink
+     */
+    public static synchronized UsageEventSink getInstance(
+            String controllerId) {
+        UsageEventSink sink = INSTANCES.get(controllerId);
+        if (sink == null) {
+            sink = new UsageEventSink(new File(getSpoolDir(), controllerId));
+            INSTANCES.put(controllerId, sink);
+        }
+        return sink;
+    }
+
+    static File getSpoolDir() {
+        String dir = System.getProperty(SPOOL_DIR_PROPERTY);
+        if (dir != null && !dir.trim().isEmpty()) {
+            return new File(dir.trim());
+        }
+        String base = System.getProperty("catalina.base");
+        if (base == null || base.trim().isEmpty()) {
+            base = System.getProperty("java.io.tmpdir");
+        }
+        File spoolDir = new File(base, DEFAULT_SPOOL_DIR);
+        LOGGER.info("The system property " + SPOOL_DIR_PROPERTY
+                + " is not set, usage events are spooled to " + spoolDir);
+        return spoolDir;
+    }
+
+    /**
+     * Stops the threads of all sinks. Events not sent yet stay in the spool
+     * directories and are sent after the next deployment.
+     */
+    public static synchronized void shutdown() {
+        for (UsageEventSink sink : INSTANCES.values()) {
+            sink.close();
+        }
+        INSTANCES.clear();
+    }
+
+    /**
+     * Spools the given event and schedules it for submission. An event with
+     * the same unique id spooled before for the instance is replaced.
+     *
+     * @param authentication
+     *            the technology provider credentials for the event service
+     * @param technicalServiceId
+     *            the technical service of the instance
+     * @param instanceId
+     *            the instance the event belongs to
+     * @param event
+     *            the event
+     * @throws IOException
+     *             if the event cannot be spooled
+     */
+    public void submit(PasswordAuthentication authentication,
+            String technicalServiceId, String instanceId,
+            VOGatheredEvent event) throws IOException {
+        credentials.put(authentication.getUserName(), authentication);
+        spool(new SpooledEvent(authentication.getUserName(),
+                technicalServiceId, instanceId, event));
+        scheduleFlush();
+    }
+
+    /**
+     * Sets the lookup of the technology provider credentials of the
+     * controller, which are used to send the events spooled before a restart.
+     * The spooled events are sent right away.
+     *
+     * @param lookup
+     *            returns the current credentials of the technology provider
+     */
+    public void setCredentialsLookup(
+            Callable<PasswordAuthentication> lookup) {
+        credentialsLookup = lookup;
+        if (!listSpooled().isEmpty()) {
+            scheduleFlush();
+        }
+    }
+
+    void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            getScheduler().schedule(this::flush, FLUSH_DELAY_MS,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends all spooled events in batches of {@link #BATCH_SIZE}. Stops at the
+     * first batch in which events could not be sent.
+     */
+    void flush() {
+        flushScheduled.set(false);
+        try {
+            List<File> files = listSpooled();
+            if (!files.isEmpty()) {
+                lookupCredentials();
+            }
+            for (int i = 0; i < files.size(); i += BATCH_SIZE) {
+                if (!send(files.subList(i,
+                        Math.min(files.size(), i + BATCH_SIZE)))) {
+                    LOGGER.warn("Event service not reachable, "
+                            + (files.size() - i)
+                            + " usage events will be retried");
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to submit usage events", e);
+        }
+    }
+
+    /**
+     * Adds the credentials of the lookup, unless the same technology provider
+     * has submitted an event since. The lookup is dropped once it succeeded.
+     */
+    private void lookupCredentials() {
+        Callable<PasswordAuthentication> lookup = credentialsLookup;
+        if (lookup == null) {
+            return;
+        }
+        try {
+            PasswordAuthentication authentication = lookup.call();
+            if (authentication != null
+                    && authentication.getUserName() != null) {
+                credentials.putIfAbsent(authentication.getUserName(),
+                        authentication);
+                credentialsLookup = null;
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Cannot look up the technology provider credentials "
+                    + "for spooled usage events: " + e.getMessage());
+        }
+    }
+
+    private boolean send(List<File> batch) {
+        List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+        for (File file : batch) {
+            results.add(getSenders().submit(() -> send(file)));
+        }
+        boolean sent = true;
+        for (Future<Boolean> result : results) {
+            try {
+                sent &= result.get().booleanValue();
+            } catch (ExecutionException e) {
+                LOGGER.error("Failed to submit usage event", e.getCause());
+                sent = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * Sends the given spooled event.
+     *
+     * @return <code>false</code> if the event could not be sent and has to be
+     *         retried
+     */
+    private Boolean send(File file) {
+        SpooledEvent spooled;
+        try {
+            spooled = SpooledEvent.load(file);
+        } catch (IOException e) {
+            LOGGER.error("Cannot read spooled usage event " + file, e);
+            moveToFailed(file);
+            return Boolean.TRUE;
+        }
+        PasswordAuthentication authentication = credentials.get(spooled.user);
+        if (authentication == null) {
+            // sent with the next event or lookup of that technology provider
+            return Boolean.TRUE;
+        }
+
+        try {
+            getEventService(authentication).recordEventForInstance(
+                    spooled.technicalServiceId, spooled.instanceId,
+                    spooled.event);
+        } catch (DuplicateEventException e) {
+            LOGGER.debug("Event already inserted");
+        } catch (ObjectNotFoundException | OrganizationAuthoritiesException
+                | ValidationException e) {
+            LOGGER.error("Usage event " + spooled.event.getUniqueId()
+                    + " of instance " + spooled.instanceId + " rejected", e);
+            moveToFailed(file);
+            return Boolean.TRUE;
+        } catch (Exception e) {
+            LOGGER.debug("Failed to submit usage event "
+                    + spooled.event.getUniqueId() + ": " + e.getMessage());
+            ports.get().remove(spooled.user);
+            return Boolean.FALSE;
+        }
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            LOGGER.error("Cannot delete spooled usage event " + file, e);
+        }
+        return Boolean.TRUE;
+    }
+
+    /**
+     * Returns the event service port of the current thread for the given
+     * credentials.
+     */
+    private EventService getEventService(PasswordAuthentication authentication)
+            throws ConfigurationException, MalformedURLException {
+        Map<String, EventService> cached = ports.get();
+        EventService svc = cached.get(authentication.getUserName());
+        if (svc == null) {
+            svc = createEventService(authentication);
+            cached.put(authentication.getUserName(), svc);
+        }
+        return svc;
+    }
+
+    /**
+     * Protected method for unit test purposes.
+     */
+    protected EventService createEventService(
+            PasswordAuthentication authentication)
+            throws ConfigurationException, MalformedURLException {
+        return BSSWebServiceFactory.getBSSWebService(EventService.class,
+                authentication);
+    }
+
+    private void spool(SpooledEvent spooled) throws IOException {
+        Path dir = spoolDir.toPath();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, "event", SUFFIX_TMP);
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                spooled.toProperties().store(out, null);
+            }
+            Files.move(tmp, dir.resolve(spooled.getFileName()),
+                    REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    List<File> listSpooled() {
+        File[] files = spoolDir
+                .listFiles((dir, name) -> name.endsWith(SUFFIX_EVENT));
+        return files == null ? new ArrayList<File>() : Arrays.asList(files);
+    }
+
+    private static void moveToFailed(File file) {
+        try {
+            Files.move(file.toPath(), file.toPath()
+                    .resolveSibling(file.getName() + SUFFIX_FAILED),
+                    REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.error("Cannot move spooled usage event " + file, e);
+        }
+    }
+
+    /**
+     * Stops the threads of this sink. Running submissions are interrupted and
+     * retried after the next deployment.
+     */
+    synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (senders != null) {
+            senders.shutdownNow();
+            senders = null;
+        }
+        flushScheduled.set(false);
+    }
+
+    private synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "UsageEventSink");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::flush, RETRY_INTERVAL_MS,
+                    RETRY_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+        return scheduler;
+    }
+
+    private synchronized ExecutorService getSenders() {
+        if (senders == null) {
+            senders = Executors.newFixedThreadPool(MAX_PARALLEL_REQUESTS, r -> {
+                Thread thread = new Thread(r, "UsageEventSink-sender");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return senders;
+    }
+
+    /**
+     * An event together with the data needed to submit it.
+     */
+    static class SpooledEvent {
+
+        private static final String USER = "user";
+        private static final String TECHNICAL_SERVICE_ID = "technicalServiceId";
+        private static final String INSTANCE_ID = "instanceId";
+        private static final String ACTOR = "actor";
+        private static final String EVENT_ID = "eventId";
+        private static final String MULTIPLIER = "multiplier";
+        private static final String OCCURRENCE_TIME = "occurrenceTime";
+        private static final String UNIQUE_ID = "uniqueId";
+
+        final String user;
+        final String technicalServiceId;
+        final String instanceId;
+        final VOGatheredEvent event;
+
+        SpooledEvent(String user, String technicalServiceId,
+                String instanceId, VOGatheredEvent event) {
+            this.user = user;
+            this.technicalServiceId = technicalServiceId;
+            this.instanceId = instanceId;
+            this.event = event;
+        }
+
+        /**
+         * Returns the file name, which is the same for all events with the
+         * same unique id of an instance.
+         */
+        String getFileName() {
+            return UUID.nameUUIDFromBytes((instanceId + "\n"
+                    + event.getUniqueId()).getBytes(StandardCharsets.UTF_8))
+                    + SUFFIX_EVENT;
+        }
+
+        Properties toProperties() {
+            Properties props = new Properties();
+            put(props, USER, user);
+            put(props, TECHNICAL_SERVICE_ID, technicalServiceId);
+            put(props, INSTANCE_ID, instanceId);
+            put(props, ACTOR, event.getActor());
+            put(props, EVENT_ID, event.getEventId());
+            put(props, MULTIPLIER, String.valueOf(event.getMultiplier()));
+            put(props, OCCURRENCE_TIME,
+                    String.valueOf(event.getOccurrenceTime()));
+            put(props, UNIQUE_ID, event.getUniqueId());
+            return props;
+        }
+
+        private static void put(Properties props, String key, String value) {
+            if (value != null) {
+                props.setProperty(key, value);
+            }
+        }
+
+        static SpooledEvent load(File file) throws IOException {
+            Properties props = new Properties();
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                props.load(in);
+            }
+            if (props.getProperty(USER) == null
+                    || props.getProperty(INSTANCE_ID) == null) {
+                throw new IOException("Incomplete usage event " + file);
+            }
+            try {
+                VOGatheredEvent event = new VOGatheredEvent();
+                event.setActor(props.getProperty(ACTOR));
+                event.setEventId(props.getProperty(EVENT_ID));
+                event.setMultiplier(
+                        Long.parseLong(props.getProperty(MULTIPLIER)));
+                event.setOccurrenceTime(
+                        Long.parseLong(props.getProperty(OCCURRENCE_TIME)));
+                event.setUniqueId(props.getProperty(UNIQUE_ID));
+                return new SpooledEvent(props.getProperty(USER),
+                        props.getProperty(TECHNICAL_SERVICE_ID),
+                        props.getProperty(INSTANCE_ID), event);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid usage event " + file, e);
+            }
+        }
+    }
+}
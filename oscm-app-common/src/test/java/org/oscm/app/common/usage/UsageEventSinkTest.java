@@ -0,0 +1,346 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.common.usage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentCaptor.forClass;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.ws.WebServiceException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.oscm.app.v2_0.data.PasswordAuthentication;
+import org.oscm.app.v2_0.exceptions.ConfigurationException;
+import org.oscm.intf.EventService;
+import org.oscm.types.exceptions.DuplicateEventException;
+import org.oscm.types.exceptions.ValidationException;
+import org.oscm.vo.VOGatheredEvent;
+
+public class UsageEventSinkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File spoolDir;
+    private EventService svc;
+    private AtomicInteger portsCreated;
+    private UsageEventSink sink;
+    private PasswordAuthentication auth;
+
+    @Before
+    public void setUp() throws Exception {
+        spoolDir = new File(folder.getRoot(), "spool");
+        svc = mock(EventService.class);
+        portsCreated = new AtomicInteger();
+        sink = givenSink();
+        auth = new PasswordAuthentication("user", "secret");
+    }
+
+    @After
+    public void tearDown() {
+        UsageEventSink.shutdown();
+        System.clearProperty(UsageEventSink.SPOOL_DIR_PROPERTY);
+        System.clearProperty("catalina.base");
+    }
+
+    @Test
+    public void getInstance_noSpoolDir() throws Exception {
+        // given
+        System.setProperty("catalina.base", folder.getRoot().getPath());
+
+        // when
+        UsageEventSink sink = UsageEventSink.getInstance("ess.openstack");
+
+        // then
+        sink.submit(auth, "tsId", "instance1", event("id1", 5));
+        assertEquals(1, new File(folder.getRoot(),
+                UsageEventSink.DEFAULT_SPOOL_DIR + "/ess.openstack")
+                        .list().length);
+    }
+
+    @Test
+    public void getSpoolDir_noServer() throws Exception {
+        // when
+        File dir = UsageEventSink.getSpoolDir();
+
+        // then
+        assertEquals(new File(System.getProperty("java.io.tmpdir"),
+                UsageEventSink.DEFAULT_SPOOL_DIR), dir);
+    }
+
+    @Test
+    public void getInstance() throws Exception {
+        // given
+        System.setProperty(UsageEventSink.SPOOL_DIR_PROPERTY,
+                spoolDir.getPath());
+
+        // when
+        UsageEventSink openstack = UsageEventSink.getInstance("ess.openstack");
+        UsageEventSink vmware = UsageEventSink.getInstance("ess.vmware");
+
+        // then
+        assertSame(openstack, UsageEventSink.getInstance("ess.openstack"));
+        assertNotSame(openstack, vmware);
+        openstack.submit(auth, "tsId", "instance1", event("id1", 5));
+        assertEquals(1, new File(spoolDir, "ess.openstack").list().length);
+    }
+
+    @Test
+    public void shutdown() throws Exception {
+        // given
+        System.setProperty(UsageEventSink.SPOOL_DIR_PROPERTY,
+                spoolDir.getPath());
+        UsageEventSink before = UsageEventSink.getInstance("ess.openstack");
+
+        // when
+        UsageEventSink.shutdown();
+
+        // then
+        assertNotSame(before, UsageEventSink.getInstance("ess.openstack"));
+    }
+
+    @Test
+    public void submit() throws Exception {
+        // when
+        sink.submit(auth, "tsId", "instance1", event("id1", 5));
+
+        // then
+        assertEquals(1, sink.listSpooled().size());
+        verifyZeroInteractions(svc);
+    }
+
+    @Test
+    public void submit_sameEvent() throws Exception {
+        // when
+        sink.submit(auth, "tsId", "instance1", event("id1", 5));
+        sink.submit(auth, "tsId", "instance1", event("id1", 6));
+        sink.submit(auth, "tsId", "instance2", event("id1", 5));
+
+        // then
+        assertEquals(2, sink.listSpooled().size());
+    }
+
+    @Test
+    public void flush() throws Exception {
+        // given
+        sink.submit(auth, "tsId", "instance1", event("id1", 5));
+        ArgumentCaptor<VOGatheredEvent> event = forClass(VOGatheredEvent.class);
+
+        // when
+        sink.flush();
+
+        // then
+        verify(svc).recordEventForInstance(eq("tsId"), eq("instance1"),
+                event.capture());
+        assertEquals("id1", event.getValue().getUniqueId());
+        assertEquals("EVENT_CPU_HOURS", event.getValue().getEventId());
+        assertEquals("user", event.getValue().getActor());
+        assertEquals(5L, event.getValue().getMultiplier());
+        assertEquals(1000L, event.getValue().getOccurrenceTime());
+        assertEquals(0, sink.listSpooled().size());
+    }
+
+    @Test
+    public void flush_portsCached() throws Exception {
+        // given
+        for (int i = 0; i < 20; i++) {
+            sink.submit(auth, "tsId", "instance" + i, event("id1", 5));
+        }
+
+        // when
+        sink.flush();
+
+        // then
+        verify(svc, times(20)).recordEventForInstance(anyString(),
+                anyString(), any(VOGatheredEvent.class));
+        assertTrue(portsCreated.get() <= UsageEventSink.MAX_PARALLEL_REQUESTS);
+    }
+
+    @Test
+    public void flush_duplicate() throws Exception {
+        // given
+        doThrow(DuplicateEventException.class).when(svc)
+                .recordEventForInstance(anyString(), anyString(),
+                        any(VOGatheredEvent.class));
+        sink.submit(auth, "tsId", "instance1", event("id1", 5));
+
+        // when
+        sink.flush();
+
+        // then
+        assertEquals(0, sink.listSpooled().size());
+    }
+
+    @Test
+    public void flush_rejected() throws Exception {
+        // given
+        doThrow(ValidationException.class).when(svc).recordEventForInstance(
+                anyString(), anyString(), any(VOGatheredEvent.class));
+        sink.submit(auth, "tsId", "instance1", event("id1", 5));
+
+        // when
+        sink.flush();
+
+        // then
+        assertEquals(0, sink.listSpooled().size());
+        assertEquals(1, spoolDir.listFiles((dir, name) -> name
+                .endsWith(UsageEventSink.SUFFIX_FAILED)).length);
+    }
+
+    @Test
+    public void flush_notReachable() throws Exception {
+        // given
+        doThrow(new WebServiceException("down")).doNothing().when(svc)
+                .recordEventForInstance(anyString(), anyString(),
+                        any(VOGatheredEvent.class));
+        sink.submit(auth, "tsId", "instance1", event("id1", 5));
+        sink.flush();
+        assertEquals(1, sink.listSpooled().size());
+
+        // when
+        sink.flush();
+
+        // then
+        assertEquals(0, sink.listSpooled().size());
+        assertEquals(2, portsCreated.get());
+    }
+
+    @Test
+    public void flush_afterRestart() throws Exception {
+        // given
+        sink.submit(auth, "tsId", "instance1", event("id1", 5));
+        sink = givenSink();
+
+        // when
+        sink.flush();
+
+        // then
+        verifyZeroInteractions(svc);
+        assertEquals(1, sink.listSpooled().size());
+
+        // when
+        doNothing().when(svc).recordEventForInstance(anyString(),
+                anyString(), any(VOGatheredEvent.class));
+        sink.submit(auth, "tsId", "instance2", event("id1", 5));
+        sink.flush();
+
+        // then
+        verify(svc, times(2)).recordEventForInstance(anyString(),
+                anyString(), any(VOGatheredEvent.class));
+        assertEquals(0, sink.listSpooled().size());
+    }
+
+    @Test
+    public void flush_afterRestartWithLookup() throws Exception {
+        // given
+        sink.submit(auth, "tsId", "instance1", event("id1", 5));
+        sink = givenSink();
+        AtomicInteger lookups = new AtomicInteger();
+        sink.setCredentialsLookup(() -> {
+            lookups.incrementAndGet();
+            return new PasswordAuthentication("user", "secret");
+        });
+
+        // when
+        sink.flush();
+        sink.submit(auth, "tsId", "instance2", event("id1", 5));
+        sink.flush();
+
+        // then
+        verify(svc, times(2)).recordEventForInstance(anyString(),
+                anyString(), any(VOGatheredEvent.class));
+        assertEquals(0, sink.listSpooled().size());
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    public void flush_lookupFailed() throws Exception {
+        // given
+        sink.submit(auth, "tsId", "instance1", event("id1", 5));
+        sink = givenSink();
+        AtomicInteger lookups = new AtomicInteger();
+        sink.setCredentialsLookup(() -> {
+            if (lookups.incrementAndGet() == 1) {
+                throw new ConfigurationException("not available");
+            }
+            return new PasswordAuthentication("user", "secret");
+        });
+        sink.flush();
+        verifyZeroInteractions(svc);
+
+        // when
+        sink.flush();
+
+        // then
+        verify(svc).recordEventForInstance(anyString(), anyString(),
+                any(VOGatheredEvent.class));
+        assertEquals(0, sink.listSpooled().size());
+    }
+
+    @Test
+    public void flush_lookupOtherUser() throws Exception {
+        // given
+        sink.submit(auth, "tsId", "instance1", event("id1", 5));
+        sink = givenSink();
+        sink.setCredentialsLookup(
+                () -> new PasswordAuthentication("other", "secret"));
+
+        // when
+        sink.flush();
+
+        // then
+        verifyZeroInteractions(svc);
+        assertEquals(1, sink.listSpooled().size());
+    }
+
+    private UsageEventSink givenSink() {
+        return new UsageEventSink(spoolDir) {
+            @Override
+            void scheduleFlush() {
+                // flushed by the test
+            }
+
+            @Override
+            protected EventService createEventService(
+                    PasswordAuthentication authentication) {
+                portsCreated.incrementAndGet();
+                return svc;
+            }
+        };
+    }
+
+    private static VOGatheredEvent event(String uniqueId, long multiplier) {
+        VOGatheredEvent event = new VOGatheredEvent();
+        event.setActor("user");
+        event.setEventId("EVENT_CPU_HOURS");
+        event.setMultiplier(multiplier);
+        event.setOccurrenceTime(1000L);
+        event.setUniqueId(uniqueId);
+        return event;
+    }
+}
@@ -55,6 +55,20 @@ public class HeatProcessor {
             .getLogger(HeatProcessor.class);
     private static URLStreamHandler streamHandler;
 
+    private final TemplateCache templateCache;
+
+    public HeatProcessor() {
+        this(TemplateCache.getInstance());
+    }
+
+    /**
+     * @param templateCache
+     *            the cache for the template content
+     */
+    HeatProcessor(TemplateCache templateCache) {
+        this.templateCache = templateCache;
+    }
+
     /**
      * Sets the URL stream handler. <b>Should only be used for unit testing!</b>
      * 
@@ -140,19 +154,37 @@ public class HeatProcessor {
         try {
             String name = ph.getTemplateName();
 
+            String key = TemplateCache.key(name, OpenStackController.ID,
+                    ph.getTPAuthentication());
+            TemplateCache.Entry cached = templateCache.get(key);
+            if (cached != null
+                    && cached.isFresh(System.currentTimeMillis())) {
+                return cached.getContent();
+            }
             try {
                 APPTemplateService templateService = getTemplateService();
 
                 Template t = templateService.getTemplate(name,
                         OpenStackController.ID, ph.getTPAuthentication());
 
-                return new String(t.getContent(), StandardCharsets.UTF_8);
+                return cache(key, name, cached,
+                        new String(t.getContent(), StandardCharsets.UTF_8),
+                        null, t.getLastChange() == null ? null
+                                : String.valueOf(t.getLastChange().getTime()));
             } catch (NamingException | APPlatformException e) {
                 // service or template not found, continue with url
             }
 
             url = ph.getTemplateUrl();
-            return getText(url);
+            String content = getText(url);
+            // the service is not asked again until the download is
+            // revalidated
+            TemplateCache.Entry downloaded = templateCache
+                    .get(TemplateCache.key(url));
+            if (downloaded != null) {
+                templateCache.put(key, downloaded);
+            }
+            return content;
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
             throw new AbortException(
@@ -171,9 +203,37 @@ public class HeatProcessor {
         return InitialContext.doLookup(APPTemplateService.JNDI_NAME);
     }
 
-    private static String getText(String url) throws Exception {
+    /**
+     * Downloads the template from the given URL. A cached template is
+     * revalidated with a conditional request and reused if the server responds
+     * with 304 (Not Modified).
+     */
+    private String getText(String url) throws Exception {
+
+        String key = TemplateCache.key(url);
+        TemplateCache.Entry cached = templateCache.get(key);
+        long now = System.currentTimeMillis();
+        if (cached != null && cached.isFresh(now)) {
+            return cached.getContent();
+        }
 
         HttpURLConnection connection = connectUsingProxy(url);
+        if (cached != null) {
+            if (cached.getETag() != null) {
+                connection.setRequestProperty("If-None-Match",
+                        cached.getETag());
+            }
+            if (cached.getLastModified() != null) {
+                connection.setRequestProperty("If-Modified-Since",
+                        cached.getLastModified());
+            }
+            if (connection
+                    .getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                logger.debug("Template " + url + " not modified");
+                cached.validated(now);
+                return cached.getContent();
+            }
+        }
 
         StringBuilder response = new StringBuilder();
         String inputLine;
@@ -185,7 +245,27 @@ public class HeatProcessor {
         } finally {
             in.close();
         }
-        return response.toString();
+        return cache(key, url, cached, response.toString(),
+                connection.getHeaderField("ETag"),
+                connection.getHeaderField("Last-Modified"));
+    }
+
+    /**
+     * Caches the given template content unless the cached entry already holds
+     * the same version, and returns the content to be used.
+     */
+    private String cache(String key, String name, TemplateCache.Entry cached,
+            String content, String eTag, String lastModified) {
+        long now = System.currentTimeMillis();
+        if (cached != null && cached.isVersion(eTag, lastModified)) {
+            cached.validated(now);
+            return cached.getContent();
+        }
+        logger.debug("Caching template " + name + " version "
+                + (eTag != null ? eTag : lastModified));
+        templateCache.put(key,
+                new TemplateCache.Entry(content, eTag, lastModified, now));
+        return content;
     }
 
     private static HttpURLConnection connectUsingProxy(String restUri)
@@ -32,13 +32,29 @@ public class KeystoneClient {
 
     private final OpenStackConnection connection;
 
+    private final KeystoneTokenCache tokenCache;
+
     /**
      * 
      * @param connection
      *            The connection that needs to be authenticated
      */
     public KeystoneClient(OpenStackConnection connection) {
+        this(connection, KeystoneTokenCache.getInstance());
+    }
+
+    /**
+     * 
+     * @param connection
+     *            The connection that needs to be authenticated
+     * @param tokenCache
+     *            the cache for the issued tokens, <code>null</code> to always
+     *            request a new token
+     */
+    public KeystoneClient(OpenStackConnection connection,
+            KeystoneTokenCache tokenCache) {
         this.connection = connection;
+        this.tokenCache = tokenCache;
     }
 
     /**
@@ -57,6 +73,18 @@ public class KeystoneClient {
         LOGGER.debug("KeystoneClient.authenticate() user: " + user + "  domain:"
                 + domainName + " tenant ID:" + tenantId + "  endpoint: "
                 + connection.getKeystoneEndpoint());
+        if (tokenCache != null) {
+            KeystoneTokenCache.Token cached = tokenCache.get(
+                    connection.getKeystoneEndpoint(), user, password,
+                    domainName, tenantId);
+            if (cached != null) {
+                LOGGER.debug("KeystoneClient.authenticate() using cached token");
+                connection.useAuthentication(cached.getAuthToken());
+                connection.setHeatEndpoint(cached.getHeatEndpoint());
+                connection.setNovaEndpoint(cached.getNovaEndpoint());
+                return;
+            }
+        }
         String uri = connection.getKeystoneEndpoint() + "/tokens";
 
         JSONObject request = new JSONObject();
@@ -168,6 +196,14 @@ public class KeystoneClient {
             connection.useAuthentication(authToken);
             connection.setHeatEndpoint(heatEndpoint);
             connection.setNovaEndpoint(novaEndpoint);
+            if (tokenCache != null) {
+                long expiresAt = KeystoneTokenCache
+                        .parseExpiresAt(token.optString("expires_at", null));
+                tokenCache.put(connection.getKeystoneEndpoint(), user,
+                        password, domainName, tenantId,
+                        new KeystoneTokenCache.Token(authToken, heatEndpoint,
+                                novaEndpoint, expiresAt));
+            }
         } catch (JSONException e) {
             throw new RuntimeException(e);
         }
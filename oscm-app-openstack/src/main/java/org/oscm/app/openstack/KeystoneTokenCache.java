@@ -0,0 +1,198 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.openstack;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache for the tokens issued by Keystone. Tokens are kept per Keystone URL,
+ * user, domain, tenant and password and are handed out until shortly before
+ * they expire. Tokens without expiration date are not cached.
+ */
+public class KeystoneTokenCache {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(KeystoneTokenCache.class);
+
+    /**
+     * Tokens are renewed this many milliseconds before they expire.
+     */
+    static final long REFRESH_MARGIN_MS = 5 * 60 * 1000L;
+
+    private static final KeystoneTokenCache INSTANCE = new KeystoneTokenCache();
+
+    private final ConcurrentMap<String, Token> tokens = new ConcurrentHashMap<String, Token>();
+
+    /**
+     * Returns the cache shared by all Keystone clients.
+     */
+    public static KeystoneTokenCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the cached token for the given credentials or <code>null</code>
+     * if no token is cached or the token is about to expire.
+     */
+    public Token get(String keystoneUrl, String user, String password,
+            String domainName, String tenantId) {
+        String key = key(keystoneUrl, user, password, domainName, tenantId);
+        Token token = tokens.get(key);
+        if (token == null) {
+            return null;
+        }
+        if (!token.isValid(System.currentTimeMillis())) {
+            tokens.remove(key, token);
+            return null;
+        }
+        return token;
+    }
+
+    /**
+     * Caches the given token unless it has no expiration date.
+     */
+    public void put(String keystoneUrl, String user, String password,
+            String domainName, String tenantId, Token token) {
+        if (token.getExpiresAt() <= 0) {
+            return;
+        }
+        removeExpired();
+        tokens.put(key(keystoneUrl, user, password, domainName, tenantId),
+                token);
+    }
+
+    /**
+     * Removes the given token from the cache, e.g. after it has been rejected
+     * by an OpenStack service.
+     */
+    public void invalidate(String authToken) {
+        if (authToken == null) {
+            return;
+        }
+        Iterator<Token> it = tokens.values().iterator();
+        while (it.hasNext()) {
+            if (authToken.equals(it.next().getAuthToken())) {
+                LOGGER.debug("Removing rejected token from cache");
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached tokens.
+     */
+    public void clear() {
+        tokens.clear();
+    }
+
+    int size() {
+        return tokens.size();
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Token> entry : tokens.entrySet()) {
+            if (!entry.getValue().isValid(now)) {
+                tokens.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static String key(String keystoneUrl, String user, String password,
+            String domainName, String tenantId) {
+        return keystoneUrl + "\n" + user + "\n" + domainName + "\n" + tenantId
+                + "\n" + digest(password);
+    }
+
+    static String digest(String password) {
+        if (password == null) {
+            return "";
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(password.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hash) {
+                sb.append(String.format("%02x", Byte.valueOf(b)));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Parses the <code>expires_at</code> value of a Keystone token.
+     *
+     * @return the expiration time in milliseconds or 0 if the value is not
+     *         set or cannot be parsed
+     */
+    static long parseExpiresAt(String expiresAt) {
+        if (expiresAt == null || expiresAt.trim().length() == 0) {
+            return 0;
+        }
+        try {
+            return OffsetDateTime.parse(expiresAt.trim()).toInstant()
+                    .toEpochMilli();
+        } catch (DateTimeParseException e) {
+            LOGGER.warn("Cannot parse token expiration date " + expiresAt);
+            return 0;
+        }
+    }
+
+    /**
+     * A token together with the service endpoints from its catalog.
+     */
+    public static class Token {
+
+        private final String authToken;
+        private final String heatEndpoint;
+        private final String novaEndpoint;
+        private final long expiresAt;
+
+        public Token(String authToken, String heatEndpoint,
+                String novaEndpoint, long expiresAt) {
+            this.authToken = authToken;
+            this.heatEndpoint = heatEndpoint;
+            this.novaEndpoint = novaEndpoint;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getAuthToken() {
+            return authToken;
+        }
+
+        public String getHeatEndpoint() {
+            return heatEndpoint;
+        }
+
+        public String getNovaEndpoint() {
+            return novaEndpoint;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        boolean isValid(long now) {
+            return now < expiresAt - REFRESH_MARGIN_MS;
+        }
+    }
+}
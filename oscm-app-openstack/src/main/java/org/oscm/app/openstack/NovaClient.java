@@ -110,10 +110,6 @@ public class NovaClient {
     public Server getServerDetails(PropertyHandler ph, String serverId,
             boolean moreInfo) throws OpenStackConnectionException {
         String uri;
-        Server result = new Server(serverId);
-        String flavorName = "-";
-        List<String> fixedIP = new ArrayList<String>();
-        List<String> floatingIP = new ArrayList<String>();
         try {
             uri = connection.getNovaEndpoint() + "/servers/"
                     + URLEncoder.encode(serverId, "UTF-8");
@@ -123,39 +119,8 @@ public class NovaClient {
             logger.debug("NovaClient.getServerDetails() Responsecode: "
                     + response.getResponseCode());
             JSONObject responseJson = new JSONObject(body);
-            JSONObject server = responseJson.getJSONObject("server");
-            result.setId(server.getString("id"));
-            result.setStatus(server.getString("status"));
-            result.setName(server.getString("name"));
-            if (moreInfo) {
-                JSONObject flavor = server.getJSONObject("flavor");
-                flavorName = getFlavorName(flavor.getString("id"));
-                result.setType(flavorName);
-                if (server.has("addresses")) {
-                    JSONObject addresses = server.getJSONObject("addresses");
-                    Iterator<?> networkNames = addresses.keys();
-                    while (networkNames.hasNext()) {
-                        String key = (String) networkNames.next();
-                        if (addresses.get(key) instanceof JSONArray) {
-                            JSONArray networks = addresses.getJSONArray(key);
-                            for (int i = 0; i < networks.length(); i++) {
-                                JSONObject network = networks.getJSONObject(i);
-                                if (network.getString("OS-EXT-IPS:type")
-                                        .equals(IP_TYPE.fixed.toString())) {
-                                    fixedIP.add(network.getString("addr"));
-                                } else if (network.getString("OS-EXT-IPS:type")
-                                        .equals(IP_TYPE.floating.toString())) {
-                                    floatingIP.add(network.getString("addr"));
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-            result.setType(flavorName);
-            result.setPrivateIP(fixedIP);
-            result.setPublicIP(floatingIP);
-            return result;
+            return toServer(responseJson.getJSONObject("server"), moreInfo,
+                    new HashMap<String, String>());
         } catch (UnsupportedEncodingException e) {
             logger.error("Runtime error happened during encoding", e);
             throw new RuntimeException(e);
@@ -163,15 +128,138 @@ public class NovaClient {
             logger.error("NovaClient.getServerDetails() JSONException occurred",
                     e);
         }
-        result.setName("");
-        result.setStatus(ServerStatus.UNKNOWN.toString());
+        return unknownServer(serverId);
+    }
+
+    /**
+     * Get the details of the given servers with a single list request
+     * (servers/detail) instead of one request per server. Further pages of the
+     * list are only read until all servers have been found.
+     * 
+     * @param ph
+     * @param serverIds
+     *            the IDs of the servers
+     * @param moreInfo
+     *            whether flavor and IP addresses are read as well
+     * @return Server objects in the order of the given IDs. A server which is
+     *         not listed has an empty name and the status UNKNOWN.
+     * @throws OpenStackConnectionException
+     */
+    public List<Server> getServersDetails(PropertyHandler ph,
+            List<String> serverIds, boolean moreInfo)
+            throws OpenStackConnectionException {
+        Set<String> requested = new HashSet<String>(serverIds);
+        Map<String, Server> found = new HashMap<String, Server>();
+        Map<String, String> flavorNames = new HashMap<String, String>();
+        String uri = connection.getNovaEndpoint() + "/servers/detail";
+        try {
+            while (uri != null && found.size() < requested.size()) {
+                RESTResponse response = connection.processRequest(uri, "GET");
+                logger.debug("NovaClient.getServersDetails() Responsecode: "
+                        + response.getResponseCode());
+                JSONObject responseJson = new JSONObject(
+                        response.getResponseBody());
+                JSONArray servers = responseJson.getJSONArray("servers");
+                for (int i = 0; i < servers.length(); i++) {
+                    JSONObject server = servers.getJSONObject(i);
+                    String id = server.optString("id");
+                    if (!requested.contains(id)) {
+                        continue;
+                    }
+                    try {
+                        found.put(id, toServer(server, moreInfo, flavorNames));
+                    } catch (JSONException e) {
+                        logger.error(
+                                "NovaClient.getServersDetails() JSONException occurred for server "
+                                        + id, e);
+                    }
+                }
+                uri = getNextLink(responseJson);
+            }
+        } catch (JSONException e) {
+            logger.error("NovaClient.getServersDetails() JSONException occurred",
+                    e);
+        }
+
+        List<Server> result = new ArrayList<Server>();
+        for (String id : serverIds) {
+            Server server = found.get(id);
+            result.add(server != null ? server : unknownServer(id));
+        }
+        return result;
+    }
+
+    private Server toServer(JSONObject server, boolean moreInfo,
+            Map<String, String> flavorNames)
+            throws JSONException, OpenStackConnectionException {
+        Server result = new Server(server.getString("id"));
+        String flavorName = "-";
+        List<String> fixedIP = new ArrayList<String>();
+        List<String> floatingIP = new ArrayList<String>();
+        result.setStatus(server.getString("status"));
+        result.setName(server.getString("name"));
+        if (moreInfo) {
+            JSONObject flavor = server.getJSONObject("flavor");
+            String flavorId = flavor.getString("id");
+            flavorName = flavorNames.get(flavorId);
+            if (flavorName == null) {
+                flavorName = getFlavorName(flavorId);
+                flavorNames.put(flavorId, flavorName);
+            }
+            if (server.has("addresses")) {
+                JSONObject addresses = server.getJSONObject("addresses");
+                Iterator<?> networkNames = addresses.keys();
+                while (networkNames.hasNext()) {
+                    String key = (String) networkNames.next();
+                    if (addresses.get(key) instanceof JSONArray) {
+                        JSONArray networks = addresses.getJSONArray(key);
+                        for (int i = 0; i < networks.length(); i++) {
+                            JSONObject network = networks.getJSONObject(i);
+                            if (network.getString("OS-EXT-IPS:type")
+                                    .equals(IP_TYPE.fixed.toString())) {
+                                fixedIP.add(network.getString("addr"));
+                            } else if (network.getString("OS-EXT-IPS:type")
+                                    .equals(IP_TYPE.floating.toString())) {
+                                floatingIP.add(network.getString("addr"));
+                            }
+                        }
+                    }
+                }
+            }
+        }
         result.setType(flavorName);
         result.setPrivateIP(fixedIP);
         result.setPublicIP(floatingIP);
+        return result;
+    }
 
+    /**
+     * Returns the server with the given ID as it is reported if its details
+     * cannot be read.
+     */
+    static Server unknownServer(String serverId) {
+        Server result = new Server(serverId);
+        result.setName("");
+        result.setStatus(ServerStatus.UNKNOWN.toString());
+        result.setType("-");
+        result.setPrivateIP(new ArrayList<String>());
+        result.setPublicIP(new ArrayList<String>());
         return result;
     }
 
+    private String getNextLink(JSONObject response) throws JSONException {
+        JSONArray links = response.optJSONArray("servers_links");
+        if (links != null) {
+            for (int i = 0; i < links.length(); i++) {
+                JSONObject link = links.getJSONObject(i);
+                if ("next".equals(link.optString("rel"))) {
+                    return link.getString("href");
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * Check the server status is not excepted
      * 
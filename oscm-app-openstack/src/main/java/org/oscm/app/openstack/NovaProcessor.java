@@ -9,8 +9,15 @@
 package org.oscm.app.openstack;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.oscm.app.openstack.controller.PropertyHandler;
 import org.oscm.app.openstack.controller.ServerStatus;
@@ -31,6 +38,16 @@ import org.slf4j.LoggerFactory;
 public class NovaProcessor {
     private final Logger logger = LoggerFactory.getLogger(NovaProcessor.class);
 
+    /**
+     * The maximum number of server actions sent at the same time.
+     */
+    static final int MAX_PARALLEL_REQUESTS = 10;
+
+    private interface ServerAction {
+        Boolean execute(NovaClient nc, String serverId)
+                throws OpenStackConnectionException;
+    }
+
     private OpenStackConnection getConnection(PropertyHandler ph)
             throws APPlatformException, NovaException {
         OpenStackConnection connection = new OpenStackConnection(
@@ -61,56 +78,14 @@ public class NovaProcessor {
         List<String> serverIds = new HeatClient(connection).getServerIds(ph
                 .getStackName());
 
-        HashMap<String, Boolean> operationStatuses = new HashMap<String, Boolean>();
         if (serverIds.size() == 0) {
             throw new InstanceNotAliveException(
                     Messages.getAll("error_starting_failed_instance_not_found"));
         }
 
-        NovaClient nc = new NovaClient(connection);
-        for (String id : serverIds) {
-            Boolean result = Boolean.FALSE;
-            try {
-                if (nc.isNotServerExceptedStatus(ServerStatus.ACTIVE, ph, id)) {
-                    result = nc.startServer(ph, id);
-                } else {
-                    skippedServers.add(id);
-                }
-            } catch (OpenStackConnectionException ex) {
-                if (ex.getResponseCode() == 401) {
-                    logger.info(
-                            "Could not start server (Server ID:"
-                                    + id
-                                    + ") in stack (Stack ID: "
-                                    + ph.getStackId()
-                                    + ") because of unauthorized. Retry once after authorised.",
-                            ex);
-                    try {
-                        connection = getConnection(ph);
-                        nc = new NovaClient(connection);
-
-                        if (nc.isNotServerExceptedStatus(ServerStatus.ACTIVE,
-                                ph, id)) {
-                            result = nc.startServer(ph, id);
-                        } else {
-                            skippedServers.add(id);
-                        }
-                    } catch (OpenStackConnectionException e) {
-                        logger.info("Could not start server (Server ID:" + id
-                                + ") in stack (Stack ID: " + ph.getStackId()
-                                + ")", e);
-                        result = Boolean.FALSE;
-                    }
-                } else {
-
-                    logger.info("Could not start server (Server ID:" + id
-                            + ") in stack (Stack ID: " + ph.getStackId() + ")",
-                            ex);
-                    result = Boolean.FALSE;
-                }
-            }
-            operationStatuses.put(id, result);
-        }
+        HashMap<String, Boolean> operationStatuses = executeServerAction(ph,
+                connection, serverIds, ServerStatus.ACTIVE, skippedServers,
+                "start", (nc, id) -> nc.startServer(ph, id));
         if (skippedServers.size() == serverIds.size()) {
             throw new APPlatformException(
                     Messages.getAll("error_all_servers_active"));
@@ -135,62 +110,150 @@ public class NovaProcessor {
         List<String> serverIds = new HeatClient(connection).getServerIds(ph
                 .getStackName());
 
-        HashMap<String, Boolean> operationStatuses = new HashMap<String, Boolean>();
         if (serverIds.size() == 0) {
             throw new InstanceNotAliveException(
                     Messages.getAll("error_stopping_failed_instance_not_found"));
         }
 
-        NovaClient nc = new NovaClient(connection);
+        HashMap<String, Boolean> operationStatuses = executeServerAction(ph,
+                connection, serverIds, ServerStatus.SHUTOFF, skippedServers,
+                "stop", (nc, id) -> nc.stopServer(ph, id));
+        if (skippedServers.size() == serverIds.size()) {
+            throw new APPlatformException(
+                    Messages.getAll("error_all_servers_stopped"));
+        }
+        return operationStatuses;
+    }
+
+    /**
+     * Executes the given action for all servers which are not yet in the
+     * expected status. The statuses are read with one list request, the
+     * actions are sent in parallel. Requests failing because of unauthorized
+     * are retried once with a new connection.
+     * 
+     * @return The HashMap of server ID and status of execution
+     */
+    private HashMap<String, Boolean> executeServerAction(PropertyHandler ph,
+            OpenStackConnection connection, List<String> serverIds,
+            ServerStatus exceptedStatus, List<String> skippedServers,
+            String operation, ServerAction action)
+            throws APPlatformException, NovaException {
+
+        HashMap<String, Boolean> operationStatuses = new HashMap<String, Boolean>();
         for (String id : serverIds) {
-            Boolean result = Boolean.FALSE;
+            operationStatuses.put(id, Boolean.FALSE);
+        }
+
+        List<Server> servers;
+        try {
+            servers = new NovaClient(connection).getServersDetails(ph,
+                    serverIds, false);
+        } catch (OpenStackConnectionException ex) {
+            if (ex.getResponseCode() != 401) {
+                logger.info("Could not " + operation
+                        + " servers in stack (Stack ID: " + ph.getStackId()
+                        + ") because their status is not available", ex);
+                return operationStatuses;
+            }
+            logger.info(
+                    "Could not get status of servers in stack (Stack ID: "
+                            + ph.getStackId()
+                            + ") because of unauthorized. Retry once after authorised.",
+                    ex);
+            connection = getConnection(ph);
             try {
-                if (nc.isNotServerExceptedStatus(ServerStatus.SHUTOFF, ph, id)) {
-                    result = nc.stopServer(ph, id);
-                } else {
-                    skippedServers.add(id);
-                }
-            } catch (OpenStackConnectionException ex) {
-                if (ex.getResponseCode() == 401) {
-                    logger.info(
-                            "Could not stop server (Server ID:"
-                                    + id
-                                    + ") in stack (Stack ID: "
-                                    + ph.getStackId()
-                                    + ") because of unauthorized. Retry once after authorised.",
-                            ex);
-                    try {
-                        connection = getConnection(ph);
-                        nc = new NovaClient(connection);
-                        if (nc.isNotServerExceptedStatus(ServerStatus.SHUTOFF,
-                                ph, id)) {
-                            result = nc.stopServer(ph, id);
-                        } else {
-                            skippedServers.add(id);
-                        }
-                    } catch (OpenStackConnectionException e) {
-                        logger.info("Could not stop server (Server ID:" + id
-                                + ") in stack (Stack ID: " + ph.getStackId()
-                                + ")", e);
-                        result = Boolean.FALSE;
-                    }
-                } else {
+                servers = new NovaClient(connection).getServersDetails(ph,
+                        serverIds, false);
+            } catch (OpenStackConnectionException e) {
+                logger.info("Could not " + operation
+                        + " servers in stack (Stack ID: " + ph.getStackId()
+                        + ") because their status is not available", e);
+                return operationStatuses;
+            }
+        }
 
-                    logger.info("Could not stop server (Server ID:" + id
-                            + ") in stack (Stack ID: " + ph.getStackId() + ")",
-                            ex);
-                    result = Boolean.FALSE;
-                }
+        List<String> pending = new ArrayList<String>();
+        for (Server server : servers) {
+            if (exceptedStatus.toString().equals(server.getStatus())) {
+                skippedServers.add(server.getId());
+            } else {
+                pending.add(server.getId());
             }
-            operationStatuses.put(id, result);
         }
-        if (skippedServers.size() == serverIds.size()) {
-            throw new APPlatformException(
-                    Messages.getAll("error_all_servers_stopped"));
+
+        List<String> unauthorized = executeInParallel(ph,
+                new NovaClient(connection), pending, operation, action,
+                operationStatuses);
+        if (!unauthorized.isEmpty()) {
+            logger.info("Could not " + operation + " " + unauthorized.size()
+                    + " server(s) in stack (Stack ID: " + ph.getStackId()
+                    + ") because of unauthorized. Retry once after authorised.");
+            connection = getConnection(ph);
+            for (String id : executeInParallel(ph, new NovaClient(connection),
+                    unauthorized, operation, action, operationStatuses)) {
+                logger.info("Could not " + operation + " server (Server ID:"
+                        + id + ") in stack (Stack ID: " + ph.getStackId()
+                        + ") because of unauthorized.");
+            }
         }
         return operationStatuses;
     }
 
+    /**
+     * Executes the given action for the servers with at most
+     * {@link #MAX_PARALLEL_REQUESTS} requests at the same time and stores the
+     * results.
+     * 
+     * @return the IDs of the servers for which the request was unauthorized
+     */
+    private List<String> executeInParallel(PropertyHandler ph,
+            NovaClient nc, List<String> serverIds, String operation,
+            ServerAction action, Map<String, Boolean> operationStatuses) {
+        List<String> unauthorized = new ArrayList<String>();
+        if (serverIds.isEmpty()) {
+            return unauthorized;
+        }
+
+        ExecutorService service = Executors.newFixedThreadPool(
+                Math.min(MAX_PARALLEL_REQUESTS, serverIds.size()));
+        try {
+            Map<String, Future<Boolean>> results = new LinkedHashMap<String, Future<Boolean>>();
+            for (String id : serverIds) {
+                results.put(id, service.submit(() -> action.execute(nc, id)));
+            }
+            for (Map.Entry<String, Future<Boolean>> result : results
+                    .entrySet()) {
+                String id = result.getKey();
+                try {
+                    operationStatuses.put(id, result.getValue().get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof OpenStackConnectionException
+                            && ((OpenStackConnectionException) cause)
+                                    .getResponseCode() == 401) {
+                        unauthorized.add(id);
+                    } else {
+                        logger.info("Could not " + operation
+                                + " server (Server ID:" + id
+                                + ") in stack (Stack ID: " + ph.getStackId()
+                                + ")", cause);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    logger.info("Interrupted while waiting to " + operation
+                            + " server (Server ID:" + id + ") in stack (Stack ID: "
+                            + ph.getStackId() + ")");
+                }
+            }
+        } finally {
+            service.shutdown();
+        }
+        return unauthorized;
+    }
+
     /**
      * Get servers information which are in Stack. The stack is identified by
      * its name.
@@ -208,51 +271,107 @@ public class NovaProcessor {
         List<String> serverIds = new HeatClient(connection).getServerIds(ph
                 .getStackName());
 
-        List<Server> servers = new ArrayList<Server>();
         if (serverIds.size() == 0) {
             throw new InstanceNotAliveException(Messages.getAll(
                     "error_check_servers_status_failed_instance_not_found",
                     ph.getStackName()));
         }
 
-        NovaClient nc = new NovaClient(connection);
-        for (String id : serverIds) {
-            Server server = new Server(id);
-            try {
-                server = nc.getServerDetails(ph, id, moreInfo);
-            } catch (OpenStackConnectionException ex) {
-                if (ex.getResponseCode() == 401) {
-                    logger.info(
-                            "NovaClient.getServerDetails() Could not get server status (Server ID:"
-                                    + id
-                                    + ") in stack (Stack ID: "
-                                    + ph.getStackId()
-                                    + ") because of unauthorized. Retry once after authorised.",
-                            ex);
-                    try {
-                        connection = getConnection(ph);
-                        nc = new NovaClient(connection);
-                        server = nc.getServerDetails(ph, id, moreInfo);
-                    } catch (OpenStackConnectionException e) {
-                        logger.error(
-                                "NovaClient.getServerDetails() Could not get server status (Server ID:"
-                                        + id + ") in stack (Stack ID: "
-                                        + ph.getStackId() + ")", e);
-                        server.setName("");
-                        server.setStatus(ServerStatus.UNKNOWN.toString());
-                    }
-                } else {
+        try {
+            return new NovaClient(connection).getServersDetails(ph, serverIds,
+                    moreInfo);
+        } catch (OpenStackConnectionException ex) {
+            if (ex.getResponseCode() == 401) {
+                logger.info(
+                        "NovaClient.getServersDetails() Could not get server status in stack (Stack ID: "
+                                + ph.getStackId()
+                                + ") because of unauthorized. Retry once after authorised.",
+                        ex);
+                try {
+                    connection = getConnection(ph);
+                    return new NovaClient(connection).getServersDetails(ph,
+                            serverIds, moreInfo);
+                } catch (OpenStackConnectionException e) {
                     logger.error(
-                            "NovaClient.getServerDetails() Could not get server status (Server ID:"
-                                    + id + ") in stack (Stack ID: "
-                                    + ph.getStackId() + ")", ex);
-                    server.setName("");
-                    server.setStatus(ServerStatus.UNKNOWN.toString());
+                            "NovaClient.getServersDetails() Could not get server status in stack (Stack ID: "
+                                    + ph.getStackId() + ")", e);
                 }
+            } else {
+                logger.error(
+                        "NovaClient.getServersDetails() Could not get server status in stack (Stack ID: "
+                                + ph.getStackId() + ")", ex);
             }
-            servers.add(server);
+        }
+
+        List<Server> servers = new ArrayList<Server>();
+        for (String id : serverIds) {
+            servers.add(NovaClient.unknownServer(id));
         }
         return servers;
     }
 
+    /**
+     * Get the number of servers which are in Stack. Only the stack resources
+     * are read, the servers themselves are not queried.
+     * 
+     * @param ph
+     * @return The number of servers
+     * @throws HeatException
+     * @throws APPlatformException
+     * @throws NovaException
+     */
+    public int getServersNumber(PropertyHandler ph)
+            throws HeatException, APPlatformException, NovaException {
+        OpenStackConnection connection = getConnection(ph);
+        return new HeatClient(connection).getServerIds(ph.getStackName())
+                .size();
+    }
+
+    /**
+     * Get the number of servers of several stacks. The instances are grouped
+     * by their OpenStack account, so that each account is authenticated only
+     * once for all of its stacks.
+     * 
+     * @param instances
+     *            the property handlers of the instances by instance ID
+     * @return the number of servers by instance ID; instances whose stack
+     *         cannot be read are missing
+     */
+    public Map<String, Integer> getServersNumbers(
+            Map<String, PropertyHandler> instances) {
+        Map<List<String>, Map<String, PropertyHandler>> accounts = new LinkedHashMap<>();
+        for (Map.Entry<String, PropertyHandler> entry : instances.entrySet()) {
+            PropertyHandler ph = entry.getValue();
+            List<String> account = Arrays.asList(ph.getKeystoneUrl(),
+                    ph.getUserName(), ph.getPassword(), ph.getDomainName(),
+                    ph.getTenantId());
+            accounts.computeIfAbsent(account, k -> new LinkedHashMap<>())
+                    .put(entry.getKey(), ph);
+        }
+
+        Map<String, Integer> result = new HashMap<>();
+        for (Map<String, PropertyHandler> stacks : accounts.values()) {
+            HeatClient heatClient;
+            try {
+                heatClient = new HeatClient(
+                        getConnection(stacks.values().iterator().next()));
+            } catch (APPlatformException | NovaException e) {
+                logger.warn("Could not get servers number of instances "
+                        + stacks.keySet() + ": " + e.getMessage());
+                continue;
+            }
+            for (Map.Entry<String, PropertyHandler> entry : stacks.entrySet()) {
+                try {
+                    result.put(entry.getKey(), Integer.valueOf(heatClient
+                            .getServerIds(entry.getValue().getStackName())
+                            .size()));
+                } catch (HeatException e) {
+                    logger.warn("Could not get servers number of instance "
+                            + entry.getKey() + ": " + e.getMessage());
+                }
+            }
+        }
+        return result;
+    }
+
 }
@@ -24,6 +24,7 @@ import java.security.NoSuchAlgorithmException;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
 
 import org.oscm.app.openstack.exceptions.OpenStackConnectionException;
 import org.oscm.app.openstack.proxy.ProxyAuthenticator;
@@ -41,6 +42,12 @@ public class OpenStackConnection {
 
     private static URLStreamHandler streamHandler;
 
+    /**
+     * Shared by all connections, so that the keep-alive cache of the JDK can
+     * reuse the underlying TLS connections.
+     */
+    private static volatile SSLSocketFactory sslSocketFactory;
+
     private String keystoneEndpoint = "";
     private String heatEndpoint = "";
     private String novaEndpoint = "";
@@ -122,6 +129,7 @@ public class OpenStackConnection {
             String requestBody) throws OpenStackConnectionException {
         HttpURLConnection connection = null;
         OutputStreamWriter out = null;
+        boolean completed = false;
         try {
             HttpURLConnection.setFollowRedirects(true);
             HttpsURLConnection.setFollowRedirects(true);
@@ -147,7 +155,9 @@ public class OpenStackConnection {
                 out.close();
             }
             connection.connect();
-            return new RESTResponse(connection);
+            RESTResponse response = new RESTResponse(connection);
+            completed = true;
+            return response;
         } catch (MalformedURLException e) {
             throw new OpenStackConnectionException("invalid URL: " + restUri);
         } catch (IOException e) {
@@ -157,6 +167,9 @@ public class OpenStackConnection {
                 responseCode = getResponseCode(connection);
                 responseBody = getErrorResponse(connection);
             }
+            if (responseCode == 401 && authToken != null) {
+                KeystoneTokenCache.getInstance().invalidate(authToken);
+            }
             final String code = " (HTTP " + responseCode + ", URI " + restUri
                     + ", responseBody " + responseBody + "): " + e.getMessage();
             switch (responseCode) {
@@ -185,7 +198,9 @@ public class OpenStackConnection {
                     // best effort pattern
                 }
             }
-            if (connection != null) {
+            // the response has been read completely, so the connection can
+            // be kept alive and reused for the next request
+            if (connection != null && !completed) {
                 try {
                     connection.disconnect();
                 } catch (Exception e) {
@@ -292,10 +307,8 @@ public class OpenStackConnection {
                 // TODO
                 // This setting is only needed for K5.
                 // We have to support multi protocols.
-                SSLContext sslcontext = SSLContext.getInstance("TLSv1.2");
-                sslcontext.init(null, null, null);
                 ((HttpsURLConnection) connection)
-                        .setSSLSocketFactory(sslcontext.getSocketFactory());
+                        .setSSLSocketFactory(getSSLSocketFactory());
             }
 
         } catch (ClassCastException e) {
@@ -312,6 +325,18 @@ public class OpenStackConnection {
         return connection;
     }
 
+    private static SSLSocketFactory getSSLSocketFactory()
+            throws NoSuchAlgorithmException, KeyManagementException {
+        SSLSocketFactory factory = sslSocketFactory;
+        if (factory == null) {
+            SSLContext sslcontext = SSLContext.getInstance("TLSv1.2");
+            sslcontext.init(null, null, null);
+            factory = sslcontext.getSocketFactory();
+            sslSocketFactory = factory;
+        }
+        return factory;
+    }
+
     protected Proxy resolveProxy(String proxyHost, int proxyPortInt) {
         Proxy proxy = new Proxy(Proxy.Type.HTTP,
                 new InetSocketAddress(proxyHost, proxyPortInt));
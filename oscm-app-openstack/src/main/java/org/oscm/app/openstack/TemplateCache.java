@@ -0,0 +1,172 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.openstack;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.oscm.app.v2_0.data.PasswordAuthentication;
+
+/**
+ * Cache for the content of Heat templates. Templates are kept per template
+ * name, controller and technology provider credentials if they are read from
+ * the template service, or per URL if they are downloaded. Each entry stores
+ * the version of the content, i.e. the last change of the template file or the
+ * ETag and Last-Modified headers of the HTTP response.
+ * <p>
+ * Entries are handed out without revalidation for
+ * {@link #REVALIDATE_INTERVAL_MS} milliseconds. At most {@link #MAX_ENTRIES}
+ * templates are kept; the least recently used one is removed first.
+ */
+public class TemplateCache {
+
+    static final int MAX_ENTRIES = 100;
+    static final long REVALIDATE_INTERVAL_MS = 60 * 1000L;
+
+    private static final TemplateCache INSTANCE = new TemplateCache();
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(
+            16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Returns the cache shared by all Heat processors.
+     */
+    public static TemplateCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the cached template for the given key or <code>null</code> if
+     * none is cached. The returned entry may have to be revalidated.
+     */
+    public synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Caches the given template, replacing an older version.
+     */
+    public synchronized void put(String key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    /**
+     * Removes the template with the given key, e.g. because it no longer
+     * exists.
+     */
+    public synchronized void remove(String key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Removes all cached templates.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the key of a template read from the template service.
+     */
+    static String key(String fileName, String controllerId,
+            PasswordAuthentication authentication) {
+        String user = null;
+        String password = null;
+        if (authentication != null) {
+            user = authentication.getUserName();
+            password = authentication.getPassword();
+        }
+        return "template:" + controllerId + "\n" + fileName + "\n" + user
+                + "\n" + KeystoneTokenCache.digest(password);
+    }
+
+    /**
+     * Returns the key of a template downloaded from the given URL.
+     */
+    static String key(String url) {
+        return "url:" + url;
+    }
+
+    /**
+     * The content of a template together with its version.
+     */
+    public static class Entry {
+
+        private final String content;
+        private final String eTag;
+        private final String lastModified;
+        private volatile long validatedAt;
+
+        /**
+         * @param content
+         *            the template content
+         * @param eTag
+         *            the entity tag of the content or <code>null</code>
+         * @param lastModified
+         *            the time of the last change of the content or
+         *            <code>null</code>
+         * @param validatedAt
+         *            the time the content was read or revalidated
+         */
+        public Entry(String content, String eTag, String lastModified,
+                long validatedAt) {
+            this.content = content;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.validatedAt = validatedAt;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Returns whether the given version is the one of this entry.
+         */
+        boolean isVersion(String eTag, String lastModified) {
+            return (eTag != null || lastModified != null)
+                    && equal(this.eTag, eTag)
+                    && equal(this.lastModified, lastModified);
+        }
+
+        /**
+         * Returns whether the entry can be used without revalidation.
+         */
+        boolean isFresh(long now) {
+            return now - validatedAt < REVALIDATE_INTERVAL_MS;
+        }
+
+        void validated(long now) {
+            validatedAt = now;
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+}
@@ -21,6 +21,7 @@ import static org.oscm.app.openstack.data.FlowState.UPDATE_PROJECT;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
 
@@ -33,6 +34,7 @@ import javax.faces.context.FacesContext;
 import javax.inject.Inject;
 import javax.servlet.http.HttpSession;
 
+import org.oscm.app.common.intf.ServersNumberController;
 import org.oscm.app.openstack.KeystoneClient;
 import org.oscm.app.openstack.NovaProcessor;
 import org.oscm.app.openstack.OpenStackConnection;
@@ -55,7 +57,6 @@ import org.oscm.app.v2_0.exceptions.APPlatformException;
 import org.oscm.app.v2_0.exceptions.ConfigurationException;
 import org.oscm.app.v2_0.exceptions.LogAndExceptionConverter;
 import org.oscm.app.v2_0.exceptions.ServiceNotReachableException;
-import org.oscm.app.v2_0.intf.APPlatformController;
 import org.oscm.app.v2_0.intf.APPlatformService;
 import org.oscm.app.v2_0.intf.ControllerAccess;
 import org.slf4j.Logger;
@@ -79,8 +80,8 @@ import org.slf4j.LoggerFactory;
  * status and returns the corresponding overall instance status to APP.
  */
 @Stateless(mappedName = "bss/app/controller/" + OpenStackController.ID)
-@Remote(APPlatformController.class)
-public class OpenStackController extends ProvisioningValidator implements APPlatformController {
+@Remote(ServersNumberController.class)
+public class OpenStackController extends ProvisioningValidator implements ServersNumberController {
 
 	public static final String ID = "ess.openstack";
 
@@ -572,13 +573,25 @@ public class OpenStackController extends ProvisioningValidator implements APPlat
 		PropertyHandler ph = new PropertyHandler(settings);
 
 		try {
-			return new NovaProcessor().getServersDetails(ph, false).size();
+			return new NovaProcessor().getServersNumber(ph);
 		} catch (Exception e) {
 			LOGGER.warn(e.getMessage());
 		}
 		return SERVERS_NUMBER_CANNOT_BE_CHECKED;
 	}
 
+	@Override
+	@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+	public Map<String, Integer> getServersNumbers(Map<String, ProvisioningSettings> instances)
+			throws APPlatformException {
+
+		Map<String, PropertyHandler> handlers = new HashMap<>();
+		for (Map.Entry<String, ProvisioningSettings> entry : instances.entrySet()) {
+			handlers.put(entry.getKey(), new PropertyHandler(entry.getValue()));
+		}
+		return new NovaProcessor().getServersNumbers(handlers);
+	}
+
 	@Override
 	public boolean gatherUsageData(String controllerId, String instanceId, String startTime, String endTime,
 			ProvisioningSettings settings) throws APPlatformException {
@@ -669,7 +682,8 @@ public class OpenStackController extends ProvisioningValidator implements APPlat
 	}
 
 	protected KeystoneClient getKeystoneClient(OpenStackConnection connection) {
-		return new KeystoneClient(connection);
+		// the connection test must always contact Keystone
+		return new KeystoneClient(connection, null);
 	}
 
 	protected OpenStackConnection getOpenstackConnection() {
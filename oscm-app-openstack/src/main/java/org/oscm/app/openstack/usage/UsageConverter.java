@@ -11,21 +11,16 @@ import static java.time.LocalDateTime.parse;
 import static java.time.ZoneOffset.UTC;
 import static java.time.format.DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.net.MalformedURLException;
 
 import org.openstack4j.model.compute.SimpleTenantUsage;
+import org.oscm.app.common.usage.UsageEventSink;
 import org.oscm.app.openstack.OpenstackClient;
+import org.oscm.app.openstack.controller.OpenStackController;
 import org.oscm.app.openstack.controller.PropertyHandler;
-import org.oscm.app.v2_0.exceptions.ConfigurationException;
-import org.oscm.intf.EventService;
-import org.oscm.types.exceptions.DuplicateEventException;
-import org.oscm.types.exceptions.ObjectNotFoundException;
-import org.oscm.types.exceptions.OrganizationAuthoritiesException;
-import org.oscm.types.exceptions.ValidationException;
 import org.oscm.vo.VOGatheredEvent;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * Handle usage data and register events.
@@ -37,13 +32,11 @@ public class UsageConverter {
     static final String EVENT_RAM = "EVENT_RAM_MEGABYTE_HOURS";
     static final String EVENT_TOTAL = "EVENT_TOTAL_HOURS";
 
-    private static final Logger LOGGER = LoggerFactory
-            .getLogger(UsageConverter.class);
-
     private static final String ZONEID_UTC = "UTC";
 
     PropertyHandler ph;
     OpenstackClient osClient;
+    UsageEventSink sink;
 
     public UsageConverter() {
 
@@ -55,9 +48,7 @@ public class UsageConverter {
     }
 
     public void registerUsageEvents(String startTime, String endTime)
-            throws ConfigurationException, MalformedURLException,
-            ObjectNotFoundException, OrganizationAuthoritiesException,
-            ValidationException {
+            throws IOException {
 
         SimpleTenantUsage usage = osClient.getUsage(startTime, endTime);
 
@@ -84,9 +75,7 @@ public class UsageConverter {
     }
 
     void submit(String eventId, long multiplier, String occurence)
-            throws ConfigurationException, MalformedURLException,
-            ObjectNotFoundException, OrganizationAuthoritiesException,
-            ValidationException {
+            throws IOException {
 
         if (multiplier <= 0) {
             return;
@@ -100,13 +89,11 @@ public class UsageConverter {
                 .toInstant(UTC).toEpochMilli());
         event.setUniqueId(eventId + "_" + occurence);
 
-        try {
-            EventService svc = ph.getWebService(EventService.class);
-            svc.recordEventForInstance(ph.getTechnicalServiceId(),
-                    ph.getInstanceId(), event);
-        } catch (DuplicateEventException e) {
-            LOGGER.debug("Event already inserted");
+        if (sink == null) {
+            sink = UsageEventSink.getInstance(OpenStackController.ID);
         }
+        sink.submit(ph.getTPAuthentication(), ph.getTechnicalServiceId(),
+                ph.getInstanceId(), event);
     }
 
 }
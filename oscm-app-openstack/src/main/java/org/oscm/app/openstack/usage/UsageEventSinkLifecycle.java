@@ -0,0 +1,82 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.openstack.usage;
+
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.inject.Inject;
+
+import org.oscm.app.common.usage.UsageEventSink;
+import org.oscm.app.openstack.controller.OpenStackController;
+import org.oscm.app.openstack.controller.OpenStackControllerAccess;
+import org.oscm.app.v2_0.data.ControllerConfigurationKey;
+import org.oscm.app.v2_0.data.ControllerSettings;
+import org.oscm.app.v2_0.data.PasswordAuthentication;
+import org.oscm.app.v2_0.data.Setting;
+import org.oscm.app.v2_0.exceptions.ConfigurationException;
+import org.oscm.app.v2_0.intf.ControllerAccess;
+
+/**
+ * Sends the usage events spooled before the controller was deployed with the
+ * technology provider credentials of the controller settings, and stops the
+ * threads of the usage event sink when the controller is undeployed. Events
+ * not sent yet stay in the spool directory.
+ */
+@Singleton
+@Startup
+public class UsageEventSinkLifecycle {
+
+    @Inject
+    protected ControllerAccess controllerAccess;
+
+    @PostConstruct
+    public void startup() {
+        UsageEventSink.getInstance(OpenStackController.ID)
+                .setCredentialsLookup(this::getTechnologyProviderCredentials);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        UsageEventSink.shutdown();
+    }
+
+    PasswordAuthentication getTechnologyProviderCredentials()
+            throws ConfigurationException {
+        ControllerSettings settings = ((OpenStackControllerAccess) controllerAccess)
+                .getSettings();
+        if (settings == null) {
+            throw new ConfigurationException(
+                    "The controller settings are not available");
+        }
+        return getCredentials(settings.getConfigSettings());
+    }
+
+    static PasswordAuthentication getCredentials(Map<String, Setting> settings)
+            throws ConfigurationException {
+        Setting userKey = settings
+                .get(ControllerConfigurationKey.BSS_USER_KEY.name());
+        Setting userPwd = settings
+                .get(ControllerConfigurationKey.BSS_USER_PWD.name());
+        if (isEmpty(userKey) || isEmpty(userPwd)) {
+            throw new ConfigurationException(
+                    "The technology provider credentials of the controller are not set");
+        }
+        return new PasswordAuthentication(userKey.getValue(),
+                userPwd.getValue());
+    }
+
+    private static boolean isEmpty(Setting setting) {
+        return setting == null || setting.getValue() == null
+                || setting.getValue().trim().isEmpty();
+    }
+}
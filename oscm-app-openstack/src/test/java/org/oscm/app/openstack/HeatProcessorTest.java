@@ -16,11 +16,14 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -77,6 +80,7 @@ public class HeatProcessorTest {
     public void setUp() throws Exception {
         OpenStackConnection.setURLStreamHandler(streamHandler);
         HeatProcessor.setURLStreamHandler(streamHandler);
+        TemplateCache.getInstance().clear();
         paramHandler.setStackId("sID");
     }
 
@@ -108,6 +112,94 @@ public class HeatProcessorTest {
         assertTrue(paramHandler.getStackName().startsWith(instanceName));
     }
 
+    @Test
+    public void createStack_templateCached() throws Exception {
+        // given
+        createBasicParameters("Instance4", "fosi_v2.json", "http");
+        Template t = new Template();
+        t.setContent(MockURLStreamHandler.respTemplatesFosi_v2().getBytes());
+        t.setLastChange(new Date(1000L));
+        final APPTemplateService service = mock(APPTemplateService.class);
+        when(service.getTemplate(anyString(), anyString(),
+                any(PasswordAuthentication.class))).thenReturn(t);
+        HeatProcessor processor = new HeatProcessor(new TemplateCache()) {
+            @Override
+            protected APPTemplateService getTemplateService()
+                    throws NamingException {
+                return service;
+            }
+        };
+
+        // when
+        processor.createStack(paramHandler);
+        processor.createStack(paramHandler);
+
+        // then
+        verify(service, times(1)).getTemplate(anyString(), anyString(),
+                any(PasswordAuthentication.class));
+    }
+
+    @Test
+    public void createStack_templateUrlNotModified() throws Exception {
+        // given
+        createBasicParameters("Instance4", "fosi_v2.json", "http");
+        TemplateCache cache = new TemplateCache();
+        String url = "http://estfarmaki2:8880/templates/fosi_v2.json";
+        cache.put(TemplateCache.key(url),
+                new TemplateCache.Entry(
+                        MockURLStreamHandler.respTemplatesFosi_v2(), "\"v1\"",
+                        null, 0L));
+        MockHttpURLConnection notModified = new MockHttpURLConnection(304,
+                null);
+        streamHandler.put("/templates/fosi_v2.json", notModified);
+        HeatProcessor processor = new HeatProcessor(cache) {
+            @Override
+            protected APPTemplateService getTemplateService()
+                    throws NamingException {
+                throw new NamingException();
+            }
+        };
+
+        // when
+        processor.createStack(paramHandler);
+
+        // then
+        assertEquals("\"v1\"",
+                notModified.getRequestProperty("If-None-Match"));
+        assertEquals("idValue", paramHandler.getStackId());
+        assertTrue(cache.get(TemplateCache.key(url))
+                .isFresh(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void createStack_templateUrlModified() throws Exception {
+        // given
+        createBasicParameters("Instance4", "fosi_v2.json", "http");
+        TemplateCache cache = new TemplateCache();
+        String url = "http://estfarmaki2:8880/templates/fosi_v2.json";
+        cache.put(TemplateCache.key(url),
+                new TemplateCache.Entry("old", "\"v1\"", null, 0L));
+        MockHttpURLConnection modified = new MockHttpURLConnection(200,
+                MockURLStreamHandler.respTemplatesFosi_v2());
+        modified.setHeaderField("ETag", "\"v2\"");
+        streamHandler.put("/templates/fosi_v2.json", modified);
+        HeatProcessor processor = new HeatProcessor(cache) {
+            @Override
+            protected APPTemplateService getTemplateService()
+                    throws NamingException {
+                throw new NamingException();
+            }
+        };
+
+        // when
+        processor.createStack(paramHandler);
+
+        // then
+        TemplateCache.Entry entry = cache.get(TemplateCache.key(url));
+        assertEquals("\"v2\"", entry.getETag());
+        assertFalse("old".equals(entry.getContent()));
+    }
+
     @Test(expected = AbortException.class)
     public void createStack_https_notTemplate() throws Exception {
         // given
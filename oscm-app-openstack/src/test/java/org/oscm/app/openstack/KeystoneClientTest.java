@@ -8,8 +8,12 @@
 
 package org.oscm.app.openstack;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.time.Instant;
+
+import org.apache.sling.commons.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
 import org.oscm.app.openstack.exceptions.OpenStackConnectionException;
@@ -112,4 +116,70 @@ public class KeystoneClientTest {
                 .authenticate("user", "password", "domainName", "tenantId");
     }
 
+    @Test
+    public void authenticate_cachedToken() throws Exception {
+        // given
+        KeystoneTokenCache cache = new KeystoneTokenCache();
+        streamHandler.put("/v3/auth/tokens", new MockHttpsURLConnection(201,
+                respTokens(Instant.now().plusSeconds(3600))));
+        new KeystoneClient(new OpenStackConnection("https://xyz.de/v3/auth"),
+                cache).authenticate("user", "password", "domainName",
+                        "tenantId");
+        streamHandler.put("/v3/auth/tokens",
+                new MockHttpsURLConnection(666, ""));
+        OpenStackConnection connection = new OpenStackConnection(
+                "https://xyz.de/v3/auth");
+
+        // when
+        new KeystoneClient(connection, cache).authenticate("user", "password",
+                "domainName", "tenantId");
+
+        // then
+        assertEquals("https://heatendpoint", connection.getHeatEndpoint());
+        assertEquals("https://novaendpoint", connection.getNovaEndpoint());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void authenticate_cachedTokenAboutToExpire() throws Exception {
+        // given
+        KeystoneTokenCache cache = new KeystoneTokenCache();
+        streamHandler.put("/v3/auth/tokens", new MockHttpsURLConnection(201,
+                respTokens(Instant.now().plusSeconds(60))));
+        new KeystoneClient(new OpenStackConnection("https://xyz.de/v3/auth"),
+                cache).authenticate("user", "password", "domainName",
+                        "tenantId");
+        streamHandler.put("/v3/auth/tokens",
+                new MockHttpsURLConnection(666, ""));
+
+        // when
+        new KeystoneClient(new OpenStackConnection("https://xyz.de/v3/auth"),
+                cache).authenticate("user", "password", "domainName",
+                        "tenantId");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void authenticate_otherPassword() throws Exception {
+        // given
+        KeystoneTokenCache cache = new KeystoneTokenCache();
+        streamHandler.put("/v3/auth/tokens", new MockHttpsURLConnection(201,
+                respTokens(Instant.now().plusSeconds(3600))));
+        new KeystoneClient(new OpenStackConnection("https://xyz.de/v3/auth"),
+                cache).authenticate("user", "password", "domainName",
+                        "tenantId");
+        streamHandler.put("/v3/auth/tokens",
+                new MockHttpsURLConnection(666, ""));
+
+        // when
+        new KeystoneClient(new OpenStackConnection("https://xyz.de/v3/auth"),
+                cache).authenticate("user", "changed", "domainName",
+                        "tenantId");
+    }
+
+    private static String respTokens(Instant expiresAt) throws Exception {
+        JSONObject response = new JSONObject(
+                MockURLStreamHandler.respTokens(true, true, true));
+        response.getJSONObject("token").put("expires_at",
+                expiresAt.toString());
+        return response.toString();
+    }
 }
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.openstack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class KeystoneTokenCacheTest {
+
+    private static final String URL = "https://xyz.de/v3/auth";
+
+    private KeystoneTokenCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new KeystoneTokenCache();
+    }
+
+    @Test
+    public void get() {
+        // given
+        KeystoneTokenCache.Token token = token("t1", 3600000L);
+        cache.put(URL, "user", "pwd", "domain", "tenant", token);
+
+        // then
+        assertSame(token, cache.get(URL, "user", "pwd", "domain", "tenant"));
+        assertNull(cache.get(URL, "user", "pwd", "domain", "other"));
+        assertNull(cache.get(URL, "other", "pwd", "domain", "tenant"));
+    }
+
+    @Test
+    public void put_noExpiration() {
+        // when
+        cache.put(URL, "user", "pwd", "domain", "tenant",
+                new KeystoneTokenCache.Token("t1", "heat", "nova", 0));
+
+        // then
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void get_expired() {
+        // given
+        cache.put(URL, "user", "pwd", "domain", "tenant", token("t1", 1000L));
+
+        // then
+        assertNull(cache.get(URL, "user", "pwd", "domain", "tenant"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void invalidate() {
+        // given
+        cache.put(URL, "user", "pwd", "domain", "t1", token("t1", 3600000L));
+        cache.put(URL, "user", "pwd", "domain", "t2", token("t2", 3600000L));
+
+        // when
+        cache.invalidate("t1");
+
+        // then
+        assertNull(cache.get(URL, "user", "pwd", "domain", "t1"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void parseExpiresAt() {
+        assertEquals(1446823937893L, KeystoneTokenCache
+                .parseExpiresAt("2015-11-06T15:32:17.893769Z"));
+        assertEquals(1446823937000L, KeystoneTokenCache
+                .parseExpiresAt("2015-11-06T15:32:17.000000+00:00"));
+        assertEquals(0, KeystoneTokenCache.parseExpiresAt("tomorrow"));
+        assertEquals(0, KeystoneTokenCache.parseExpiresAt(null));
+    }
+
+    private static KeystoneTokenCache.Token token(String id, long validity) {
+        return new KeystoneTokenCache.Token(id, "heat", "nova",
+                System.currentTimeMillis() + validity);
+    }
+}
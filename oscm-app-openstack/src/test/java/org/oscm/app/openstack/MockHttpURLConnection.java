@@ -15,6 +15,8 @@ import java.io.OutputStream;
 import java.io.StringWriter;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * @author afschar
@@ -30,6 +32,7 @@ public class MockHttpURLConnection extends HttpURLConnection {
     private Exception throwException;
     protected String locationHeader;
     protected int responseCode;
+    private final Map<String, String> headerFields = new HashMap<>();
 
     public MockHttpURLConnection(int responseCode, String output) {
         super(null);
@@ -90,6 +93,9 @@ public class MockHttpURLConnection extends HttpURLConnection {
         if ("Location".equals(name)) {
             return locationHeader;
         }
+        if (headerFields.containsKey(name)) {
+            return headerFields.get(name);
+        }
         return super.getHeaderField(name);
     }
 
@@ -119,6 +125,18 @@ public class MockHttpURLConnection extends HttpURLConnection {
         }
     }
 
+    public void setHeaderField(String name, String value) {
+        headerFields.put(name, value);
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public boolean isFailing() {
+        return throwException != null || responseCode >= 300;
+    }
+
     public String getRequestUri() {
         return url.toString();
     }
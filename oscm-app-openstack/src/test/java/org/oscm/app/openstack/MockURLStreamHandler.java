@@ -31,6 +31,12 @@ import org.oscm.app.openstack.controller.StackStatus;
  */
 public class MockURLStreamHandler extends URLStreamHandler {
 
+    /**
+     * The server list, which is built from the registered servers unless a
+     * mock connection is registered for it.
+     */
+    private static final String SERVERS_DETAIL = "/servers/detail";
+
     private final Map<String, MockHttpURLConnection> connection;
     private final Map<String, MockHttpsURLConnection> connectionHttps;
     private Map<String, Integer> count;
@@ -142,12 +148,13 @@ public class MockURLStreamHandler extends URLStreamHandler {
         }
     }
 
-    public void put(String url, MockHttpsURLConnection mock) {
+    public synchronized void put(String url, MockHttpsURLConnection mock) {
         connectionHttps.put(url, mock);
     }
 
     @Override
-    protected URLConnection openConnection(URL u) throws IOException {
+    protected synchronized URLConnection openConnection(URL u)
+            throws IOException {
         URLConnection conn = null;
         Integer count = this.count.get(u.getFile()) != null
                 ? this.count.get(u.getFile()) : Integer.valueOf(0);
@@ -185,6 +192,9 @@ public class MockURLStreamHandler extends URLStreamHandler {
                 conn = connection.get(u.getFile());
             }
         }
+        if (conn == null && SERVERS_DETAIL.equals(u.getFile())) {
+            conn = new MockHttpURLConnection(200, respServersDetail());
+        }
         if (conn == null) {
             throw new RuntimeException(
                     "Mock connection for " + u.getFile() + " not found!");
@@ -193,7 +203,8 @@ public class MockURLStreamHandler extends URLStreamHandler {
     }
 
     @Override
-    protected URLConnection openConnection(URL u, Proxy p) throws IOException {
+    protected synchronized URLConnection openConnection(URL u, Proxy p)
+            throws IOException {
         URLConnection conn = null;
         Integer count = this.count.get(u.getFile()) != null
                 ? this.count.get(u.getFile()) : Integer.valueOf(0);
@@ -231,6 +242,9 @@ public class MockURLStreamHandler extends URLStreamHandler {
                 conn = connection.get(u.getFile());
             }
         }
+        if (conn == null && SERVERS_DETAIL.equals(u.getFile())) {
+            conn = new MockHttpURLConnection(200, respServersDetail());
+        }
         if (conn == null) {
             throw new RuntimeException(
                     "Mock connection for " + u.getFile() + " not found!");
@@ -238,7 +252,7 @@ public class MockURLStreamHandler extends URLStreamHandler {
         return conn;
     }
 
-    public void put(String url, MockHttpURLConnection mock) {
+    public synchronized void put(String url, MockHttpURLConnection mock) {
         connection.put(url, mock);
     }
 
@@ -400,6 +414,40 @@ public class MockURLStreamHandler extends URLStreamHandler {
         }
     }
 
+    /**
+     * Returns the server list containing the servers of the given server
+     * detail responses.
+     */
+    public static String respServersDetail(String... serverDetails) {
+        try {
+            JSONObject response = new JSONObject();
+            JSONArray servers = new JSONArray();
+            for (String serverDetail : serverDetails) {
+                servers.put(new JSONObject(serverDetail)
+                        .getJSONObject("server"));
+            }
+            response.put("servers", servers);
+            return response.toString();
+        } catch (JSONException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private String respServersDetail() {
+        List<String> serverDetails = new ArrayList<>();
+        for (Map.Entry<String, MockHttpURLConnection> entry : connection
+                .entrySet()) {
+            MockHttpURLConnection server = entry.getValue();
+            if (entry.getKey().matches("/servers/[^/]+")
+                    && !server.isFailing() && server.getOutput() != null
+                    && server.getOutput().contains("\"status\"")) {
+                serverDetails.add(server.getOutput());
+            }
+        }
+        return respServersDetail(
+                serverDetails.toArray(new String[serverDetails.size()]));
+    }
+
     public static String respServerActions() {
         JSONObject response = new JSONObject();
         return response.toString();
@@ -16,7 +16,10 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.sling.commons.json.JSONArray;
+import org.apache.sling.commons.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
 import org.oscm.app.openstack.controller.PropertyHandler;
@@ -142,6 +145,58 @@ public class NovaProcessorTest {
         assertEquals(result.get(1).getStatus(), ServerStatus.ACTIVE.name());
     }
 
+    @Test
+    public void getServersNumber() throws Exception {
+        // given
+        final String instanceName = "Instance4";
+        createBasicParameters(instanceName, "fosi_v2.json", "http");
+        streamHandler.put("/stacks/" + instanceName + "/resources",
+                new MockHttpURLConnection(200,
+                        MockURLStreamHandler.respStacksResources(
+                                Arrays.asList("server1", "otherserver2"),
+                                InstanceType.EC2.getString())));
+
+        // when
+        int result = new NovaProcessor().getServersNumber(paramHandler);
+
+        // then
+        assertEquals(2, result);
+    }
+
+    @Test
+    public void getServersNumbers() throws Exception {
+        // given
+        final String instanceName = "Instance4";
+        createBasicParameters(instanceName, "fosi_v2.json", "http");
+        streamHandler.put("/stacks/" + instanceName + "/resources",
+                new MockHttpURLConnection(200,
+                        MockURLStreamHandler.respStacksResources(
+                                Arrays.asList("server1", "otherserver2"),
+                                InstanceType.EC2.getString())));
+        MockHttpURLConnection failed = new MockHttpURLConnection(404,
+                MockURLStreamHandler.respServerActions());
+        failed.setIOException(new IOException());
+        streamHandler.put("/stacks/Instance5/resources", failed);
+
+        HashMap<String, Setting> otherParameters = new HashMap<>();
+        otherParameters.put(PropertyHandler.STACK_NAME,
+                new Setting(PropertyHandler.STACK_NAME, "Instance5"));
+        PropertyHandler other = new PropertyHandler(new ProvisioningSettings(
+                otherParameters, configSettings, "en"));
+
+        Map<String, PropertyHandler> instances = new HashMap<>();
+        instances.put("instance4", paramHandler);
+        instances.put("instance5", other);
+
+        // when
+        Map<String, Integer> result = new NovaProcessor()
+                .getServersNumbers(instances);
+
+        // then
+        assertEquals(1, result.size());
+        assertEquals(Integer.valueOf(2), result.get("instance4"));
+    }
+
     @Test
     public void getServersDetails_withMultiVms_faild401_and_retry()
             throws Exception {
@@ -159,13 +214,18 @@ public class NovaProcessorTest {
                 new MockHttpURLConnection(200, MockURLStreamHandler
                         .respStacksResources(serverNames,
                                 InstanceType.EC2.getString())));
-        streamHandler.put("/servers/1-Instance-otherserver2", connection2);
-        streamHandler.put(
-                "/servers/1-Instance-otherserver2/2",
-                new MockHttpURLConnection(202, MockURLStreamHandler
-                        .respServerDetail("otherserver2",
-                                "1-Instance-otherserver2", ServerStatus.ACTIVE,
-                                "testTenantID")));
+        streamHandler.put("/servers/detail", connection2);
+        streamHandler.put("/servers/detail/2",
+                new MockHttpURLConnection(200, MockURLStreamHandler
+                        .respServersDetail(
+                                MockURLStreamHandler.respServerDetail(
+                                        "server1", "0-Instance-server1",
+                                        ServerStatus.ACTIVE, "testTenantID"),
+                                MockURLStreamHandler.respServerDetail(
+                                        "otherserver2",
+                                        "1-Instance-otherserver2",
+                                        ServerStatus.ACTIVE,
+                                        "testTenantID"))));
 
         // when
         List<Server> result = new NovaProcessor()
@@ -200,7 +260,7 @@ public class NovaProcessorTest {
                 new MockHttpURLConnection(200, MockURLStreamHandler
                         .respStacksResources(serverNames,
                                 InstanceType.EC2.getString())));
-        streamHandler.put("/servers/1-Instance-otherserver2", connection2);
+        streamHandler.put("/servers/detail", connection2);
 
         // when
         List<Server> result = new NovaProcessor()
@@ -211,14 +271,58 @@ public class NovaProcessorTest {
         assertEquals(instanceName, paramHandler.getStackName());
         assertEquals(result.size(), 2);
         assertEquals(result.get(0).getId(), "0-Instance-server1");
-        assertEquals(result.get(0).getName(), "server1");
-        assertEquals(result.get(0).getStatus(), ServerStatus.ACTIVE.name());
+        assertEquals(result.get(0).getName(), "");
+        assertEquals(result.get(0).getStatus(),
+                ServerStatus.UNKNOWN.toString());
         assertEquals(result.get(1).getId(), "1-Instance-otherserver2");
         assertEquals(result.get(1).getName(), "");
         assertEquals(result.get(1).getStatus(),
                 ServerStatus.UNKNOWN.toString());
     }
 
+    @Test
+    public void getServersDetails_withMultiVms_nextPage() throws Exception {
+        // given
+        final String instanceName = "Instance4";
+        createBasicParameters(instanceName, "fosi_v2.json", "http");
+        final List<String> serverNames = Arrays.asList("server1",
+                "otherserver2");
+        JSONObject firstPage = new JSONObject(MockURLStreamHandler
+                .respServersDetail(MockURLStreamHandler.respServerDetail(
+                        "server1", "0-Instance-server1", ServerStatus.ACTIVE,
+                        "testTenantID")));
+        JSONObject next = new JSONObject();
+        next.put("rel", "next");
+        next.put("href", "http://novaendpoint/servers/detail?marker=page2");
+        firstPage.put("servers_links", new JSONArray().put(next));
+
+        streamHandler.put(
+                "/stacks/" + instanceName + "/resources",
+                new MockHttpURLConnection(200, MockURLStreamHandler
+                        .respStacksResources(serverNames,
+                                InstanceType.EC2.getString())));
+        streamHandler.put("/servers/detail",
+                new MockHttpURLConnection(200, firstPage.toString()));
+        streamHandler.put("/servers/detail?marker=page2",
+                new MockHttpURLConnection(200, MockURLStreamHandler
+                        .respServersDetail(MockURLStreamHandler
+                                .respServerDetail("otherserver2",
+                                        "1-Instance-otherserver2",
+                                        ServerStatus.SHUTOFF,
+                                        "testTenantID"))));
+
+        // when
+        List<Server> result = new NovaProcessor()
+                .getServersDetails(paramHandler, false);
+
+        // then
+        assertEquals(2, result.size());
+        assertEquals("server1", result.get(0).getName());
+        assertEquals(ServerStatus.ACTIVE.name(), result.get(0).getStatus());
+        assertEquals("otherserver2", result.get(1).getName());
+        assertEquals(ServerStatus.SHUTOFF.name(), result.get(1).getStatus());
+    }
+
     @Test(expected = InstanceNotAliveException.class)
     public void getServersDetails_InstanceNotAliveException_serverMissing()
             throws Exception {
@@ -11,6 +11,7 @@ package org.oscm.app.openstack.usage;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentCaptor.forClass;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -20,9 +21,9 @@ import static org.mockito.Mockito.verifyZeroInteractions;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.oscm.app.common.usage.UsageEventSink;
 import org.oscm.app.openstack.controller.PropertyHandler;
 import org.oscm.app.v2_0.data.PasswordAuthentication;
-import org.oscm.intf.EventService;
 import org.oscm.vo.VOGatheredEvent;
 
 /**
@@ -33,11 +34,13 @@ public class UsageConverterTest {
 
     private UsageConverter converter;
     private PropertyHandler ph;
+    private UsageEventSink sink;
 
     @Before
     public void before() {
         converter = spy(new UsageConverter());
         converter.ph = ph = mock(PropertyHandler.class);
+        converter.sink = sink = mock(UsageEventSink.class);
 
     }
 
@@ -50,14 +53,12 @@ public class UsageConverterTest {
         long multiplier = 0;
         String eventId = "id";
         String occurence = "2011-12-03T10:15:30";
-        EventService svc = mock(EventService.class);
-        doReturn(svc).when(ph).getWebService(EventService.class);
 
         // when
         converter.submit(eventId, multiplier, occurence);
 
         // then
-        verifyZeroInteractions(svc);
+        verifyZeroInteractions(sink);
     }
 
     /**
@@ -69,14 +70,12 @@ public class UsageConverterTest {
         long multiplier = -1;
         String eventId = "id";
         String occurence = "2011-12-03T10:15:30";
-        EventService svc = mock(EventService.class);
-        doReturn(svc).when(ph).getWebService(EventService.class);
 
         // when
         converter.submit(eventId, multiplier, occurence);
 
         // then
-        verifyZeroInteractions(svc);
+        verifyZeroInteractions(sink);
     }
 
     @Test
@@ -86,9 +85,6 @@ public class UsageConverterTest {
         String eventId = "eventId";
         String occurence = "1970-01-01T00:00:01";
 
-        EventService svc = mock(EventService.class);
-        doReturn(svc).when(ph).getWebService(EventService.class);
-
         PasswordAuthentication auth = mock(PasswordAuthentication.class);
         doReturn("user").when(auth).getUserName();
         doReturn(auth).when(ph).getTPAuthentication();
@@ -99,7 +95,7 @@ public class UsageConverterTest {
         converter.submit(eventId, multiplier, occurence);
 
         // then
-        verify(svc).recordEventForInstance(anyString(), anyString(),
+        verify(sink).submit(eq(auth), anyString(), anyString(),
                 event.capture());
         assertEquals(1L, event.getValue().getMultiplier());
         assertEquals(1000L, event.getValue().getOccurrenceTime());
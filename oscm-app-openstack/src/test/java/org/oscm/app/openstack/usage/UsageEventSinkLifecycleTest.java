@@ -0,0 +1,79 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.openstack.usage;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import java.util.HashMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.oscm.app.openstack.controller.OpenStackControllerAccess;
+import org.oscm.app.v2_0.data.ControllerConfigurationKey;
+import org.oscm.app.v2_0.data.ControllerSettings;
+import org.oscm.app.v2_0.data.PasswordAuthentication;
+import org.oscm.app.v2_0.data.Setting;
+import org.oscm.app.v2_0.exceptions.ConfigurationException;
+
+public class UsageEventSinkLifecycleTest {
+
+    private UsageEventSinkLifecycle lifecycle;
+    private OpenStackControllerAccess controllerAccess;
+    private HashMap<String, Setting> settings;
+
+    @Before
+    public void before() {
+        controllerAccess = mock(OpenStackControllerAccess.class);
+        lifecycle = new UsageEventSinkLifecycle();
+        lifecycle.controllerAccess = controllerAccess;
+        settings = new HashMap<>();
+    }
+
+    @Test
+    public void getTechnologyProviderCredentials() throws Exception {
+        // given
+        put(ControllerConfigurationKey.BSS_USER_KEY, "1000");
+        put(ControllerConfigurationKey.BSS_USER_PWD, "secret");
+        doReturn(new ControllerSettings(settings)).when(controllerAccess)
+                .getSettings();
+
+        // when
+        PasswordAuthentication auth = lifecycle
+                .getTechnologyProviderCredentials();
+
+        // then
+        assertEquals("1000", auth.getUserName());
+        assertEquals("secret", auth.getPassword());
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void getTechnologyProviderCredentials_noPassword()
+            throws Exception {
+        // given
+        put(ControllerConfigurationKey.BSS_USER_KEY, "1000");
+        doReturn(new ControllerSettings(settings)).when(controllerAccess)
+                .getSettings();
+
+        // when
+        lifecycle.getTechnologyProviderCredentials();
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void getTechnologyProviderCredentials_noSettings()
+            throws Exception {
+        // when
+        lifecycle.getTechnologyProviderCredentials();
+    }
+
+    private void put(ControllerConfigurationKey key, String value) {
+        settings.put(key.name(), new Setting(key.name(), value));
+    }
+}
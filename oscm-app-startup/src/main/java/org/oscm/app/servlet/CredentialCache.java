@@ -0,0 +1,155 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+package org.oscm.app.servlet;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * Remembers the results of recent technology manager authentications for
+ * service instances, so that repeated notifications with the same credentials
+ * do not call BES for every request.
+ *
+ * Successful authentications are kept for {@link #VALID_TTL} milliseconds,
+ * failed ones for {@link #INVALID_TTL} milliseconds. Passwords are only kept as
+ * hash salted with a random value generated for each cache. At most
+ * {@link #MAX_ENTRIES} entries are kept, the least recently used ones are
+ * removed first.
+ */
+class CredentialCache {
+
+    static final long VALID_TTL = 60 * 1000L;
+
+    static final long INVALID_TTL = 10 * 1000L;
+
+    static final int MAX_ENTRIES = 1000;
+
+    private final byte[] salt = new byte[16];
+
+    private final LongSupplier clock;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(
+            16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    CredentialCache() {
+        this(System::currentTimeMillis);
+    }
+
+    CredentialCache(LongSupplier clock) {
+        this.clock = clock;
+        new SecureRandom().nextBytes(salt);
+    }
+
+    /**
+     * Returns the cached result for the given credentials, or
+     * <code>null</code> if the credentials have to be checked.
+     */
+    Entry get(String userName, String password, String controllerId,
+            String instanceId) {
+        String key = key(userName, password, controllerId, instanceId);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (clock.getAsLong() >= entry.expires) {
+                entries.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Remembers that the given credentials are valid.
+     *
+     * @param locale
+     *            the locale of the authenticated user
+     */
+    void putValid(String userName, String password, String controllerId,
+            String instanceId, String locale) {
+        put(key(userName, password, controllerId, instanceId),
+                new Entry(true, locale, clock.getAsLong() + VALID_TTL));
+    }
+
+    /**
+     * Remembers that the given credentials are not valid.
+     */
+    void putInvalid(String userName, String password, String controllerId,
+            String instanceId) {
+        put(key(userName, password, controllerId, instanceId),
+                new Entry(false, null, clock.getAsLong() + INVALID_TTL));
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void put(String key, Entry entry) {
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    private String key(String userName, String password, String controllerId,
+            String instanceId) {
+        return userName + '\n' + hash(password) + '\n' + controllerId + '\n'
+                + instanceId;
+    }
+
+    private String hash(String password) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(salt);
+            md.update(password.getBytes(StandardCharsets.UTF_8));
+            return Base64.encodeBase64String(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is supported by every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The cached result of an authentication.
+     */
+    static class Entry {
+        private final boolean valid;
+        private final String locale;
+        private final long expires;
+
+        Entry(boolean valid, String locale, long expires) {
+            this.valid = valid;
+            this.locale = locale;
+            this.expires = expires;
+        }
+
+        boolean isValid() {
+            return valid;
+        }
+
+        String getLocale() {
+            return locale;
+        }
+    }
+}
@@ -26,6 +26,7 @@ import org.slf4j.LoggerFactory;
 import org.oscm.app.i18n.Messages;
 import org.oscm.app.v2_0.data.PasswordAuthentication;
 import org.oscm.app.v2_0.exceptions.APPlatformException;
+import org.oscm.app.v2_0.exceptions.AuthenticationException;
 import org.oscm.app.v2_0.service.APPAuthenticationServiceBean;
 import org.oscm.app.v2_0.service.APPConfigurationServiceBean;
 import org.oscm.app.v2_0.service.APPTimerServiceBean;
@@ -52,6 +53,8 @@ public class NotificationServlet extends HttpServlet {
     @EJB
     APPConfigurationServiceBean configService;
 
+    transient CredentialCache credentialCache = new CredentialCache();
+
     @Override
     public void init() throws ServletException {
         super.init();
@@ -186,20 +189,17 @@ public class NotificationServlet extends HttpServlet {
                     if (p != -1) {
                         String userName = userPass.substring(0, p);
                         String password = userPass.substring(p + 1);
-                        PasswordAuthentication auth = new PasswordAuthentication(
-                                userName, password);
-                        try {
-                            VOUserDetails user = authService
-                                    .authenticateTMForInstance(controllerId,
-                                            serviceId, auth);
-                            request.setAttribute("loginUserLocale",
-                                    user.getLocale());
-                            valid = true;
-                        } catch (Exception e) {
-                            // something wrong
-                            logger.error(
-                                    "Authentication of technology manager failed with Exception ",
-                                    e);
+                        CredentialCache.Entry cached = credentialCache.get(
+                                userName, password, controllerId, serviceId);
+                        if (cached != null) {
+                            if (cached.isValid()) {
+                                request.setAttribute("loginUserLocale",
+                                        cached.getLocale());
+                                valid = true;
+                            }
+                        } else {
+                            valid = authenticate(controllerId, serviceId,
+                                    userName, password, request);
                         }
                     }
                 }
@@ -213,4 +213,30 @@ public class NotificationServlet extends HttpServlet {
         }
         return valid;
     }
+
+    private boolean authenticate(String controllerId, String serviceId,
+            String userName, String password, HttpServletRequest request) {
+        PasswordAuthentication auth = new PasswordAuthentication(userName,
+                password);
+        try {
+            VOUserDetails user = authService
+                    .authenticateTMForInstance(controllerId, serviceId, auth);
+            request.setAttribute("loginUserLocale", user.getLocale());
+            credentialCache.putValid(userName, password, controllerId,
+                    serviceId, user.getLocale());
+            return true;
+        } catch (AuthenticationException e) {
+            credentialCache.putInvalid(userName, password, controllerId,
+                    serviceId);
+            logger.error(
+                    "Authentication of technology manager failed with Exception ",
+                    e);
+        } catch (Exception e) {
+            // something wrong
+            logger.error(
+                    "Authentication of technology manager failed with Exception ",
+                    e);
+        }
+        return false;
+    }
 }
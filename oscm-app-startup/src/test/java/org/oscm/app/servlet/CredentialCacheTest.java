@@ -0,0 +1,107 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+package org.oscm.app.servlet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CredentialCacheTest {
+
+    private AtomicLong time;
+    private CredentialCache cache;
+
+    @Before
+    public void setup() {
+        time = new AtomicLong(1000);
+        cache = new CredentialCache(time::get);
+    }
+
+    @Test
+    public void get_valid() {
+        // given
+        cache.putValid("user", "pwd", "ctrl", "sid", "de");
+
+        // when
+        CredentialCache.Entry entry = cache.get("user", "pwd", "ctrl", "sid");
+
+        // then
+        assertTrue(entry.isValid());
+        assertEquals("de", entry.getLocale());
+    }
+
+    @Test
+    public void get_invalid() {
+        // given
+        cache.putInvalid("user", "pwd", "ctrl", "sid");
+
+        // when
+        CredentialCache.Entry entry = cache.get("user", "pwd", "ctrl", "sid");
+
+        // then
+        assertFalse(entry.isValid());
+    }
+
+    @Test
+    public void get_otherCredentials() {
+        // given
+        cache.putValid("user", "pwd", "ctrl", "sid", "de");
+
+        // then
+        assertNull(cache.get("user", "other", "ctrl", "sid"));
+        assertNull(cache.get("other", "pwd", "ctrl", "sid"));
+        assertNull(cache.get("user", "pwd", "other", "sid"));
+        assertNull(cache.get("user", "pwd", "ctrl", "other"));
+    }
+
+    @Test
+    public void get_validExpired() {
+        // given
+        cache.putValid("user", "pwd", "ctrl", "sid", "de");
+        time.addAndGet(CredentialCache.VALID_TTL - 1);
+        assertNotNull(cache.get("user", "pwd", "ctrl", "sid"));
+
+        // when
+        time.incrementAndGet();
+
+        // then
+        assertNull(cache.get("user", "pwd", "ctrl", "sid"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void get_invalidExpired() {
+        // given
+        cache.putInvalid("user", "pwd", "ctrl", "sid");
+
+        // when
+        time.addAndGet(CredentialCache.INVALID_TTL);
+
+        // then
+        assertNull(cache.get("user", "pwd", "ctrl", "sid"));
+    }
+
+    @Test
+    public void putValid_bounded() {
+        // when
+        for (int i = 0; i <= CredentialCache.MAX_ENTRIES; i++) {
+            cache.putValid("user" + i, "pwd", "ctrl", "sid", "de");
+        }
+
+        // then
+        assertEquals(CredentialCache.MAX_ENTRIES, cache.size());
+        assertNull(cache.get("user0", "pwd", "ctrl", "sid"));
+    }
+}
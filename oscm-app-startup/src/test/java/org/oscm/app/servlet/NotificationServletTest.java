@@ -8,22 +8,40 @@
 
 package org.oscm.app.servlet;
 
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.util.Collections;
+import java.util.Properties;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.codec.binary.Base64;
 import org.junit.Before;
 import org.junit.Test;
+import org.oscm.app.v2_0.data.PasswordAuthentication;
+import org.oscm.app.v2_0.exceptions.AuthenticationException;
+import org.oscm.app.v2_0.service.APPAuthenticationServiceBean;
 import org.oscm.app.v2_0.service.APPConfigurationServiceBean;
 import org.oscm.app.v2_0.service.APPTimerServiceBean;
+import org.oscm.vo.VOUserDetails;
 
 public class NotificationServletTest {
     private NotificationServlet servlet;
     private APPTimerServiceBean timerService;
     private APPConfigurationServiceBean configService;
+    private APPAuthenticationServiceBean authService;
 
     @Before
     public void setup() throws Exception {
@@ -32,6 +50,8 @@ public class NotificationServletTest {
         configService = mock(APPConfigurationServiceBean.class);
         servlet.timerService = timerService;
         servlet.configService = configService;
+        authService = mock(APPAuthenticationServiceBean.class);
+        servlet.authService = authService;
 
         doReturn(Boolean.TRUE).when(servlet.timerService).restart(anyBoolean());
         doNothing().when(servlet.timerService).initTimers();
@@ -61,4 +81,57 @@ public class NotificationServletTest {
         verify(servlet.timerService, times(1)).initTimers();
     }
 
+    @Test
+    public void doGet_credentialsCached() throws Exception {
+        // given
+        doReturn(new VOUserDetails()).when(authService)
+                .authenticateTMForInstance(eq("ctrl"), eq("sid"),
+                        any(PasswordAuthentication.class));
+
+        // when
+        servlet.doGet(createRequest("user", "pwd"),
+                mock(HttpServletResponse.class));
+        servlet.doGet(createRequest("user", "pwd"),
+                mock(HttpServletResponse.class));
+
+        // then
+        verify(authService, times(1)).authenticateTMForInstance(eq("ctrl"),
+                eq("sid"), any(PasswordAuthentication.class));
+        verify(timerService, times(2)).raiseEvent(eq("ctrl"), eq("sid"),
+                any(Properties.class));
+    }
+
+    @Test
+    public void doGet_failureCached() throws Exception {
+        // given
+        doThrow(new AuthenticationException("failed")).when(authService)
+                .authenticateTMForInstance(eq("ctrl"), eq("sid"),
+                        any(PasswordAuthentication.class));
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        // when
+        servlet.doGet(createRequest("user", "wrong"),
+                mock(HttpServletResponse.class));
+        servlet.doGet(createRequest("user", "wrong"), response);
+
+        // then
+        verify(authService, times(1)).authenticateTMForInstance(eq("ctrl"),
+                eq("sid"), any(PasswordAuthentication.class));
+        verify(response).setStatus(401);
+        verify(timerService, never()).raiseEvent(anyString(), anyString(),
+                any(Properties.class));
+    }
+
+    private static HttpServletRequest createRequest(String user,
+            String password) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getParameter("controllerid")).thenReturn("ctrl");
+        when(request.getParameter("sid")).thenReturn("sid");
+        when(request.getParameterNames()).thenReturn(
+                Collections.enumeration(Collections.singletonList("sid")));
+        when(request.getHeader("Authorization"))
+                .thenReturn("Basic " + Base64.encodeBase64String(
+                        (user + ":" + password).getBytes()));
+        return request;
+    }
 }
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.vmware.service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+
+import org.oscm.app.common.usage.UsageEventSink;
+import org.oscm.app.vmware.business.Controller;
+import org.oscm.app.vmware.persistence.APPDataAccessService;
+
+/**
+ * Sends the usage events spooled before the controller was deployed with the
+ * technology provider credentials of the controller configuration, and stops
+ * the threads of the usage event sink when the controller is undeployed.
+ * Events not sent yet stay in the spool directory.
+ */
+@Singleton
+@Startup
+public class UsageEventSinkLifecycle {
+
+    @PostConstruct
+    public void startup() {
+        UsageEventSink.getInstance(Controller.ID)
+                .setCredentialsLookup(() -> new APPDataAccessService()
+                        .loadTechnologyProviderCredentials()
+                        .toPasswordAuthentication());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        UsageEventSink.shutdown();
+    }
+}
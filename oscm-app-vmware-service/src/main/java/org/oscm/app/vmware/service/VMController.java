@@ -11,6 +11,7 @@ package org.oscm.app.vmware.service;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import javax.annotation.PostConstruct;
 import javax.ejb.Remote;
@@ -21,10 +22,10 @@ import javax.faces.context.FacesContext;
 import javax.inject.Inject;
 import javax.servlet.http.HttpSession;
 
+import org.oscm.app.common.intf.ServersNumberController;
 import org.oscm.app.v2_0.APPlatformServiceFactory;
 import org.oscm.app.v2_0.data.*;
 import org.oscm.app.v2_0.exceptions.*;
-import org.oscm.app.v2_0.intf.APPlatformController;
 import org.oscm.app.v2_0.intf.APPlatformService;
 import org.oscm.app.v2_0.intf.ControllerAccess;
 import org.oscm.app.vmware.business.Controller;
@@ -35,19 +36,22 @@ import org.oscm.app.vmware.business.statemachine.StateMachine;
 import org.oscm.app.vmware.i18n.Messages;
 import org.oscm.app.vmware.persistence.VMwareCredentials;
 import org.oscm.app.vmware.remote.bes.Credentials;
+import org.oscm.app.vmware.remote.vmware.VMClientPool;
 import org.oscm.app.vmware.remote.vmware.VMwareClient;
 import org.oscm.app.vmware.usage.VMUsageConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.vmware.vim25.ManagedObjectReference;
+
 /**
  * Controller implementation for integration of VMWare.
  *
  * @author soehnges
  */
 @Stateless(mappedName = "bss/app/controller/" + Controller.ID)
-@Remote(APPlatformController.class)
-public class VMController implements APPlatformController {
+@Remote(ServersNumberController.class)
+public class VMController implements ServersNumberController {
 
 	private static final Logger logger = LoggerFactory.getLogger(CreateActions.class);
 
@@ -668,6 +672,87 @@ public class VMController implements APPlatformController {
            return false;
        }
 
+	/**
+	 * Each instance provisions exactly one VM, so the number is 1 if the VM
+	 * exists in its vCenter. The lookup is served from the inventory index of
+	 * the pooled client, which reads all VM names of a vCenter once instead of
+	 * traversing the inventory for every instance.
+	 */
+	@Override
+	@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+	public int getServersNumber(String instanceId, String subscriptionId, String organizationId)
+			throws APPlatformException {
+		ProvisioningSettings settings = platformService.getServiceInstanceDetails(Controller.ID, instanceId,
+				subscriptionId, organizationId);
+		VMPropertyHandler ph = new VMPropertyHandler(settings);
+		String vcenter = ph.getTargetVCenterServer();
+		VMwareClient vmClient = null;
+		try {
+			vmClient = borrowClient(vcenter);
+			ManagedObjectReference vm = vmClient.getServiceUtil().getDecendentMoRef(null, "VirtualMachine",
+					ph.getInstanceName());
+			return vm == null ? 0 : 1;
+		} catch (Exception e) {
+			throw new APPlatformException("Failed to get number of VMs of instance " + instanceId, e);
+		} finally {
+			if (vmClient != null) {
+				returnClient(vcenter, vmClient);
+			}
+		}
+	}
+
+	/**
+	 * Determines the VMs of the instances of each vCenter with one lookup of
+	 * all their names. The instances of a vCenter which cannot be queried are
+	 * missing in the result.
+	 */
+	@Override
+	@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+	public Map<String, Integer> getServersNumbers(Map<String, ProvisioningSettings> instances)
+			throws APPlatformException {
+		Map<String, Map<String, String>> vmNamesByVCenter = new HashMap<>();
+		for (Map.Entry<String, ProvisioningSettings> entry : instances.entrySet()) {
+			VMPropertyHandler ph = new VMPropertyHandler(entry.getValue());
+			vmNamesByVCenter.computeIfAbsent(ph.getTargetVCenterServer(), v -> new HashMap<>()).put(entry.getKey(),
+					ph.getInstanceName());
+		}
+
+		Map<String, Integer> result = new HashMap<>();
+		for (Map.Entry<String, Map<String, String>> entry : vmNamesByVCenter.entrySet()) {
+			String vcenter = entry.getKey();
+			Map<String, String> vmNames = entry.getValue();
+			VMwareClient vmClient = null;
+			try {
+				vmClient = borrowClient(vcenter);
+				Map<String, ManagedObjectReference> vms = vmClient.getServiceUtil().getDecendentMoRefs(null,
+						"VirtualMachine", vmNames.values());
+				for (Map.Entry<String, String> vmName : vmNames.entrySet()) {
+					result.put(vmName.getKey(), Integer.valueOf(vms.containsKey(vmName.getValue()) ? 1 : 0));
+				}
+			} catch (Exception e) {
+				logger.error("Failed to get number of VMs of " + vmNames.size() + " instances in vCenter " + vcenter,
+						e);
+			} finally {
+				if (vmClient != null) {
+					returnClient(vcenter, vmClient);
+				}
+			}
+		}
+		return result;
+	}
+
+	protected VMwareClient borrowClient(String vcenter) throws Exception {
+		return VMClientPool.getInstance().getPool().borrowObject(vcenter);
+	}
+
+	protected void returnClient(String vcenter, VMwareClient vmClient) {
+		try {
+			VMClientPool.getInstance().getPool().returnObject(vcenter, vmClient);
+		} catch (Exception e) {
+			logger.error("Failed to return VMware client into pool", e);
+		}
+	}
+
 	@Override
 	public void setControllerSettings(ControllerSettings settings) {
 		if (controllerAccess != null) {
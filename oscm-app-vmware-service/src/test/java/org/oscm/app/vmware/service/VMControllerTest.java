@@ -8,16 +8,29 @@
 
 package org.oscm.app.vmware.service;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.faces.application.Application;
 import javax.faces.context.ExternalContext;
@@ -30,6 +43,7 @@ import javax.servlet.http.HttpSession;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Matchers;
 import org.mockito.Mock;
@@ -46,9 +60,12 @@ import org.oscm.app.v2_0.intf.APPlatformService;
 import org.oscm.app.vmware.business.VMPropertyHandler;
 import org.oscm.app.vmware.business.model.VCenter;
 import org.oscm.app.vmware.persistence.DataAccessService;
+import org.oscm.app.vmware.remote.vmware.ManagedObjectAccessor;
 import org.oscm.app.vmware.remote.vmware.VMwareClient;
 //import org.oscm.test.ejb.TestNamingContextFactoryBuilder;
 
+import com.vmware.vim25.ManagedObjectReference;
+
 /**
  * @author kulle
  */
@@ -351,6 +368,103 @@ public class VMControllerTest {
 		doReturn(Arrays.asList(new VCenter[] { mockVCenter })).when(controller).getVCenterList(any());
 	}
 	
+	@Test
+	public void getServersNumber() throws Exception {
+		// given
+		ManagedObjectAccessor serviceUtil = givenServersNumberSettings();
+		when(serviceUtil.getDecendentMoRef(null, "VirtualMachine", "vm1"))
+				.thenReturn(new ManagedObjectReference());
+
+		// when
+		int result = controller.getServersNumber("instance", "subscription", "org");
+
+		// then
+		assertEquals(1, result);
+		verify(controller).returnClient("vc1", vmWareClient);
+	}
+
+	@Test
+	public void getServersNumber_vmNotFound() throws Exception {
+		// given
+		givenServersNumberSettings();
+
+		// when
+		int result = controller.getServersNumber("instance", "subscription", "org");
+
+		// then
+		assertEquals(0, result);
+	}
+
+	@Test(expected = APPlatformException.class)
+	public void getServersNumber_failed() throws Exception {
+		// given
+		ManagedObjectAccessor serviceUtil = givenServersNumberSettings();
+		when(serviceUtil.getDecendentMoRef(null, "VirtualMachine", "vm1")).thenThrow(new RuntimeException());
+
+		// when
+		try {
+			controller.getServersNumber("instance", "subscription", "org");
+		} finally {
+			// then
+			verify(controller).returnClient("vc1", vmWareClient);
+		}
+	}
+
+	@Test
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void getServersNumbers() throws Exception {
+		// given
+		Map<String, ProvisioningSettings> instances = new HashMap<>();
+		instances.put("instance1", serversNumberSettings("vc1", "vm1"));
+		instances.put("instance2", serversNumberSettings("vc1", "vm2"));
+		instances.put("instance3", serversNumberSettings("vc2", "vm3"));
+		ManagedObjectAccessor serviceUtil = mock(ManagedObjectAccessor.class);
+		when(vmWareClient.getServiceUtil()).thenReturn(serviceUtil);
+		ArgumentCaptor<Collection<String>> names = ArgumentCaptor.forClass((Class) Collection.class);
+		when(serviceUtil.getDecendentMoRefs(isNull(ManagedObjectReference.class), eq("VirtualMachine"),
+				names.capture())).thenReturn(Collections.singletonMap("vm1", new ManagedObjectReference()));
+		doReturn(vmWareClient).when(controller).borrowClient("vc1");
+		doThrow(new Exception("not reachable")).when(controller).borrowClient("vc2");
+		doNothing().when(controller).returnClient(anyString(), any(VMwareClient.class));
+
+		// when
+		Map<String, Integer> result = controller.getServersNumbers(instances);
+
+		// then
+		assertEquals(2, result.size());
+		assertEquals(Integer.valueOf(1), result.get("instance1"));
+		assertEquals(Integer.valueOf(0), result.get("instance2"));
+		assertEquals(new HashSet<>(Arrays.asList("vm1", "vm2")), new HashSet<>(names.getValue()));
+		verify(controller, times(1)).borrowClient("vc1");
+		verify(controller).returnClient("vc1", vmWareClient);
+		verify(platformService, never()).getServiceInstanceDetails(anyString(), anyString(), anyString(),
+				anyString());
+	}
+
+	private ProvisioningSettings serversNumberSettings(String vcenter, String vmName) {
+		ProvisioningSettings instanceSettings = new ProvisioningSettings(new HashMap<String, Setting>(),
+				new HashMap<String, Setting>(), "en");
+		instanceSettings.getParameters().put(VMPropertyHandler.TS_TARGET_VCENTER_SERVER,
+				new Setting(VMPropertyHandler.TS_TARGET_VCENTER_SERVER, vcenter));
+		instanceSettings.getParameters().put(VMPropertyHandler.TS_INSTANCENAME,
+				new Setting(VMPropertyHandler.TS_INSTANCENAME, vmName));
+		return instanceSettings;
+	}
+
+	private ManagedObjectAccessor givenServersNumberSettings() throws Exception {
+		settings.getParameters().put(VMPropertyHandler.TS_TARGET_VCENTER_SERVER,
+				new Setting(VMPropertyHandler.TS_TARGET_VCENTER_SERVER, "vc1"));
+		settings.getParameters().put(VMPropertyHandler.TS_INSTANCENAME,
+				new Setting(VMPropertyHandler.TS_INSTANCENAME, "vm1"));
+		when(platformService.getServiceInstanceDetails(anyString(), anyString(), anyString(), anyString()))
+				.thenReturn(settings);
+		ManagedObjectAccessor serviceUtil = mock(ManagedObjectAccessor.class);
+		when(vmWareClient.getServiceUtil()).thenReturn(serviceUtil);
+		doReturn(vmWareClient).when(controller).borrowClient("vc1");
+		doNothing().when(controller).returnClient(anyString(), any(VMwareClient.class));
+		return serviceUtil;
+	}
+
 	protected void assertHelpfullMessageDetails(ServiceNotReachableException e) {
 		final String msg = String.valueOf(e.getLocalizedMessage());
 		final String wanted = notProvidedMsg("url", "userid", "password");
@@ -0,0 +1,259 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.vmware.business;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.oscm.app.vmware.remote.vmware.VMwareClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vmware.vim25.GuestProcessInfo;
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.NamePasswordAuthentication;
+import com.vmware.vim25.VimPortType;
+
+/**
+ * Tracks the guest processes started by {@link Script} until they have
+ * finished, so that the state machine does not have to wait for them.
+ * <p>
+ * The processes are checked by the state machine on each timer tick of APP,
+ * there is no background thread. Processes which have not been accessed for
+ * {@link #RETENTION_MS} milliseconds are dropped, e.g. when the instance has
+ * been deleted while its script was running.
+ * <p>
+ * The tracker only knows the processes started on this node since the
+ * controller was deployed. {@link Script} therefore also stores the process in
+ * the instance parameters, so that it can be tracked again from there.
+ */
+public class GuestProcessTracker {
+
+    private static final Logger LOG = LoggerFactory
+            .getLogger(GuestProcessTracker.class);
+
+    static final long RETENTION_MS = 60 * 60 * 1000;
+    static final int MAX_FAILURES = 60;
+
+    private static final GuestProcessTracker INSTANCE = new GuestProcessTracker();
+
+    private final ConcurrentMap<String, GuestProcess> processes = new ConcurrentHashMap<String, GuestProcess>();
+
+    GuestProcessTracker() {
+    }
+
+    public static GuestProcessTracker getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the key of the process started for the given VM.
+     */
+    public static String key(String vcenter, String instanceName) {
+        return vcenter + "/" + instanceName;
+    }
+
+    /**
+     * Starts tracking the given process. A process tracked before for the
+     * same key is replaced.
+     */
+    public void track(GuestProcess process) {
+        removeExpired();
+        process.lastAccess = System.currentTimeMillis();
+        processes.put(process.key, process);
+        LOG.debug("Tracking process " + process.pid + " of " + process.key);
+    }
+
+    /**
+     * Returns the process tracked for the given key, or <code>null</code> if
+     * there is none.
+     */
+    public GuestProcess get(String key) {
+        GuestProcess process = processes.get(key);
+        if (process != null) {
+            process.lastAccess = System.currentTimeMillis();
+        }
+        return process;
+    }
+
+    /**
+     * Returns whether the process tracked for the given key is still running.
+     */
+    public boolean isRunning(String key) {
+        GuestProcess process = processes.get(key);
+        return process != null && !process.isFinished();
+    }
+
+    /**
+     * Stops tracking the process with the given key.
+     */
+    public void remove(String key) {
+        processes.remove(key);
+    }
+
+    int size() {
+        return processes.size();
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+        for (GuestProcess process : processes.values()) {
+            if (now - process.lastAccess > RETENTION_MS) {
+                processes.remove(process.key, process);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given process has finished, using the given client
+     * of its vCenter. A process which cannot be checked
+     * {@link #MAX_FAILURES} times in a row is reported as finished with an
+     * error.
+     */
+    public void check(VMwareClient client, GuestProcess process)
+            throws Exception {
+        ScriptExecutionObjectReferences refs = getObjectReferences(client);
+        check(refs.getVimPort(), refs.getProcessManagerRef(), process);
+    }
+
+    private void check(VimPortType vimPort,
+            ManagedObjectReference processManager, GuestProcess process) {
+        try {
+            List<GuestProcessInfo> infos = vimPort.listProcessesInGuest(
+                    processManager, process.vm, process.auth,
+                    Collections.singletonList(Long.valueOf(process.pid)));
+            process.failures = 0;
+            if (infos == null || infos.isEmpty()) {
+                LOG.warn("Process " + process.pid + " of " + process.key
+                        + " not found in guest, assuming it has finished");
+                process.finish(null, null);
+            } else if (infos.get(0).getEndTime() != null) {
+                process.finish(infos.get(0).getExitCode(), null);
+            }
+        } catch (Exception e) {
+            process.failures++;
+            LOG.warn("listProcessesInGuest() failed for " + process.key
+                    + ", attempt " + process.failures, e);
+            if (process.fallbackPassword != null) {
+                process.auth.setPassword(process.fallbackPassword);
+            }
+            if (process.failures >= MAX_FAILURES) {
+                process.finish(null, e.getMessage());
+            }
+        }
+    }
+
+    protected ScriptExecutionObjectReferences getObjectReferences(
+            VMwareClient client) throws Exception {
+        return new ScriptExecutionObjectReferences(client);
+    }
+
+    /**
+     * A process started in a guest and the data needed to check it.
+     */
+    public static class GuestProcess {
+        private final String key;
+        private final ManagedObjectReference vm;
+        private final long pid;
+        private final NamePasswordAuthentication auth;
+        private final String fallbackPassword;
+        private final String outputFile;
+        private final String host;
+
+        private volatile int failures;
+        volatile long lastAccess;
+        private volatile boolean finished;
+        private volatile Integer exitCode;
+        private volatile String error;
+
+        /**
+         * @param vcenter
+         *            the vCenter of the VM
+         * @param instanceName
+         *            the name of the VM
+         * @param vm
+         *            the VM the process runs in
+         * @param pid
+         *            the process id
+         * @param auth
+         *            the guest authentication to list the process
+         * @param fallbackPassword
+         *            the password to use if listing the process fails with
+         *            the given authentication, or <code>null</code>
+         * @param outputFile
+         *            the guest file the output of the process is written to
+         * @param host
+         *            the host of the vSphere API, used to download the output
+         */
+        public GuestProcess(String vcenter, String instanceName,
+                ManagedObjectReference vm, long pid,
+                NamePasswordAuthentication auth, String fallbackPassword,
+                String outputFile, String host) {
+            this.key = key(vcenter, instanceName);
+            this.vm = vm;
+            this.pid = pid;
+            this.auth = auth;
+            this.fallbackPassword = fallbackPassword;
+            this.outputFile = outputFile;
+            this.host = host;
+        }
+
+        void finish(Integer exitCode, String error) {
+            this.exitCode = exitCode;
+            this.error = error;
+            this.finished = true;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public ManagedObjectReference getVm() {
+            return vm;
+        }
+
+        public long getPid() {
+            return pid;
+        }
+
+        public NamePasswordAuthentication getAuth() {
+            return auth;
+        }
+
+        public String getOutputFile() {
+            return outputFile;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public boolean isFinished() {
+            return finished;
+        }
+
+        /**
+         * Returns the exit code, or <code>null</code> if the process is
+         * running or its exit code is unknown.
+         */
+        public Integer getExitCode() {
+            return exitCode;
+        }
+
+        /**
+         * Returns the reason why the process could not be checked, or
+         * <code>null</code>.
+         */
+        public String getError() {
+            return error;
+        }
+    }
+}
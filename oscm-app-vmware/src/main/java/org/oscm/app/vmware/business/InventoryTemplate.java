@@ -9,7 +9,11 @@
  */
 package org.oscm.app.vmware.business;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.oscm.app.v2_0.exceptions.APPlatformException;
 import org.oscm.app.vmware.business.balancer.LoadBalancerConfiguration;
@@ -21,11 +25,17 @@ import org.oscm.app.vmware.remote.vmware.VMwareClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.vmware.vim25.ArrayOfDatastoreHostMount;
+import com.vmware.vim25.ArrayOfManagedObjectReference;
 import com.vmware.vim25.DatastoreHostMount;
 import com.vmware.vim25.DynamicProperty;
 import com.vmware.vim25.InvalidPropertyFaultMsg;
 import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectContent;
+import com.vmware.vim25.PropertySpec;
 import com.vmware.vim25.RuntimeFaultFaultMsg;
+import com.vmware.vim25.SelectionSpec;
+import com.vmware.vim25.TraversalSpec;
 import com.vmware.vim25.VirtualMachineRelocateSpec;
 
 /** @author worf */
@@ -37,6 +47,16 @@ public class InventoryTemplate {
 
   private static final Logger logger = LoggerFactory.getLogger(InventoryTemplate.class);
 
+  static final String[] HOST_PROPERTIES = {
+    "name", "summary.hardware.memorySize", "summary.hardware.numCpuCores"
+  };
+  static final String[] VM_PROPERTIES = {
+    "name", "summary.config.memorySizeMB", "summary.config.numCpu", "runtime.host"
+  };
+  static final String[] STORAGE_PROPERTIES = {
+    "summary.name", "summary.capacity", "summary.freeSpace"
+  };
+
   public InventoryTemplate(VMwareClient vmw, VMPropertyHandler paramHandler) {
     this.vmw = vmw;
     this.paramHandler = paramHandler;
@@ -161,6 +181,19 @@ public class InventoryTemplate {
     ManagedObjectReference clusterMoRef =
         serviceUtil.getDecendentMoRef(dcMoRef, "ClusterComputeResource", cluster);
 
+    try {
+      VMwareDatacenterInventory inventory = readClusterSnapshot(serviceUtil, clusterMoRef);
+      if (inventory != null) {
+        return inventory;
+      }
+    } catch (Exception e) {
+      logger.warn(
+          "Failed to read inventory of cluster "
+              + cluster
+              + " in one request, reading objects one by one: "
+              + e.getMessage());
+    }
+
     List<ManagedObjectReference> hostMoRefs =
         (List<ManagedObjectReference>) serviceUtil.getDynamicProperty(clusterMoRef, "host");
 
@@ -175,6 +208,145 @@ public class InventoryTemplate {
     return inventory;
   }
 
+  /**
+   * Reads the hosts of the cluster together with their VMs and datastores by a single, paged
+   * property collector request instead of querying every object separately.
+   *
+   * @return the inventory or <code>null</code> if no host could be read
+   */
+  @SuppressWarnings("unchecked")
+  VMwareDatacenterInventory readClusterSnapshot(
+      ManagedObjectAccessor serviceUtil, ManagedObjectReference clusterMoRef) throws Exception {
+
+    List<ObjectContent> contents =
+        serviceUtil.retrieveContainerContents(
+            clusterMoRef,
+            "HostSystem",
+            Arrays.asList(
+                propertySpec("HostSystem", HOST_PROPERTIES, "datastore"),
+                propertySpec("VirtualMachine", VM_PROPERTIES),
+                propertySpec("Datastore", STORAGE_PROPERTIES, "host")),
+            Arrays.asList(
+                traversalSpec("hostToVm", "HostSystem", "vm"),
+                traversalSpec("hostToDatastore", "HostSystem", "datastore")));
+
+    List<ObjectContent> hosts = new ArrayList<ObjectContent>();
+    List<ObjectContent> vms = new ArrayList<ObjectContent>();
+    Map<String, ObjectContent> datastores = new HashMap<String, ObjectContent>();
+    for (ObjectContent content : contents) {
+      String type = content.getObj().getType();
+      if ("HostSystem".equals(type)) {
+        hosts.add(content);
+      } else if ("VirtualMachine".equals(type)) {
+        vms.add(content);
+      } else if ("Datastore".equals(type)) {
+        datastores.put(content.getObj().getValue(), content);
+      }
+    }
+
+    if (hosts.isEmpty()) {
+      return null;
+    }
+
+    VMwareDatacenterInventory inventory = new VMwareDatacenterInventory();
+    for (ObjectContent hostContent : hosts) {
+      List<DynamicProperty> dps = selectProperties(hostContent.getPropSet(), HOST_PROPERTIES);
+      inventory.addHostSystem(dps);
+      String host = getHostName(dps);
+      inventory.cacheHostName(hostContent.getObj(), host);
+
+      Object hostDatastores = getPropertyValue(hostContent.getPropSet(), "datastore");
+      for (ManagedObjectReference storageRef : toMoRefs(hostDatastores)) {
+        ObjectContent storageContent = datastores.get(storageRef.getValue());
+        if (storageContent == null) {
+          continue;
+        }
+        Object mounts = getPropertyValue(storageContent.getPropSet(), "host");
+        if (mounts instanceof ArrayOfDatastoreHostMount) {
+          mounts = ((ArrayOfDatastoreHostMount) mounts).getDatastoreHostMount();
+        }
+        if (mounts instanceof List<?>
+            && isWritableMount((List<DatastoreHostMount>) mounts, hostContent.getObj())) {
+          List<DynamicProperty> storageDps =
+              selectProperties(storageContent.getPropSet(), STORAGE_PROPERTIES);
+          logger.debug("storage: " + getStorageName(storageDps));
+          inventory.addStorage(host, storageDps);
+        }
+      }
+    }
+    for (ObjectContent vmContent : vms) {
+      inventory.addVirtualMachine(vmContent.getPropSet(), serviceUtil);
+    }
+    inventory.initialize();
+    return inventory;
+  }
+
+  private boolean isWritableMount(List<DatastoreHostMount> hostMounts, ManagedObjectReference host) {
+    for (DatastoreHostMount hm : hostMounts) {
+      if (hm.getKey() != null
+          && host.getValue().equals(hm.getKey().getValue())
+          && hm.getMountInfo().isAccessible().booleanValue()
+          && hm.getMountInfo().isMounted().booleanValue()
+          && !hm.getMountInfo().getAccessMode().equals("readOnly")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private List<ManagedObjectReference> toMoRefs(Object value) {
+    List<ManagedObjectReference> result = new ArrayList<ManagedObjectReference>();
+    if (value instanceof ArrayOfManagedObjectReference) {
+      value = ((ArrayOfManagedObjectReference) value).getManagedObjectReference();
+    }
+    if (value instanceof List<?>) {
+      for (Object item : (List<?>) value) {
+        if (item instanceof ManagedObjectReference) {
+          result.add((ManagedObjectReference) item);
+        }
+      }
+    }
+    return result;
+  }
+
+  private Object getPropertyValue(List<DynamicProperty> dps, String name) {
+    for (DynamicProperty dp : dps) {
+      if (name.equals(dp.getName())) {
+        return dp.getVal();
+      }
+    }
+    return null;
+  }
+
+  private List<DynamicProperty> selectProperties(List<DynamicProperty> dps, String[] names) {
+    List<String> wanted = Arrays.asList(names);
+    List<DynamicProperty> result = new ArrayList<DynamicProperty>();
+    for (DynamicProperty dp : dps) {
+      if (wanted.contains(dp.getName())) {
+        result.add(dp);
+      }
+    }
+    return result;
+  }
+
+  private static PropertySpec propertySpec(String type, String[] properties, String... extra) {
+    PropertySpec spec = new PropertySpec();
+    spec.setType(type);
+    spec.setAll(Boolean.FALSE);
+    spec.getPathSet().addAll(Arrays.asList(properties));
+    spec.getPathSet().addAll(Arrays.asList(extra));
+    return spec;
+  }
+
+  private static SelectionSpec traversalSpec(String name, String type, String path) {
+    TraversalSpec spec = new TraversalSpec();
+    spec.setName(name);
+    spec.setType(type);
+    spec.setPath(path);
+    spec.setSkip(Boolean.FALSE);
+    return spec;
+  }
+
   protected void setVMToInventory(
       ManagedObjectAccessor serviceUtil,
       VMwareDatacenterInventory inventory,
@@ -25,6 +25,7 @@ import javax.xml.datatype.DatatypeFactory;
 
 import org.apache.commons.io.IOUtils;
 import org.oscm.app.v2_0.exceptions.APPlatformException;
+import org.oscm.app.vmware.business.GuestProcessTracker.GuestProcess;
 import org.oscm.app.vmware.business.Script.OS;
 import org.oscm.app.vmware.persistence.DataAccessService;
 import org.oscm.app.vmware.remote.bes.ServiceParamRetrieval;
@@ -34,18 +35,12 @@ import org.oscm.app.vmware.remote.vmware.VMwareClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.vmware.vim25.FileFaultFaultMsg;
 import com.vmware.vim25.FileTransferInformation;
-import com.vmware.vim25.GuestOperationsFaultFaultMsg;
 import com.vmware.vim25.GuestPosixFileAttributes;
-import com.vmware.vim25.GuestProcessInfo;
 import com.vmware.vim25.GuestProgramSpec;
 import com.vmware.vim25.GuestWindowsFileAttributes;
-import com.vmware.vim25.InvalidStateFaultMsg;
 import com.vmware.vim25.ManagedObjectReference;
 import com.vmware.vim25.NamePasswordAuthentication;
-import com.vmware.vim25.RuntimeFaultFaultMsg;
-import com.vmware.vim25.TaskInProgressFaultMsg;
 import com.vmware.vim25.VimPortType;
 
 public class Script {
@@ -446,9 +441,14 @@ public class Script {
         return param.replace('1', Integer.toString(index).charAt(0));
     }
     
+    /**
+     * Starts the script in the given VM. The script process is handed over to
+     * the {@link GuestProcessTracker}, this method does not wait until it has
+     * finished.
+     */
     public void execute(VMwareClient vmw, ManagedObjectReference vmwInstance)
             throws Exception {
-        if (!scriptExecuting) {
+        if (!scriptExecuting && !getTracker().isRunning(getProcessKey())) {
             executeScript(vmw, vmwInstance);
         }
     }
@@ -483,23 +483,15 @@ public class Script {
                 setUpdatedPassword(auth);
             }
 
-            List<GuestProcessInfo> procInfo = null;
-            List<Long> pidsList = new ArrayList<Long>();
-            pidsList.add(Long.valueOf(pid));
-            
-            do {
-                LOG.debug("Waiting for the process to finish running.");
-                try {
-                    procInfo = getProcInfo(vmwInstance, objectRef.getVimPort(), objectRef.getProcessManagerRef(), auth,
-                            pidsList);
-                } catch (Exception e) {
-                    setNewAuthPassword(auth, e);
-                }
-                Thread.sleep(1000);
-            } while (procInfo != null && procInfo.get(0).getEndTime() == null);
-
-            checkIfScriptWasRunningSuccessful(vmwInstance, objectRef.getVimPort(),
-                    objectRef.getFileManagerRef(), auth, vSphereURL, tempFilePath, procInfo);
+            getTracker().track(new GuestProcess(getVCenter(),
+                    ph.getInstanceName(), vmwInstance, pid, auth,
+                    getFallbackPassword(ph, os), tempFilePath,
+                    vSphereURL.getHost()));
+            ph.setSetting(VMPropertyHandler.SCRIPT_PID, Long.toString(pid));
+            ph.setSetting(VMPropertyHandler.SCRIPT_VM, vmwInstance.getValue());
+            ph.setSetting(VMPropertyHandler.SCRIPT_OS, os.name());
+            ph.setSetting(VMPropertyHandler.SCRIPT_OUTPUT_FILE, tempFilePath);
+            ph.setSetting(VMPropertyHandler.SCRIPT_HOST, vSphereURL.getHost());
             setScriptExecuting(false);
             
         } catch (Exception e) {
@@ -514,42 +506,72 @@ public class Script {
         return objectRef;
     }
 
-    private void checkIfScriptWasRunningSuccessful(
-            ManagedObjectReference vmwInstance, VimPortType vimPort,
-            ManagedObjectReference fileManagerRef,
-            NamePasswordAuthentication auth, URL vSphereURL,
-            String tempFilePath, List<GuestProcessInfo> procInfo)
-            throws FileFaultFaultMsg, GuestOperationsFaultFaultMsg,
-            InvalidStateFaultMsg, RuntimeFaultFaultMsg, TaskInProgressFaultMsg,
-            Exception {
-        if (procInfo != null
-                && procInfo.get(0).getExitCode().intValue() != 0) {
-            LOG.error(
-                    "Script return code: " + procInfo.get(0).getExitCode());
-            FileTransferInformation fileTransferInformation = null;
-            fileTransferInformation = vimPort.initiateFileTransferFromGuest(
-                    fileManagerRef, vmwInstance, auth, tempFilePath);
-            String fileDownloadUrl = fileTransferInformation.getUrl()
-                    .replaceAll("\\*", vSphereURL.getHost());
-            LOG.debug(
-                    "Downloading the output file from :" + fileDownloadUrl);
-            String scriptOutput = downloadFile(fileDownloadUrl);
-            LOG.error("Script execution output: " + scriptOutput);
+    /**
+     * Logs the output of the given finished script process if it has failed.
+     */
+    public void logScriptOutput(VMwareClient vmw, GuestProcess process)
+            throws Exception {
+        Integer exitCode = process.getExitCode();
+        if (exitCode == null || exitCode.intValue() == 0) {
+            return;
         }
+        LOG.error("Script return code: " + exitCode);
+        ScriptExecutionObjectReferences objectRef = getScriptExecutionObjectReferences(
+                vmw);
+        FileTransferInformation fileTransferInformation = objectRef
+                .getVimPort().initiateFileTransferFromGuest(
+                        objectRef.getFileManagerRef(), process.getVm(),
+                        process.getAuth(), process.getOutputFile());
+        String fileDownloadUrl = fileTransferInformation.getUrl()
+                .replaceAll("\\*", process.getHost());
+        LOG.debug("Downloading the output file from :" + fileDownloadUrl);
+        String scriptOutput = downloadFile(fileDownloadUrl);
+        LOG.error("Script execution output: " + scriptOutput);
     }
 
-    private void setNewAuthPassword(NamePasswordAuthentication auth,
-            Exception e) {
-        LOG.warn(
-                "listProcessesInGuest() failed. setting new Linux root password for authentication",
-                e);
+    /**
+     * Returns the process of the script started last for the VM of the given
+     * settings, as stored when it was started. This is used when the process
+     * is not tracked, e.g. because the controller has been redeployed since or
+     * the script has been started on another node.
+     *
+     * @return the process or <code>null</code> if no process is stored
+     */
+    public static GuestProcess getStartedProcess(VMPropertyHandler ph)
+            throws APPlatformException {
+        String pid = ph.getServiceSetting(VMPropertyHandler.SCRIPT_PID);
+        String vmRef = ph.getServiceSetting(VMPropertyHandler.SCRIPT_VM);
+        if (pid == null || pid.isEmpty() || vmRef == null
+                || vmRef.isEmpty()) {
+            return null;
+        }
+
+        ManagedObjectReference vm = new ManagedObjectReference();
+        vm.setType("VirtualMachine");
+        vm.setValue(vmRef);
+        NamePasswordAuthentication auth = new NamePasswordAuthentication();
+        auth.setUsername(
+                ph.getServiceSetting(VMPropertyHandler.TS_SCRIPT_USERID));
+        auth.setPassword(ph.getServiceSetting(VMPropertyHandler.TS_SCRIPT_PWD));
+        auth.setInteractiveSession(false);
+        OS os = OS.WINDOWS.name()
+                .equals(ph.getServiceSetting(VMPropertyHandler.SCRIPT_OS))
+                        ? OS.WINDOWS : OS.LINUX;
+
+        return new GuestProcess(
+                ph.getServiceSetting(VMPropertyHandler.TS_TARGET_VCENTER_SERVER),
+                ph.getInstanceName(), vm, Long.parseLong(pid), auth,
+                getFallbackPassword(ph, os),
+                ph.getServiceSetting(VMPropertyHandler.SCRIPT_OUTPUT_FILE),
+                ph.getServiceSetting(VMPropertyHandler.SCRIPT_HOST));
+    }
+
+    private static String getFallbackPassword(VMPropertyHandler ph, OS os) {
         if (os == OS.WINDOWS) {
-            auth.setPassword(ph.getServiceSetting(
-                    VMPropertyHandler.TS_WINDOWS_LOCAL_ADMIN_PWD));
-        } else {
-            auth.setPassword(ph.getServiceSetting(
-                    VMPropertyHandler.TS_LINUX_ROOT_PWD));
+            return ph.getServiceSetting(
+                    VMPropertyHandler.TS_WINDOWS_LOCAL_ADMIN_PWD);
         }
+        return ph.getServiceSetting(VMPropertyHandler.TS_LINUX_ROOT_PWD);
     }
 
     protected GuestProgramSpec getGuestProgramSpec(String tempFilePath) {
@@ -592,14 +614,16 @@ public class Script {
                 .equals(ph.getServiceSetting(VMPropertyHandler.SM_STATE));
     }
 
-    protected List<GuestProcessInfo> getProcInfo(
-            ManagedObjectReference vmwInstance, VimPortType vimPort,
-            ManagedObjectReference processManagerRef,
-            NamePasswordAuthentication auth, List<Long> pidsList)
-            throws GuestOperationsFaultFaultMsg, InvalidStateFaultMsg,
-            RuntimeFaultFaultMsg, TaskInProgressFaultMsg {
-        return vimPort.listProcessesInGuest(processManagerRef,
-                vmwInstance, auth, pidsList);
+    private String getVCenter() {
+        return ph.getServiceSetting(VMPropertyHandler.TS_TARGET_VCENTER_SERVER);
+    }
+
+    private String getProcessKey() throws APPlatformException {
+        return GuestProcessTracker.key(getVCenter(), ph.getInstanceName());
+    }
+
+    protected GuestProcessTracker getTracker() {
+        return GuestProcessTracker.getInstance();
     }
 
     protected URL getVSphereURL()
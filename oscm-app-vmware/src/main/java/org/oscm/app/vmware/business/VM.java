@@ -332,6 +332,15 @@ public class VM extends Template {
     return script.isScriptExecuting();
   }
 
+  /**
+   * Returns whether a script started for this VM is still running in the guest.
+   */
+  public boolean isScriptExecuting(VMPropertyHandler paramHandler) {
+    String vcenter = paramHandler.getServiceSetting(VMPropertyHandler.TS_TARGET_VCENTER_SERVER);
+    return GuestProcessTracker.getInstance()
+        .isRunning(GuestProcessTracker.key(vcenter, instanceName));
+  }
+
   public int getNumberOfNICs() throws Exception {
     return NetworkManager.getNumberOfNICs(vmw, vmInstance);
   }
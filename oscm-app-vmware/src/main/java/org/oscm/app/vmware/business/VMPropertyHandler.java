@@ -133,6 +133,24 @@ public class VMPropertyHandler {
   /** The time of starting the vSphere task. */
   public static final String TASK_STARTTIME = "TASK_STARTTIME";
 
+  /**
+   * The process ID of the script started last in the guest of the VM. Together with the following
+   * settings it is used to check the script again when its process is not tracked on this node.
+   */
+  public static final String SCRIPT_PID = "SCRIPT_PID";
+
+  /** The managed object reference value of the VM the script has been started in. */
+  public static final String SCRIPT_VM = "SCRIPT_VM";
+
+  /** The operating system of the VM the script has been started in. */
+  public static final String SCRIPT_OS = "SCRIPT_OS";
+
+  /** The guest file the output of the script is written to. */
+  public static final String SCRIPT_OUTPUT_FILE = "SCRIPT_OUTPUT_FILE";
+
+  /** The host of the vSphere API the script output is downloaded from. */
+  public static final String SCRIPT_HOST = "SCRIPT_HOST";
+
   /**
    * When the subscription end date is set the subscription is going to several stages until it is
    * automatically deleted
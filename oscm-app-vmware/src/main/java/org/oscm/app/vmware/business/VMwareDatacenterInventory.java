@@ -159,6 +159,16 @@ public class VMwareDatacenterInventory {
         return result;
     }
 
+    /**
+     * Registers the name of a host system so that VMs running on it can be
+     * added without querying the host name from the vCenter again.
+     */
+    void cacheHostName(ManagedObjectReference host, String name) {
+        if (host != null && name != null) {
+            hostCache.put(host.getValue(), name);
+        }
+    }
+
     /**
      * Initializes the allocation data of the host by summing up all configured
      * (not the actual used) resources of all VMs deployed on each host.
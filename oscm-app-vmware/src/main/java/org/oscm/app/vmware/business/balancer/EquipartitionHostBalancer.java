@@ -31,6 +31,12 @@ public class EquipartitionHostBalancer extends HostBalancer {
     private static final Logger logger = LoggerFactory
             .getLogger(EquipartitionHostBalancer.class);
 
+    /**
+     * Relative size below which a sum of squared deviations is considered as
+     * rounding error.
+     */
+    private static final double ROUNDING_RESIDUE = 1e-14;
+
     private double cpuWeight = 1;
     private double memWeight = 1;
     private double vmWeight = 1;
@@ -84,7 +90,6 @@ public class EquipartitionHostBalancer extends HostBalancer {
         double[] vmCounts = new double[cnt];
         double[] memCounts = new double[cnt];
         double[] cpuCounts = new double[cnt];
-        double[] vmNormalizer = new double[cnt];
         double[] memNormalizer = new double[cnt];
         double[] cpuNormalizer = new double[cnt];
         int i = 0;
@@ -96,14 +101,14 @@ public class EquipartitionHostBalancer extends HostBalancer {
             cpuCounts[i] = host.getAllocatedCPUs();
             cpuNormalizer[i] = host.getCpuCores();
             vmCounts[i] = host.getAllocatedVMs();
-            vmNormalizer[i] = 1;
             i++;
         }
         memCounts = calculateSpread(memCounts, properties.getConfigMemoryMB(),
                 memNormalizer);
         cpuCounts = calculateSpread(cpuCounts, properties.getConfigCPUs(),
                 cpuNormalizer);
-        vmCounts = calculateSpread(vmCounts, 1, vmNormalizer);
+        // no normalizer => each VM counts 1
+        vmCounts = calculateSpread(vmCounts, 1, new double[0]);
         if (logger.isDebugEnabled()) {
             logger.debug("Memory spread: " + getLogString(memCounts));
             logger.debug("CPU spread:    " + getLogString(cpuCounts));
@@ -132,6 +137,10 @@ public class EquipartitionHostBalancer extends HostBalancer {
      * If the normalizer values are set, the respective value and the addition
      * will be normalized (divided by the normalizer value) before calculating
      * the spread.
+     * <p>
+     * The spread of the base values is calculated once. The spread resulting
+     * from an addition to one value is derived from it in constant time, so
+     * the whole calculation is linear in the number of values.
      * 
      * @param values
      *            base value set for the calculation
@@ -143,48 +152,47 @@ public class EquipartitionHostBalancer extends HostBalancer {
      */
     public static double[] calculateSpread(double[] values, double addition,
             double[] normalizer) {
-        double[] result = new double[values.length];
-        double[] calcBase = new double[values.length];
-        if (values.length > 0) {
-            for (int i = 0; i < values.length; i++) {
-                // no normalizer => set to 100%
-                double factor = normalizer.length >= i + 1 ? normalizer[i] : 1;
-                calcBase[i] = values[i] / (factor > 0 ? factor : 1);
-            }
-            for (int i = 0; i < calcBase.length; i++) {
-                double factor = normalizer.length >= i + 1 ? normalizer[i] : 1;
-                double normalizedAddition = addition
-                        / (factor > 0 ? factor : 1);
-                calcBase[i] += normalizedAddition;
-                result[i] = spread(calcBase);
-                calcBase[i] -= normalizedAddition;
-            }
+        int n = values.length;
+        double[] result = new double[n];
+        if (n == 0) {
+            return result;
         }
-        return result;
-    }
-
-    /**
-     * Calculates the average from the given set of values.
-     */
-    private static double average(double[] values) {
         double sum = 0;
-        for (int i = 0; i < values.length; i++) {
-            sum += values[i];
+        for (int i = 0; i < n; i++) {
+            sum += normalize(values[i], normalizer, i);
+        }
+        double avg = sum / n;
+        // sum of the squared deviations from the average
+        double deviations = 0;
+        for (int i = 0; i < n; i++) {
+            deviations += square(normalize(values[i], normalizer, i) - avg);
+        }
+        for (int i = 0; i < n; i++) {
+            double delta = normalize(addition, normalizer, i);
+            double shift = 2 * delta
+                    * (normalize(values[i], normalizer, i) - avg);
+            // adding delta to the i-th value moves the average by delta / n
+            double newAvg = avg + delta / n;
+            double newDeviations = deviations + shift
+                    + square(delta) * (n - 1) / n;
+            // ignore the rounding residue if the terms cancel out
+            if (newDeviations < ROUNDING_RESIDUE
+                    * (deviations + Math.abs(shift) + square(delta))) {
+                newDeviations = 0;
+            }
+            result[i] = Math.sqrt(newDeviations / n)
+                    / (newAvg != 0 ? newAvg : 1);
         }
-        return sum / values.length;
+        return result;
     }
 
     /**
-     * Calculates the spread over the given set of values and normalizes the
-     * result as percentage of the average.
+     * Divides the given value by the i-th normalizer value.
      */
-    private static double spread(double[] values) {
-        double sum = 0;
-        double avg = average(values);
-        for (int i = 0; i < values.length; i++) {
-            sum += square(avg - values[i]);
-        }
-        return Math.sqrt(sum / values.length) / (avg != 0 ? avg : 1);
+    private static double normalize(double value, double[] normalizer, int i) {
+        // no normalizer => set to 100%
+        double factor = normalizer.length >= i + 1 ? normalizer[i] : 1;
+        return value / (factor > 0 ? factor : 1);
     }
 
     /**
@@ -387,6 +387,12 @@ public class Actions {
       return null;
     }
 
+    TaskInfo watchedInfo = getWatchedTaskInfo(vmw, taskKey);
+    if (watchedInfo != null) {
+      logTaskInfo(watchedInfo);
+      return watchedInfo;
+    }
+
     VimPortType service = vmw.getConnection().getService();
     ManagedObjectReference taskManager = vmw.getConnection().getServiceContent().getTaskManager();
     ManagedObjectReference taskHistoryCollector =
@@ -413,6 +419,19 @@ public class Actions {
     }
   }
 
+  /**
+   * Returns the task information from the task watcher of the connection, or null if the task is
+   * not known to vCenter anymore and has to be looked up in the task history.
+   */
+  private TaskInfo getWatchedTaskInfo(VMwareClient vmw, String taskKey) {
+    try {
+      return vmw.getConnection().getTaskWatcher().getTaskInfo(taskKey);
+    } catch (Exception e) {
+      logger.warn("Failed to watch task " + taskKey + ", reading task history instead", e);
+      return null;
+    }
+  }
+
   private void logTaskInfo(TaskInfo info) {
     String key = info.getKey();
     String name = info.getName();
@@ -23,6 +23,9 @@ import org.oscm.app.v2_0.data.InstanceStatus;
 import org.oscm.app.v2_0.data.ProvisioningSettings;
 import org.oscm.app.v2_0.exceptions.APPlatformException;
 import org.oscm.app.vmware.business.Controller;
+import org.oscm.app.vmware.business.GuestProcessTracker;
+import org.oscm.app.vmware.business.GuestProcessTracker.GuestProcess;
+import org.oscm.app.vmware.business.Script;
 import org.oscm.app.vmware.business.VM;
 import org.oscm.app.vmware.business.VMPropertyHandler;
 import org.oscm.app.vmware.business.statemachine.api.StateMachineAction;
@@ -37,6 +40,7 @@ public class CreateActions extends Actions {
   private static final Logger logger = LoggerFactory.getLogger(CreateActions.class);
 
   private static final String EVENT_CREATING = "creating";
+  private static final String EVENT_EXECUTING = "executing";
 
   @StateMachineAction
   public String importVM(String instanceId, ProvisioningSettings settings, InstanceStatus result) {
@@ -173,6 +177,9 @@ public class CreateActions extends Actions {
           && ph.getServiceSetting(VMPropertyHandler.TS_SCRIPT_URL).trim().length() > 0) {
         VM vm = new VM(vmClient, ph.getInstanceName());
         vm.runScript(ph);
+        if (vm.isScriptExecuting(ph)) {
+          return EVENT_EXECUTING;
+        }
       }
       return EVENT_SUCCESS;
     } catch (Exception e) {
@@ -211,6 +218,9 @@ public class CreateActions extends Actions {
           if(!vm.isScriptExecuting()) {
             vm.updateLinuxVMPassword(ph);
           }
+          if (vm.isScriptExecuting(ph)) {
+            return EVENT_EXECUTING;
+          }
       }
       return EVENT_SUCCESS;
     } catch (Exception e) {
@@ -231,6 +241,77 @@ public class CreateActions extends Actions {
     }
   }
 
+  @SuppressWarnings("resource")
+  @StateMachineAction
+  public String inspectScriptResult(
+      String instanceId,
+      ProvisioningSettings settings,
+      @SuppressWarnings("unused") InstanceStatus result) {
+
+    VMPropertyHandler ph = new VMPropertyHandler(settings);
+    String vcenter = ph.getServiceSetting(VMPropertyHandler.TS_TARGET_VCENTER_SERVER);
+    VMwareClient vmClient = null;
+    try {
+      String key = GuestProcessTracker.key(vcenter, ph.getInstanceName());
+      GuestProcess process = getGuestProcessTracker().get(key);
+      if (process == null) {
+        process = getStartedProcess(ph);
+        if (process == null) {
+          logger.error("No script execution known for instance " + instanceId);
+          String message =
+              Messages.get(ph.getLocale(), "error_execute_script", new Object[] {instanceId});
+          ph.setSetting(
+              VMPropertyHandler.SM_ERROR_MESSAGE, message.concat("Script process not found"));
+          return EVENT_FAILED;
+        }
+        getGuestProcessTracker().track(process);
+      }
+      if (!process.isFinished()) {
+        vmClient = VMClientPool.getInstance().getPool().borrowObject(vcenter);
+        getGuestProcessTracker().check(vmClient, process);
+        if (!process.isFinished()) {
+          return EVENT_EXECUTING;
+        }
+      }
+      getGuestProcessTracker().remove(key);
+      ph.setSetting(VMPropertyHandler.SCRIPT_PID, "");
+      if (process.getError() != null) {
+        String message =
+            Messages.get(ph.getLocale(), "error_execute_script", new Object[] {instanceId});
+        ph.setSetting(VMPropertyHandler.SM_ERROR_MESSAGE, message.concat(process.getError()));
+        return EVENT_FAILED;
+      }
+      if (process.getExitCode() != null && process.getExitCode().intValue() != 0) {
+        if (vmClient == null) {
+          vmClient = VMClientPool.getInstance().getPool().borrowObject(vcenter);
+        }
+        Script.getInstance().logScriptOutput(vmClient, process);
+      }
+      return EVENT_SUCCESS;
+    } catch (Exception e) {
+      logger.error("Failed to inspect script result of instance " + instanceId, e);
+      String message =
+          Messages.get(ph.getLocale(), "error_execute_script", new Object[] {instanceId});
+      ph.setSetting(VMPropertyHandler.SM_ERROR_MESSAGE, message.concat(e.getMessage()));
+      return EVENT_FAILED;
+    } finally {
+      if (vmClient != null) {
+        try {
+          VMClientPool.getInstance().getPool().returnObject(vcenter, vmClient);
+        } catch (Exception e) {
+          logger.error("Failed to return VMware client into pool", e);
+        }
+      }
+    }
+  }
+
+  protected GuestProcess getStartedProcess(VMPropertyHandler ph) throws APPlatformException {
+    return Script.getStartedProcess(ph);
+  }
+
+  protected GuestProcessTracker getGuestProcessTracker() {
+    return GuestProcessTracker.getInstance();
+  }
 
   @StateMachineAction
   public String suspendAfterCreation(
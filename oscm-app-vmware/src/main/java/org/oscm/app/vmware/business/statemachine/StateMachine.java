@@ -8,11 +8,6 @@
 
 package org.oscm.app.vmware.business.statemachine;
 
-import java.io.InputStream;
-
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.Unmarshaller;
-
 import org.oscm.app.v2_0.APPlatformServiceFactory;
 import org.oscm.app.v2_0.data.InstanceStatus;
 import org.oscm.app.v2_0.data.PasswordAuthentication;
@@ -34,7 +29,7 @@ public class StateMachine {
     private static final Logger logger = LoggerFactory
             .getLogger(StateMachine.class);
 
-    private States states;
+    private StateMachineDefinition definition;
 
     private String stateId;
 
@@ -44,31 +39,20 @@ public class StateMachine {
 
     public StateMachine(ProvisioningSettings settings)
             throws StateMachineException {
+        this(settings, StateMachineRegistry.getInstance());
+    }
+
+    StateMachine(ProvisioningSettings settings, StateMachineRegistry registry)
+            throws StateMachineException {
         machine = settings.getParameters()
                 .get(StateMachineProperties.SM_STATE_MACHINE).getValue();
-        states = loadStateMachine(machine);
+        definition = registry.getDefinition(machine);
         history = settings.getParameters()
                 .get(StateMachineProperties.SM_STATE_HISTORY).getValue();
         stateId = settings.getParameters().get(StateMachineProperties.SM_STATE)
                 .getValue();
     }
 
-    private States loadStateMachine(String filename)
-            throws StateMachineException {
-        logger.debug("filename: " + filename);
-        ClassLoader loader = Thread.currentThread().getContextClassLoader();
-        try (InputStream stream = loader.getResourceAsStream("statemachines/"
-                + filename);) {
-            JAXBContext jaxbContext = JAXBContext.newInstance(States.class);
-            Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-            return (States) jaxbUnmarshaller.unmarshal(stream);
-        } catch (Exception e) {
-            throw new StateMachineException(
-                    "Failed to load state machine definition file: " + filename,
-                    e);
-        }
-    }
-
     public String getStateId() {
         return stateId;
     }
@@ -95,8 +79,8 @@ public class StateMachine {
             APPlatformException {
 
         State currentState = getState(stateId);
-        String eventId = states.invokeAction(currentState, instanceId,
-                settings, result);
+        String eventId = definition.getStates().invokeAction(currentState,
+                instanceId, settings, result);
         history = appendStateToHistory(stateId, history);
         stateId = getNextState(currentState, eventId);
 
@@ -189,24 +173,22 @@ public class StateMachine {
     }
 
     private State getState(String stateId) throws StateMachineException {
-        for (State state : states.getStates()) {
-            if (state.getId().equals(stateId)) {
-                return state;
-            }
+        State state = definition.getState(stateId);
+        if (state == null) {
+            throw new StateMachineException("State " + stateId + " not found");
         }
-        throw new StateMachineException("State " + stateId + " not found");
+        return state;
     }
 
     private String getNextState(State state, String eventId)
             throws StateMachineException {
 
-        for (Event event : state.getEvents()) {
-            if (event.getId().equals(eventId)) {
-                logger.debug("Transition from current state '" + state.getId()
-                        + "' with event '" + eventId + "' into state '"
-                        + event.getState() + "'");
-                return event.getState();
-            }
+        String nextState = definition.getNextState(state, eventId);
+        if (nextState != null) {
+            logger.debug("Transition from current state '" + state.getId()
+                    + "' with event '" + eventId + "' into state '" + nextState
+                    + "'");
+            return nextState;
         }
 
         throw new StateMachineException(
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.vmware.business.statemachine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsed state machine definition with the states indexed by their id and the
+ * transitions of each state indexed by the event id. Instances are shared by
+ * all state machines of the same type and must not be modified.
+ */
+final class StateMachineDefinition {
+
+    private final States states;
+    private final Map<String, State> statesById;
+    private final Map<String, Map<String, String>> transitions;
+
+    StateMachineDefinition(States states) {
+        this.states = states;
+        Map<String, State> byId = new HashMap<String, State>();
+        Map<String, Map<String, String>> byState = new HashMap<String, Map<String, String>>();
+        List<State> stateList = states.getStates() == null
+                ? Collections.<State> emptyList() : states.getStates();
+        for (State state : stateList) {
+            if (!byId.containsKey(state.getId())) {
+                byId.put(state.getId(), state);
+            }
+            Map<String, String> events = new HashMap<String, String>();
+            if (state.getEvents() != null) {
+                for (Event event : state.getEvents()) {
+                    if (!events.containsKey(event.getId())) {
+                        events.put(event.getId(), event.getState());
+                    }
+                }
+                state.setEvents(Collections.unmodifiableList(
+                        new ArrayList<Event>(state.getEvents())));
+            }
+            if (!byState.containsKey(state.getId())) {
+                byState.put(state.getId(), Collections.unmodifiableMap(events));
+            }
+        }
+        states.setStates(Collections.unmodifiableList(
+                new ArrayList<State>(stateList)));
+        statesById = Collections.unmodifiableMap(byId);
+        transitions = Collections.unmodifiableMap(byState);
+    }
+
+    States getStates() {
+        return states;
+    }
+
+    /**
+     * Returns the state with the given id or <code>null</code> if not defined.
+     */
+    State getState(String stateId) {
+        return statesById.get(stateId);
+    }
+
+    /**
+     * Returns the id of the state following the given state on the given event
+     * or <code>null</code> if no transition is defined.
+     */
+    String getNextState(State state, String eventId) {
+        Map<String, String> events = transitions.get(state.getId());
+        return events == null ? null : events.get(eventId);
+    }
+}
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.vmware.business.statemachine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import org.oscm.app.vmware.business.statemachine.api.StateMachineException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process-wide cache of the parsed state machine definitions. A definition is
+ * read from the <code>statemachines</code> resources once and shared by all
+ * state machines of the same type. The resource is checked for modifications
+ * at most every {@link #RELOAD_CHECK_INTERVAL_MS} milliseconds and read again
+ * if it has changed.
+ */
+public class StateMachineRegistry {
+
+    private static final Logger logger = LoggerFactory
+            .getLogger(StateMachineRegistry.class);
+
+    static final long RELOAD_CHECK_INTERVAL_MS = 10000;
+
+    private static class SingletonHolder {
+        public static final StateMachineRegistry INSTANCE = new StateMachineRegistry();
+    }
+
+    public static StateMachineRegistry getInstance() {
+        return SingletonHolder.INSTANCE;
+    }
+
+    private final ConcurrentMap<String, Entry> definitions = new ConcurrentHashMap<String, Entry>();
+
+    private volatile JAXBContext jaxbContext;
+
+    long reloadCheckIntervalMs = RELOAD_CHECK_INTERVAL_MS;
+
+    StateMachineRegistry() {
+    }
+
+    /**
+     * Returns the definition of the state machine stored in the given file.
+     *
+     * @param filename
+     *            the name of the state machine definition file
+     * @return the definition
+     * @throws StateMachineException
+     *             if the definition cannot be read
+     */
+    StateMachineDefinition getDefinition(String filename)
+            throws StateMachineException {
+
+        Entry entry = definitions.get(filename);
+        long now = System.currentTimeMillis();
+        if (entry != null
+                && now - entry.lastChecked < reloadCheckIntervalMs) {
+            return entry.definition;
+        }
+
+        synchronized (this) {
+            entry = definitions.get(filename);
+            URL resource = getResource(filename);
+            long lastModified = getLastModified(resource);
+            if (entry != null && entry.lastModified == lastModified) {
+                entry.lastChecked = now;
+                return entry.definition;
+            }
+            if (entry != null) {
+                logger.info("State machine definition " + filename
+                        + " has changed, reloading");
+            }
+            Entry loaded = new Entry(load(filename, resource), lastModified,
+                    now);
+            definitions.put(filename, loaded);
+            return loaded.definition;
+        }
+    }
+
+    /**
+     * Removes all cached definitions, so that they are read again on the next
+     * request.
+     */
+    public void clear() {
+        definitions.clear();
+    }
+
+    private StateMachineDefinition load(String filename, URL resource)
+            throws StateMachineException {
+        logger.debug("filename: " + filename);
+        if (resource == null) {
+            throw new StateMachineException(
+                    "Failed to load state machine definition file: "
+                            + filename);
+        }
+        try (InputStream stream = openStream(resource);) {
+            States states = (States) getContext().createUnmarshaller()
+                    .unmarshal(stream);
+            return new StateMachineDefinition(states);
+        } catch (Exception e) {
+            throw new StateMachineException(
+                    "Failed to load state machine definition file: " + filename,
+                    e);
+        }
+    }
+
+    private JAXBContext getContext() throws JAXBException {
+        JAXBContext context = jaxbContext;
+        if (context == null) {
+            context = JAXBContext.newInstance(States.class);
+            jaxbContext = context;
+        }
+        return context;
+    }
+
+    URL getResource(String filename) {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return loader.getResource("statemachines/" + filename);
+    }
+
+    private InputStream openStream(URL resource) throws IOException {
+        URLConnection connection = resource.openConnection();
+        connection.setUseCaches(false);
+        return connection.getInputStream();
+    }
+
+    long getLastModified(URL resource) {
+        if (resource == null) {
+            return 0;
+        }
+        try {
+            URLConnection connection = resource.openConnection();
+            connection.setUseCaches(false);
+            long lastModified = connection.getLastModified();
+            connection.getInputStream().close();
+            return lastModified;
+        } catch (IOException e) {
+            logger.debug("Cannot determine modification time of " + resource
+                    + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private static class Entry {
+        final StateMachineDefinition definition;
+        final long lastModified;
+        volatile long lastChecked;
+
+        Entry(StateMachineDefinition definition, long lastModified,
+                long lastChecked) {
+            this.definition = definition;
+            this.lastModified = lastModified;
+            this.lastChecked = lastChecked;
+        }
+    }
+}
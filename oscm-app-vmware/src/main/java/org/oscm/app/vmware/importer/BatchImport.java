@@ -0,0 +1,148 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.vmware.importer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.oscm.app.vmware.persistence.DataAccessService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the rows of one CSV file with a single connection and transaction. The rows are sent to
+ * the database in batches of {@link #BATCH_SIZE} statements. Keys of referenced rows are looked up
+ * once per file.
+ *
+ * <p>The transaction is committed by {@link #commit()}. If the import is closed without commit, all
+ * rows written so far are rolled back.
+ */
+class BatchImport implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchImport.class);
+
+  static final int BATCH_SIZE = 1000;
+
+  private final String table;
+  private final Connection con;
+  private final boolean autoCommit;
+  private final PreparedStatement insert;
+  private final Map<List<String>, Integer> keys = new HashMap<>();
+  private final long start = System.currentTimeMillis();
+
+  private int pending;
+  private int rows;
+  private boolean committed;
+
+  /**
+   * @param das the data access service providing the connection
+   * @param table the table the rows are written to, used for logging
+   * @param query the insert statement executed for each row
+   */
+  BatchImport(DataAccessService das, String table, String query) throws Exception {
+    this.table = table;
+    this.con = das.getDatasource().getConnection();
+    try {
+      this.autoCommit = con.getAutoCommit();
+      con.setAutoCommit(false);
+      this.insert = con.prepareStatement(query);
+    } catch (SQLException e) {
+      con.close();
+      throw e;
+    }
+  }
+
+  /** Returns the insert statement, whose parameters are set for the next row. */
+  PreparedStatement getStatement() {
+    return insert;
+  }
+
+  /** Adds the current parameters of the insert statement to the batch. */
+  void addBatch() throws SQLException {
+    insert.addBatch();
+    rows++;
+    if (++pending >= BATCH_SIZE) {
+      flush();
+    }
+  }
+
+  /**
+   * Returns the key selected by the given query for the given parameters. The result is remembered
+   * for the rest of the import.
+   *
+   * @return the key or <code>null</code> if the query returns no row
+   */
+  Integer lookupKey(String query, String... params) throws SQLException {
+    List<String> cacheKey = new ArrayList<>(params.length + 1);
+    cacheKey.add(query);
+    cacheKey.addAll(Arrays.asList(params));
+
+    Integer key = keys.get(cacheKey);
+    if (key == null) {
+      try (PreparedStatement stmt = con.prepareStatement(query)) {
+        for (int i = 0; i < params.length; i++) {
+          stmt.setString(i + 1, params[i]);
+        }
+        try (ResultSet rs = stmt.executeQuery()) {
+          if (!rs.next()) {
+            return null;
+          }
+          key = Integer.valueOf(rs.getInt(1));
+        }
+      }
+      keys.put(cacheKey, key);
+    }
+    return key;
+  }
+
+  /** Writes the remaining rows and commits the transaction. */
+  void commit() throws SQLException {
+    flush();
+    con.commit();
+    committed = true;
+
+    long millis = Math.max(System.currentTimeMillis() - start, 1);
+    LOGGER.info(
+        "Imported {} rows into {} in {} ms ({} rows/s)",
+        Integer.valueOf(rows),
+        table,
+        Long.valueOf(millis),
+        Long.valueOf(rows * 1000L / millis));
+  }
+
+  int getRows() {
+    return rows;
+  }
+
+  @Override
+  public void close() throws SQLException {
+    try {
+      insert.close();
+      if (!committed) {
+        con.rollback();
+      }
+      con.setAutoCommit(autoCommit);
+    } finally {
+      con.close();
+    }
+  }
+
+  private void flush() throws SQLException {
+    if (pending > 0) {
+      insert.executeBatch();
+      pending = 0;
+    }
+  }
+}
@@ -65,6 +65,8 @@ public class ClusterImporter implements Importer {
             while((cluster = parser.readNextObject()) != null) {
                 this.save(cluster);
             }
+        } finally {
+            this.das.invalidateTopology();
         }
     }
 }
@@ -55,6 +55,8 @@ public class DatacenterImporter implements Importer {
             while((datacenter = parser.readNextObject()) != null) {
                 this.save(datacenter);
             }
+        } finally {
+            this.das.invalidateTopology();
         }
     }
 }
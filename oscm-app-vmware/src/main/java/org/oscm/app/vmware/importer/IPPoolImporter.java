@@ -14,51 +14,48 @@ import org.oscm.app.vmware.persistence.DataAccessService;
 
 import java.io.InputStream;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 
 public class IPPoolImporter implements Importer {
+    private static final String INSERT = "INSERT INTO ippool (tkey, ip_address, in_use, vlan_tkey) VALUES (DEFAULT,?,?,?)";
+
+    private static final String SELECT_VLAN = "select tkey from vlan where name = ? and cluster_tkey = (select tkey from cluster where name = ? and datacenter_tkey = (select tkey from datacenter where name = ? and vcenter_tkey = (select tkey from vcenter where name = ?)))";
+
     private final DataAccessService das;
-    
+
     IPPoolImporter(DataAccessService das) {
         this.das = das;
     }
 
-    private void save(IPPool ipPool) throws Exception {
-        String query = "INSERT INTO ippool (tkey, ip_address, in_use, vlan_tkey) VALUES (DEFAULT,?,?,?)";
-        int vlanKey = this.getVLANTKey(ipPool.vCenter, ipPool.datacenter, ipPool.cluster, ipPool.vlan);
-        try (PreparedStatement stmt = this.das.getDatasource().getConnection().prepareStatement(query)) {
-            stmt.setString(1, ipPool.ipAddress);
-            stmt.setBoolean(2, false);
-            stmt.setInt(3, vlanKey);
-            stmt.execute();
-        }
+    private void save(BatchImport batch, IPPool ipPool) throws Exception {
+        int vlanKey = this.getVLANTKey(batch, ipPool.vCenter, ipPool.datacenter, ipPool.cluster, ipPool.vlan);
+        PreparedStatement stmt = batch.getStatement();
+        stmt.setString(1, ipPool.ipAddress);
+        stmt.setBoolean(2, false);
+        stmt.setInt(3, vlanKey);
+        batch.addBatch();
     }
 
-    private int getVLANTKey(String vCenter, String datacenter, String cluster, String vlan) throws Exception {
-        String query = "select tkey from vlan where name = ? and cluster_tkey = (select tkey from cluster where name = ? and datacenter_tkey = (select tkey from datacenter where name = ? and vcenter_tkey = (select tkey from vcenter where name = ?)))";
-        try(PreparedStatement stmt = this.das.getDatasource().getConnection().prepareStatement(query)) {
-            stmt.setString(1, vlan);
-            stmt.setString(2, cluster);
-            stmt.setString(3, datacenter);
-            stmt.setString(4, vCenter);
-            ResultSet rs = stmt.executeQuery();
-
-            if(!rs.next()) {
-                throw new Exception("VLAN " + vlan + " not found");
-            }
-
-            return rs.getInt(1);
+    private int getVLANTKey(BatchImport batch, String vCenter, String datacenter, String cluster, String vlan) throws Exception {
+        Integer key = batch.lookupKey(SELECT_VLAN, vlan, cluster, datacenter, vCenter);
+        if (key == null) {
+            throw new Exception("VLAN " + vlan + " not found");
         }
+
+        return key.intValue();
     }
 
 
     @Override
     public void load(InputStream csvFile) throws Exception {
-        try(IPPoolParser parser = new IPPoolParser(csvFile)) {
+        try(IPPoolParser parser = new IPPoolParser(csvFile);
+            BatchImport batch = new BatchImport(this.das, "ippool", INSERT)) {
             IPPool ipPool;
             while((ipPool = parser.readNextObject()) != null) {
-                this.save(ipPool);
+                this.save(batch, ipPool);
             }
+            batch.commit();
+        } finally {
+            this.das.invalidateTopology();
         }
     }
 }
@@ -11,72 +11,71 @@ package org.oscm.app.vmware.importer;
 
 import java.io.InputStream;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import org.oscm.app.vmware.parser.PortgroupIPPoolParser;
 import org.oscm.app.vmware.parser.model.PortgroupIPPool;
 import org.oscm.app.vmware.persistence.DataAccessService;
 
 public class PortgroupIPPoolImporter implements Importer {
 
+  private static final String INSERT =
+      "INSERT INTO portgroup_ippool (tkey, ip_address, in_use, portgroup_fk) VALUES (DEFAULT,?,?,?)";
+
+  private static final String SELECT_PORTGROUP =
+      ""
+          + "select tkey from portgroup where name = ? and distributedvirtualswitch_cluster_fk = "
+          + "(select tkey from distributedvirtualswitch where name = ? and cluster_tkey = "
+          + "(select tkey from cluster where name = ? and datacenter_tkey = "
+          + "(select tkey from datacenter where name = ? and vcenter_tkey = "
+          + "(select tkey from vcenter where name = ?))))";
+
   private final DataAccessService das;
-  
+
   PortgroupIPPoolImporter(DataAccessService das) {
       this.das = das;
     }
 
-  private void save(PortgroupIPPool ipPool) throws Exception {
-    String query =
-        "INSERT INTO portgroup_ippool (tkey, ip_address, in_use, portgroup_fk) VALUES (DEFAULT,?,?,?)";
+  private void save(BatchImport batch, PortgroupIPPool ipPool) throws Exception {
     int portgroupKey =
         this.getPortgroupTKey(
+            batch,
             ipPool.vCenter,
             ipPool.datacenter,
             ipPool.cluster,
             ipPool.portgroup,
             ipPool.distributedVirtualSwitch);
-    try (PreparedStatement stmt =
-        this.das.getDatasource().getConnection().prepareStatement(query)) {
-      stmt.setString(1, ipPool.ipAddress);
-      stmt.setBoolean(2, false);
-      stmt.setInt(3, portgroupKey);
-      stmt.execute();
-    }
+    PreparedStatement stmt = batch.getStatement();
+    stmt.setString(1, ipPool.ipAddress);
+    stmt.setBoolean(2, false);
+    stmt.setInt(3, portgroupKey);
+    batch.addBatch();
   }
 
   private int getPortgroupTKey(
-      String vCenter, String datacenter, String cluster, String portgroup, String dvs)
+      BatchImport batch,
+      String vCenter,
+      String datacenter,
+      String cluster,
+      String portgroup,
+      String dvs)
       throws Exception {
-    String query =
-        ""
-            + "select tkey from portgroup where name = ? and distributedvirtualswitch_cluster_fk = "
-            + "(select tkey from distributedvirtualswitch where name = ? and cluster_tkey = "
-            + "(select tkey from cluster where name = ? and datacenter_tkey = "
-            + "(select tkey from datacenter where name = ? and vcenter_tkey = "
-            + "(select tkey from vcenter where name = ?))))";
-    try (PreparedStatement stmt =
-        this.das.getDatasource().getConnection().prepareStatement(query)) {
-      stmt.setString(1, portgroup);
-      stmt.setString(2, dvs);
-      stmt.setString(3, cluster);
-      stmt.setString(4, datacenter);
-      stmt.setString(5, vCenter);
-      ResultSet rs = stmt.executeQuery();
-
-      if (!rs.next()) {
-        throw new Exception("Portgroup " + portgroup + " not found");
-      }
-
-      return rs.getInt(1);
+    Integer key =
+        batch.lookupKey(SELECT_PORTGROUP, portgroup, dvs, cluster, datacenter, vCenter);
+    if (key == null) {
+      throw new Exception("Portgroup " + portgroup + " not found");
     }
+
+    return key.intValue();
   }
 
   @Override
   public void load(InputStream csvFile) throws Exception {
-    try (PortgroupIPPoolParser parser = new PortgroupIPPoolParser(csvFile)) {
+    try (PortgroupIPPoolParser parser = new PortgroupIPPoolParser(csvFile);
+        BatchImport batch = new BatchImport(this.das, "portgroup_ippool", INSERT)) {
       PortgroupIPPool ipPool;
       while ((ipPool = parser.readNextObject()) != null) {
-        this.save(ipPool);
+        this.save(batch, ipPool);
       }
+      batch.commit();
     }
   }
 }
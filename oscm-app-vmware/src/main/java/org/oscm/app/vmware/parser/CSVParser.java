@@ -28,7 +28,7 @@ abstract class CSVParser<T> implements AutoCloseable {
     private static final char DEFAULT_SEPARATOR = ',';
 
     private final CSVReader reader;
-    private Set<String> processedEntries = new HashSet<>();
+    private final Set<List<String>> processedEntries = new HashSet<>();
 
     private boolean areRequiredColumnsSet(Set<String> columns) {
         if (columns == null) {
@@ -87,27 +87,29 @@ abstract class CSVParser<T> implements AutoCloseable {
      * @return map of key-value entries build based on line read from the CSV file or null if EOF
      */
     Map<String, String> readNext() throws Exception {
-        List<String> values = this.next();
-        Map<String, String> result = new HashMap<>();
-        if (values.size() == 0) {
-            return null;
-        }
+        List<String> values;
+        while (true) {
+            values = this.next();
+            if (values.size() == 0) {
+                return null;
+            }
 
-        if (values.size() != this.getRequiredColumns().size()) {
-            throw new Exception("Incorrect data format. Expected: " +
-                    this.getRequiredColumns().size() +
-                    " columns, got: " +
-                    values.size() +
-                    "."
-            );
-        }
+            if (values.size() != this.getRequiredColumns().size()) {
+                throw new Exception("Incorrect data format. Expected: " +
+                        this.getRequiredColumns().size() +
+                        " columns, got: " +
+                        values.size() +
+                        "."
+                );
+            }
 
-        if (this.processedEntries.contains(values.toString())) {
+            if (this.processedEntries.add(values)) {
+                break;
+            }
             LOGGER.debug("Duplicated entry found. Skipping.");
-            return this.readNext();
         }
 
-        this.processedEntries.add(values.toString());
+        Map<String, String> result = new HashMap<>();
 
         for (int i = 0; i < values.size(); i++) {
             if (values.get(i).length() == 0) {
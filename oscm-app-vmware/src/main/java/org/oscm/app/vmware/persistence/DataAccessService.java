@@ -28,6 +28,10 @@ import org.oscm.app.vmware.business.model.VCenter;
 import org.oscm.app.vmware.business.model.VLAN;
 import org.oscm.app.vmware.encryption.AESEncrypter;
 import org.oscm.app.vmware.i18n.Messages;
+import org.oscm.app.vmware.persistence.TopologyRepository.ClusterNode;
+import org.oscm.app.vmware.persistence.TopologyRepository.DatacenterNode;
+import org.oscm.app.vmware.persistence.TopologyRepository.VCenterNode;
+import org.oscm.app.vmware.persistence.TopologyRepository.VLANNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +47,8 @@ public class DataAccessService {
    */
   private static final String DATASOURCE = "BSSAppVMwareDS";
 
+  private static volatile DataSource sharedDs = null;
+
   private DataSource ds = null;
 
   private String locale = "en";
@@ -83,15 +89,10 @@ public class DataAccessService {
   public String getVCenterIdentifier(String vcenter) throws Exception {
     logger.debug("vcenter: " + vcenter);
     String identifier = null;
-    String query = "SELECT identifier FROM vcenter WHERE name = ?";
-    try (Connection con = getDatasource().getConnection();
-        PreparedStatement stmt = con.prepareStatement(query); ) {
-      stmt.setString(1, vcenter);
-
-      ResultSet rs = stmt.executeQuery();
-
-      while (rs.next()) {
-        identifier = rs.getString("identifier");
+    try {
+      VCenterNode node = getTopology().getVCenter(getDatasource(), vcenter);
+      if (node != null) {
+        identifier = node.identifier;
       }
     } catch (SQLException e) {
       logger.error("Failed to retrieve identifier from vcenter " + vcenter, e);
@@ -122,6 +123,8 @@ public class DataAccessService {
     } catch (SQLException e) {
       logger.error("Failed to save controller configuration", e);
       throw new Exception(Messages.get(locale, "error_db_save_conf"));
+    } finally {
+      invalidateTopology();
     }
   }
 
@@ -314,18 +317,12 @@ public class DataAccessService {
 
   public VMwareCredentials getCredentials(String vcenter) throws Exception {
     logger.debug("vcenter=" + vcenter);
-    String query = "SELECT url,userid,password FROM vcenter WHERE name = ?";
     VMwareCredentials credentials = new VMwareCredentials(null, null, null);
-    try (Connection con = getDatasource().getConnection();
-        PreparedStatement stmt = con.prepareStatement(query); ) {
-      stmt.setString(1, vcenter);
-      ResultSet rs = stmt.executeQuery();
-      while (rs.next()) {
+    try {
+      VCenterNode node = getTopology().getVCenter(getDatasource(), vcenter);
+      if (node != null) {
         credentials =
-            new VMwareCredentials(
-                rs.getString("url"),
-                rs.getString("userid"),
-                AESEncrypter.decrypt(rs.getString("password")));
+            new VMwareCredentials(node.url, node.userid, AESEncrypter.decrypt(node.password));
       }
     } catch (SQLException e) {
       logger.error("Failed to retrieve credentials from vcenter: " + vcenter, e);
@@ -349,16 +346,11 @@ public class DataAccessService {
 
   public String getDatacenterId(String vcenter, String datacenter) throws Exception {
     logger.debug("vcenter=" + vcenter + " datacenter=" + datacenter);
-    String query =
-        "select identifier from datacenter where name = ? and vcenter_tkey=(select tkey from vcenter where name = ?)";
     String datacenterId = null;
-    try (Connection con = getDatasource().getConnection();
-        PreparedStatement stmt = con.prepareStatement(query); ) {
-      stmt.setString(1, datacenter);
-      stmt.setString(2, vcenter);
-      ResultSet rs = stmt.executeQuery();
-      while (rs.next()) {
-        datacenterId = rs.getString("identifier");
+    try {
+      DatacenterNode node = getTopology().getDatacenter(getDatasource(), vcenter, datacenter);
+      if (node != null) {
+        datacenterId = node.identifier;
       }
     } catch (SQLException e) {
       logger.error(
@@ -380,17 +372,11 @@ public class DataAccessService {
 
   public String getHostLoadBalancerConfig(String vcenter, String datacenter, String cluster) {
     logger.debug("vcenter: " + vcenter + " datacenter: " + datacenter + " cluster: " + cluster);
-    String query =
-        "SELECT load_balancer FROM cluster WHERE name = ? AND datacenter_tkey = (SELECT tkey FROM datacenter WHERE name = ? and vcenter_tkey = (SELECT TKEY FROM vcenter WHERE NAME = ?))";
     String xml = "";
-    try (Connection con = getDatasource().getConnection();
-        PreparedStatement stmt = con.prepareStatement(query); ) {
-      stmt.setString(1, cluster);
-      stmt.setString(2, datacenter);
-      stmt.setString(3, vcenter);
-      ResultSet rs = stmt.executeQuery();
-      while (rs.next()) {
-        xml = rs.getString("load_balancer");
+    try {
+      ClusterNode node = getTopology().getCluster(getDatasource(), vcenter, datacenter, cluster);
+      if (node != null) {
+        xml = node.loadBalancer;
       }
     } catch (Exception e) {
       logger.error("Failed to retrieve load balancer configuration for cluster " + cluster, e);
@@ -452,6 +438,7 @@ public class DataAccessService {
         }
       }
     }
+    invalidateTopology();
 
     return tkey;
   }
@@ -470,6 +457,7 @@ public class DataAccessService {
       int[] affectedRecords = stmt.executeBatch();
       logger.debug("number of records updated: " + affectedRecords);
     }
+    invalidateTopology();
   }
 
   public void deleteVLAN(VLAN vlan) throws Exception {
@@ -481,6 +469,7 @@ public class DataAccessService {
       int affectedRows = stmt.executeUpdate();
       logger.debug("number of records deleted: " + affectedRows);
     }
+    invalidateTopology();
   }
 
   public VMwareNetwork getNetworkSettings(
@@ -495,30 +484,21 @@ public class DataAccessService {
             + cluster
             + "  vlan: "
             + vlan);
-    String query =
-        "SELECT SUBNET_MASK,GATEWAY,DNSSERVER,DNSSUFFIX FROM VLAN WHERE NAME = ? AND CLUSTER_TKEY = ?";
-    try (Connection con = getDatasource().getConnection(); ) {
-      int cluster_tkey = getClusterTKey(con, vcenter, datacenter, cluster);
-      if (cluster_tkey == -1) {
+    try {
+      ClusterNode clusterNode =
+          getTopology().getCluster(getDatasource(), vcenter, datacenter, cluster);
+      if (clusterNode == null) {
         throw new SQLException("Failed to retrieve network settings. Unknown cluster " + cluster);
       }
 
-      boolean foundVLAN = false;
-      try (PreparedStatement stmt = con.prepareStatement(query); ) {
-        stmt.setString(1, vlan);
-        stmt.setInt(2, cluster_tkey);
-        ResultSet rs = stmt.executeQuery();
-        while (rs.next()) {
-          network.setSubnetMask(rs.getString("SUBNET_MASK"));
-          network.setGateway(rs.getString("GATEWAY"));
-          network.setDnsServer(rs.getString("DNSSERVER"));
-          network.setDnsSuffix(rs.getString("DNSSUFFIX"));
-          foundVLAN = true;
-        }
-      }
-      if (!foundVLAN) {
+      VLANNode vlanNode = getTopology().getVLAN(getDatasource(), vcenter, datacenter, cluster, vlan);
+      if (vlanNode == null) {
         throw new SQLException("Failed to retrieve network settings. Unknown vlan " + vlan);
       }
+      network.setSubnetMask(vlanNode.subnetMask);
+      network.setGateway(vlanNode.gateway);
+      network.setDnsServer(vlanNode.dnsServer);
+      network.setDnsSuffix(vlanNode.dnsSuffix);
     } catch (SQLException e) {
       logger.error("Failed to retrieve network settings for VLAN " + vlan, e);
       throw e;
@@ -527,67 +507,31 @@ public class DataAccessService {
     return network;
   }
 
+  /**
+   * Returns the VLAN of the given cluster with the highest number of free IP addresses. The free
+   * addresses are counted in memory by the {@link IPAddressAllocator}.
+   */
   public String getVLANwithMostIPs(String vcenter, String datacenter, String cluster) {
 
     logger.debug("vcenter: " + vcenter + "  datacenter: " + datacenter + "  cluster: " + cluster);
 
-    StringBuffer vlans = new StringBuffer();
-    String query =
-        "SELECT tkey FROM vlan WHERE cluster_tkey = (SELECT tkey from cluster where name = ? and datacenter_tkey = (SELECT tkey FROM datacenter WHERE name = ? and vcenter_tkey = (SELECT TKEY FROM vcenter WHERE NAME = ?)))";
-    try (Connection con = getDatasource().getConnection();
-        PreparedStatement stmt = con.prepareStatement(query); ) {
-      stmt.setString(1, cluster);
-      stmt.setString(2, datacenter);
-      stmt.setString(3, vcenter);
-      ResultSet rs = stmt.executeQuery();
-      while (rs.next()) {
-        if (vlans.length() > 0) {
-          vlans.append(",");
-        }
-        vlans.append(rs.getInt("tkey"));
-      }
-    } catch (Exception e) {
-      logger.error(
-          "Failed to retrieve vlans for vcenter: "
-              + vcenter
-              + "  datacenter: "
-              + datacenter
-              + "  cluster: "
-              + cluster,
-          e);
-      return null;
-    }
-
-    if (vlans.length() == 0) {
-      logger.error(
-          "No vlans found for vcenter: "
-              + vcenter
-              + "  datacenter: "
-              + datacenter
-              + "  cluster: "
-              + cluster);
-      return null;
-    }
-
-    query =
-        "SELECT name,COUNT(ip_address) AS NumIPs FROM vlan INNER JOIN ippool ON vlan.tkey in ("
-            + vlans.toString()
-            + ") and vlan.tkey=ippool.vlan_tkey and in_use = false GROUP BY name ORDER BY NumIPs DESC LIMIT 1";
     String vlan = null;
-    int numFreeIPs = 0;
-
-    try (Connection con = getDatasource().getConnection(); ) {
-      try (PreparedStatement stmt = con.prepareStatement(query); ) {
-        ResultSet rs = stmt.executeQuery();
-        while (rs.next()) {
-          vlan = rs.getString("name");
-          numFreeIPs = rs.getInt("NumIPs");
-        }
+    try {
+      ClusterNode clusterNode =
+          getTopology().getCluster(getDatasource(), vcenter, datacenter, cluster);
+      if (clusterNode == null) {
+        logger.error(
+            "No vlans found for vcenter: "
+                + vcenter
+                + "  datacenter: "
+                + datacenter
+                + "  cluster: "
+                + cluster);
+        return null;
       }
-
-      logger.debug("retrieved vlan " + vlan + " with number of free ip addresses: " + numFreeIPs);
-      if (numFreeIPs == 0) {
-        logger.error("Failed to retrieve vlan. No free IP address available in VLAN " + vlan);
+      vlan = getIPAddressAllocator().getVLANwithMostFreeIPs(getDatasource(), clusterNode);
+      if (vlan == null) {
+        logger.error("Failed to retrieve vlan. No free IP address available in cluster " + cluster);
       }
     } catch (Exception e) {
       logger.error(
@@ -607,7 +551,8 @@ public class DataAccessService {
 
   /**
    * Retrieves an IP address that is associated to the given cluster. The IP address is marked as
-   * reserved and will therefore not be available for new VMs.
+   * reserved and will therefore not be available for new VMs. Concurrent reservations never get
+   * the same address, see {@link IPAddressAllocator#claim(DataSource, int)}.
    */
   public String reserveIPAddress(String vcenter, String datacenter, String cluster, String vlan)
       throws Exception {
@@ -627,56 +572,35 @@ public class DataAccessService {
       throw new Exception("vlan not defined");
     }
 
-    String ipaddress = null;
-    String query2 =
-        "SELECT IP_ADDRESS,VLAN_TKEY FROM IPPOOL WHERE VLAN_TKEY = (SELECT TKEY from VLAN WHERE NAME = ? AND CLUSTER_TKEY = ?) AND IN_USE = FALSE LIMIT 1";
-    String query3 = "UPDATE IPPOOL SET IN_USE = TRUE WHERE IP_ADDRESS = ? AND VLAN_TKEY = ?";
-
-    try (Connection con = getDatasource().getConnection(); ) {
-      int cluster_tkey = getClusterTKey(con, vcenter, datacenter, cluster);
-      if (cluster_tkey == -1) {
-        logger.error("Failed to reserve IP address. Unknown cluster " + cluster);
-        String message = Messages.get(locale, "error_db_reserve_ip_unknown_cluster", cluster);
-        throw new Exception(message);
-      }
+    ClusterNode clusterNode =
+        getTopology().getCluster(getDatasource(), vcenter, datacenter, cluster);
+    if (clusterNode == null) {
+      logger.error("Failed to reserve IP address. Unknown cluster " + cluster);
+      String message = Messages.get(locale, "error_db_reserve_ip_unknown_cluster", cluster);
+      throw new Exception(message);
+    }
 
-      logger.debug("retrieved tkey " + cluster_tkey + " for cluster " + cluster);
-      int vlanTKey = -1;
-      try (PreparedStatement stmt = con.prepareStatement(query2); ) {
-        stmt.setString(1, vlan);
-        stmt.setInt(2, cluster_tkey);
-        ResultSet rs = stmt.executeQuery();
-        while (rs.next()) {
-          ipaddress = rs.getString("IP_ADDRESS");
-          vlanTKey = rs.getInt("VLAN_TKEY");
-        }
-      }
-      logger.debug("retrieved vlan tkey " + vlanTKey + " and ip address: " + ipaddress);
-      if (vlanTKey == -1) {
-        logger.error(
-            "Failed to reserve IP address for vcenter: "
-                + vcenter
-                + "  datacenter: "
-                + datacenter
-                + "  cluster: "
-                + cluster
-                + " vlan: "
-                + vlan);
-        String message = Messages.get(locale, "error_db_reserve_ip_unknown_vlan", vlan);
-        throw new Exception(message);
-      }
+    logger.debug("retrieved tkey " + clusterNode.tkey + " for cluster " + cluster);
+    VLANNode vlanNode = getTopology().getVLAN(getDatasource(), vcenter, datacenter, cluster, vlan);
+    if (vlanNode == null) {
+      logger.error(
+          "Failed to reserve IP address for vcenter: "
+              + vcenter
+              + "  datacenter: "
+              + datacenter
+              + "  cluster: "
+              + cluster
+              + " vlan: "
+              + vlan);
+      String message = Messages.get(locale, "error_db_reserve_ip_unknown_vlan", vlan);
+      throw new Exception(message);
+    }
 
-      if (ipaddress == null) {
-        logger.error("Failed to reserve IP address. No free IP address available in VLAN " + vlan);
-        String message = Messages.get(locale, "error_db_no_free_ipaddress", vlan);
-        throw new Exception(message);
-      } else {
-        try (PreparedStatement stmt = con.prepareStatement(query3); ) {
-          stmt.setString(1, ipaddress);
-          stmt.setInt(2, vlanTKey);
-          stmt.executeUpdate();
-        }
-      }
+    String ipaddress = getIPAddressAllocator().claim(getDatasource(), vlanNode.tkey);
+    if (ipaddress == null) {
+      logger.error("Failed to reserve IP address. No free IP address available in VLAN " + vlan);
+      String message = Messages.get(locale, "error_db_no_free_ipaddress", vlan);
+      throw new Exception(message);
     }
 
     logger.debug("reserved IP address: " + ipaddress + " in VLAN " + vlan);
@@ -700,10 +624,8 @@ public class DataAccessService {
             + vlan
             + "  ipAddress: "
             + ipAddress);
-    String query2 =
-        "SELECT IN_USE FROM IPPOOL WHERE VLAN_TKEY = (SELECT TKEY from VLAN WHERE NAME = ? AND CLUSTER_TKEY = ?) AND IP_ADDRESS = ?";
-    String query3 =
-        "UPDATE IPPOOL SET IN_USE = TRUE WHERE IP_ADDRESS = ? AND VLAN_TKEY = (SELECT TKEY from VLAN WHERE NAME = ? AND CLUSTER_TKEY = ?)";
+    String query2 = "SELECT IN_USE FROM IPPOOL WHERE VLAN_TKEY = ? AND IP_ADDRESS = ?";
+    String query3 = "UPDATE IPPOOL SET IN_USE = TRUE WHERE IP_ADDRESS = ? AND VLAN_TKEY = ?";
 
     if (vcenter == null) {
       logger.error("Failed to mark IP address as used. vCenter not defined.");
@@ -728,39 +650,47 @@ public class DataAccessService {
 
     boolean success = true;
 
-    try (Connection con = getDatasource().getConnection(); ) {
-      int cluster_tkey = getClusterTKey(con, vcenter, datacenter, cluster);
-      if (cluster_tkey == -1) {
+    try {
+      // resolve the topology first, it may need a connection of its own
+      ClusterNode clusterNode =
+          getTopology().getCluster(getDatasource(), vcenter, datacenter, cluster);
+      if (clusterNode == null) {
         throw new SQLException("Unknown cluster " + cluster);
       }
 
-      logger.debug("retrieved tkey " + cluster_tkey + " for cluster " + cluster);
-      boolean inUse = false;
-      boolean foundIPAddress = false;
-      try (PreparedStatement stmt = con.prepareStatement(query2); ) {
-        stmt.setString(1, vlan);
-        stmt.setInt(2, cluster_tkey);
-        stmt.setString(3, ipAddress);
-        ResultSet rs = stmt.executeQuery();
-        while (rs.next()) {
-          inUse = rs.getBoolean("IN_USE");
-          foundIPAddress = true;
-        }
-      }
-      if (!foundIPAddress) {
-        throw new SQLException("IP address " + ipAddress + " is not registered.");
-      }
-      if (inUse) {
-        throw new SQLException("IP address " + ipAddress + " is already marked as used.");
+      logger.debug("retrieved tkey " + clusterNode.tkey + " for cluster " + cluster);
+      VLANNode vlanNode = getTopology().getVLAN(getDatasource(), vcenter, datacenter, cluster, vlan);
+      if (vlanNode == null) {
+        throw new SQLException("Unknown VLAN " + vlan);
       }
 
-      try (PreparedStatement stmt = con.prepareStatement(query3); ) {
-        stmt.setString(1, ipAddress);
-        stmt.setString(2, vlan);
-        stmt.setInt(3, cluster_tkey);
-        stmt.executeUpdate();
-        logger.debug("IP address " + ipAddress + " has been marked as used.");
+      try (Connection con = getDatasource().getConnection(); ) {
+        boolean inUse = false;
+        boolean foundIPAddress = false;
+        try (PreparedStatement stmt = con.prepareStatement(query2); ) {
+          stmt.setInt(1, vlanNode.tkey);
+          stmt.setString(2, ipAddress);
+          ResultSet rs = stmt.executeQuery();
+          while (rs.next()) {
+            inUse = rs.getBoolean("IN_USE");
+            foundIPAddress = true;
+          }
+        }
+        if (!foundIPAddress) {
+          throw new SQLException("IP address " + ipAddress + " is not registered.");
+        }
+        if (inUse) {
+          throw new SQLException("IP address " + ipAddress + " is already marked as used.");
+        }
+
+        try (PreparedStatement stmt = con.prepareStatement(query3); ) {
+          stmt.setString(1, ipAddress);
+          stmt.setInt(2, vlanNode.tkey);
+          stmt.executeUpdate();
+          logger.debug("IP address " + ipAddress + " has been marked as used.");
+        }
       }
+      getIPAddressAllocator().setInUse(vlanNode.tkey, ipAddress, true);
     } catch (Exception e) {
       logger.error("Failed to mark IP address as used.", e);
       success = false;
@@ -801,54 +731,17 @@ public class DataAccessService {
       throw new Exception("ipaddress not defined");
     }
 
-    boolean inUse = true;
-    String query1 = "SELECT TKEY from VLAN WHERE NAME = ? AND CLUSTER_TKEY = ?";
-    String query2 = "SELECT IN_USE FROM IPPOOL WHERE IP_ADDRESS = ? AND VLAN_TKEY = ?";
-    try (Connection con = getDatasource().getConnection(); ) {
-      int cluster_tkey = getClusterTKey(con, vcenter, datacenter, cluster);
-      if (cluster_tkey == -1) {
-        logger.error("Failed to validate IP address. Unknown cluster " + cluster);
-        String message = Messages.get(locale, "error_db_validate_ip_unknown_cluster", cluster);
-        throw new Exception(message);
-      }
-      logger.debug("retrieved tkey " + cluster_tkey + " for cluster " + cluster);
-
-      int vlan_tkey = -1;
-      try (PreparedStatement stmt = con.prepareStatement(query1); ) {
-        stmt.setString(1, vlan);
-        stmt.setInt(2, cluster_tkey);
-        ResultSet rs = stmt.executeQuery();
-        while (rs.next()) {
-          vlan_tkey = rs.getInt("TKEY");
-        }
-      }
-      if (vlan_tkey == -1) {
-        logger.error("Failed to validate IP address. Unknown VLAN " + vlan);
-        String message = Messages.get(locale, "error_db_validate_ip_unknown_vlan", vlan);
-        throw new Exception(message);
-      }
-      logger.debug("retrieved tkey " + vlan_tkey + " for VLAN " + vlan);
-
-      boolean foundEntry = false;
-      try (PreparedStatement stmt = con.prepareStatement(query2); ) {
-        stmt.setString(1, ipAddress);
-        stmt.setInt(2, vlan_tkey);
-        ResultSet rs = stmt.executeQuery();
-        while (rs.next()) {
-          inUse = rs.getBoolean("IN_USE");
-          foundEntry = true;
-        }
-      }
-      if (!foundEntry) {
-        logger.error("Failed to validate IP address " + ipAddress + ". Not found in VLAN " + vlan);
-        String message =
-            Messages.get(locale, "error_db_validate_ip_not_found", new Object[] {ipAddress, vlan});
-        throw new Exception(message);
-      }
+    int vlan_tkey = getVLANTKey(vcenter, datacenter, cluster, vlan);
+    Boolean inUse = getIPAddressAllocator().isInUse(getDatasource(), vlan_tkey, ipAddress);
+    if (inUse == null) {
+      logger.error("Failed to validate IP address " + ipAddress + ". Not found in VLAN " + vlan);
+      String message =
+          Messages.get(locale, "error_db_validate_ip_not_found", new Object[] {ipAddress, vlan});
+      throw new Exception(message);
     }
     logger.debug("In-Use-Status of IP address: " + ipAddress + " is " + inUse);
 
-    return inUse;
+    return inUse.booleanValue();
   }
 
   /** Check if the given IP address is present in the database. */
@@ -883,43 +776,9 @@ public class DataAccessService {
       throw new Exception("ipaddress not defined");
     }
 
-    boolean foundEntry = false;
-    String query1 = "SELECT TKEY from VLAN WHERE NAME = ? AND CLUSTER_TKEY = ?";
-    String query2 = "SELECT IN_USE FROM IPPOOL WHERE IP_ADDRESS = ? AND VLAN_TKEY = ?";
-    try (Connection con = getDatasource().getConnection(); ) {
-      int cluster_tkey = getClusterTKey(con, vcenter, datacenter, cluster);
-      if (cluster_tkey == -1) {
-        logger.error("Failed to validate IP address. Unknown cluster " + cluster);
-        String message = Messages.get(locale, "error_db_validate_ip_unknown_cluster", cluster);
-        throw new Exception(message);
-      }
-      logger.debug("retrieved tkey " + cluster_tkey + " for cluster " + cluster);
-
-      int vlan_tkey = -1;
-      try (PreparedStatement stmt = con.prepareStatement(query1); ) {
-        stmt.setString(1, vlan);
-        stmt.setInt(2, cluster_tkey);
-        ResultSet rs = stmt.executeQuery();
-        while (rs.next()) {
-          vlan_tkey = rs.getInt("TKEY");
-        }
-      }
-      if (vlan_tkey == -1) {
-        logger.error("Failed to validate IP address. Unknown VLAN " + vlan);
-        String message = Messages.get(locale, "error_db_validate_ip_unknown_vlan", vlan);
-        throw new Exception(message);
-      }
-      logger.debug("retrieved tkey " + vlan_tkey + " for VLAN " + vlan);
-
-      try (PreparedStatement stmt = con.prepareStatement(query2); ) {
-        stmt.setString(1, ipAddress);
-        stmt.setInt(2, vlan_tkey);
-        ResultSet rs = stmt.executeQuery();
-        while (rs.next()) {
-          foundEntry = true;
-        }
-      }
-    }
+    int vlan_tkey = getVLANTKey(vcenter, datacenter, cluster, vlan);
+    boolean foundEntry =
+        getIPAddressAllocator().isInUse(getDatasource(), vlan_tkey, ipAddress) != null;
     logger.debug("IP address: " + ipAddress + " is present: " + foundEntry);
     return foundEntry;
   }
@@ -959,18 +818,19 @@ public class DataAccessService {
     String query = "INSERT INTO IPPOOL VALUES (DEFAULT,?,?,?)";
 
     try (Connection con = getDatasource().getConnection(); ) {
-      int vlanTkey = getVLANTKey(con, vcenter, datacenter, cluster, vlan);
+      VLANNode vlanNode = getTopology().getVLAN(getDatasource(), vcenter, datacenter, cluster, vlan);
 
-      if (vlanTkey == -1) {
+      if (vlanNode == null) {
         throw new SQLException("Failed to add IP address. Unknown VLAN " + vlan);
       }
 
       try (PreparedStatement stmt = con.prepareStatement(query); ) {
         stmt.setString(1, ipAddress);
         stmt.setBoolean(2, false);
-        stmt.setInt(3, vlanTkey);
+        stmt.setInt(3, vlanNode.tkey);
         stmt.execute();
       }
+      getIPAddressAllocator().invalidate(vlanNode.tkey);
     }
   }
 
@@ -1011,70 +871,73 @@ public class DataAccessService {
         "UPDATE IPPOOL SET IN_USE = FALSE WHERE IP_ADDRESS = ? AND VLAN_TKEY = (SELECT TKEY FROM VLAN WHERE CLUSTER_TKEY = ? AND NAME = ?)";
 
     try (Connection con = getDatasource().getConnection(); ) {
-      int cluster_tkey = getClusterTKey(con, vcenter, datacenter, cluster);
+      ClusterNode clusterNode =
+          getTopology().getCluster(getDatasource(), vcenter, datacenter, cluster);
 
-      if (cluster_tkey == -1) {
+      if (clusterNode == null) {
         throw new SQLException("Failed to release IP address. Unknown cluster " + cluster);
       }
 
       try (PreparedStatement stmt = con.prepareStatement(query); ) {
         stmt.setString(1, ipaddress);
-        stmt.setInt(2, cluster_tkey);
+        stmt.setInt(2, clusterNode.tkey);
         stmt.setString(3, vlan);
         stmt.execute();
       }
+      VLANNode vlanNode = clusterNode.getVLANs().get(vlan);
+      if (vlanNode != null) {
+        getIPAddressAllocator().setInUse(vlanNode.tkey, ipaddress, false);
+      }
     }
   }
 
-  private int getVLANTKey(
-      Connection con, String vcenter, String datacenter, String cluster, String vlan)
+  /**
+   * Returns the technical key of the given VLAN.
+   *
+   * @throws Exception if the cluster or the VLAN is unknown
+   */
+  private int getVLANTKey(String vcenter, String datacenter, String cluster, String vlan)
       throws Exception {
-    logger.debug(
-        "vcenter: "
-            + vcenter
-            + "  datacenter: "
-            + datacenter
-            + "  cluster: "
-            + cluster
-            + "  vlan: "
-            + vlan);
-    int vlan_tkey = -1;
-    String query =
-        "SELECT tkey FROM vlan WHERE name = ? AND cluster_tkey = (SELECT tkey from cluster WHERE name = ? AND datacenter_tkey = (SELECT tkey from datacenter WHERE name = ? AND vcenter_tkey = (SELECT tkey FROM vcenter WHERE name = ?)))";
+    ClusterNode clusterNode =
+        getTopology().getCluster(getDatasource(), vcenter, datacenter, cluster);
+    if (clusterNode == null) {
+      logger.error("Failed to validate IP address. Unknown cluster " + cluster);
+      String message = Messages.get(locale, "error_db_validate_ip_unknown_cluster", cluster);
+      throw new Exception(message);
+    }
+    logger.debug("retrieved tkey " + clusterNode.tkey + " for cluster " + cluster);
 
-    try (PreparedStatement stmt = con.prepareStatement(query); ) {
-      stmt.setString(1, vlan);
-      stmt.setString(2, cluster);
-      stmt.setString(3, datacenter);
-      stmt.setString(4, vcenter);
-      ResultSet rs = stmt.executeQuery();
-      while (rs.next()) {
-        vlan_tkey = rs.getInt("tkey");
-      }
+    VLANNode vlanNode = getTopology().getVLAN(getDatasource(), vcenter, datacenter, cluster, vlan);
+    if (vlanNode == null) {
+      logger.error("Failed to validate IP address. Unknown VLAN " + vlan);
+      String message = Messages.get(locale, "error_db_validate_ip_unknown_vlan", vlan);
+      throw new Exception(message);
     }
-    return vlan_tkey;
+    logger.debug("retrieved tkey " + vlanNode.tkey + " for VLAN " + vlan);
+    return vlanNode.tkey;
   }
 
-  private int getClusterTKey(Connection con, String vcenter, String datacenter, String cluster)
-      throws Exception {
-    logger.debug("vcenter: " + vcenter + "  datacenter: " + datacenter + "  cluster: " + cluster);
-    int cluster_tkey = -1;
-    String query =
-        "SELECT tkey FROM cluster WHERE name = ? AND datacenter_tkey = (SELECT tkey from datacenter WHERE name = ? AND vcenter_tkey = (SELECT tkey FROM vcenter WHERE name = ?))";
+  /**
+   * Discards the in-memory copy of the vCenter, datacenter, cluster and VLAN tables and of the IP
+   * pools. Must be called after these tables have been changed.
+   */
+  public void invalidateTopology() {
+    getTopology().invalidate();
+    getIPAddressAllocator().clear();
+  }
 
-    try (PreparedStatement stmt = con.prepareStatement(query); ) {
-      stmt.setString(1, cluster);
-      stmt.setString(2, datacenter);
-      stmt.setString(3, vcenter);
-      ResultSet rs = stmt.executeQuery();
-      while (rs.next()) {
-        cluster_tkey = rs.getInt("tkey");
-      }
-    }
-    return cluster_tkey;
+  TopologyRepository getTopology() {
+    return TopologyRepository.getInstance();
+  }
+
+  IPAddressAllocator getIPAddressAllocator() {
+    return IPAddressAllocator.getInstance();
   }
 
   public DataSource getDatasource() throws Exception {
+    if (ds == null) {
+      ds = sharedDs;
+    }
     if (ds == null) {
       try {
         Properties p = new Properties();
@@ -1083,6 +946,7 @@ public class DataAccessService {
             "org.apache.openejb.core.OpenEJBInitialContextFactory");
         Context context = new InitialContext(p);
         ds = (DataSource) context.lookup(DATASOURCE);
+        sharedDs = ds;
       } catch (Exception e) {
         throw new Exception("Datasource " + DATASOURCE + " not found.", e);
       }
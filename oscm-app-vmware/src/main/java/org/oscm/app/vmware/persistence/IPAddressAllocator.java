@@ -0,0 +1,243 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright FUJITSU LIMITED 2018
+ *
+ * <p>Creation Date: 17.10.2026
+ *
+ * <p>*****************************************************************************
+ */
+package org.oscm.app.vmware.persistence;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.sql.DataSource;
+import org.oscm.app.vmware.persistence.TopologyRepository.ClusterNode;
+import org.oscm.app.vmware.persistence.TopologyRepository.VLANNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Allocates the IP addresses of the VLAN IP pools.
+ *
+ * <p>An address is claimed with a single UPDATE statement that locks the first free row of the
+ * VLAN and skips rows locked by concurrent reservations, so no address is handed out twice and
+ * concurrent reservations do not wait for each other. The database stays the only authority for
+ * reservations.
+ *
+ * <p>In addition a bitmap of the free addresses of each VLAN is kept in memory, so that the VLAN
+ * with most free addresses and the usage of an address can be determined without database access.
+ * The VLANs themselves are taken from the {@link TopologyRepository}. A bitmap is read again after
+ * {@link #REFRESH_INTERVAL_MS} milliseconds or if an address is not found.
+ */
+public class IPAddressAllocator {
+
+  private static final Logger logger = LoggerFactory.getLogger(IPAddressAllocator.class);
+
+  static final long REFRESH_INTERVAL_MS = 60000;
+
+  static final String QUERY_IPPOOL =
+      "SELECT tkey, ip_address, in_use FROM ippool WHERE vlan_tkey = ? ORDER BY tkey";
+
+  static final String CLAIM_IP_ADDRESS =
+      "UPDATE ippool SET in_use = TRUE WHERE tkey = (SELECT tkey FROM ippool WHERE vlan_tkey = ? AND in_use = FALSE ORDER BY tkey LIMIT 1 FOR UPDATE SKIP LOCKED) AND in_use = FALSE RETURNING tkey, ip_address";
+
+  private static class SingletonHolder {
+    public static final IPAddressAllocator INSTANCE = new IPAddressAllocator();
+  }
+
+  public static IPAddressAllocator getInstance() {
+    return SingletonHolder.INSTANCE;
+  }
+
+  private final ConcurrentMap<Integer, VLANPool> pools = new ConcurrentHashMap<>();
+
+  long refreshIntervalMs = REFRESH_INTERVAL_MS;
+
+  IPAddressAllocator() {}
+
+  /**
+   * Returns the name of the VLAN of the given cluster with the highest number of free IP addresses
+   * or <code>null</code> if no free IP address is available.
+   *
+   * @throws SQLException if the IP pools cannot be read
+   */
+  public String getVLANwithMostFreeIPs(DataSource ds, ClusterNode cluster) throws SQLException {
+    String result = null;
+    int maxFree = 0;
+    for (VLANNode vlan : cluster.getVLANs().values()) {
+      int free = getPool(ds, vlan.tkey).getFreeCount();
+      if (free > maxFree) {
+        maxFree = free;
+        result = vlan.name;
+      }
+    }
+    logger.debug("VLAN " + result + " has " + maxFree + " free IP addresses");
+    return result;
+  }
+
+  /**
+   * Returns whether the given IP address of the VLAN is in use or <code>null</code> if the address
+   * does not belong to the VLAN.
+   *
+   * @throws SQLException if the IP pool cannot be read
+   */
+  public Boolean isInUse(DataSource ds, int vlanTkey, String ipAddress) throws SQLException {
+    VLANPool pool = getPool(ds, vlanTkey);
+    Boolean inUse = pool.isInUse(ipAddress);
+    if (inUse == null) {
+      pool.invalidate();
+      inUse = getPool(ds, vlanTkey).isInUse(ipAddress);
+    }
+    return inUse;
+  }
+
+  /**
+   * Reserves a free IP address of the given VLAN.
+   *
+   * @return the reserved address or <code>null</code> if no free address is available
+   * @throws SQLException if the address cannot be reserved
+   */
+  public String claim(DataSource ds, int vlanTkey) throws SQLException {
+    String ipAddress = null;
+    try (Connection con = ds.getConnection();
+        PreparedStatement stmt = con.prepareStatement(CLAIM_IP_ADDRESS); ) {
+      stmt.setInt(1, vlanTkey);
+      try (ResultSet rs = stmt.executeQuery(); ) {
+        if (rs.next()) {
+          ipAddress = rs.getString("ip_address");
+        }
+      }
+    }
+    if (ipAddress != null) {
+      setInUse(vlanTkey, ipAddress, true);
+    }
+    return ipAddress;
+  }
+
+  /**
+   * Updates the usage of the given IP address after it has been changed in the database. Nothing
+   * is done if the VLAN is not held in memory.
+   */
+  public void setInUse(int vlanTkey, String ipAddress, boolean inUse) {
+    VLANPool pool = pools.get(Integer.valueOf(vlanTkey));
+    if (pool != null) {
+      pool.setInUse(ipAddress, inUse);
+    }
+  }
+
+  /** Forces the IP pool of the given VLAN to be read again, e.g. after addresses were added. */
+  public void invalidate(int vlanTkey) {
+    VLANPool pool = pools.get(Integer.valueOf(vlanTkey));
+    if (pool != null) {
+      pool.invalidate();
+    }
+  }
+
+  /** Removes all IP pools from memory, e.g. after VLANs have been changed. */
+  public void clear() {
+    pools.clear();
+  }
+
+  private VLANPool getPool(DataSource ds, int vlanTkey) throws SQLException {
+    Integer key = Integer.valueOf(vlanTkey);
+    VLANPool pool = pools.get(key);
+    if (pool == null) {
+      VLANPool created = new VLANPool(vlanTkey);
+      pool = pools.putIfAbsent(key, created);
+      if (pool == null) {
+        pool = created;
+      }
+    }
+    pool.ensureLoaded(ds, refreshIntervalMs);
+    return pool;
+  }
+
+  /**
+   * The IP addresses of one VLAN with a bitmap of the free addresses. Loading and updates are
+   * synchronized on the pool, so that an update made after a reservation is never overwritten by a
+   * concurrent load that read the state before the reservation.
+   */
+  static final class VLANPool {
+    private final int vlanTkey;
+    private Map<String, Integer> indexByAddress = Collections.emptyMap();
+    private BitSet free = new BitSet();
+    private long loaded;
+    private boolean valid;
+
+    VLANPool(int vlanTkey) {
+      this.vlanTkey = vlanTkey;
+    }
+
+    synchronized void ensureLoaded(DataSource ds, long refreshIntervalMs) throws SQLException {
+      long now = System.currentTimeMillis();
+      if (valid && now - loaded < refreshIntervalMs) {
+        return;
+      }
+      List<String> addresses = new ArrayList<>();
+      BitSet loadedFree = new BitSet();
+      try (Connection con = ds.getConnection();
+          PreparedStatement stmt = con.prepareStatement(QUERY_IPPOOL); ) {
+        stmt.setInt(1, vlanTkey);
+        ResultSet rs = stmt.executeQuery();
+        while (rs.next()) {
+          if (!rs.getBoolean("in_use")) {
+            loadedFree.set(addresses.size());
+          }
+          addresses.add(rs.getString("ip_address"));
+        }
+      }
+      Map<String, Integer> index = new HashMap<>();
+      for (int i = 0; i < addresses.size(); i++) {
+        index.put(addresses.get(i), Integer.valueOf(i));
+      }
+      indexByAddress = index;
+      free = loadedFree;
+      loaded = now;
+      valid = true;
+      logger.debug(
+          "Loaded "
+              + addresses.size()
+              + " IP addresses of VLAN "
+              + vlanTkey
+              + ", "
+              + free.cardinality()
+              + " free");
+    }
+
+    synchronized int getFreeCount() {
+      return free.cardinality();
+    }
+
+    synchronized Boolean isInUse(String ipAddress) {
+      Integer index = indexByAddress.get(ipAddress);
+      if (index == null) {
+        return null;
+      }
+      return Boolean.valueOf(!free.get(index.intValue()));
+    }
+
+    synchronized void setInUse(String ipAddress, boolean inUse) {
+      Integer index = indexByAddress.get(ipAddress);
+      if (index == null) {
+        valid = false;
+        return;
+      }
+      free.set(index.intValue(), !inUse);
+    }
+
+    synchronized void invalidate() {
+      valid = false;
+    }
+  }
+}
@@ -0,0 +1,323 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright FUJITSU LIMITED 2018
+ *
+ * <p>Creation Date: 17.10.2026
+ *
+ * <p>*****************************************************************************
+ */
+package org.oscm.app.vmware.persistence;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-mostly copy of the vCenter, datacenter, cluster and VLAN tables of the controller database.
+ *
+ * <p>The tables are read together and indexed by name, so that the state machines resolve their
+ * target location without database access. Writers must call {@link #invalidate()} after changing
+ * one of the tables. Changes made outside of this application are picked up after {@link
+ * #REFRESH_INTERVAL_MS} milliseconds, or at once if a name is not found.
+ */
+public class TopologyRepository {
+
+  private static final Logger logger = LoggerFactory.getLogger(TopologyRepository.class);
+
+  static final long REFRESH_INTERVAL_MS = 60000;
+
+  static final String QUERY_VCENTER =
+      "SELECT tkey, name, identifier, url, userid, password FROM vcenter ORDER BY tkey";
+
+  static final String QUERY_DATACENTER =
+      "SELECT tkey, name, identifier, vcenter_tkey FROM datacenter ORDER BY tkey";
+
+  static final String QUERY_CLUSTER =
+      "SELECT tkey, name, load_balancer, datacenter_tkey FROM cluster ORDER BY tkey";
+
+  static final String QUERY_VLAN =
+      "SELECT tkey, name, subnet_mask, gateway, dnsserver, dnssuffix, enabled, cluster_tkey FROM vlan ORDER BY tkey";
+
+  private static class SingletonHolder {
+    public static final TopologyRepository INSTANCE = new TopologyRepository();
+  }
+
+  public static TopologyRepository getInstance() {
+    return SingletonHolder.INSTANCE;
+  }
+
+  private volatile Topology topology;
+
+  private final AtomicLong generation = new AtomicLong();
+
+  long refreshIntervalMs = REFRESH_INTERVAL_MS;
+
+  TopologyRepository() {}
+
+  /** Returns the given vCenter or <code>null</code> if it is unknown. */
+  public VCenterNode getVCenter(DataSource ds, String vcenter) throws SQLException {
+    return find(ds, t -> t.getVCenter(vcenter));
+  }
+
+  /** Returns the given datacenter or <code>null</code> if it is unknown. */
+  public DatacenterNode getDatacenter(DataSource ds, String vcenter, String datacenter)
+      throws SQLException {
+    return find(ds, t -> t.getDatacenter(vcenter, datacenter));
+  }
+
+  /** Returns the given cluster or <code>null</code> if it is unknown. */
+  public ClusterNode getCluster(DataSource ds, String vcenter, String datacenter, String cluster)
+      throws SQLException {
+    return find(ds, t -> t.getCluster(vcenter, datacenter, cluster));
+  }
+
+  /** Returns the given VLAN or <code>null</code> if it is unknown. */
+  public VLANNode getVLAN(
+      DataSource ds, String vcenter, String datacenter, String cluster, String vlan)
+      throws SQLException {
+    return find(ds, t -> t.getVLAN(vcenter, datacenter, cluster, vlan));
+  }
+
+  /** Forces the tables to be read again with the next request. */
+  public void invalidate() {
+    generation.incrementAndGet();
+    topology = null;
+  }
+
+  private <T> T find(DataSource ds, Function<Topology, T> lookup) throws SQLException {
+    Topology current = topology;
+    boolean reloaded = false;
+    if (current == null || System.currentTimeMillis() - current.loaded >= refreshIntervalMs) {
+      current = load(ds, current);
+      reloaded = true;
+    }
+    T result = lookup.apply(current);
+    if (result == null && !reloaded) {
+      result = lookup.apply(load(ds, current));
+    }
+    return result;
+  }
+
+  /**
+   * Reads the tables unless another thread already replaced the given topology in the meantime. A
+   * copy is not kept if the tables were changed while it was read.
+   */
+  private synchronized Topology load(DataSource ds, Topology seen) throws SQLException {
+    Topology current = topology;
+    if (current != null && current != seen) {
+      return current;
+    }
+    long readGeneration = generation.get();
+    Topology loaded = read(ds);
+    if (generation.get() == readGeneration) {
+      topology = loaded;
+    }
+    return loaded;
+  }
+
+  private Topology read(DataSource ds) throws SQLException {
+    long now = System.currentTimeMillis();
+    Map<Integer, VCenterNode> vcenters = new HashMap<>();
+    Map<Integer, DatacenterNode> datacenters = new HashMap<>();
+    Map<Integer, ClusterNode> clusters = new HashMap<>();
+    int vlans = 0;
+    try (Connection con = ds.getConnection(); ) {
+      try (PreparedStatement stmt = con.prepareStatement(QUERY_VCENTER); ) {
+        ResultSet rs = stmt.executeQuery();
+        while (rs.next()) {
+          VCenterNode node =
+              new VCenterNode(
+                  rs.getInt("tkey"),
+                  rs.getString("name"),
+                  rs.getString("identifier"),
+                  rs.getString("url"),
+                  rs.getString("userid"),
+                  rs.getString("password"));
+          vcenters.put(Integer.valueOf(node.tkey), node);
+        }
+      }
+      try (PreparedStatement stmt = con.prepareStatement(QUERY_DATACENTER); ) {
+        ResultSet rs = stmt.executeQuery();
+        while (rs.next()) {
+          DatacenterNode node =
+              new DatacenterNode(
+                  rs.getInt("tkey"), rs.getString("name"), rs.getString("identifier"));
+          VCenterNode parent = vcenters.get(Integer.valueOf(rs.getInt("vcenter_tkey")));
+          if (parent != null) {
+            parent.datacenters.put(node.name, node);
+            datacenters.put(Integer.valueOf(node.tkey), node);
+          }
+        }
+      }
+      try (PreparedStatement stmt = con.prepareStatement(QUERY_CLUSTER); ) {
+        ResultSet rs = stmt.executeQuery();
+        while (rs.next()) {
+          ClusterNode node =
+              new ClusterNode(
+                  rs.getInt("tkey"), rs.getString("name"), rs.getString("load_balancer"));
+          DatacenterNode parent = datacenters.get(Integer.valueOf(rs.getInt("datacenter_tkey")));
+          if (parent != null) {
+            parent.clusters.put(node.name, node);
+            clusters.put(Integer.valueOf(node.tkey), node);
+          }
+        }
+      }
+      try (PreparedStatement stmt = con.prepareStatement(QUERY_VLAN); ) {
+        ResultSet rs = stmt.executeQuery();
+        while (rs.next()) {
+          VLANNode node =
+              new VLANNode(
+                  rs.getInt("tkey"),
+                  rs.getString("name"),
+                  rs.getString("subnet_mask"),
+                  rs.getString("gateway"),
+                  rs.getString("dnsserver"),
+                  rs.getString("dnssuffix"),
+                  rs.getBoolean("enabled"));
+          ClusterNode parent = clusters.get(Integer.valueOf(rs.getInt("cluster_tkey")));
+          if (parent != null) {
+            parent.vlans.put(node.name, node);
+            vlans++;
+          }
+        }
+      }
+    }
+    Map<String, VCenterNode> byName = new HashMap<>();
+    for (VCenterNode vcenter : vcenters.values()) {
+      byName.put(vcenter.name, vcenter);
+    }
+    logger.debug(
+        "Loaded "
+            + vcenters.size()
+            + " vCenters, "
+            + datacenters.size()
+            + " datacenters, "
+            + clusters.size()
+            + " clusters and "
+            + vlans
+            + " VLANs");
+    return new Topology(byName, now);
+  }
+
+  /** One consistent copy of the tables. Nodes are not changed after the copy has been read. */
+  private static final class Topology {
+    final Map<String, VCenterNode> vcenters;
+    final long loaded;
+
+    Topology(Map<String, VCenterNode> vcenters, long loaded) {
+      this.vcenters = vcenters;
+      this.loaded = loaded;
+    }
+
+    VCenterNode getVCenter(String vcenter) {
+      return vcenters.get(vcenter);
+    }
+
+    DatacenterNode getDatacenter(String vcenter, String datacenter) {
+      VCenterNode node = getVCenter(vcenter);
+      return node == null ? null : node.datacenters.get(datacenter);
+    }
+
+    ClusterNode getCluster(String vcenter, String datacenter, String cluster) {
+      DatacenterNode node = getDatacenter(vcenter, datacenter);
+      return node == null ? null : node.clusters.get(cluster);
+    }
+
+    VLANNode getVLAN(String vcenter, String datacenter, String cluster, String vlan) {
+      ClusterNode node = getCluster(vcenter, datacenter, cluster);
+      return node == null ? null : node.vlans.get(vlan);
+    }
+  }
+
+  /** A vCenter with its datacenters by name. The password is encrypted. */
+  public static final class VCenterNode {
+    public final int tkey;
+    public final String name;
+    public final String identifier;
+    public final String url;
+    public final String userid;
+    public final String password;
+    final Map<String, DatacenterNode> datacenters = new HashMap<>();
+
+    VCenterNode(
+        int tkey, String name, String identifier, String url, String userid, String password) {
+      this.tkey = tkey;
+      this.name = name;
+      this.identifier = identifier;
+      this.url = url;
+      this.userid = userid;
+      this.password = password;
+    }
+  }
+
+  /** A datacenter with its clusters by name. */
+  public static final class DatacenterNode {
+    public final int tkey;
+    public final String name;
+    public final String identifier;
+    final Map<String, ClusterNode> clusters = new HashMap<>();
+
+    DatacenterNode(int tkey, String name, String identifier) {
+      this.tkey = tkey;
+      this.name = name;
+      this.identifier = identifier;
+    }
+  }
+
+  /** A cluster with its VLANs by name in the order of their keys. */
+  public static final class ClusterNode {
+    public final int tkey;
+    public final String name;
+    public final String loadBalancer;
+    final Map<String, VLANNode> vlans = new LinkedHashMap<>();
+
+    ClusterNode(int tkey, String name, String loadBalancer) {
+      this.tkey = tkey;
+      this.name = name;
+      this.loadBalancer = loadBalancer;
+    }
+
+    public Map<String, VLANNode> getVLANs() {
+      return Collections.unmodifiableMap(vlans);
+    }
+  }
+
+  /** A VLAN with its network settings. */
+  public static final class VLANNode {
+    public final int tkey;
+    public final String name;
+    public final String subnetMask;
+    public final String gateway;
+    public final String dnsServer;
+    public final String dnsSuffix;
+    public final boolean enabled;
+
+    VLANNode(
+        int tkey,
+        String name,
+        String subnetMask,
+        String gateway,
+        String dnsServer,
+        String dnsSuffix,
+        boolean enabled) {
+      this.tkey = tkey;
+      this.name = name;
+      this.subnetMask = subnetMask;
+      this.gateway = gateway;
+      this.dnsServer = dnsServer;
+      this.dnsSuffix = dnsSuffix;
+      this.enabled = enabled;
+    }
+  }
+}
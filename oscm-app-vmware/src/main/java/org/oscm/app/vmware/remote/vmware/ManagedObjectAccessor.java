@@ -11,10 +11,14 @@ package org.oscm.app.vmware.remote.vmware;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.vmware.vim25.DynamicProperty;
 import com.vmware.vim25.InvalidPropertyFaultMsg;
 import com.vmware.vim25.ManagedObjectReference;
@@ -36,6 +40,15 @@ import com.vmware.vim25.VimPortType;
  */
 public class ManagedObjectAccessor {
 
+    private static final Logger LOG = LoggerFactory
+            .getLogger(ManagedObjectAccessor.class);
+
+    /**
+     * The maximum number of objects returned by the property collector per
+     * page for bulk retrievals.
+     */
+    static final int MAX_OBJECTS_PER_PAGE = 1000;
+
     private ServiceConnection connection;
     private ServiceContent serviceContent;
     private VimPortType vimPort;
@@ -195,8 +208,14 @@ public class ManagedObjectAccessor {
     private List<ObjectContent> retrievePropertiesAllObjects(
             List<PropertyFilterSpec> filterSpecs)
             throws InvalidPropertyFaultMsg, RuntimeFaultFaultMsg {
+        return retrievePropertiesAllObjects(filterSpecs, new RetrieveOptions());
+    }
+
+    private List<ObjectContent> retrievePropertiesAllObjects(
+            List<PropertyFilterSpec> filterSpecs,
+            RetrieveOptions retrieveOptions)
+            throws InvalidPropertyFaultMsg, RuntimeFaultFaultMsg {
 
-        RetrieveOptions retrieveOptions = new RetrieveOptions();
         ManagedObjectReference collector = serviceContent
                 .getPropertyCollector();
 
@@ -228,7 +247,62 @@ public class ManagedObjectAccessor {
     }
 
     /**
-     * Retrieves an object with given name and type.
+     * Retrieves the properties of all objects of the given type below the
+     * container and of all objects reachable from them by the given traversal
+     * specifications. The objects are collected by a single, paged property
+     * collector request on a container view, which is destroyed afterwards.
+     *
+     * @param container
+     *            the container to begin the search from
+     * @param viewType
+     *            the type of the managed objects in the container view
+     * @param propertySpecs
+     *            the properties to be retrieved per object type
+     * @param traversals
+     *            the traversal specifications applied to the objects of the
+     *            view
+     * @return the retrieved object contents, may be empty but not
+     *         <code>null</code>
+     * @throws InvalidPropertyFaultMsg
+     * @throws RuntimeFaultFaultMsg
+     */
+    public List<ObjectContent> retrieveContainerContents(
+            ManagedObjectReference container, String viewType,
+            List<PropertySpec> propertySpecs, List<SelectionSpec> traversals)
+            throws InvalidPropertyFaultMsg, RuntimeFaultFaultMsg {
+
+        ManagedObjectReference containerView = vimPort.createContainerView(
+                serviceContent.getViewManager(), container,
+                Arrays.asList(viewType), true);
+        try {
+            TraversalSpec viewToObjects = new TraversalSpec();
+            viewToObjects.setName("view");
+            viewToObjects.setPath("view");
+            viewToObjects.setSkip(Boolean.FALSE);
+            viewToObjects.setType("ContainerView");
+            viewToObjects.getSelectSet().addAll(traversals);
+
+            ObjectSpec objectSpec = new ObjectSpec();
+            objectSpec.setObj(containerView);
+            objectSpec.setSkip(Boolean.TRUE);
+            objectSpec.getSelectSet().add(viewToObjects);
+
+            PropertyFilterSpec spec = new PropertyFilterSpec();
+            spec.getPropSet().addAll(propertySpecs);
+            spec.getObjectSet().add(objectSpec);
+
+            RetrieveOptions options = new RetrieveOptions();
+            options.setMaxObjects(Integer.valueOf(MAX_OBJECTS_PER_PAGE));
+            return retrievePropertiesAllObjects(Arrays.asList(spec), options);
+        } finally {
+            vimPort.destroyView(containerView);
+        }
+    }
+
+    /**
+     * Retrieves an object with given name and type. The name is looked up in
+     * the {@link MoRefIndex} of the connection, which is kept up to date by
+     * the vCenter change feed.
      *
      * @param object
      *            the starting point for the hierarchical search (
@@ -247,9 +321,65 @@ public class ManagedObjectAccessor {
         if (object == null) {
             object = connection.getServiceContent().getRootFolder();
         }
+        MoRefIndex index = connection.getMoRefIndex();
+        if (index != null) {
+            try {
+                return index.lookup(object, type, name);
+            } catch (Exception e) {
+                LOG.warn("Failed to look up " + type + " " + name
+                        + " in index, retrieving all names: " + e.getMessage());
+                index.clear();
+            }
+        }
         return getMoRefsInContainerByType(object, type).get(name);
     }
 
+    /**
+     * Retrieves the objects with the given names and type. All names are looked
+     * up at once in the {@link MoRefIndex} of the connection, or with a single
+     * retrieval of all names if the connection has no index.
+     *
+     * @param object
+     *            the starting point for the hierarchical search (
+     *            <code>null</code> to start from root folder
+     * @param type
+     *            the type of objects to be searched
+     * @param names
+     *            the names of the objects to be searched
+     * @return the objects by name; names not found are missing
+     * @throws InvalidPropertyFaultMsg
+     * @throws RuntimeFaultFaultMsg
+     */
+    public Map<String, ManagedObjectReference> getDecendentMoRefs(
+            ManagedObjectReference object, String type,
+            Collection<String> names)
+            throws InvalidPropertyFaultMsg, RuntimeFaultFaultMsg {
+        if (object == null) {
+            object = connection.getServiceContent().getRootFolder();
+        }
+        MoRefIndex index = connection.getMoRefIndex();
+        if (index != null) {
+            try {
+                return index.lookup(object, type, names);
+            } catch (Exception e) {
+                LOG.warn("Failed to look up " + names.size() + " " + type
+                        + " in index, retrieving all names: "
+                        + e.getMessage());
+                index.clear();
+            }
+        }
+        Map<String, ManagedObjectReference> moRefs = getMoRefsInContainerByType(
+                object, type);
+        Map<String, ManagedObjectReference> result = new HashMap<String, ManagedObjectReference>();
+        for (String name : names) {
+            ManagedObjectReference mor = moRefs.get(name);
+            if (mor != null) {
+                result.put(name, mor);
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns all the managed object references of the specified type that are
      * present under the container.
@@ -270,11 +400,22 @@ public class ManagedObjectAccessor {
             ManagedObjectReference folder, String morefType)
             throws InvalidPropertyFaultMsg, RuntimeFaultFaultMsg {
 
-        String PROP_ME_NAME = "name";
         ManagedObjectReference viewManager = serviceContent.getViewManager();
         ManagedObjectReference containerView = vimPort.createContainerView(
                 viewManager, folder, Arrays.asList(morefType), true);
 
+        try {
+            return getNamesInView(containerView, morefType);
+        } finally {
+            vimPort.destroyView(containerView);
+        }
+    }
+
+    private Map<String, ManagedObjectReference> getNamesInView(
+            ManagedObjectReference containerView, String morefType)
+            throws InvalidPropertyFaultMsg, RuntimeFaultFaultMsg {
+
+        String PROP_ME_NAME = "name";
         Map<String, ManagedObjectReference> tgtMoref = new HashMap<String, ManagedObjectReference>();
 
         PropertySpec propertySpec = new PropertySpec();
@@ -0,0 +1,343 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.vmware.remote.vmware;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vmware.vim25.InvalidCollectorVersionFaultMsg;
+import com.vmware.vim25.InvalidPropertyFaultMsg;
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectSpec;
+import com.vmware.vim25.ObjectUpdate;
+import com.vmware.vim25.ObjectUpdateKind;
+import com.vmware.vim25.PropertyChange;
+import com.vmware.vim25.PropertyFilterSpec;
+import com.vmware.vim25.PropertyFilterUpdate;
+import com.vmware.vim25.PropertySpec;
+import com.vmware.vim25.RuntimeFaultFaultMsg;
+import com.vmware.vim25.ServiceContent;
+import com.vmware.vim25.TraversalSpec;
+import com.vmware.vim25.UpdateSet;
+import com.vmware.vim25.VimPortType;
+import com.vmware.vim25.WaitOptions;
+
+/**
+ * In-memory index of managed object references by name for one vCenter
+ * session. For each container and object type a container view is created
+ * once and registered at a dedicated property collector. The names are kept
+ * up to date by polling the change feed of that collector
+ * (<code>WaitForUpdatesEx</code>) without waiting, so lookups do not have to
+ * download the names of all objects again.
+ * <p>
+ * The number of indexed containers is limited; the least recently used and
+ * idle indexes are removed and their views destroyed.
+ */
+public class MoRefIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MoRefIndex.class);
+
+    private static final String PROP_NAME = "name";
+
+    static final int MAX_INDEXES = 32;
+    static final long SYNC_INTERVAL_MS = 5000;
+    static final long IDLE_TIMEOUT_MS = 10 * 60 * 1000;
+    static final int MAX_OBJECT_UPDATES = 1000;
+
+    private final VimPortType vimPort;
+    private final ServiceContent serviceContent;
+    private ManagedObjectReference collector;
+    private String version = "";
+    private long lastSync;
+
+    private final LinkedHashMap<String, TypeIndex> indexes = new LinkedHashMap<String, TypeIndex>(
+            16, 0.75f, true);
+    private final Map<String, TypeIndex> indexesByFilter = new HashMap<String, TypeIndex>();
+
+    public MoRefIndex(VimPortType vimPort, ServiceContent serviceContent) {
+        this.vimPort = vimPort;
+        this.serviceContent = serviceContent;
+    }
+
+    /**
+     * Returns the object of the given type and name below the container.
+     *
+     * @param container
+     *            the container to search in
+     * @param type
+     *            the type of the object
+     * @param name
+     *            the name of the object
+     * @return the object reference or <code>null</code> if not found
+     * @throws InvalidPropertyFaultMsg
+     * @throws RuntimeFaultFaultMsg
+     * @throws InvalidCollectorVersionFaultMsg
+     */
+    public synchronized ManagedObjectReference lookup(
+            ManagedObjectReference container, String type, String name)
+            throws InvalidPropertyFaultMsg, RuntimeFaultFaultMsg,
+            InvalidCollectorVersionFaultMsg {
+
+        long now = System.currentTimeMillis();
+        evictIdle(now);
+
+        String key = key(container, type);
+        TypeIndex index = indexes.get(key);
+        boolean synced = false;
+        if (index == null) {
+            index = createIndex(key, container, type);
+            synced = true;
+        } else if (now - lastSync > SYNC_INTERVAL_MS) {
+            sync();
+            synced = true;
+        }
+        index.lastAccess = now;
+
+        ManagedObjectReference result = index.moRefs.get(name);
+        if (result == null && !synced) {
+            sync();
+            result = index.moRefs.get(name);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the objects of the given type and names below the container.
+     * The change feed is read at most once for all names.
+     *
+     * @param container
+     *            the container to search in
+     * @param type
+     *            the type of the objects
+     * @param names
+     *            the names of the objects
+     * @return the object references by name; names not found are missing
+     * @throws InvalidPropertyFaultMsg
+     * @throws RuntimeFaultFaultMsg
+     * @throws InvalidCollectorVersionFaultMsg
+     */
+    public synchronized Map<String, ManagedObjectReference> lookup(
+            ManagedObjectReference container, String type,
+            Collection<String> names) throws InvalidPropertyFaultMsg,
+            RuntimeFaultFaultMsg, InvalidCollectorVersionFaultMsg {
+
+        long now = System.currentTimeMillis();
+        evictIdle(now);
+
+        String key = key(container, type);
+        TypeIndex index = indexes.get(key);
+        if (index == null) {
+            index = createIndex(key, container, type);
+        } else if (now - lastSync > SYNC_INTERVAL_MS
+                || !index.moRefs.keySet().containsAll(names)) {
+            sync();
+        }
+        index.lastAccess = now;
+
+        Map<String, ManagedObjectReference> result = new HashMap<String, ManagedObjectReference>();
+        for (String name : names) {
+            ManagedObjectReference mor = index.moRefs.get(name);
+            if (mor != null) {
+                result.put(name, mor);
+            }
+        }
+        return result;
+    }
+
+    private static String key(ManagedObjectReference container, String type) {
+        return container.getType() + ":" + container.getValue() + "/" + type;
+    }
+
+    /**
+     * Returns the number of indexed containers.
+     */
+    synchronized int size() {
+        return indexes.size();
+    }
+
+    /**
+     * Destroys all views, filters and the property collector created by this
+     * index. The index can be used again afterwards.
+     */
+    public synchronized void clear() {
+        for (TypeIndex index : new ArrayList<TypeIndex>(indexes.values())) {
+            destroy(index);
+        }
+        if (collector != null) {
+            try {
+                vimPort.destroyPropertyCollector(collector);
+            } catch (Exception e) {
+                LOG.debug("Failed to destroy property collector: "
+                        + e.getMessage());
+            }
+        }
+        collector = null;
+        version = "";
+    }
+
+    private TypeIndex createIndex(String key, ManagedObjectReference container,
+            String type) throws InvalidPropertyFaultMsg, RuntimeFaultFaultMsg,
+            InvalidCollectorVersionFaultMsg {
+
+        while (indexes.size() >= MAX_INDEXES) {
+            destroy(indexes.values().iterator().next());
+        }
+        if (collector == null) {
+            collector = vimPort.createPropertyCollector(
+                    serviceContent.getPropertyCollector());
+            version = "";
+        }
+
+        TypeIndex index = new TypeIndex(key);
+        index.lastAccess = System.currentTimeMillis();
+        index.view = vimPort.createContainerView(
+                serviceContent.getViewManager(), container,
+                Arrays.asList(type), true);
+        try {
+            index.filter = vimPort.createFilter(collector,
+                    createFilterSpec(index.view, type), true);
+        } catch (InvalidPropertyFaultMsg | RuntimeFaultFaultMsg e) {
+            vimPort.destroyView(index.view);
+            throw e;
+        }
+        indexes.put(key, index);
+        indexesByFilter.put(index.filter.getValue(), index);
+        sync();
+        return index;
+    }
+
+    private PropertyFilterSpec createFilterSpec(ManagedObjectReference view,
+            String type) {
+        PropertySpec propertySpec = new PropertySpec();
+        propertySpec.setAll(Boolean.FALSE);
+        propertySpec.setType(type);
+        propertySpec.getPathSet().add(PROP_NAME);
+
+        TraversalSpec ts = new TraversalSpec();
+        ts.setName("view");
+        ts.setPath("view");
+        ts.setSkip(Boolean.FALSE);
+        ts.setType("ContainerView");
+
+        ObjectSpec objectSpec = new ObjectSpec();
+        objectSpec.setObj(view);
+        objectSpec.setSkip(Boolean.TRUE);
+        objectSpec.getSelectSet().add(ts);
+
+        PropertyFilterSpec spec = new PropertyFilterSpec();
+        spec.getPropSet().add(propertySpec);
+        spec.getObjectSet().add(objectSpec);
+        return spec;
+    }
+
+    /**
+     * Applies all pending changes of the property collector without waiting
+     * for new ones.
+     */
+    private void sync() throws RuntimeFaultFaultMsg,
+            InvalidCollectorVersionFaultMsg {
+        WaitOptions options = new WaitOptions();
+        options.setMaxWaitSeconds(Integer.valueOf(0));
+        options.setMaxObjectUpdates(Integer.valueOf(MAX_OBJECT_UPDATES));
+
+        UpdateSet updates = vimPort.waitForUpdatesEx(collector, version,
+                options);
+        while (updates != null) {
+            version = updates.getVersion();
+            for (PropertyFilterUpdate filterUpdate : updates.getFilterSet()) {
+                TypeIndex index = indexesByFilter
+                        .get(filterUpdate.getFilter().getValue());
+                if (index != null) {
+                    index.apply(filterUpdate.getObjectSet());
+                }
+            }
+            if (!Boolean.TRUE.equals(updates.isTruncated())) {
+                break;
+            }
+            updates = vimPort.waitForUpdatesEx(collector, version, options);
+        }
+        lastSync = System.currentTimeMillis();
+    }
+
+    private void evictIdle(long now) {
+        for (TypeIndex index : new ArrayList<TypeIndex>(indexes.values())) {
+            if (now - index.lastAccess > IDLE_TIMEOUT_MS) {
+                destroy(index);
+            }
+        }
+    }
+
+    private void destroy(TypeIndex index) {
+        indexes.remove(index.key);
+        if (index.filter != null) {
+            indexesByFilter.remove(index.filter.getValue());
+            try {
+                vimPort.destroyPropertyFilter(index.filter);
+            } catch (Exception e) {
+                LOG.debug("Failed to destroy property filter: "
+                        + e.getMessage());
+            }
+        }
+        try {
+            vimPort.destroyView(index.view);
+        } catch (Exception e) {
+            LOG.debug("Failed to destroy container view: " + e.getMessage());
+        }
+    }
+
+    private static class TypeIndex {
+        final String key;
+        ManagedObjectReference view;
+        ManagedObjectReference filter;
+        long lastAccess;
+        final Map<String, ManagedObjectReference> moRefs = new HashMap<String, ManagedObjectReference>();
+        final Map<String, String> names = new HashMap<String, String>();
+
+        TypeIndex(String key) {
+            this.key = key;
+        }
+
+        void apply(List<ObjectUpdate> objectUpdates) {
+            for (ObjectUpdate update : objectUpdates) {
+                ManagedObjectReference mor = update.getObj();
+                String oldName = names.get(mor.getValue());
+                if (update.getKind() == ObjectUpdateKind.LEAVE) {
+                    names.remove(mor.getValue());
+                    remove(oldName, mor);
+                    continue;
+                }
+                for (PropertyChange change : update.getChangeSet()) {
+                    if (PROP_NAME.equals(change.getName())
+                            && change.getVal() != null) {
+                        String name = change.getVal().toString();
+                        remove(oldName, mor);
+                        names.put(mor.getValue(), name);
+                        moRefs.put(name, mor);
+                    }
+                }
+            }
+        }
+
+        private void remove(String name, ManagedObjectReference mor) {
+            ManagedObjectReference current = name == null ? null
+                    : moRefs.get(name);
+            if (current != null && current.getValue().equals(mor.getValue())) {
+                moRefs.remove(name);
+            }
+        }
+    }
+}
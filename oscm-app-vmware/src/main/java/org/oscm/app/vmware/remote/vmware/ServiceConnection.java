@@ -20,6 +20,8 @@ public class ServiceConnection {
 
     private VimPortType service;
     private ServiceContent content;
+    private MoRefIndex moRefIndex;
+    private TaskWatcher taskWatcher;
 
     public ServiceConnection(VimPortType service, ServiceContent content) {
         this.service = service;
@@ -44,12 +46,51 @@ public class ServiceConnection {
         return content;
     }
 
+    /**
+     * Returns the index of managed object references by name for this
+     * connection.
+     *
+     * @return the index
+     */
+    public synchronized MoRefIndex getMoRefIndex() {
+        if (moRefIndex == null) {
+            moRefIndex = new MoRefIndex(service, content);
+        }
+        return moRefIndex;
+    }
+
+    /**
+     * Returns the watcher of vSphere tasks for this connection.
+     *
+     * @return the task watcher
+     */
+    public synchronized TaskWatcher getTaskWatcher() {
+        if (taskWatcher == null) {
+            taskWatcher = new TaskWatcher(service, content);
+        }
+        return taskWatcher;
+    }
+
     /**
      * Internally disconnect the client.
      *
      * @throws RuntimeFaultFaultMsg
      */
     protected void disconnect() throws RuntimeFaultFaultMsg {
+        MoRefIndex index;
+        TaskWatcher watcher;
+        synchronized (this) {
+            index = moRefIndex;
+            moRefIndex = null;
+            watcher = taskWatcher;
+            taskWatcher = null;
+        }
+        if (index != null) {
+            index.clear();
+        }
+        if (watcher != null) {
+            watcher.clear();
+        }
         service.logout(content.getSessionManager());
     }
 }
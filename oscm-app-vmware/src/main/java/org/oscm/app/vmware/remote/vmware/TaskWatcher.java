@@ -0,0 +1,348 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.vmware.remote.vmware;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vmware.vim25.AboutInfo;
+import com.vmware.vim25.InvalidCollectorVersionFaultMsg;
+import com.vmware.vim25.InvalidPropertyFaultMsg;
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectSpec;
+import com.vmware.vim25.ObjectUpdate;
+import com.vmware.vim25.ObjectUpdateKind;
+import com.vmware.vim25.PropertyChange;
+import com.vmware.vim25.PropertyFilterSpec;
+import com.vmware.vim25.PropertyFilterUpdate;
+import com.vmware.vim25.PropertySpec;
+import com.vmware.vim25.RuntimeFaultFaultMsg;
+import com.vmware.vim25.ServiceContent;
+import com.vmware.vim25.TaskInfo;
+import com.vmware.vim25.TaskInfoState;
+import com.vmware.vim25.UpdateSet;
+import com.vmware.vim25.VimPortType;
+import com.vmware.vim25.WaitOptions;
+
+/**
+ * Tracks the state of vSphere tasks for one vCenter session. Each task is
+ * registered once at a dedicated property collector. The task information of
+ * all registered tasks is fetched with a single call of the change feed of that
+ * collector (<code>WaitForUpdatesEx</code>) without waiting, at most every
+ * {@link #SYNC_INTERVAL_MS} milliseconds.
+ * <p>
+ * Finished tasks are no longer watched; their last information is kept for the
+ * {@link #MAX_FINISHED} most recently finished tasks. This information is
+ * shared by the watchers of all sessions of the same vCenter. A task found
+ * finished by one of them is deregistered from the others on their next sync,
+ * and is not registered anew by any of them.
+ */
+public class TaskWatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TaskWatcher.class);
+
+    private static final String TYPE_TASK = "Task";
+    private static final String PROP_INFO = "info";
+
+    static final int MAX_WATCHED = 500;
+    static final int MAX_FINISHED = 1000;
+    static final long SYNC_INTERVAL_MS = 1000;
+    static final int MAX_OBJECT_UPDATES = 1000;
+
+    private final VimPortType vimPort;
+    private final ServiceContent serviceContent;
+    private ManagedObjectReference collector;
+    private String version = "";
+    private long lastSync;
+
+    private final LinkedHashMap<String, WatchedTask> watched = new LinkedHashMap<String, WatchedTask>();
+    private final Map<String, WatchedTask> watchedByFilter = new HashMap<String, WatchedTask>();
+    private final FinishedTasks finished;
+
+    /**
+     * The finished tasks by vCenter instance UUID.
+     */
+    private static final ConcurrentMap<String, FinishedTasks> FINISHED_BY_VCENTER = new ConcurrentHashMap<String, FinishedTasks>();
+
+    public TaskWatcher(VimPortType vimPort, ServiceContent serviceContent) {
+        this.vimPort = vimPort;
+        this.serviceContent = serviceContent;
+        this.finished = getFinishedTasks(serviceContent);
+    }
+
+    /**
+     * Returns the finished tasks shared by all sessions of the vCenter, or
+     * finished tasks of its own for a watcher whose vCenter is unknown.
+     */
+    private static FinishedTasks getFinishedTasks(ServiceContent content) {
+        AboutInfo about = content == null ? null : content.getAbout();
+        String uuid = about == null ? null : about.getInstanceUuid();
+        if (uuid == null) {
+            return new FinishedTasks();
+        }
+        FinishedTasks tasks = FINISHED_BY_VCENTER.get(uuid);
+        if (tasks == null) {
+            tasks = new FinishedTasks();
+            FinishedTasks existing = FINISHED_BY_VCENTER.putIfAbsent(uuid,
+                    tasks);
+            if (existing != null) {
+                tasks = existing;
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Returns the latest known information of the given task. The task is
+     * registered on first request.
+     *
+     * @param taskKey
+     *            the key of the task, which is also the value of its managed
+     *            object reference
+     * @return the task information or <code>null</code> if the task cannot be
+     *         watched, e.g. because it has already been removed from the list
+     *         of recent tasks
+     * @throws RuntimeFaultFaultMsg
+     * @throws InvalidCollectorVersionFaultMsg
+     */
+    public synchronized TaskInfo getTaskInfo(String taskKey)
+            throws RuntimeFaultFaultMsg, InvalidCollectorVersionFaultMsg {
+
+        TaskInfo info = finished.get(taskKey);
+        if (info != null) {
+            WatchedTask task = watched.get(taskKey);
+            if (task != null) {
+                destroy(task);
+            }
+            return info;
+        }
+
+        WatchedTask task = watched.get(taskKey);
+        if (task == null) {
+            task = watch(taskKey);
+            if (task == null) {
+                return null;
+            }
+            sync();
+        } else if (System.currentTimeMillis() - lastSync > SYNC_INTERVAL_MS) {
+            sync();
+        }
+
+        info = finished.get(taskKey);
+        if (info != null) {
+            return info;
+        }
+        WatchedTask current = watched.get(taskKey);
+        return current != null ? current.info : task.info;
+    }
+
+    /**
+     * Returns the number of watched tasks which have not yet finished.
+     */
+    synchronized int size() {
+        return watched.size();
+    }
+
+    /**
+     * Destroys all filters and the property collector created by this watcher.
+     * The watcher can be used again afterwards. The finished tasks shared with
+     * other sessions are kept.
+     */
+    public synchronized void clear() {
+        for (WatchedTask task : new ArrayList<WatchedTask>(watched.values())) {
+            destroy(task);
+        }
+        if (collector != null) {
+            try {
+                vimPort.destroyPropertyCollector(collector);
+            } catch (Exception e) {
+                LOG.debug("Failed to destroy property collector: "
+                        + e.getMessage());
+            }
+        }
+        collector = null;
+        version = "";
+    }
+
+    private WatchedTask watch(String taskKey) throws RuntimeFaultFaultMsg {
+        while (watched.size() >= MAX_WATCHED) {
+            destroy(watched.values().iterator().next());
+        }
+        if (collector == null) {
+            collector = vimPort.createPropertyCollector(
+                    serviceContent.getPropertyCollector());
+            version = "";
+        }
+
+        ManagedObjectReference mor = new ManagedObjectReference();
+        mor.setType(TYPE_TASK);
+        mor.setValue(taskKey);
+
+        WatchedTask task = new WatchedTask(taskKey);
+        try {
+            task.filter = vimPort.createFilter(collector, createFilterSpec(mor),
+                    false);
+        } catch (InvalidPropertyFaultMsg | RuntimeFaultFaultMsg e) {
+            LOG.debug("Failed to watch task " + taskKey + ": "
+                    + e.getMessage());
+            return null;
+        }
+        watched.put(taskKey, task);
+        watchedByFilter.put(task.filter.getValue(), task);
+        return task;
+    }
+
+    private PropertyFilterSpec createFilterSpec(ManagedObjectReference task) {
+        PropertySpec propertySpec = new PropertySpec();
+        propertySpec.setAll(Boolean.FALSE);
+        propertySpec.setType(TYPE_TASK);
+        propertySpec.getPathSet().add(PROP_INFO);
+
+        ObjectSpec objectSpec = new ObjectSpec();
+        objectSpec.setObj(task);
+        objectSpec.setSkip(Boolean.FALSE);
+
+        PropertyFilterSpec spec = new PropertyFilterSpec();
+        spec.getPropSet().add(propertySpec);
+        spec.getObjectSet().add(objectSpec);
+        return spec;
+    }
+
+    /**
+     * Applies all pending changes of the property collector without waiting
+     * for new ones. If the vCenter no longer accepts the version of the
+     * collector, the collector and the filters of the watched tasks are
+     * created again and read from the beginning.
+     */
+    private void sync() throws RuntimeFaultFaultMsg,
+            InvalidCollectorVersionFaultMsg {
+        for (WatchedTask task : new ArrayList<WatchedTask>(watched.values())) {
+            if (finished.get(task.key) != null) {
+                destroy(task);
+            }
+        }
+        try {
+            readUpdates();
+        } catch (InvalidCollectorVersionFaultMsg e) {
+            LOG.debug("Invalid version of property collector, recreating it: "
+                    + e.getMessage());
+            List<String> taskKeys = new ArrayList<String>(watched.keySet());
+            clear();
+            for (String taskKey : taskKeys) {
+                watch(taskKey);
+            }
+            try {
+                readUpdates();
+            } catch (InvalidCollectorVersionFaultMsg retry) {
+                clear();
+                throw retry;
+            }
+        }
+        lastSync = System.currentTimeMillis();
+    }
+
+    private void readUpdates() throws RuntimeFaultFaultMsg,
+            InvalidCollectorVersionFaultMsg {
+        WaitOptions options = new WaitOptions();
+        options.setMaxWaitSeconds(Integer.valueOf(0));
+        options.setMaxObjectUpdates(Integer.valueOf(MAX_OBJECT_UPDATES));
+
+        UpdateSet updates = vimPort.waitForUpdatesEx(collector, version,
+                options);
+        while (updates != null) {
+            version = updates.getVersion();
+            for (PropertyFilterUpdate filterUpdate : updates.getFilterSet()) {
+                WatchedTask task = watchedByFilter
+                        .get(filterUpdate.getFilter().getValue());
+                if (task != null) {
+                    apply(task, filterUpdate);
+                }
+            }
+            if (!Boolean.TRUE.equals(updates.isTruncated())) {
+                break;
+            }
+            updates = vimPort.waitForUpdatesEx(collector, version, options);
+        }
+    }
+
+    private void apply(WatchedTask task, PropertyFilterUpdate filterUpdate) {
+        for (ObjectUpdate update : filterUpdate.getObjectSet()) {
+            if (update.getKind() == ObjectUpdateKind.LEAVE) {
+                destroy(task);
+                return;
+            }
+            for (PropertyChange change : update.getChangeSet()) {
+                if (PROP_INFO.equals(change.getName())
+                        && change.getVal() instanceof TaskInfo) {
+                    task.info = (TaskInfo) change.getVal();
+                }
+            }
+        }
+        if (task.info != null && isFinished(task.info.getState())) {
+            destroy(task);
+            finished.put(task.key, task.info);
+        }
+    }
+
+    private static boolean isFinished(TaskInfoState state) {
+        return state == TaskInfoState.SUCCESS || state == TaskInfoState.ERROR;
+    }
+
+    private void destroy(WatchedTask task) {
+        watched.remove(task.key);
+        watchedByFilter.remove(task.filter.getValue());
+        try {
+            vimPort.destroyPropertyFilter(task.filter);
+        } catch (Exception e) {
+            LOG.debug("Failed to destroy property filter: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The most recently finished tasks of one vCenter.
+     */
+    private static class FinishedTasks {
+        private final Map<String, TaskInfo> tasks = new LinkedHashMap<String, TaskInfo>(
+                16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, TaskInfo> eldest) {
+                return size() > MAX_FINISHED;
+            }
+        };
+
+        synchronized TaskInfo get(String taskKey) {
+            return tasks.get(taskKey);
+        }
+
+        synchronized void put(String taskKey, TaskInfo info) {
+            tasks.put(taskKey, info);
+        }
+    }
+
+    private static class WatchedTask {
+        final String key;
+        ManagedObjectReference filter;
+        TaskInfo info;
+
+        WatchedTask(String key) {
+            this.key = key;
+        }
+    }
+}
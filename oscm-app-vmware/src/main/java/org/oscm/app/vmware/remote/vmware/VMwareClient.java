@@ -130,8 +130,14 @@ public class VMwareClient implements AutoCloseable {
 
         try {
             long ref = System.currentTimeMillis();
-            new ManagedObjectAccessor(connection).getDecendentMoRef(null,
-                    "VirtualMachine", "no-name");
+            Object session = new ManagedObjectAccessor(connection)
+                    .getDynamicProperty(connection.getServiceContent()
+                            .getSessionManager(), "currentSession");
+            if (session == null) {
+                LOG.debug("Session has expired. URL: " + url + ", UserId: "
+                        + user);
+                return false;
+            }
             LOG.debug("vSphere connection is alive. Check took "
                     + (System.currentTimeMillis() - ref) + "ms. URL: " + url
                     + ", UserId: " + user);
@@ -0,0 +1,126 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright FUJITSU LIMITED 2018
+ *
+ * <p>Creation Date: 17.10.2026
+ *
+ * <p>*****************************************************************************
+ */
+
+package org.oscm.app.vmware.usage;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.oscm.app.vmware.remote.vmware.VMwareClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.PerfCounterInfo;
+
+/**
+ * Ids of the performance counters of each vCenter by counter name. The
+ * counter list of a vCenter has thousands of entries and rarely changes, so
+ * it is downloaded once and kept for {@link #VALIDITY_MS} milliseconds.
+ */
+public class PerfCounterCatalog {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(PerfCounterCatalog.class);
+
+    static final long VALIDITY_MS = 24 * 60 * 60 * 1000L;
+
+    private static final PerfCounterCatalog INSTANCE = new PerfCounterCatalog();
+
+    private final ConcurrentMap<String, Catalog> catalogs = new ConcurrentHashMap<String, Catalog>();
+
+    public static PerfCounterCatalog getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the counter ids of the given vCenter by full counter name, e.g.
+     * <code>cpu.usagemhz.AVERAGE</code>.
+     *
+     * @param vcenter
+     *            the name of the vCenter
+     * @param vmw
+     *            the client used if the counters have to be read
+     */
+    public Map<String, Integer> getCounterIds(String vcenter, VMwareClient vmw)
+            throws Exception {
+        Catalog catalog = catalogs.get(vcenter);
+        if (catalog == null) {
+            Catalog created = new Catalog();
+            catalog = catalogs.putIfAbsent(vcenter, created);
+            if (catalog == null) {
+                catalog = created;
+            }
+        }
+        synchronized (catalog) {
+            long now = System.currentTimeMillis();
+            if (catalog.counterIds == null
+                    || now - catalog.loaded >= VALIDITY_MS) {
+                ManagedObjectReference performanceManager = vmw
+                        .getConnection().getServiceContent().getPerfManager();
+                @SuppressWarnings("unchecked")
+                List<PerfCounterInfo> perfCounters = (List<PerfCounterInfo>) vmw
+                        .getServiceUtil()
+                        .getDynamicProperty(performanceManager, "perfCounter");
+                catalog.counterIds = Collections.unmodifiableMap(
+                        createCounterToNameMapping(perfCounters));
+                catalog.loaded = now;
+                LOGGER.debug("Loaded " + catalog.counterIds.size()
+                        + " performance counters of vCenter " + vcenter);
+            }
+            return catalog.counterIds;
+        }
+    }
+
+    /**
+     * Forces the counters of the given vCenter to be read again.
+     */
+    public void invalidate(String vcenter) {
+        catalogs.remove(vcenter);
+    }
+
+    /**
+     * Removes the counters of all vCenters.
+     */
+    public void clear() {
+        catalogs.clear();
+    }
+
+    /**
+     * counter Id's can be different in every vSphere environment, therefore
+     * it,s necessary to map the id's to names
+     */
+    static Map<String, Integer> createCounterToNameMapping(
+            List<PerfCounterInfo> perfCounters) {
+        Map<String, Integer> countersIdMap = new HashMap<String, Integer>();
+        if (perfCounters == null) {
+            return countersIdMap;
+        }
+        for (PerfCounterInfo perfCounter : perfCounters) {
+            Integer counterId = Integer.valueOf(perfCounter.getKey());
+            String counterGroup = perfCounter.getGroupInfo().getKey();
+            String counterName = perfCounter.getNameInfo().getKey();
+            String counterRollupType = perfCounter.getRollupType().toString();
+            String fullCounterName = counterGroup + "." + counterName + "."
+                    + counterRollupType;
+            countersIdMap.put(fullCounterName, counterId);
+        }
+        return countersIdMap;
+    }
+
+    private static class Catalog {
+        Map<String, Integer> counterIds;
+        long loaded;
+    }
+}
@@ -0,0 +1,447 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright FUJITSU LIMITED 2018
+ *
+ * <p>Creation Date: 17.10.2026
+ *
+ * <p>*****************************************************************************
+ */
+
+package org.oscm.app.vmware.usage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.oscm.app.vmware.remote.vmware.VMwareClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.PerfEntityMetricBase;
+import com.vmware.vim25.PerfEntityMetricCSV;
+import com.vmware.vim25.PerfMetricId;
+import com.vmware.vim25.PerfMetricSeriesCSV;
+import com.vmware.vim25.PerfQuerySpec;
+
+/**
+ * Collects the usage metrics of the VMs of a vCenter in batches.
+ * <p>
+ * The VMs asked for during a usage run are remembered per vCenter. When the
+ * metrics of a VM are not available or outdated, the CPU, memory and disk
+ * counters of all remembered VMs with outdated metrics are read together,
+ * with one query specification per VM and {@link #MAX_VMS_PER_QUERY} VMs per
+ * <code>queryPerf</code> call. The following VMs of the run are then served
+ * from memory.
+ * <p>
+ * The vCenter is queried without holding the lock of its metrics, so that
+ * callers for VMs with valid metrics are not blocked by a slow vCenter. VMs
+ * being collected by another caller are not queried again, unless they are
+ * the VM asked for.
+ */
+public class VMMetricBatch {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(VMMetricBatch.class);
+
+    static final String[] COUNTERS = { VMMetricCollector.CPU_USAGE_PERCENT,
+            VMMetricCollector.MEM_USAGE_PERCENT,
+            VMMetricCollector.DISK_USAGE_TOTAL };
+
+    /**
+     * Time in milliseconds the metrics of a VM are used before they are read
+     * again. Much shorter than the interval of the usage runs.
+     */
+    static final long RESULT_VALIDITY_MS = 30 * 60 * 1000L;
+
+    /**
+     * VMs not asked for within this time are no longer collected.
+     */
+    static final long IDLE_TIMEOUT_MS = 24 * 60 * 60 * 1000L;
+
+    static final int MAX_VMS_PER_QUERY = 50;
+
+    private static final VMMetricBatch INSTANCE = new VMMetricBatch();
+
+    private final ConcurrentMap<String, VCenterMetrics> vcenters = new ConcurrentHashMap<String, VCenterMetrics>();
+
+    public static VMMetricBatch getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the metric values of the given VM by counter name. A counter
+     * without values is missing in the result.
+     *
+     * @param vcenter
+     *            the name of the vCenter
+     * @param vmw
+     *            the client used if metrics have to be read
+     * @param counterIds
+     *            the counter ids of the vCenter by counter name
+     * @param vmName
+     *            the name of the VM
+     * @return the values or <code>null</code> if the VM does not exist
+     */
+    public Map<String, ArrayList<String>> getMetrics(String vcenter,
+            VMwareClient vmw, Map<String, Integer> counterIds, String vmName)
+            throws Exception {
+        VCenterMetrics metrics = vcenters.get(vcenter);
+        if (metrics == null) {
+            VCenterMetrics created = new VCenterMetrics();
+            metrics = vcenters.putIfAbsent(vcenter, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        long now;
+        List<String> due;
+        List<String> claimed = new ArrayList<String>();
+        synchronized (metrics) {
+            now = currentTimeMillis();
+            metrics.requested.put(vmName, Long.valueOf(now));
+            metrics.removeIdle(now);
+            Result result = metrics.results.get(vmName);
+            if (result != null && now - result.collected < RESULT_VALIDITY_MS) {
+                return result.values;
+            }
+            due = new ArrayList<String>();
+            due.add(vmName);
+            for (String name : metrics.requested.keySet()) {
+                Result known = metrics.results.get(name);
+                if (!name.equals(vmName) && !metrics.collecting.contains(name)
+                        && (known == null || now
+                                - known.collected >= RESULT_VALIDITY_MS)) {
+                    due.add(name);
+                }
+            }
+            for (String name : due) {
+                if (metrics.collecting.add(name)) {
+                    claimed.add(name);
+                }
+            }
+        }
+
+        Map<String, Map<String, ArrayList<String>>> values = null;
+        try {
+            values = collect(vmw, counterIds, due);
+        } finally {
+            synchronized (metrics) {
+                metrics.collecting.removeAll(claimed);
+                if (values != null) {
+                    metrics.publish(due, values, now);
+                }
+            }
+        }
+        Map<String, ArrayList<String>> vmValues = values.get(vmName);
+        return vmValues == null ? null
+                : Collections.unmodifiableMap(vmValues);
+    }
+
+    /**
+     * Removes the metrics of all vCenters.
+     */
+    public void clear() {
+        vcenters.clear();
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    int size(String vcenter) {
+        VCenterMetrics metrics = vcenters.get(vcenter);
+        if (metrics == null) {
+            return 0;
+        }
+        synchronized (metrics) {
+            return metrics.requested.size();
+        }
+    }
+
+    /**
+     * Reads the metrics of the given VMs.
+     *
+     * @return the values by counter name for each VM found in the vCenter
+     */
+    private Map<String, Map<String, ArrayList<String>>> collect(
+            VMwareClient vmw, Map<String, Integer> counterIds,
+            List<String> vmNames) throws Exception {
+        Map<String, Map<String, ArrayList<String>>> result = new HashMap<String, Map<String, ArrayList<String>>>();
+        Map<String, String> names = new HashMap<String, String>();
+        List<ManagedObjectReference> vms = new ArrayList<ManagedObjectReference>();
+        for (String vmName : vmNames) {
+            ManagedObjectReference vm = vmw.getServiceUtil()
+                    .getDecendentMoRef(null, "VirtualMachine", vmName);
+            if (vm == null) {
+                continue;
+            }
+            names.put(vm.getValue(), vmName);
+            vms.add(vm);
+        }
+        if (vms.isEmpty()) {
+            return result;
+        }
+
+        Map<Integer, String> counterNames = new HashMap<Integer, String>();
+        List<PerfMetricId> perfMetricIds = new ArrayList<PerfMetricId>();
+        for (String counter : COUNTERS) {
+            Integer counterId = counterIds.get(counter);
+            if (counterId == null) {
+                LOGGER.warn("Performance counter " + counter + " not found");
+                continue;
+            }
+            counterNames.put(counterId, counter);
+            perfMetricIds.add(createMetric(counterId.intValue()));
+        }
+
+        ManagedObjectReference performanceManager = vmw.getConnection()
+                .getServiceContent().getPerfManager();
+        Map<String, Map<String, ArrayList<String>>> values = query(vmw,
+                performanceManager, vms, perfMetricIds,
+                VMMetricCollector.INTERVALL_ONE_YEAR, counterNames, names);
+
+        // not enough data for the long interval, average the short one
+        List<ManagedObjectReference> incomplete = new ArrayList<ManagedObjectReference>();
+        for (ManagedObjectReference vm : vms) {
+            Map<String, ArrayList<String>> vmValues = values
+                    .get(names.get(vm.getValue()));
+            if (vmValues == null || vmValues.size() < counterNames.size()) {
+                incomplete.add(vm);
+            }
+        }
+        if (!incomplete.isEmpty()) {
+            Map<String, Map<String, ArrayList<String>>> daily = query(vmw,
+                    performanceManager, incomplete, perfMetricIds,
+                    VMMetricCollector.INTERVALL_ONE_DAY, counterNames, names);
+            for (Map.Entry<String, Map<String, ArrayList<String>>> entry : daily
+                    .entrySet()) {
+                Map<String, ArrayList<String>> vmValues = values
+                        .get(entry.getKey());
+                if (vmValues == null) {
+                    vmValues = new HashMap<String, ArrayList<String>>();
+                    values.put(entry.getKey(), vmValues);
+                }
+                for (Map.Entry<String, ArrayList<String>> counter : entry
+                        .getValue().entrySet()) {
+                    if (vmValues.containsKey(counter.getKey())) {
+                        continue;
+                    }
+                    try {
+                        ArrayList<String> average = createAverage(
+                                counter.getValue());
+                        if (average != null) {
+                            vmValues.put(counter.getKey(), average);
+                        }
+                    } catch (NumberFormatException e) {
+                        LOGGER.error("Invalid values of counter "
+                                + counter.getKey() + " of VM "
+                                + entry.getKey(), e);
+                    }
+                }
+            }
+        }
+
+        for (ManagedObjectReference vm : vms) {
+            String vmName = names.get(vm.getValue());
+            Map<String, ArrayList<String>> vmValues = values.get(vmName);
+            result.put(vmName, vmValues == null
+                    ? new HashMap<String, ArrayList<String>>() : vmValues);
+        }
+        LOGGER.debug("Collected metrics of " + vms.size() + " VMs, "
+                + incomplete.size() + " with short interval");
+        return result;
+    }
+
+    /**
+     * Queries the given VMs in chunks. If a chunk fails, its VMs are queried
+     * separately, so that one failing VM does not prevent the others from
+     * being billed.
+     */
+    private Map<String, Map<String, ArrayList<String>>> query(
+            VMwareClient vmw, ManagedObjectReference performanceManager,
+            List<ManagedObjectReference> vms,
+            List<PerfMetricId> perfMetricIds, int intervall,
+            Map<Integer, String> counterNames, Map<String, String> names)
+            throws Exception {
+        Map<String, Map<String, ArrayList<String>>> values = new HashMap<String, Map<String, ArrayList<String>>>();
+        for (int i = 0; i < vms.size(); i += MAX_VMS_PER_QUERY) {
+            List<ManagedObjectReference> chunk = vms.subList(i,
+                    Math.min(i + MAX_VMS_PER_QUERY, vms.size()));
+            try {
+                addResults(vmw.getService().queryPerf(performanceManager,
+                        createPerfQuerySpecs(chunk, perfMetricIds, intervall)),
+                        counterNames, names, values);
+            } catch (Exception e) {
+                if (chunk.size() == 1) {
+                    LOGGER.error("Failed to query metrics of VM "
+                            + names.get(chunk.get(0).getValue()), e);
+                    continue;
+                }
+                for (ManagedObjectReference vm : chunk) {
+                    try {
+                        addResults(vmw.getService().queryPerf(
+                                performanceManager,
+                                createPerfQuerySpecs(
+                                        Collections.singletonList(vm),
+                                        perfMetricIds, intervall)),
+                                counterNames, names, values);
+                    } catch (Exception single) {
+                        LOGGER.error("Failed to query metrics of VM "
+                                + names.get(vm.getValue()), single);
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    static List<PerfQuerySpec> createPerfQuerySpecs(
+            List<ManagedObjectReference> vms,
+            List<PerfMetricId> perfMetricIds, int intervall) {
+        List<PerfQuerySpec> pqsList = new ArrayList<PerfQuerySpec>();
+        for (ManagedObjectReference vm : vms) {
+            PerfQuerySpec querySpecification = new PerfQuerySpec();
+            querySpecification.setEntity(vm);
+            querySpecification.setIntervalId(Integer.valueOf(intervall));
+            querySpecification.setFormat("csv");
+            querySpecification.getMetricId().addAll(perfMetricIds);
+            pqsList.add(querySpecification);
+        }
+        return pqsList;
+    }
+
+    static PerfMetricId createMetric(int counterId) {
+        PerfMetricId metricId = new PerfMetricId();
+        metricId.setCounterId(counterId);
+        metricId.setInstance("*"); // here a wildcard is used to get every
+                                   // Instance
+        return metricId;
+    }
+
+    /**
+     * Adds the values of the aggregated instance of each counter to the
+     * values of the VM. Counters without values are left out.
+     */
+    static void addResults(List<PerfEntityMetricBase> retrievedStats,
+            Map<Integer, String> counterNames, Map<String, String> names,
+            Map<String, Map<String, ArrayList<String>>> values) {
+        if (retrievedStats == null) {
+            return;
+        }
+        for (PerfEntityMetricBase singleEntityPerfStats : retrievedStats) {
+            PerfEntityMetricCSV entityStatsCsv = (PerfEntityMetricCSV) singleEntityPerfStats;
+            String vmName = names.get(entityStatsCsv.getEntity().getValue());
+            if (vmName == null) {
+                continue;
+            }
+            for (PerfMetricSeriesCSV csv : entityStatsCsv.getValue()) {
+                String counter = counterNames
+                        .get(Integer.valueOf(csv.getId().getCounterId()));
+                if (counter == null || !csv.getId().getInstance().isEmpty()
+                        || csv.getValue() == null
+                        || csv.getValue().isEmpty()) {
+                    continue;
+                }
+                Map<String, ArrayList<String>> vmValues = values.get(vmName);
+                if (vmValues == null) {
+                    vmValues = new HashMap<String, ArrayList<String>>();
+                    values.put(vmName, vmValues);
+                }
+                ArrayList<String> counterValues = vmValues.get(counter);
+                if (counterValues == null) {
+                    counterValues = new ArrayList<String>();
+                    vmValues.put(counter, counterValues);
+                }
+                counterValues.add(csv.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns the average of the given comma separated values.
+     *
+     * @return the average or <code>null</code> if there are no values
+     * @throws NumberFormatException
+     *             if a value is not a number
+     */
+    static ArrayList<String> createAverage(ArrayList<String> values) {
+        long sum = 0;
+        int factor = 0;
+        for (int i = 0; i < values.size(); i++) {
+            String[] value = values.get(i).split(",");
+            for (int j = 0; value.length > j; j++) {
+                if (value[j].trim().isEmpty()) {
+                    continue;
+                }
+                sum = sum + Long.parseLong(value[j].trim());
+                factor++;
+            }
+        }
+        if (factor == 0) {
+            return null;
+        }
+        ArrayList<String> result = new ArrayList<String>();
+        result.add(String.valueOf(sum / factor));
+        return result;
+    }
+
+    /**
+     * The VMs and metrics of one vCenter. Access is synchronized on the
+     * object.
+     */
+    private static class VCenterMetrics {
+        final Map<String, Long> requested = new HashMap<String, Long>();
+        final Map<String, Result> results = new HashMap<String, Result>();
+        final Set<String> collecting = new HashSet<String>();
+
+        /**
+         * Stores the collected values of the given VMs. VMs not found in the
+         * vCenter are no longer collected.
+         */
+        void publish(List<String> vmNames,
+                Map<String, Map<String, ArrayList<String>>> values,
+                long collected) {
+            for (String vmName : vmNames) {
+                Map<String, ArrayList<String>> vmValues = values.get(vmName);
+                if (vmValues == null) {
+                    requested.remove(vmName);
+                    results.remove(vmName);
+                } else if (requested.containsKey(vmName)) {
+                    results.put(vmName, new Result(
+                            Collections.unmodifiableMap(vmValues), collected));
+                }
+            }
+        }
+
+        void removeIdle(long now) {
+            Iterator<Map.Entry<String, Long>> it = requested.entrySet()
+                    .iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Long> entry = it.next();
+                if (now - entry.getValue().longValue() > IDLE_TIMEOUT_MS) {
+                    results.remove(entry.getKey());
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private static class Result {
+        final Map<String, ArrayList<String>> values;
+        final long collected;
+
+        Result(Map<String, ArrayList<String>> values, long collected) {
+            this.values = values;
+            this.collected = collected;
+        }
+    }
+}
@@ -15,20 +15,13 @@ import static java.time.LocalDateTime.parse;
 import static java.time.ZoneOffset.UTC;
 import static java.time.format.DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
-import java.net.MalformedURLException;
-import java.text.ParseException;
+import java.io.IOException;
 
+import org.oscm.app.common.usage.UsageEventSink;
 import org.oscm.app.v2_0.exceptions.APPlatformException;
-import org.oscm.app.v2_0.exceptions.ConfigurationException;
+import org.oscm.app.vmware.business.Controller;
 import org.oscm.app.vmware.business.VMPropertyHandler;
-import org.oscm.intf.EventService;
-import org.oscm.types.exceptions.DuplicateEventException;
-import org.oscm.types.exceptions.ObjectNotFoundException;
-import org.oscm.types.exceptions.OrganizationAuthoritiesException;
-import org.oscm.types.exceptions.ValidationException;
 import org.oscm.vo.VOGatheredEvent;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import com.vmware.vim25.RuntimeFaultFaultMsg;
 /**
@@ -41,11 +34,9 @@ public class VMUsageConverter {
     static final String EVENT_DISK = "EVENT_DISK_GIGABYTE_USAGE";
     static final String EVENT_CPU = "EVENT_CPU_MHZ_USAGE_AVERAGE";
     static final String EVENT_RAM = "EVENT_RAM_MEGABYTE_USAGE_AVERAGE";
-    
-    private static final Logger LOGGER = LoggerFactory
-            .getLogger(VMUsageConverter.class);
 
     protected VMPropertyHandler ph;
+    UsageEventSink sink;
     
 
     public VMUsageConverter(VMPropertyHandler ph){
@@ -55,7 +46,7 @@ public class VMUsageConverter {
 
     public void registerUsageEvents(String startTime, String endTime)
             throws NumberFormatException, APPlatformException,
-            RuntimeFaultFaultMsg, ObjectNotFoundException, MalformedURLException, OrganizationAuthoritiesException, ValidationException {
+            RuntimeFaultFaultMsg, IOException {
 
             VMUsageCalculator usage = new VMUsageCalculator(ph);
             long hours = usage.calculateTimeframe(startTime, endTime);
@@ -65,9 +56,7 @@ public class VMUsageConverter {
     } 
 
     void submit(String eventId, long multiplier, String occurence)
-            throws ConfigurationException, MalformedURLException,
-            ObjectNotFoundException, OrganizationAuthoritiesException,
-            ValidationException {
+            throws IOException {
 
         if (multiplier <= 0) {
             return;
@@ -81,12 +70,10 @@ public class VMUsageConverter {
                 .toInstant(UTC).toEpochMilli());
         event.setUniqueId(eventId + "_" + occurence);
 
-        try {
-            EventService svc = ph.getWebService(EventService.class);
-            svc.recordEventForInstance(ph.getTechnicalServiceId(),
-                    ph.getInstanceId(), event);
-        } catch (DuplicateEventException e) {
-            LOGGER.debug("Event already inserted");
+        if (sink == null) {
+            sink = UsageEventSink.getInstance(Controller.ID);
         }
+        sink.submit(ph.getTPAuthentication(), ph.getTechnicalServiceId(),
+                ph.getInstanceId(), event);
     }
 }
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+package org.oscm.app.vmware.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.datatype.DatatypeFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.oscm.app.vmware.business.GuestProcessTracker.GuestProcess;
+import org.oscm.app.vmware.remote.vmware.VMwareClient;
+
+import com.vmware.vim25.GuestOperationsFaultFaultMsg;
+import com.vmware.vim25.GuestProcessInfo;
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.NamePasswordAuthentication;
+import com.vmware.vim25.VimPortType;
+
+public class GuestProcessTrackerTest {
+
+  private GuestProcessTracker tracker;
+  private VMwareClient client;
+  private VimPortType vimPort;
+  private ManagedObjectReference processManager;
+  private ManagedObjectReference vm;
+  private NamePasswordAuthentication auth;
+
+  @Before
+  public void setUp() throws Exception {
+    client = mock(VMwareClient.class);
+    vimPort = mock(VimPortType.class);
+    processManager = new ManagedObjectReference();
+    vm = new ManagedObjectReference();
+    auth = new NamePasswordAuthentication();
+    auth.setPassword("password");
+
+    ScriptExecutionObjectReferences refs = mock(ScriptExecutionObjectReferences.class);
+    doReturn(vimPort).when(refs).getVimPort();
+    doReturn(processManager).when(refs).getProcessManagerRef();
+
+    tracker = spy(new GuestProcessTracker());
+    doReturn(refs).when(tracker).getObjectReferences(client);
+  }
+
+  @Test
+  public void check_running() throws Exception {
+    // given
+    givenProcessInfo(false, null);
+    GuestProcess process = process("vc", "vm1", "fallback");
+    tracker.track(process);
+
+    // when
+    tracker.check(client, process);
+
+    // then
+    assertFalse(process.isFinished());
+    assertTrue(tracker.isRunning(GuestProcessTracker.key("vc", "vm1")));
+  }
+
+  @Test
+  public void check_finished() throws Exception {
+    // given
+    givenProcessInfo(true, Integer.valueOf(3));
+    GuestProcess process = process("vc", "vm1", "fallback");
+    tracker.track(process);
+
+    // when
+    tracker.check(client, process);
+
+    // then
+    assertFalse(tracker.isRunning(process.getKey()));
+    assertTrue(process.isFinished());
+    assertEquals(Integer.valueOf(3), process.getExitCode());
+    assertNull(process.getError());
+  }
+
+  @Test
+  public void check_notFound() throws Exception {
+    // given
+    doReturn(Collections.emptyList())
+        .when(vimPort)
+        .listProcessesInGuest(eq(processManager), eq(vm), eq(auth), any());
+    GuestProcess process = process("vc", "vm1", "fallback");
+
+    // when
+    tracker.check(client, process);
+
+    // then
+    assertTrue(process.isFinished());
+    assertNull(process.getExitCode());
+  }
+
+  @Test
+  public void check_fallbackPassword() throws Exception {
+    // given
+    doThrow(new GuestOperationsFaultFaultMsg("auth", null))
+        .when(vimPort)
+        .listProcessesInGuest(eq(processManager), eq(vm), eq(auth), any());
+    GuestProcess process = process("vc", "vm1", "fallback");
+
+    // when
+    tracker.check(client, process);
+
+    // then
+    assertEquals("fallback", auth.getPassword());
+    assertFalse(process.isFinished());
+  }
+
+  @Test
+  public void check_maxFailures() throws Exception {
+    // given
+    doThrow(new GuestOperationsFaultFaultMsg("auth", null))
+        .when(vimPort)
+        .listProcessesInGuest(eq(processManager), eq(vm), eq(auth), any());
+    GuestProcess process = process("vc", "vm1", null);
+
+    // when
+    for (int i = 0; i < GuestProcessTracker.MAX_FAILURES; i++) {
+      tracker.check(client, process);
+    }
+
+    // then
+    assertTrue(process.isFinished());
+    assertEquals("auth", process.getError());
+    assertEquals("password", auth.getPassword());
+  }
+
+  @Test
+  public void track_removesExpired() throws Exception {
+    // given
+    GuestProcess expired = process("vc", "vm1", null);
+    tracker.track(expired);
+    expired.lastAccess = System.currentTimeMillis() - GuestProcessTracker.RETENTION_MS - 1;
+
+    // when
+    tracker.track(process("vc", "vm2", null));
+
+    // then
+    assertEquals(1, tracker.size());
+    assertNull(tracker.get(GuestProcessTracker.key("vc", "vm1")));
+  }
+
+  @Test
+  public void remove() throws Exception {
+    // given
+    tracker.track(process("vc", "vm1", null));
+
+    // when
+    tracker.remove(GuestProcessTracker.key("vc", "vm1"));
+
+    // then
+    assertEquals(0, tracker.size());
+    assertFalse(tracker.isRunning(GuestProcessTracker.key("vc", "vm1")));
+  }
+
+  private GuestProcess process(String vcenter, String instanceName, String fallbackPassword) {
+    return new GuestProcess(
+        vcenter, instanceName, vm, 4711, auth, fallbackPassword, "/tmp/out", "host");
+  }
+
+  private void givenProcessInfo(boolean finished, Integer exitCode) throws Exception {
+    GuestProcessInfo info = mock(GuestProcessInfo.class);
+    if (finished) {
+      doReturn(DatatypeFactory.newInstance().newXMLGregorianCalendar())
+          .when(info)
+          .getEndTime();
+    }
+    doReturn(exitCode).when(info).getExitCode();
+    List<GuestProcessInfo> infos = Collections.singletonList(info);
+    doReturn(infos)
+        .when(vimPort)
+        .listProcessesInGuest(eq(processManager), eq(vm), eq(auth), any());
+  }
+}
@@ -12,13 +12,16 @@ package org.oscm.app.vmware.business;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Before;
@@ -39,6 +42,8 @@ import com.vmware.vim25.DynamicProperty;
 import com.vmware.vim25.HostMountInfo;
 import com.vmware.vim25.InvalidPropertyFaultMsg;
 import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectContent;
+import com.vmware.vim25.RuntimeFault;
 import com.vmware.vim25.RuntimeFaultFaultMsg;
 import com.vmware.vim25.VirtualMachineRelocateSpec;
 
@@ -248,6 +253,86 @@ public class InventoryTemplateTest {
     verify(template, times(2)).setVMToInventory(any(), any(), any());
   }
 
+  @Test
+  public void readDatacenterInventory_snapshot() throws Exception {
+    // given
+    ManagedObjectReference dcMoRef = mock(ManagedObjectReference.class);
+    ManagedObjectReference clusterMoRef = mock(ManagedObjectReference.class);
+    ManagedObjectReference host = moRef("HostSystem", "host-1");
+    ManagedObjectReference ds1 = moRef("Datastore", "ds-1");
+    ManagedObjectReference ds2 = moRef("Datastore", "ds-2");
+    ManagedObjectReference vm = moRef("VirtualMachine", "vm-1");
+
+    doReturn(dcMoRef).when(moa).getDecendentMoRef(null, "Datacenter", "dc");
+    doReturn(clusterMoRef).when(moa).getDecendentMoRef(dcMoRef, "ClusterComputeResource", "cl");
+    doReturn(
+            Arrays.asList(
+                content(
+                    host,
+                    property("name", "esx1"),
+                    property("summary.hardware.memorySize", Long.valueOf(8589934592L)),
+                    property("summary.hardware.numCpuCores", Integer.valueOf(8)),
+                    property("datastore", Arrays.asList(ds1, ds2))),
+                content(
+                    ds1,
+                    property("summary.name", "storage1"),
+                    property("summary.capacity", Long.valueOf(1000000000L)),
+                    property("summary.freeSpace", Long.valueOf(500000000L)),
+                    property("host", Arrays.asList(mount(host, "readWrite")))),
+                content(
+                    ds2,
+                    property("summary.name", "storage2"),
+                    property("summary.capacity", Long.valueOf(1000000000L)),
+                    property("summary.freeSpace", Long.valueOf(500000000L)),
+                    property("host", Arrays.asList(mount(host, "readOnly")))),
+                content(
+                    vm,
+                    property("name", "vm1"),
+                    property("summary.config.memorySizeMB", Integer.valueOf(2048)),
+                    property("summary.config.numCpu", Integer.valueOf(2)),
+                    property("runtime.host", host))))
+        .when(moa)
+        .retrieveContainerContents(eq(clusterMoRef), eq("HostSystem"), any(), any());
+
+    // when
+    VMwareDatacenterInventory inventory = template.readDatacenterInventory(vmw, "dc", "cl");
+
+    // then
+    VMwareHost esx = inventory.getHost("esx1");
+    assertEquals(1, esx.getAllocatedVMs());
+    assertEquals(2, esx.getAllocatedCPUs());
+    assertEquals(1, inventory.getStorageByHost("esx1").size());
+    assertEquals("storage1", inventory.getStorageByHost("esx1").get(0).getName());
+    verify(moa, never()).getDynamicProperty(any(ManagedObjectReference.class), anyString());
+  }
+
+  @Test
+  public void readDatacenterInventory_snapshotFailed() throws Exception {
+    // given
+    ManagedObjectReference dcMoRef = mock(ManagedObjectReference.class);
+    ManagedObjectReference clusterMoRef = mock(ManagedObjectReference.class);
+    ManagedObjectReference host1 = mock(ManagedObjectReference.class);
+    List<DynamicProperty> dps = new ArrayList<DynamicProperty>();
+
+    doReturn(dcMoRef).when(moa).getDecendentMoRef(null, "Datacenter", "");
+    doReturn(clusterMoRef).when(moa).getDecendentMoRef(dcMoRef, "ClusterComputeResource", "");
+    Mockito.doThrow(new RuntimeFaultFaultMsg("denied", new RuntimeFault()))
+        .when(moa)
+        .retrieveContainerContents(any(), anyString(), any(), any());
+    doReturn(Arrays.asList(host1)).when(moa).getDynamicProperty(clusterMoRef, "host");
+    doReturn(dps).when(template).setHostSystemPropertyToInventory(any(), any(), any());
+    doReturn("host").when(template).getHostName(dps);
+    doNothing().when(template).setStoragePropertyToInventory(any(), any(), any(), anyString());
+    doNothing().when(template).setVMToInventory(any(), any(), any());
+
+    // when
+    template.readDatacenterInventory(vmw, "", "");
+
+    // then
+    verify(template, times(1)).setStoragePropertyToInventory(any(), any(), any(), anyString());
+    verify(template, times(1)).setVMToInventory(any(), any(), any());
+  }
+
   @Test
   public void setVMToInventory() throws Exception {
     // given
@@ -360,4 +445,36 @@ public class InventoryTemplateTest {
     // then
     verify(inventory, times(1)).addHostSystem(any());
   }
+
+  private static ManagedObjectReference moRef(String type, String value) {
+    ManagedObjectReference mor = new ManagedObjectReference();
+    mor.setType(type);
+    mor.setValue(value);
+    return mor;
+  }
+
+  private static DynamicProperty property(String name, Object value) {
+    DynamicProperty dp = new DynamicProperty();
+    dp.setName(name);
+    dp.setVal(value);
+    return dp;
+  }
+
+  private static ObjectContent content(ManagedObjectReference mor, DynamicProperty... dps) {
+    ObjectContent content = new ObjectContent();
+    content.setObj(mor);
+    content.getPropSet().addAll(Arrays.asList(dps));
+    return content;
+  }
+
+  private static DatastoreHostMount mount(ManagedObjectReference host, String accessMode) {
+    HostMountInfo info = new HostMountInfo();
+    info.setAccessible(Boolean.TRUE);
+    info.setMounted(Boolean.TRUE);
+    info.setAccessMode(accessMode);
+    DatastoreHostMount mount = new DatastoreHostMount();
+    mount.setKey(host);
+    mount.setMountInfo(info);
+    return mount;
+  }
 }
@@ -14,8 +14,10 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.oscm.app.vmware.business.GuestProcessTracker.GuestProcess;
 import org.oscm.app.vmware.business.Script.OS;
 import org.oscm.app.vmware.remote.bes.ServiceParamRetrieval;
 import org.oscm.app.vmware.remote.vmware.ManagedObjectAccessor;
@@ -30,9 +32,6 @@ import org.powermock.reflect.Whitebox;
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSessionContext;
-import javax.xml.datatype.DatatypeConfigurationException;
-import javax.xml.datatype.DatatypeFactory;
-import javax.xml.datatype.XMLGregorianCalendar;
 import java.io.OutputStream;
 import java.io.StringWriter;
 import java.lang.reflect.Field;
@@ -42,6 +41,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.*;
@@ -73,7 +73,7 @@ public class ScriptTest {
   @Mock
   ManagedObjectAccessor moa;
   @Mock
-  GuestProcessInfo procInf;
+  GuestProcessTracker tracker;
   @Mock
   ScriptExecutionObjectReferences objectRef;
 
@@ -122,8 +122,6 @@ public class ScriptTest {
 
     pwList = new ArrayList<String>();
     pwList.add("newPw");
-    List<GuestProcessInfo> procInfo = new ArrayList<GuestProcessInfo>();
-    procInfo.add(procInf);
 
     doReturn(spr).when(script).createServiceParameterRetrieval(any(VMPropertyHandler.class));
     doReturn(objectRef).when(script).getScriptExecutionObjectReferences(any());
@@ -133,15 +131,7 @@ public class ScriptTest {
     doReturn(vimPort).when(objectRef).getVimPort();
     doReturn(moa).when(objectRef).getMoa();
     doReturn(new URL("https://github.com/servicecatalog/")).when(script).getVSphereURL();
-    doReturn(procInfo).when(script).getProcInfo(any(), any(), any(), any(), any());
-    when(procInf.getEndTime()).thenReturn(getDate());
-  }
-
-  private XMLGregorianCalendar getDate()
-      throws DatatypeConfigurationException {
-    XMLGregorianCalendar date = DatatypeFactory.newInstance().newXMLGregorianCalendar();
-    date.setSecond(5);
-    return date;
+    doReturn(tracker).when(script).getTracker();
   }
 
   private void mockScript() {
@@ -182,22 +172,98 @@ public class ScriptTest {
   }
 
   @Test
-  public void executeUpdateScript_withSetPwException() throws Exception {
+  public void executeUpdateScript_processTracked() throws Exception {
     // given
-    String updateScript = VMScript
-        .updateLinuxVMRootPassword("testPassword");
+    String updateScript = VMScript.updateLinuxVMRootPassword("testPassword");
     script.initScript(vph, os, updateScript);
     doNothing().when(script).uploadScriptFileToVM(any(), any(), any(), any(), any(), any());
     doReturn(pwList).when(script).addOsIndependetServiceParameters(any());
+    when(vimPort.startProgramInGuest(any(), any(), any(), any())).thenReturn(4711L);
+    // when
+    script.execute(vmw, objectReference);
+    // then
+    ArgumentCaptor<GuestProcess> captor = ArgumentCaptor.forClass(GuestProcess.class);
+    verify(tracker).track(captor.capture());
+    assertEquals(4711L, captor.getValue().getPid());
+    assertEquals(objectReference, captor.getValue().getVm());
+    assertEquals("github.com", captor.getValue().getHost());
+    verify(vph).setSetting(VMPropertyHandler.SCRIPT_PID, "4711");
+    verify(vph).setSetting(VMPropertyHandler.SCRIPT_OS, "LINUX");
+    verify(vph).setSetting(VMPropertyHandler.SCRIPT_HOST, "github.com");
+  }
+
+  @Test
+  public void getStartedProcess() throws Exception {
+    // given
+    when(vph.getServiceSetting(VMPropertyHandler.SCRIPT_PID)).thenReturn("4711");
+    when(vph.getServiceSetting(VMPropertyHandler.SCRIPT_VM)).thenReturn("vm-1");
+    when(vph.getServiceSetting(VMPropertyHandler.SCRIPT_OS)).thenReturn("WINDOWS");
+    when(vph.getServiceSetting(VMPropertyHandler.SCRIPT_HOST)).thenReturn("github.com");
+    when(vph.getServiceSetting(VMPropertyHandler.TS_TARGET_VCENTER_SERVER)).thenReturn("vc");
+    when(vph.getServiceSetting(VMPropertyHandler.TS_SCRIPT_PWD)).thenReturn("pwd");
+    when(vph.getInstanceName()).thenReturn("vm1");
+    // when
+    GuestProcess process = Script.getStartedProcess(vph);
+    // then
+    assertEquals(GuestProcessTracker.key("vc", "vm1"), process.getKey());
+    assertEquals(4711L, process.getPid());
+    assertEquals("VirtualMachine", process.getVm().getType());
+    assertEquals("vm-1", process.getVm().getValue());
+    assertEquals("pwd", process.getAuth().getPassword());
+    assertEquals("github.com", process.getHost());
+  }
+
+  @Test
+  public void getStartedProcess_notStored() throws Exception {
+    // given
+    when(vph.getServiceSetting(VMPropertyHandler.SCRIPT_PID)).thenReturn("");
+    when(vph.getServiceSetting(VMPropertyHandler.SCRIPT_VM)).thenReturn("vm-1");
+    // when
+    GuestProcess process = Script.getStartedProcess(vph);
+    // then
+    assertNull(process);
+  }
 
+  @Test
+  public void executeUpdateScript_processRunning() throws Exception {
+    // given
+    String updateScript = VMScript.updateLinuxVMRootPassword("testPassword");
+    script.initScript(vph, os, updateScript);
+    when(tracker.isRunning(anyString())).thenReturn(true);
     // when
-    when(script.getProcInfo(any(), any(), any(), any(), any()))
-        .thenThrow(new GuestOperationsFaultFaultMsg(any(), any()));
     script.execute(vmw, objectReference);
     // then
-    verify(script).execute(vmw, objectReference);
-    verify(script, times(1)).setScriptExecuting(eq(true));
-    verify(script, times(1)).setScriptExecuting(eq(false));
+    verify(script, never()).setScriptExecuting(eq(true));
+    verify(tracker, never()).track(any());
+  }
+
+  @Test
+  public void logScriptOutput() throws Exception {
+    // given
+    GuestProcess process = new GuestProcess("vc", "vm", objectReference, 1, auth, null,
+        "/tmp/out", "host");
+    process.finish(Integer.valueOf(1), null);
+    FileTransferInformation info = new FileTransferInformation();
+    info.setUrl("https://*/out");
+    when(vimPort.initiateFileTransferFromGuest(fileManagerRef, objectReference, auth, "/tmp/out"))
+        .thenReturn(info);
+    doReturn("output").when(script).downloadFile("https://host/out");
+    // when
+    script.logScriptOutput(vmw, process);
+    // then
+    verify(script).downloadFile("https://host/out");
+  }
+
+  @Test
+  public void logScriptOutput_success() throws Exception {
+    // given
+    GuestProcess process = new GuestProcess("vc", "vm", objectReference, 1, auth, null,
+        "/tmp/out", "host");
+    process.finish(Integer.valueOf(0), null);
+    // when
+    script.logScriptOutput(vmw, process);
+    // then
+    verify(vimPort, never()).initiateFileTransferFromGuest(any(), any(), any(), any());
   }
 
   @Test
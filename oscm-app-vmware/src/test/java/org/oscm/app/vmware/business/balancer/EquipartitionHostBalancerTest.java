@@ -12,6 +12,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import java.util.HashMap;
+import java.util.Random;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -172,6 +173,26 @@ public class EquipartitionHostBalancerTest {
 		assertTrue(spread[1] == 0);
 	}
 
+	@Test
+	public void testSpreadMatchesRecalculation() {
+		Random random = new Random(7);
+		for (int n = 1; n <= 50; n++) {
+			double[] values = new double[n];
+			double[] norm = new double[n];
+			for (int i = 0; i < n; i++) {
+				norm[i] = random.nextInt(5) - 1;
+				values[i] = random.nextInt(1000);
+			}
+			double addition = random.nextInt(100);
+
+			double[] spread = EquipartitionHostBalancer.calculateSpread(values, addition, norm);
+			double[] expected = EquipartitionSpreadBenchmark.calculateSpreadRecalculated(values, addition, norm);
+			for (int i = 0; i < n; i++) {
+				assertEquals(expected[i], spread[i], 0.000000001);
+			}
+		}
+	}
+
 	@Test(expected = RuntimeException.class)
 	public void testAssess_wrongLength() {
 		double[] values1 = { 1, 3 };
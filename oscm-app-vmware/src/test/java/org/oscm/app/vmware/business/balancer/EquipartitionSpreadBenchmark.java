@@ -0,0 +1,112 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.vmware.business.balancer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the spread calculation of {@link EquipartitionHostBalancer} with
+ * the former implementation, which recalculated the spread over all hosts for
+ * every candidate host. Run the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EquipartitionSpreadBenchmark {
+
+    @Param({ "10", "100", "500", "2000" })
+    int hosts;
+
+    double[] values;
+    double[] normalizer;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        values = new double[hosts];
+        normalizer = new double[hosts];
+        for (int i = 0; i < hosts; i++) {
+            normalizer[i] = 65536 + random.nextInt(4) * 65536;
+            values[i] = random.nextDouble() * normalizer[i];
+        }
+    }
+
+    @Benchmark
+    public double[] incremental() {
+        return EquipartitionHostBalancer.calculateSpread(values, 4096,
+                normalizer);
+    }
+
+    @Benchmark
+    public double[] recalculated() {
+        return calculateSpreadRecalculated(values, 4096, normalizer);
+    }
+
+    /**
+     * The former implementation, kept as reference.
+     */
+    static double[] calculateSpreadRecalculated(double[] values,
+            double addition, double[] normalizer) {
+        double[] result = new double[values.length];
+        double[] calcBase = new double[values.length];
+        if (values.length > 0) {
+            for (int i = 0; i < values.length; i++) {
+                double factor = normalizer.length >= i + 1 ? normalizer[i] : 1;
+                calcBase[i] = values[i] / (factor > 0 ? factor : 1);
+            }
+            for (int i = 0; i < calcBase.length; i++) {
+                double factor = normalizer.length >= i + 1 ? normalizer[i] : 1;
+                double normalizedAddition = addition
+                        / (factor > 0 ? factor : 1);
+                calcBase[i] += normalizedAddition;
+                result[i] = spread(calcBase);
+                calcBase[i] -= normalizedAddition;
+            }
+        }
+        return result;
+    }
+
+    private static double spread(double[] values) {
+        double sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[i];
+        }
+        double avg = sum / values.length;
+        double deviations = 0;
+        for (int i = 0; i < values.length; i++) {
+            deviations += (avg - values[i]) * (avg - values[i]);
+        }
+        return Math.sqrt(deviations / values.length) / (avg != 0 ? avg : 1);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EquipartitionSpreadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -15,6 +15,7 @@ import org.oscm.app.v2_0.intf.APPlatformService;
 import org.oscm.app.vmware.business.VM;
 import org.oscm.app.vmware.business.VMPropertyHandler;
 import org.oscm.app.vmware.remote.vmware.ServiceConnection;
+import org.oscm.app.vmware.remote.vmware.TaskWatcher;
 import org.oscm.app.vmware.remote.vmware.VMClientPool;
 import org.oscm.app.vmware.remote.vmware.VMwareClient;
 import org.powermock.api.mockito.PowerMockito;
@@ -29,6 +30,8 @@ import java.util.List;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.when;
 
 @RunWith(PowerMockRunner.class)
@@ -357,4 +360,27 @@ public class ActionsTest {
     // then
     assertEquals("error", result);
   }
+
+  @Test
+  public void testInspectTaskResultWatchedTask() throws Exception {
+    // given
+    TaskWatcher taskWatcher = mock(TaskWatcher.class);
+    TaskInfo task = new TaskInfo();
+    task.setKey("Task key");
+    task.setState(TaskInfoState.RUNNING);
+
+    PowerMockito.whenNew(VMPropertyHandler.class).withAnyArguments().thenReturn(propertyHandler);
+    PowerMockito.when(VMClientPool.getInstance()).thenReturn(clientPool);
+    when(clientPool.getPool()).thenReturn(objectPool);
+    when(objectPool.borrowObject(anyString())).thenReturn(vmClient);
+    when(propertyHandler.getServiceSetting(anyString())).thenReturn("Task key");
+    when(vmClient.getConnection()).thenReturn(serviceConnection);
+    when(serviceConnection.getTaskWatcher()).thenReturn(taskWatcher);
+    when(taskWatcher.getTaskInfo("Task key")).thenReturn(task);
+    // when
+    String result = actions.inspectTaskResult("Instance ID", ps, instanceStatus);
+    // then
+    assertEquals("running", result);
+    verify(portType, never()).createCollectorForTasks(any(), any());
+  }
 }
@@ -13,6 +13,8 @@ import org.oscm.app.v2_0.data.Setting;
 import org.oscm.app.v2_0.exceptions.APPlatformException;
 import org.oscm.app.v2_0.exceptions.ConfigurationException;
 import org.oscm.app.v2_0.intf.APPlatformService;
+import org.oscm.app.vmware.business.GuestProcessTracker;
+import org.oscm.app.vmware.business.GuestProcessTracker.GuestProcess;
 import org.oscm.app.vmware.business.VM;
 import org.oscm.app.vmware.business.VMPropertyHandler;
 import org.oscm.app.vmware.i18n.Messages;
@@ -45,6 +47,7 @@ public class CreateActionsTest {
   private InstanceStatus instanceStatus;
   private VMPropertyHandler propertyHandler;
   private VM vm;
+  private GuestProcessTracker tracker;
   private VMwareClient vmClient;
   private VMClientPool clientPool;
   private APPlatformService platformService;
@@ -92,6 +95,7 @@ public class CreateActionsTest {
     instanceStatus = mock(InstanceStatus.class);
     propertyHandler = mock(VMPropertyHandler.class);
     vm = mock(VM.class);
+    tracker = mock(GuestProcessTracker.class);
     vmClient = mock(VMwareClient.class);
     clientPool = mock(VMClientPool.class);
     platformService = mock(APPlatformService.class);
@@ -231,6 +235,22 @@ public class CreateActionsTest {
     verify(vm, times(1)).runScript(propertyHandler);
   }
 
+  @Test
+  public void testExecuteScriptReturnExecuting() throws Exception {
+    // given
+    PowerMockito.whenNew(VMPropertyHandler.class).withAnyArguments().thenReturn(propertyHandler);
+    PowerMockito.when(VMClientPool.getInstance()).thenReturn(clientPool);
+    when(clientPool.getPool()).thenReturn(objectPool);
+    when(objectPool.borrowObject(anyString())).thenReturn(vmClient);
+    when(propertyHandler.getServiceSetting(anyString())).thenReturn("test");
+    PowerMockito.whenNew(VM.class).withAnyArguments().thenReturn(vm);
+    when(vm.isScriptExecuting(propertyHandler)).thenReturn(true);
+    // when
+    String result = createActions.executeScript("Instance ID", ps, instanceStatus);
+    // then
+    assertEquals("executing", result);
+  }
+
   @Test
   public void testExecuteScriptReturnFailed() throws Exception {
     // given
@@ -274,6 +294,110 @@ public class CreateActionsTest {
     assertEquals("failed", result);
   }
 
+  @Test
+  public void testInspectScriptResultExecuting() throws Exception {
+    // given
+    GuestProcess process = givenTrackedProcess();
+    when(objectPool.borrowObject(anyString())).thenReturn(vmClient);
+    // when
+    String result = createActions.inspectScriptResult("Instance ID", ps, instanceStatus);
+    // then
+    assertEquals("executing", result);
+    verify(tracker).check(vmClient, process);
+    verify(objectPool).returnObject("vcenter", vmClient);
+    verify(tracker, never()).remove(anyString());
+    verify(process, never()).getExitCode();
+  }
+
+  @Test
+  public void testInspectScriptResultFinishedOnCheck() throws Exception {
+    // given
+    GuestProcess process = givenTrackedProcess();
+    when(process.isFinished()).thenReturn(false, true);
+    when(process.getExitCode()).thenReturn(Integer.valueOf(0));
+    when(objectPool.borrowObject(anyString())).thenReturn(vmClient);
+    // when
+    String result = createActions.inspectScriptResult("Instance ID", ps, instanceStatus);
+    // then
+    assertEquals("success", result);
+    verify(tracker).check(vmClient, process);
+    verify(tracker).remove("vcenter/instance");
+    verify(objectPool).returnObject("vcenter", vmClient);
+  }
+
+  @Test
+  public void testInspectScriptResultSuccess() throws Exception {
+    // given
+    GuestProcess process = givenTrackedProcess();
+    when(process.isFinished()).thenReturn(true);
+    when(process.getExitCode()).thenReturn(Integer.valueOf(0));
+    // when
+    String result = createActions.inspectScriptResult("Instance ID", ps, instanceStatus);
+    // then
+    assertEquals("success", result);
+    verify(tracker).remove("vcenter/instance");
+    verify(propertyHandler).setSetting(VMPropertyHandler.SCRIPT_PID, "");
+    verify(objectPool, never()).borrowObject(anyString());
+  }
+
+  @Test
+  public void testInspectScriptResultNotTracked() throws Exception {
+    // given
+    givenTrackedProcess();
+    when(tracker.get(anyString())).thenReturn(null);
+    doReturn(null).when(createActions).getStartedProcess(propertyHandler);
+    PowerMockito.when(Messages.get(anyString(), anyString(), any())).thenReturn("Script failed");
+    // when
+    String result = createActions.inspectScriptResult("Instance ID", ps, instanceStatus);
+    // then
+    assertEquals("failed", result);
+    verify(tracker, never()).track(any(GuestProcess.class));
+  }
+
+  @Test
+  public void testInspectScriptResultRestored() throws Exception {
+    // given
+    GuestProcess process = givenTrackedProcess();
+    when(tracker.get(anyString())).thenReturn(null);
+    doReturn(process).when(createActions).getStartedProcess(propertyHandler);
+    when(process.isFinished()).thenReturn(true);
+    when(process.getExitCode()).thenReturn(Integer.valueOf(0));
+    // when
+    String result = createActions.inspectScriptResult("Instance ID", ps, instanceStatus);
+    // then
+    assertEquals("success", result);
+    verify(tracker).track(process);
+    verify(tracker).remove("vcenter/instance");
+  }
+
+  @Test
+  public void testInspectScriptResultFailed() throws Exception {
+    // given
+    GuestProcess process = givenTrackedProcess();
+    when(process.isFinished()).thenReturn(true);
+    when(process.getError()).thenReturn("guest not reachable");
+    PowerMockito.when(Messages.get(anyString(), anyString(), any())).thenReturn("Script executing not completed");
+    // when
+    String result = createActions.inspectScriptResult("Instance ID", ps, instanceStatus);
+    // then
+    assertEquals("failed", result);
+    verify(tracker).remove("vcenter/instance");
+  }
+
+  private GuestProcess givenTrackedProcess() throws Exception {
+    GuestProcess process = mock(GuestProcess.class);
+    PowerMockito.whenNew(VMPropertyHandler.class).withAnyArguments().thenReturn(propertyHandler);
+    when(propertyHandler.getServiceSetting(VMPropertyHandler.TS_TARGET_VCENTER_SERVER))
+        .thenReturn("vcenter");
+    when(propertyHandler.getInstanceName()).thenReturn("instance");
+    when(propertyHandler.getLocale()).thenReturn("en");
+    PowerMockito.when(VMClientPool.getInstance()).thenReturn(clientPool);
+    when(clientPool.getPool()).thenReturn(objectPool);
+    doReturn(tracker).when(createActions).getGuestProcessTracker();
+    when(tracker.get("vcenter/instance")).thenReturn(process);
+    return process;
+  }
+
   @Test
   public void testSuspendAfterCreationReturnSuccess() throws Exception {
     // given
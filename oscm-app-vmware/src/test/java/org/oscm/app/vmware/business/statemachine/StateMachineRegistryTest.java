@@ -0,0 +1,148 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+package org.oscm.app.vmware.business.statemachine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.oscm.app.vmware.business.statemachine.api.StateMachineException;
+
+public class StateMachineRegistryTest {
+
+  private static final String DEFINITION =
+      "<states class=\"org.oscm.app.vmware.business.statemachine.CreateActions\">"
+          + "<state id=\"BEGIN\" action=\"importVM\">"
+          + "<event id=\"skipped\" state=\"CREATE_VM\"/>"
+          + "<event id=\"failed\" state=\"ERROR\"/>"
+          + "</state>"
+          + "<state id=\"CREATE_VM\" action=\"createVM\">"
+          + "<event id=\"success\" state=\"END\"/>"
+          + "</state>"
+          + "</states>";
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private File file;
+  private StateMachineRegistry registry;
+
+  @Before
+  public void setUp() throws Exception {
+    file = folder.newFile("test_vm.xml");
+    write(DEFINITION, 1000000L);
+    registry =
+        new StateMachineRegistry() {
+          @Override
+          URL getResource(String filename) {
+            try {
+              File f = new File(folder.getRoot(), filename);
+              return f.exists() ? f.toURI().toURL() : null;
+            } catch (MalformedURLException e) {
+              throw new IllegalStateException(e);
+            }
+          }
+        };
+  }
+
+  @Test
+  public void getDefinition() throws Exception {
+    // when
+    StateMachineDefinition definition = registry.getDefinition("test_vm.xml");
+
+    // then
+    State begin = definition.getState("BEGIN");
+    assertEquals("importVM", begin.getAction());
+    assertEquals("CREATE_VM", definition.getNextState(begin, "skipped"));
+    assertEquals("ERROR", definition.getNextState(begin, "failed"));
+    assertNull(definition.getNextState(begin, "unknown"));
+    assertNull(definition.getState("END"));
+    assertEquals(
+        "org.oscm.app.vmware.business.statemachine.CreateActions",
+        definition.getStates().getActionClass());
+  }
+
+  @Test
+  public void getDefinition_cached() throws Exception {
+    // given
+    StateMachineDefinition definition = registry.getDefinition("test_vm.xml");
+    registry.reloadCheckIntervalMs = 0;
+
+    // when
+    StateMachineDefinition result = registry.getDefinition("test_vm.xml");
+
+    // then
+    assertSame(definition, result);
+  }
+
+  @Test
+  public void getDefinition_changed() throws Exception {
+    // given
+    StateMachineDefinition definition = registry.getDefinition("test_vm.xml");
+    registry.reloadCheckIntervalMs = 0;
+    write(DEFINITION.replace("ERROR", "FAILED"), 2000000L);
+
+    // when
+    StateMachineDefinition result = registry.getDefinition("test_vm.xml");
+
+    // then
+    assertNotSame(definition, result);
+    assertEquals("FAILED", result.getNextState(result.getState("BEGIN"), "failed"));
+  }
+
+  @Test
+  public void getDefinition_changedWithinCheckInterval() throws Exception {
+    // given
+    StateMachineDefinition definition = registry.getDefinition("test_vm.xml");
+    write(DEFINITION.replace("ERROR", "FAILED"), 2000000L);
+
+    // when
+    StateMachineDefinition result = registry.getDefinition("test_vm.xml");
+
+    // then
+    assertSame(definition, result);
+  }
+
+  @Test
+  public void clear() throws Exception {
+    // given
+    StateMachineDefinition definition = registry.getDefinition("test_vm.xml");
+
+    // when
+    registry.clear();
+
+    // then
+    assertNotSame(definition, registry.getDefinition("test_vm.xml"));
+  }
+
+  @Test(expected = StateMachineException.class)
+  public void getDefinition_missing() throws Exception {
+    registry.getDefinition("missing.xml");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void getDefinition_immutable() throws Exception {
+    registry.getDefinition("test_vm.xml").getStates().getStates().clear();
+  }
+
+  private void write(String content, long lastModified) throws IOException {
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    file.setLastModified(lastModified);
+  }
+}
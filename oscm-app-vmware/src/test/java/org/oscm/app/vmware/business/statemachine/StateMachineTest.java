@@ -27,9 +27,6 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.powermock.reflect.Whitebox;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.Unmarshaller;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -43,20 +40,16 @@ import static org.powermock.api.mockito.PowerMockito.when;
 
 @RunWith(PowerMockRunner.class)
 @PowerMockIgnore({"javax.management.*", "javax.script.*", "jdk.internal.reflect.*"})
-@PrepareForTest({StateMachine.class, Thread.class, States.class, JAXBContext.class, APPlatformServiceFactory.class})
+@PrepareForTest({StateMachine.class, States.class, APPlatformServiceFactory.class})
 public class StateMachineTest {
 
   private StateMachine stateMachine;
-  private Thread thread;
-  private ClassLoader loader;
+  private StateMachineRegistry registry;
   private State mockState;
   private States states;
-  private JAXBContext jaxbContext;
-  private Unmarshaller unmarshaller;
   private VMPropertyHandler propertyHandler;
   private PasswordAuthentication passwordAuthentication;
   private APPlatformService apPlatformService;
-  private InputStream inputStream;
 
   static ProvisioningSettings ps;
   static HashMap<String, Setting> parameters;
@@ -86,27 +79,20 @@ public class StateMachineTest {
 
   @Before
   public void setUp() throws Exception {
-    PowerMockito.mockStatic(Thread.class);
-    PowerMockito.mockStatic(JAXBContext.class);
     PowerMockito.mockStatic(APPlatformServiceFactory.class);
-    thread = mock(Thread.class);
-    loader = mock(ClassLoader.class);
+    registry = mock(StateMachineRegistry.class);
     states = mock(States.class);
     mockState = mock(State.class);
-    jaxbContext = mock(JAXBContext.class);
-    unmarshaller = mock(Unmarshaller.class);
     propertyHandler = mock(VMPropertyHandler.class);
     passwordAuthentication = mock(PasswordAuthentication.class);
     apPlatformService = mock(APPlatformService.class);
-    inputStream = mock(InputStream.class);
 
-    when(Thread.currentThread()).thenReturn(thread);
-    when(thread.getContextClassLoader()).thenReturn(loader);
-    when(loader.getResourceAsStream(anyString())).thenReturn(inputStream);
-    when(JAXBContext.newInstance(States.class)).thenReturn(jaxbContext);
-    when(jaxbContext.createUnmarshaller()).thenReturn(unmarshaller);
-    when(unmarshaller.unmarshal(inputStream)).thenReturn(states);
-    stateMachine = PowerMockito.spy(new StateMachine(ps));
+    createStateMachine();
+  }
+
+  private void createStateMachine() throws Exception {
+    when(registry.getDefinition("CREATE_VM")).thenReturn(new StateMachineDefinition(states));
+    stateMachine = PowerMockito.spy(new StateMachine(ps, registry));
   }
 
   @Test
@@ -139,6 +125,7 @@ public class StateMachineTest {
     state.setEvents(listEvents);
     listStates.add(state);
     when(states.getStates()).thenReturn(listStates);
+    createStateMachine();
     when(states.invokeAction(any(), anyString(), any(), any())).thenReturn("Begin");
     PowerMockito.whenNew(VMPropertyHandler.class).withAnyArguments().thenReturn(propertyHandler);
     when(propertyHandler.getServiceSetting(anyString())).thenReturn("suspended");
@@ -169,6 +156,7 @@ public class StateMachineTest {
     state.setEvents(listEvents);
     listStates.add(state);
     when(states.getStates()).thenReturn(listStates);
+    createStateMachine();
     when(states.invokeAction(any(), anyString(), any(), any())).thenReturn("Creating");
     PowerMockito.whenNew(VMPropertyHandler.class).withAnyArguments().thenReturn(propertyHandler);
     // when
@@ -198,6 +186,7 @@ public class StateMachineTest {
     state.setEvents(listEvents);
     listStates.add(state);
     when(states.getStates()).thenReturn(listStates);
+    createStateMachine();
     when(states.invokeAction(any(), anyString(), any(), any())).thenReturn("Begin");
     PowerMockito.whenNew(VMPropertyHandler.class).withAnyArguments().thenReturn(propertyHandler);
     when(propertyHandler.getServiceSetting(anyString())).thenReturn("500");
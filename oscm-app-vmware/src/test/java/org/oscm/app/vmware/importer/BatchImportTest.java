@@ -0,0 +1,170 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.vmware.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.oscm.app.vmware.persistence.DataAccessService;
+
+public class BatchImportTest {
+
+  private DataAccessService das;
+  private Connection connection;
+  private PreparedStatement insert;
+  private PreparedStatement select;
+  private ResultSet resultSet;
+
+  @Before
+  public void setup() throws Exception {
+    das = mock(DataAccessService.class);
+    DataSource dataSource = mock(DataSource.class);
+    connection = mock(Connection.class);
+    insert = mock(PreparedStatement.class);
+    select = mock(PreparedStatement.class);
+    resultSet = mock(ResultSet.class);
+
+    when(das.getDatasource()).thenReturn(dataSource);
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.getAutoCommit()).thenReturn(Boolean.TRUE);
+    when(connection.prepareStatement("insert")).thenReturn(insert);
+    when(connection.prepareStatement("select")).thenReturn(select);
+    when(select.executeQuery()).thenReturn(resultSet);
+  }
+
+  @Test
+  public void addBatch() throws Exception {
+    // given
+    try (BatchImport batch = new BatchImport(das, "table", "insert")) {
+
+      // when
+      for (int i = 0; i <= BatchImport.BATCH_SIZE; i++) {
+        batch.addBatch();
+      }
+
+      // then
+      verify(insert, times(1)).executeBatch();
+      assertEquals(BatchImport.BATCH_SIZE + 1, batch.getRows());
+    }
+  }
+
+  @Test
+  public void commit() throws Exception {
+    // given
+    try (BatchImport batch = new BatchImport(das, "table", "insert")) {
+      batch.addBatch();
+
+      // when
+      batch.commit();
+    }
+
+    // then
+    verify(connection).setAutoCommit(false);
+    verify(insert, times(1)).executeBatch();
+    verify(connection).commit();
+    verify(connection, never()).rollback();
+    verify(connection).setAutoCommit(true);
+    verify(connection).close();
+  }
+
+  @Test
+  public void close_withoutCommit() throws Exception {
+    // given
+    BatchImport batch = new BatchImport(das, "table", "insert");
+    batch.addBatch();
+
+    // when
+    batch.close();
+
+    // then
+    verify(insert, never()).executeBatch();
+    verify(connection, never()).commit();
+    verify(connection).rollback();
+    verify(connection).setAutoCommit(true);
+    verify(connection).close();
+  }
+
+  @Test
+  public void constructor_prepareFailed() throws Exception {
+    // given
+    when(connection.prepareStatement(anyString())).thenThrow(new SQLException());
+
+    // when
+    try {
+      new BatchImport(das, "table", "insert");
+    } catch (SQLException e) {
+      // expected
+    }
+
+    // then
+    verify(connection).close();
+  }
+
+  @Test
+  public void lookupKey() throws Exception {
+    // given
+    when(resultSet.next()).thenReturn(Boolean.TRUE);
+    when(resultSet.getInt(1)).thenReturn(7);
+    try (BatchImport batch = new BatchImport(das, "table", "insert")) {
+
+      // when
+      Integer first = batch.lookupKey("select", "a", "b");
+      Integer second = batch.lookupKey("select", "a", "b");
+
+      // then
+      assertEquals(Integer.valueOf(7), first);
+      assertEquals(Integer.valueOf(7), second);
+      verify(select, times(1)).executeQuery();
+      verify(select).setString(1, "a");
+      verify(select).setString(2, "b");
+    }
+  }
+
+  @Test
+  public void lookupKey_otherParameters() throws Exception {
+    // given
+    when(resultSet.next()).thenReturn(Boolean.TRUE);
+    try (BatchImport batch = new BatchImport(das, "table", "insert")) {
+
+      // when
+      batch.lookupKey("select", "a", "b");
+      batch.lookupKey("select", "a", "c");
+
+      // then
+      verify(select, times(2)).executeQuery();
+    }
+  }
+
+  @Test
+  public void lookupKey_notFound() throws Exception {
+    // given
+    when(resultSet.next()).thenReturn(Boolean.FALSE);
+    try (BatchImport batch = new BatchImport(das, "table", "insert")) {
+
+      // when
+      Integer key = batch.lookupKey("select", "a");
+
+      // then
+      assertNull(key);
+    }
+  }
+}
@@ -29,7 +29,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 import static org.powermock.api.mockito.PowerMockito.when;
 
@@ -67,47 +69,41 @@ public class IPPoolImporterTest {
   @Test
   public void testSaveExecute() throws Exception {
     // given
-    ipPool = new IPPool();
-    ipPool.vCenter = "vCenter";
-    ipPool.datacenter = "datacenter";
-    ipPool.cluster = "cluster";
-    ipPool.vlan = "vlan";
-    ipPool.ipAddress = "ipAddress";
+    ipPool = createIPPool();
     when(resultSet.next()).thenReturn(true);
     PowerMockito.mockStatic(XMLHelper.class);
+    BatchImport batch = new BatchImport(das, "ippool", "query");
     // when
-    Whitebox.invokeMethod(ipPoolImporter, "save", ipPool);
+    Whitebox.invokeMethod(ipPoolImporter, "save", batch, ipPool);
     // then
     verify(preparedStatement, times(1)).setString(1, "vlan");
     verify(preparedStatement, times(1)).setString(2, "cluster");
-    verify(preparedStatement, times(1)).execute();
+    verify(preparedStatement, times(1)).addBatch();
   }
 
   @Test
   public void testGetVLANTKey() throws Exception {
     // given
     when(resultSet.next()).thenReturn(true);
+    BatchImport batch = new BatchImport(das, "ippool", "query");
     // when
-    int result = Whitebox.invokeMethod(ipPoolImporter, "getVLANTKey", "", "", "", "");
+    int result = Whitebox.invokeMethod(ipPoolImporter, "getVLANTKey", batch, "", "", "", "");
     // then
     assertEquals(0, result);
   }
 
   @Test(expected = Exception.class)
   public void testGetVLANTKeyThrowException() throws Exception {
+    // given
+    BatchImport batch = new BatchImport(das, "ippool", "query");
     // when
-    Whitebox.invokeMethod(ipPoolImporter, "getVLANTKey", "", "", "", "");
+    Whitebox.invokeMethod(ipPoolImporter, "getVLANTKey", batch, "", "", "", "");
   }
 
   @Test
   public void testLoad() throws Exception {
     // given
-    ipPool = new IPPool();
-    ipPool.vCenter = "vCenter";
-    ipPool.datacenter = "datacenter";
-    ipPool.cluster = "cluster";
-    ipPool.vlan = "vlan";
-    ipPool.ipAddress = "ipAddress";
+    ipPool = createIPPool();
     PowerMockito.whenNew(IPPoolParser.class).withAnyArguments().thenReturn(ipPoolParser);
     when(ipPoolParser.readNextObject()).thenReturn(ipPool, null);
     when(resultSet.next()).thenReturn(true);
@@ -115,8 +111,61 @@ public class IPPoolImporterTest {
     // when
     ipPoolImporter.load(any());
     // then
-    PowerMockito.verifyPrivate(ipPoolImporter, times(1)).invoke("save", ipPool);
+    PowerMockito.verifyPrivate(ipPoolImporter, times(1)).invoke("save", any(), eq(ipPool));
     verify(preparedStatement, times(1)).setString(1, "vlan");
     verify(preparedStatement, times(1)).setString(2, "cluster");
+    verify(preparedStatement, times(1)).executeBatch();
+    verify(connection, times(1)).commit();
+    verify(connection, times(1)).close();
+    verify(das, times(1)).getDatasource();
+  }
+
+  @Test
+  public void testLoadVLANKeyLookedUpOnce() throws Exception {
+    // given
+    ipPool = createIPPool();
+    IPPool other = createIPPool();
+    other.ipAddress = "otherAddress";
+    PowerMockito.whenNew(IPPoolParser.class).withAnyArguments().thenReturn(ipPoolParser);
+    when(ipPoolParser.readNextObject()).thenReturn(ipPool, other, null);
+    when(resultSet.next()).thenReturn(true);
+    // when
+    ipPoolImporter.load(any());
+    // then
+    verify(preparedStatement, times(1)).executeQuery();
+    verify(preparedStatement, times(1)).setString(1, "ipAddress");
+    verify(preparedStatement, times(1)).setString(1, "otherAddress");
+    verify(preparedStatement, times(2)).addBatch();
+  }
+
+  @Test
+  public void testLoadVLANNotFound() throws Exception {
+    // given
+    ipPool = createIPPool();
+    PowerMockito.whenNew(IPPoolParser.class).withAnyArguments().thenReturn(ipPoolParser);
+    when(ipPoolParser.readNextObject()).thenReturn(ipPool, null);
+    when(resultSet.next()).thenReturn(false);
+    // when
+    try {
+      ipPoolImporter.load(any());
+      fail();
+    } catch (Exception e) {
+      // then
+      assertEquals("VLAN vlan not found", e.getMessage());
+    }
+    verify(connection, never()).commit();
+    verify(connection, times(1)).rollback();
+    verify(connection, times(1)).close();
+    verify(das, times(1)).invalidateTopology();
+  }
+
+  private static IPPool createIPPool() {
+    IPPool ipPool = new IPPool();
+    ipPool.vCenter = "vCenter";
+    ipPool.datacenter = "datacenter";
+    ipPool.cluster = "cluster";
+    ipPool.vlan = "vlan";
+    ipPool.ipAddress = "ipAddress";
+    return ipPool;
   }
 }
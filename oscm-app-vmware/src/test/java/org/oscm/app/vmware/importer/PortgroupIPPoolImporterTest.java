@@ -76,28 +76,35 @@ public class PortgroupIPPoolImporterTest {
     portgroupIPPool.portgroup = "portgroup";
     when(resultSet.next()).thenReturn(true);
     PowerMockito.mockStatic(XMLHelper.class);
+    BatchImport batch = new BatchImport(das, "portgroup_ippool", "query");
     // when
-    Whitebox.invokeMethod(portgroupIPPoolImporter, "save", portgroupIPPool);
+    Whitebox.invokeMethod(portgroupIPPoolImporter, "save", batch, portgroupIPPool);
     // then
     verify(preparedStatement, times(1)).setString(1, "portgroup");
     verify(preparedStatement, times(1)).setString(2, "distributedVirtualSwitch");
-    verify(preparedStatement, times(1)).execute();
+    verify(preparedStatement, times(1)).addBatch();
   }
 
   @Test
   public void testGetPortgroupTKey() throws Exception {
     // given
     when(resultSet.next()).thenReturn(true);
+    BatchImport batch = new BatchImport(das, "portgroup_ippool", "query");
     // when
-    int result = Whitebox.invokeMethod(portgroupIPPoolImporter, "getPortgroupTKey", "", "", "", "", "");
+    int result =
+        Whitebox.invokeMethod(
+            portgroupIPPoolImporter, "getPortgroupTKey", batch, "", "", "", "", "");
     // then
     assertEquals(0, result);
   }
 
   @Test(expected = Exception.class)
   public void testGetPortgroupTKeyThrowException() throws Exception {
+    // given
+    BatchImport batch = new BatchImport(das, "portgroup_ippool", "query");
     // when
-    Whitebox.invokeMethod(portgroupIPPoolImporter, "getPortgroupTKey", "", "", "", "", "");
+    Whitebox.invokeMethod(
+        portgroupIPPoolImporter, "getPortgroupTKey", batch, "", "", "", "", "");
   }
 
   @Test
@@ -110,8 +117,13 @@ public class PortgroupIPPoolImporterTest {
     // when
     portgroupIPPoolImporter.load(csvFile);
     // then
-    PowerMockito.verifyPrivate(portgroupIPPoolImporter, times(5)).invoke("save", any());
-    verify(preparedStatement, times(5)).setString(1, "DBPortGroup");
-    verify(preparedStatement, times(5)).setString(2, "DSwitch 1");
+    PowerMockito.verifyPrivate(portgroupIPPoolImporter, times(5)).invoke("save", any(), any());
+    verify(preparedStatement, times(1)).setString(1, "DBPortGroup");
+    verify(preparedStatement, times(1)).setString(2, "DSwitch 1");
+    verify(preparedStatement, times(1)).executeQuery();
+    verify(preparedStatement, times(5)).addBatch();
+    verify(preparedStatement, times(1)).executeBatch();
+    verify(connection, times(1)).commit();
+    verify(connection, times(1)).close();
   }
 }
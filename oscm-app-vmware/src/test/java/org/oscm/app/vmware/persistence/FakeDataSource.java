@@ -0,0 +1,152 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright FUJITSU LIMITED 2018
+ *
+ * <p>Creation Date: 17.10.2026
+ *
+ * <p>*****************************************************************************
+ */
+package org.oscm.app.vmware.persistence;
+
+import static org.mockito.Mockito.mock;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Data source for tests that passes each executed query with its parameters to a handler and
+ * returns the rows of the handler as result set.
+ */
+class FakeDataSource {
+
+  interface QueryHandler {
+    List<Map<String, Object>> execute(String sql, Map<Integer, Object> params);
+  }
+
+  private final AtomicInteger queries = new AtomicInteger();
+
+  private final DataSource ds;
+
+  FakeDataSource(QueryHandler handler) {
+    ds = mock(DataSource.class, new DataSourceAnswer(handler, queries));
+  }
+
+  DataSource getDataSource() {
+    return ds;
+  }
+
+  /** Returns the number of queries executed so far. */
+  int getQueries() {
+    return queries.get();
+  }
+
+  static Map<String, Object> row(Object... columnsAndValues) {
+    Map<String, Object> row = new HashMap<>();
+    for (int i = 0; i < columnsAndValues.length; i += 2) {
+      row.put((String) columnsAndValues[i], columnsAndValues[i + 1]);
+    }
+    return row;
+  }
+
+  private static class DataSourceAnswer implements Answer<Object> {
+    private final QueryHandler handler;
+    private final AtomicInteger queries;
+
+    DataSourceAnswer(QueryHandler handler, AtomicInteger queries) {
+      this.handler = handler;
+      this.queries = queries;
+    }
+
+    @Override
+    public Object answer(InvocationOnMock invocation) throws Throwable {
+      if ("getConnection".equals(invocation.getMethod().getName())) {
+        return mock(Connection.class, new ConnectionAnswer(handler, queries));
+      }
+      return null;
+    }
+  }
+
+  private static class ConnectionAnswer implements Answer<Object> {
+    private final QueryHandler handler;
+    private final AtomicInteger queries;
+
+    ConnectionAnswer(QueryHandler handler, AtomicInteger queries) {
+      this.handler = handler;
+      this.queries = queries;
+    }
+
+    @Override
+    public Object answer(InvocationOnMock invocation) throws Throwable {
+      if ("prepareStatement".equals(invocation.getMethod().getName())) {
+        return mock(
+            PreparedStatement.class,
+            new StatementAnswer(handler, queries, (String) invocation.getArguments()[0]));
+      }
+      return null;
+    }
+  }
+
+  private static class StatementAnswer implements Answer<Object> {
+    private final QueryHandler handler;
+    private final AtomicInteger queries;
+    private final String sql;
+    private final Map<Integer, Object> params = new HashMap<>();
+
+    StatementAnswer(QueryHandler handler, AtomicInteger queries, String sql) {
+      this.handler = handler;
+      this.queries = queries;
+      this.sql = sql;
+    }
+
+    @Override
+    public Object answer(InvocationOnMock invocation) throws Throwable {
+      String method = invocation.getMethod().getName();
+      Object[] args = invocation.getArguments();
+      if (method.startsWith("set")) {
+        params.put((Integer) args[0], args[1]);
+      } else if ("executeQuery".equals(method)) {
+        queries.incrementAndGet();
+        return mock(ResultSet.class, new ResultSetAnswer(handler.execute(sql, params)));
+      }
+      return null;
+    }
+  }
+
+  private static class ResultSetAnswer implements Answer<Object> {
+    private final List<Map<String, Object>> rows;
+    private int current = -1;
+
+    ResultSetAnswer(List<Map<String, Object>> rows) {
+      this.rows = rows;
+    }
+
+    @Override
+    public Object answer(InvocationOnMock invocation) throws Throwable {
+      String method = invocation.getMethod().getName();
+      if ("next".equals(method)) {
+        current++;
+        return Boolean.valueOf(current < rows.size());
+      }
+      if (method.startsWith("get") && invocation.getArguments().length == 1) {
+        Object value = rows.get(current).get(invocation.getArguments()[0]);
+        if ("getInt".equals(method)) {
+          return value == null ? Integer.valueOf(0) : value;
+        }
+        if ("getBoolean".equals(method)) {
+          return value == null ? Boolean.FALSE : value;
+        }
+        return value;
+      }
+      return null;
+    }
+  }
+}
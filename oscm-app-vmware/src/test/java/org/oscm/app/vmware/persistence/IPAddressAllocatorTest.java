@@ -0,0 +1,296 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright FUJITSU LIMITED 2018
+ *
+ * <p>Creation Date: 17.10.2026
+ *
+ * <p>*****************************************************************************
+ */
+package org.oscm.app.vmware.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.oscm.app.vmware.persistence.FakeDataSource.row;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oscm.app.vmware.persistence.TopologyRepository.ClusterNode;
+import org.oscm.app.vmware.persistence.TopologyRepository.VLANNode;
+
+public class IPAddressAllocatorTest {
+
+  private static final int PARALLEL_RESERVATIONS = 64;
+
+  private IPPoolTable table;
+  private FakeDataSource fake;
+  private DataSource ds;
+  private ClusterNode cluster;
+  private IPAddressAllocator allocator;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() throws Exception {
+    table = new IPPoolTable();
+    fake = new FakeDataSource(table);
+    ds = fake.getDataSource();
+    cluster = new ClusterNode(1, "cluster", null);
+    cluster.vlans.put("vlan1", new VLANNode(10, "vlan1", null, null, null, null, true));
+    cluster.vlans.put("vlan2", new VLANNode(20, "vlan2", null, null, null, null, true));
+    allocator = new IPAddressAllocator();
+  }
+
+  @After
+  public void tearDown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void claim_parallel() throws Exception {
+    // given
+    table.addAddresses(10, "10.0.0.", PARALLEL_RESERVATIONS);
+    executor = Executors.newFixedThreadPool(PARALLEL_RESERVATIONS);
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < PARALLEL_RESERVATIONS; i++) {
+      results.add(
+          executor.submit(
+              new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                  start.await();
+                  return allocator.claim(ds, 10);
+                }
+              }));
+    }
+
+    // when
+    start.countDown();
+    Set<String> addresses = new HashSet<>();
+    for (Future<String> result : results) {
+      String address = result.get(30, TimeUnit.SECONDS);
+      assertNotNull(address);
+      assertTrue("Address handed out twice: " + address, addresses.add(address));
+    }
+
+    // then
+    assertEquals(PARALLEL_RESERVATIONS, addresses.size());
+    assertNull(allocator.claim(ds, 10));
+    for (String address : addresses) {
+      assertEquals(Boolean.TRUE, allocator.isInUse(ds, 10, address));
+    }
+    assertNull(allocator.getVLANwithMostFreeIPs(ds, cluster));
+  }
+
+  @Test
+  public void claim_parallelWithReads() throws Exception {
+    // given
+    table.addAddresses(10, "10.0.0.", PARALLEL_RESERVATIONS);
+    table.addAddresses(20, "10.0.1.", PARALLEL_RESERVATIONS);
+    allocator.refreshIntervalMs = 0;
+    executor = Executors.newFixedThreadPool(PARALLEL_RESERVATIONS);
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < PARALLEL_RESERVATIONS; i++) {
+      results.add(
+          executor.submit(
+              new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                  start.await();
+                  String vlan = allocator.getVLANwithMostFreeIPs(ds, cluster);
+                  return allocator.claim(ds, cluster.getVLANs().get(vlan).tkey);
+                }
+              }));
+    }
+
+    // when
+    start.countDown();
+    Set<String> addresses = new HashSet<>();
+    for (Future<String> result : results) {
+      String address = result.get(30, TimeUnit.SECONDS);
+      assertNotNull(address);
+      assertTrue("Address handed out twice: " + address, addresses.add(address));
+    }
+
+    // then
+    assertEquals(PARALLEL_RESERVATIONS, table.countInUse());
+  }
+
+  @Test
+  public void getVLANwithMostFreeIPs() throws Exception {
+    // given
+    table.addAddresses(10, "10.0.0.", 2);
+    table.addAddresses(20, "10.0.1.", 3);
+    assertEquals("vlan2", allocator.getVLANwithMostFreeIPs(ds, cluster));
+    int queries = fake.getQueries();
+
+    // when
+    allocator.claim(ds, 20);
+    allocator.claim(ds, 20);
+    String vlan = allocator.getVLANwithMostFreeIPs(ds, cluster);
+
+    // then
+    assertEquals("vlan1", vlan);
+    assertEquals(queries + 2, fake.getQueries());
+  }
+
+  @Test
+  public void getVLANwithMostFreeIPs_noVLANs() throws Exception {
+    assertNull(allocator.getVLANwithMostFreeIPs(ds, new ClusterNode(2, "other", null)));
+  }
+
+  @Test
+  public void isInUse() throws Exception {
+    // given
+    table.addAddresses(10, "10.0.0.", 2);
+    String claimed = allocator.claim(ds, 10);
+    assertEquals(Boolean.TRUE, allocator.isInUse(ds, 10, claimed));
+    int queries = fake.getQueries();
+
+    // when
+    Boolean inUse = allocator.isInUse(ds, 10, "10.0.0.1");
+
+    // then
+    assertEquals(Boolean.FALSE, inUse);
+    assertEquals(queries, fake.getQueries());
+  }
+
+  @Test
+  public void isInUse_unknownAddress() throws Exception {
+    // given
+    table.addAddresses(10, "10.0.0.", 1);
+
+    // then
+    assertNull(allocator.isInUse(ds, 10, "10.0.0.5"));
+  }
+
+  @Test
+  public void isInUse_addedAddress() throws Exception {
+    // given
+    table.addAddresses(10, "10.0.0.", 1);
+    allocator.isInUse(ds, 10, "10.0.0.0");
+    table.addAddresses(10, "10.0.1.", 1);
+
+    // then
+    assertEquals(Boolean.FALSE, allocator.isInUse(ds, 10, "10.0.1.0"));
+  }
+
+  @Test
+  public void setInUse() throws Exception {
+    // given
+    table.addAddresses(10, "10.0.0.", 1);
+    String claimed = allocator.claim(ds, 10);
+    assertNull(allocator.getVLANwithMostFreeIPs(ds, cluster));
+
+    // when
+    table.setInUse(claimed, false);
+    allocator.setInUse(10, claimed, false);
+
+    // then
+    assertFalse(allocator.isInUse(ds, 10, claimed).booleanValue());
+    assertEquals("vlan1", allocator.getVLANwithMostFreeIPs(ds, cluster));
+  }
+
+  @Test
+  public void refresh() throws Exception {
+    // given
+    table.addAddresses(10, "10.0.0.", 1);
+    assertEquals(Boolean.FALSE, allocator.isInUse(ds, 10, "10.0.0.0"));
+    table.setInUse("10.0.0.0", true);
+    allocator.refreshIntervalMs = 0;
+
+    // then
+    assertEquals(Boolean.TRUE, allocator.isInUse(ds, 10, "10.0.0.0"));
+  }
+
+  @Test
+  public void clear() throws Exception {
+    // given
+    table.addAddresses(10, "10.0.0.", 1);
+    assertEquals(Boolean.FALSE, allocator.isInUse(ds, 10, "10.0.0.0"));
+    table.setInUse("10.0.0.0", true);
+
+    // when
+    allocator.clear();
+
+    // then
+    assertEquals(Boolean.TRUE, allocator.isInUse(ds, 10, "10.0.0.0"));
+  }
+
+  /** The ippool table. The claim of an address is atomic like the UPDATE statement. */
+  private static class IPPoolTable implements FakeDataSource.QueryHandler {
+    private final List<Object[]> ippool = new ArrayList<>();
+
+    synchronized void addAddresses(int vlanTkey, String prefix, int count) {
+      for (int i = 0; i < count; i++) {
+        ippool.add(
+            new Object[] {Integer.valueOf(ippool.size() + 1), prefix + i, Boolean.FALSE, vlanTkey});
+      }
+    }
+
+    synchronized void setInUse(String address, boolean inUse) {
+      for (Object[] entry : ippool) {
+        if (entry[1].equals(address)) {
+          entry[2] = Boolean.valueOf(inUse);
+        }
+      }
+    }
+
+    synchronized int countInUse() {
+      int count = 0;
+      for (Object[] entry : ippool) {
+        if (((Boolean) entry[2]).booleanValue()) {
+          count++;
+        }
+      }
+      return count;
+    }
+
+    @Override
+    public List<Map<String, Object>> execute(String sql, Map<Integer, Object> params) {
+      List<Map<String, Object>> rows = new ArrayList<>();
+      if (IPAddressAllocator.QUERY_IPPOOL.equals(sql)) {
+        synchronized (this) {
+          for (Object[] entry : ippool) {
+            if (entry[3].equals(params.get(1))) {
+              rows.add(row("tkey", entry[0], "ip_address", entry[1], "in_use", entry[2]));
+            }
+          }
+        }
+      } else if (IPAddressAllocator.CLAIM_IP_ADDRESS.equals(sql)) {
+        synchronized (this) {
+          for (Object[] entry : ippool) {
+            if (entry[3].equals(params.get(1)) && !((Boolean) entry[2]).booleanValue()) {
+              entry[2] = Boolean.TRUE;
+              rows.add(row("tkey", entry[0], "ip_address", entry[1]));
+              break;
+            }
+          }
+        }
+        Thread.yield();
+      } else {
+        throw new IllegalArgumentException(sql);
+      }
+      return rows;
+    }
+  }
+}
@@ -0,0 +1,193 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright FUJITSU LIMITED 2018
+ *
+ * <p>Creation Date: 17.10.2026
+ *
+ * <p>*****************************************************************************
+ */
+package org.oscm.app.vmware.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.oscm.app.vmware.persistence.FakeDataSource.row;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.oscm.app.vmware.persistence.TopologyRepository.ClusterNode;
+import org.oscm.app.vmware.persistence.TopologyRepository.DatacenterNode;
+import org.oscm.app.vmware.persistence.TopologyRepository.VCenterNode;
+import org.oscm.app.vmware.persistence.TopologyRepository.VLANNode;
+
+public class TopologyRepositoryTest {
+
+  private static final int QUERIES_PER_LOAD = 4;
+
+  private List<Map<String, Object>> vlans;
+  private FakeDataSource fake;
+  private DataSource ds;
+  private TopologyRepository topology;
+
+  @Before
+  public void setUp() {
+    vlans = new ArrayList<>();
+    vlans.add(vlan(10, "vlan1", 1));
+    vlans.add(vlan(20, "vlan2", 1));
+    vlans.add(vlan(30, "vlan3", 2));
+    fake = new FakeDataSource(this::execute);
+    ds = fake.getDataSource();
+    topology = new TopologyRepository();
+  }
+
+  @Test
+  public void getVCenter() throws Exception {
+    // when
+    VCenterNode vcenter = topology.getVCenter(ds, "vc");
+
+    // then
+    assertEquals(1, vcenter.tkey);
+    assertEquals("vcid", vcenter.identifier);
+    assertEquals("https://vc/sdk", vcenter.url);
+    assertEquals("user", vcenter.userid);
+    assertEquals("secret", vcenter.password);
+  }
+
+  @Test
+  public void getDatacenter() throws Exception {
+    // when
+    DatacenterNode datacenter = topology.getDatacenter(ds, "vc", "dc");
+
+    // then
+    assertEquals(1, datacenter.tkey);
+    assertEquals("dcid", datacenter.identifier);
+  }
+
+  @Test
+  public void getCluster() throws Exception {
+    // when
+    ClusterNode cluster = topology.getCluster(ds, "vc", "dc", "cluster");
+
+    // then
+    assertEquals(1, cluster.tkey);
+    assertEquals("<balancer/>", cluster.loadBalancer);
+    assertEquals(Arrays.asList("vlan1", "vlan2"), new ArrayList<>(cluster.getVLANs().keySet()));
+  }
+
+  @Test
+  public void getVLAN() throws Exception {
+    // when
+    VLANNode vlan = topology.getVLAN(ds, "vc", "dc", "other", "vlan3");
+
+    // then
+    assertEquals(30, vlan.tkey);
+    assertEquals("255.255.255.0", vlan.subnetMask);
+    assertEquals("10.0.0.1", vlan.gateway);
+    assertEquals("10.0.0.2", vlan.dnsServer);
+    assertEquals("example.com", vlan.dnsSuffix);
+    assertTrue(vlan.enabled);
+  }
+
+  @Test
+  public void get_cached() throws Exception {
+    // given
+    topology.getCluster(ds, "vc", "dc", "cluster");
+
+    // when
+    topology.getVCenter(ds, "vc");
+    topology.getDatacenter(ds, "vc", "dc");
+    topology.getVLAN(ds, "vc", "dc", "cluster", "vlan2");
+
+    // then
+    assertEquals(QUERIES_PER_LOAD, fake.getQueries());
+  }
+
+  @Test
+  public void get_unknown() throws Exception {
+    // given
+    topology.getCluster(ds, "vc", "dc", "cluster");
+
+    // when
+    VLANNode vlan = topology.getVLAN(ds, "vc", "dc", "cluster", "unknown");
+
+    // then
+    assertNull(vlan);
+    assertNull(topology.getCluster(ds, "vc", "other", "cluster"));
+    assertEquals(3 * QUERIES_PER_LOAD, fake.getQueries());
+  }
+
+  @Test
+  public void get_added() throws Exception {
+    // given
+    topology.getCluster(ds, "vc", "dc", "cluster");
+    vlans.add(vlan(40, "vlan4", 1));
+
+    // when
+    VLANNode vlan = topology.getVLAN(ds, "vc", "dc", "cluster", "vlan4");
+
+    // then
+    assertEquals(40, vlan.tkey);
+  }
+
+  @Test
+  public void invalidate() throws Exception {
+    // given
+    topology.getVLAN(ds, "vc", "dc", "cluster", "vlan1");
+    vlans.set(0, vlan(10, "vlan1", 2));
+
+    // when
+    topology.invalidate();
+
+    // then
+    assertEquals(10, topology.getVLAN(ds, "vc", "dc", "other", "vlan1").tkey);
+    assertEquals(2 * QUERIES_PER_LOAD, fake.getQueries());
+  }
+
+  @Test
+  public void refresh() throws Exception {
+    // given
+    topology.getCluster(ds, "vc", "dc", "cluster");
+    topology.refreshIntervalMs = 0;
+
+    // when
+    topology.getCluster(ds, "vc", "dc", "cluster");
+
+    // then
+    assertEquals(2 * QUERIES_PER_LOAD, fake.getQueries());
+  }
+
+  private List<Map<String, Object>> execute(String sql, Map<Integer, Object> params) {
+    List<Map<String, Object>> rows = new ArrayList<>();
+    if (TopologyRepository.QUERY_VCENTER.equals(sql)) {
+      rows.add(
+          row(
+              "tkey", 1, "name", "vc", "identifier", "vcid", "url", "https://vc/sdk", "userid",
+              "user", "password", "secret"));
+    } else if (TopologyRepository.QUERY_DATACENTER.equals(sql)) {
+      rows.add(row("tkey", 1, "name", "dc", "identifier", "dcid", "vcenter_tkey", 1));
+      rows.add(row("tkey", 2, "name", "orphan", "identifier", "x", "vcenter_tkey", 9));
+    } else if (TopologyRepository.QUERY_CLUSTER.equals(sql)) {
+      rows.add(
+          row("tkey", 1, "name", "cluster", "load_balancer", "<balancer/>", "datacenter_tkey", 1));
+      rows.add(row("tkey", 2, "name", "other", "load_balancer", null, "datacenter_tkey", 1));
+    } else if (TopologyRepository.QUERY_VLAN.equals(sql)) {
+      rows.addAll(vlans);
+    } else {
+      throw new IllegalArgumentException(sql);
+    }
+    return rows;
+  }
+
+  private static Map<String, Object> vlan(int tkey, String name, int clusterTkey) {
+    return row(
+        "tkey", tkey, "name", name, "subnet_mask", "255.255.255.0", "gateway", "10.0.0.1",
+        "dnsserver", "10.0.0.2", "dnssuffix", "example.com", "enabled", true, "cluster_tkey",
+        clusterTkey);
+  }
+}
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+package org.oscm.app.vmware.remote.vmware;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectUpdate;
+import com.vmware.vim25.ObjectUpdateKind;
+import com.vmware.vim25.PropertyChange;
+import com.vmware.vim25.PropertyFilterUpdate;
+import com.vmware.vim25.ServiceContent;
+import com.vmware.vim25.UpdateSet;
+import com.vmware.vim25.VimPortType;
+
+public class MoRefIndexTest {
+
+  private VimPortType vimPort;
+  private MoRefIndex index;
+  private ManagedObjectReference root;
+  private ManagedObjectReference collector;
+  private ManagedObjectReference view;
+  private ManagedObjectReference filter;
+
+  @Before
+  public void setUp() throws Exception {
+    vimPort = mock(VimPortType.class);
+    ServiceContent content = new ServiceContent();
+    content.setPropertyCollector(moRef("PropertyCollector", "pc"));
+    content.setViewManager(moRef("ViewManager", "vm"));
+    root = moRef("Folder", "root");
+    collector = moRef("PropertyCollector", "pc-1");
+    view = moRef("ContainerView", "view-1");
+    filter = moRef("PropertyFilter", "filter-1");
+
+    doReturn(collector).when(vimPort).createPropertyCollector(any(ManagedObjectReference.class));
+    doReturn(view).when(vimPort).createContainerView(any(), any(), any(), anyBoolean());
+    doReturn(filter).when(vimPort).createFilter(eq(collector), any(), anyBoolean());
+    doReturn(null).when(vimPort).waitForUpdatesEx(eq(collector), anyString(), any());
+
+    index = new MoRefIndex(vimPort, content);
+  }
+
+  @Test
+  public void lookup_initialLoad() throws Exception {
+    // given
+    givenUpdates("", updates("1", enter("vm-1", "vm1"), enter("vm-2", "vm2")));
+
+    // when
+    ManagedObjectReference vm1 = index.lookup(root, "VirtualMachine", "vm1");
+    ManagedObjectReference vm2 = index.lookup(root, "VirtualMachine", "vm2");
+
+    // then
+    assertEquals("vm-1", vm1.getValue());
+    assertEquals("vm-2", vm2.getValue());
+    verify(vimPort, times(1)).createContainerView(any(), any(), any(), anyBoolean());
+    assertEquals(1, index.size());
+  }
+
+  @Test
+  public void lookup_missTriggersSync() throws Exception {
+    // given
+    givenUpdates("", updates("1", enter("vm-1", "vm1")));
+    givenUpdates("1", updates("2", enter("vm-3", "vm3")));
+    index.lookup(root, "VirtualMachine", "vm1");
+
+    // when
+    ManagedObjectReference vm3 = index.lookup(root, "VirtualMachine", "vm3");
+
+    // then
+    assertEquals("vm-3", vm3.getValue());
+  }
+
+  @Test
+  public void lookup_renameAndLeave() throws Exception {
+    // given
+    givenUpdates("", updates("1", enter("vm-1", "vm1"), enter("vm-2", "vm2")));
+    givenUpdates("1", updates("2", modify("vm-1", "renamed"), leave("vm-2")));
+    index.lookup(root, "VirtualMachine", "vm1");
+
+    // when
+    ManagedObjectReference renamed = index.lookup(root, "VirtualMachine", "renamed");
+
+    // then
+    assertEquals("vm-1", renamed.getValue());
+    assertNull(index.lookup(root, "VirtualMachine", "vm1"));
+    assertNull(index.lookup(root, "VirtualMachine", "vm2"));
+  }
+
+  @Test
+  public void lookup_truncatedUpdates() throws Exception {
+    // given
+    UpdateSet first = updates("1", enter("vm-1", "vm1"));
+    first.setTruncated(Boolean.TRUE);
+    givenUpdates("", first);
+    givenUpdates("1", updates("2", enter("vm-2", "vm2")));
+
+    // when
+    ManagedObjectReference vm2 = index.lookup(root, "VirtualMachine", "vm2");
+
+    // then
+    assertEquals("vm-2", vm2.getValue());
+  }
+
+  @Test
+  public void lookup_names() throws Exception {
+    // given
+    givenUpdates("", updates("1", enter("vm-1", "vm1"), enter("vm-2", "vm2")));
+    givenUpdates("1", updates("2", enter("vm-3", "vm3")));
+    index.lookup(root, "VirtualMachine", "vm1");
+
+    // when
+    Map<String, ManagedObjectReference> vms =
+        index.lookup(root, "VirtualMachine", Arrays.asList("vm2", "vm3", "vm4"));
+
+    // then
+    assertEquals(2, vms.size());
+    assertEquals("vm-2", vms.get("vm2").getValue());
+    assertEquals("vm-3", vms.get("vm3").getValue());
+    verify(vimPort, times(1)).waitForUpdatesEx(eq(collector), eq("1"), any());
+  }
+
+  @Test
+  public void lookup_namesKnown() throws Exception {
+    // given
+    givenUpdates("", updates("1", enter("vm-1", "vm1"), enter("vm-2", "vm2")));
+    index.lookup(root, "VirtualMachine", "vm1");
+
+    // when
+    Map<String, ManagedObjectReference> vms =
+        index.lookup(root, "VirtualMachine", Arrays.asList("vm1", "vm2"));
+
+    // then
+    assertEquals(2, vms.size());
+    verify(vimPort, never()).waitForUpdatesEx(eq(collector), eq("1"), any());
+  }
+
+  @Test
+  public void lookup_sizeLimited() throws Exception {
+    // when
+    for (int i = 0; i <= MoRefIndex.MAX_INDEXES; i++) {
+      index.lookup(moRef("Folder", "folder-" + i), "VirtualMachine", "vm");
+    }
+
+    // then
+    assertEquals(MoRefIndex.MAX_INDEXES, index.size());
+    verify(vimPort, times(1)).destroyView(view);
+    verify(vimPort, times(1)).destroyPropertyFilter(filter);
+  }
+
+  @Test
+  public void clear() throws Exception {
+    // given
+    index.lookup(root, "VirtualMachine", "vm1");
+
+    // when
+    index.clear();
+
+    // then
+    assertEquals(0, index.size());
+    verify(vimPort).destroyPropertyFilter(filter);
+    verify(vimPort).destroyView(view);
+    verify(vimPort).destroyPropertyCollector(collector);
+  }
+
+  private void givenUpdates(String version, UpdateSet updates) throws Exception {
+    doReturn(updates).when(vimPort).waitForUpdatesEx(eq(collector), eq(version), any());
+  }
+
+  private UpdateSet updates(String version, ObjectUpdate... objectUpdates) {
+    PropertyFilterUpdate filterUpdate = new PropertyFilterUpdate();
+    filterUpdate.setFilter(filter);
+    filterUpdate.getObjectSet().addAll(Arrays.asList(objectUpdates));
+    UpdateSet updates = new UpdateSet();
+    updates.setVersion(version);
+    updates.getFilterSet().add(filterUpdate);
+    return updates;
+  }
+
+  private static ObjectUpdate enter(String value, String name) {
+    return update(ObjectUpdateKind.ENTER, value, name);
+  }
+
+  private static ObjectUpdate modify(String value, String name) {
+    return update(ObjectUpdateKind.MODIFY, value, name);
+  }
+
+  private static ObjectUpdate leave(String value) {
+    return update(ObjectUpdateKind.LEAVE, value, null);
+  }
+
+  private static ObjectUpdate update(ObjectUpdateKind kind, String value, String name) {
+    ObjectUpdate update = new ObjectUpdate();
+    update.setKind(kind);
+    update.setObj(moRef("VirtualMachine", value));
+    if (name != null) {
+      PropertyChange change = new PropertyChange();
+      change.setName("name");
+      change.setVal(name);
+      update.getChangeSet().add(change);
+    }
+    return update;
+  }
+
+  private static ManagedObjectReference moRef(String type, String value) {
+    ManagedObjectReference mor = new ManagedObjectReference();
+    mor.setType(type);
+    mor.setValue(value);
+    return mor;
+  }
+}
@@ -0,0 +1,320 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+package org.oscm.app.vmware.remote.vmware;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vmware.vim25.AboutInfo;
+import com.vmware.vim25.InvalidCollectorVersion;
+import com.vmware.vim25.InvalidCollectorVersionFaultMsg;
+import com.vmware.vim25.ManagedObjectNotFound;
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.ObjectUpdate;
+import com.vmware.vim25.ObjectUpdateKind;
+import com.vmware.vim25.PropertyChange;
+import com.vmware.vim25.PropertyFilterUpdate;
+import com.vmware.vim25.RuntimeFaultFaultMsg;
+import com.vmware.vim25.ServiceContent;
+import com.vmware.vim25.TaskInfo;
+import com.vmware.vim25.TaskInfoState;
+import com.vmware.vim25.UpdateSet;
+import com.vmware.vim25.VimPortType;
+
+public class TaskWatcherTest {
+
+  private VimPortType vimPort;
+  private TaskWatcher watcher;
+  private ManagedObjectReference collector;
+  private ManagedObjectReference filter;
+
+  @Before
+  public void setUp() throws Exception {
+    vimPort = mock(VimPortType.class);
+    ServiceContent content = new ServiceContent();
+    content.setPropertyCollector(moRef("PropertyCollector", "pc"));
+    collector = moRef("PropertyCollector", "pc-1");
+    filter = moRef("PropertyFilter", "filter-1");
+
+    doReturn(collector).when(vimPort).createPropertyCollector(any(ManagedObjectReference.class));
+    doReturn(filter).when(vimPort).createFilter(eq(collector), any(), anyBoolean());
+    doReturn(null).when(vimPort).waitForUpdatesEx(eq(collector), anyString(), any());
+
+    watcher = new TaskWatcher(vimPort, content);
+  }
+
+  @Test
+  public void getTaskInfo_running() throws Exception {
+    // given
+    givenUpdates("", updates("1", update(ObjectUpdateKind.ENTER, TaskInfoState.RUNNING)));
+
+    // when
+    TaskInfo info = watcher.getTaskInfo("task-1");
+
+    // then
+    assertEquals(TaskInfoState.RUNNING, info.getState());
+    assertEquals(1, watcher.size());
+    verify(vimPort, times(1)).createFilter(eq(collector), any(), anyBoolean());
+  }
+
+  @Test
+  public void getTaskInfo_syncThrottled() throws Exception {
+    // given
+    givenUpdates("", updates("1", update(ObjectUpdateKind.ENTER, TaskInfoState.RUNNING)));
+    watcher.getTaskInfo("task-1");
+
+    // when
+    TaskInfo info = watcher.getTaskInfo("task-1");
+
+    // then
+    assertEquals(TaskInfoState.RUNNING, info.getState());
+    verify(vimPort, times(1)).waitForUpdatesEx(eq(collector), anyString(), any());
+    verify(vimPort, times(1)).createFilter(eq(collector), any(), anyBoolean());
+  }
+
+  @Test
+  public void getTaskInfo_finished() throws Exception {
+    // given
+    givenUpdates("", updates("1", update(ObjectUpdateKind.ENTER, TaskInfoState.SUCCESS)));
+    TaskInfo first = watcher.getTaskInfo("task-1");
+
+    // when
+    TaskInfo second = watcher.getTaskInfo("task-1");
+
+    // then
+    assertEquals(TaskInfoState.SUCCESS, first.getState());
+    assertSame(first, second);
+    assertEquals(0, watcher.size());
+    verify(vimPort, times(1)).destroyPropertyFilter(filter);
+    verify(vimPort, times(1)).waitForUpdatesEx(eq(collector), anyString(), any());
+  }
+
+  @Test
+  public void getTaskInfo_truncatedUpdates() throws Exception {
+    // given
+    UpdateSet first = updates("1", update(ObjectUpdateKind.ENTER, TaskInfoState.RUNNING));
+    first.setTruncated(Boolean.TRUE);
+    givenUpdates("", first);
+    givenUpdates("1", updates("2", update(ObjectUpdateKind.MODIFY, TaskInfoState.ERROR)));
+
+    // when
+    TaskInfo info = watcher.getTaskInfo("task-1");
+
+    // then
+    assertEquals(TaskInfoState.ERROR, info.getState());
+  }
+
+  @Test
+  public void getTaskInfo_taskRemoved() throws Exception {
+    // given
+    givenUpdates("", updates("1", update(ObjectUpdateKind.LEAVE, null)));
+
+    // when
+    TaskInfo info = watcher.getTaskInfo("task-1");
+
+    // then
+    assertNull(info);
+    assertEquals(0, watcher.size());
+  }
+
+  @Test
+  public void getTaskInfo_unknownTask() throws Exception {
+    // given
+    doThrow(new RuntimeFaultFaultMsg("not found", new ManagedObjectNotFound()))
+        .when(vimPort)
+        .createFilter(eq(collector), any(), anyBoolean());
+
+    // when
+    TaskInfo info = watcher.getTaskInfo("task-1");
+
+    // then
+    assertNull(info);
+    assertEquals(0, watcher.size());
+  }
+
+  @Test
+  public void getTaskInfo_sizeLimited() throws Exception {
+    // when
+    for (int i = 0; i <= TaskWatcher.MAX_WATCHED; i++) {
+      watcher.getTaskInfo("task-" + i);
+    }
+
+    // then
+    assertEquals(TaskWatcher.MAX_WATCHED, watcher.size());
+    verify(vimPort, times(1)).destroyPropertyFilter(filter);
+  }
+
+  @Test
+  public void getTaskInfo_finishedInOtherSession() throws Exception {
+    // given
+    ServiceContent content = sharedContent();
+    VimPortType otherPort = mock(VimPortType.class);
+    ManagedObjectReference otherCollector = moRef("PropertyCollector", "pc-2");
+    doReturn(otherCollector).when(otherPort).createPropertyCollector(any(ManagedObjectReference.class));
+    doReturn(filter).when(otherPort).createFilter(eq(otherCollector), any(), anyBoolean());
+    doReturn(updates("1", update(ObjectUpdateKind.ENTER, TaskInfoState.RUNNING)))
+        .when(otherPort)
+        .waitForUpdatesEx(eq(otherCollector), eq(""), any());
+    TaskWatcher other = new TaskWatcher(otherPort, content);
+    other.getTaskInfo("task-1");
+
+    givenUpdates("", updates("1", update(ObjectUpdateKind.ENTER, TaskInfoState.SUCCESS)));
+    new TaskWatcher(vimPort, content).getTaskInfo("task-1");
+
+    // when
+    TaskInfo info = other.getTaskInfo("task-1");
+
+    // then
+    assertEquals(TaskInfoState.SUCCESS, info.getState());
+    assertEquals(0, other.size());
+    verify(otherPort, times(1)).destroyPropertyFilter(filter);
+    verify(otherPort, times(1)).waitForUpdatesEx(eq(otherCollector), anyString(), any());
+  }
+
+  @Test
+  public void getTaskInfo_finishedNotRegisteredAgain() throws Exception {
+    // given
+    ServiceContent content = sharedContent();
+    givenUpdates("", updates("1", update(ObjectUpdateKind.ENTER, TaskInfoState.SUCCESS)));
+    new TaskWatcher(vimPort, content).getTaskInfo("task-1");
+    VimPortType otherPort = mock(VimPortType.class);
+
+    // when
+    TaskInfo info = new TaskWatcher(otherPort, content).getTaskInfo("task-1");
+
+    // then
+    assertEquals(TaskInfoState.SUCCESS, info.getState());
+    verify(otherPort, never()).createPropertyCollector(any(ManagedObjectReference.class));
+  }
+
+  @Test
+  public void getTaskInfo_invalidCollectorVersion() throws Exception {
+    // given
+    givenUpdates("", updates("1", update(ObjectUpdateKind.ENTER, TaskInfoState.RUNNING)));
+    watcher.getTaskInfo("task-1");
+    ManagedObjectReference newCollector = moRef("PropertyCollector", "pc-2");
+    doReturn(newCollector).when(vimPort).createPropertyCollector(any(ManagedObjectReference.class));
+    when(vimPort.createFilter(eq(newCollector), any(), anyBoolean()))
+        .thenReturn(filter, moRef("PropertyFilter", "filter-2"));
+    doThrow(new InvalidCollectorVersionFaultMsg("invalid", new InvalidCollectorVersion()))
+        .when(vimPort)
+        .waitForUpdatesEx(eq(collector), eq("1"), any());
+    doReturn(updates("1", update(ObjectUpdateKind.ENTER, TaskInfoState.SUCCESS)))
+        .when(vimPort)
+        .waitForUpdatesEx(eq(newCollector), eq(""), any());
+
+    // when
+    watcher.getTaskInfo("task-2");
+    TaskInfo info = watcher.getTaskInfo("task-1");
+
+    // then
+    assertEquals(TaskInfoState.SUCCESS, info.getState());
+    verify(vimPort).destroyPropertyCollector(collector);
+    verify(vimPort).waitForUpdatesEx(eq(newCollector), eq(""), any());
+  }
+
+  @Test
+  public void getTaskInfo_invalidCollectorVersionAgain() throws Exception {
+    // given
+    doThrow(new InvalidCollectorVersionFaultMsg("invalid", new InvalidCollectorVersion()))
+        .when(vimPort)
+        .waitForUpdatesEx(eq(collector), anyString(), any());
+
+    // when
+    try {
+      watcher.getTaskInfo("task-1");
+      fail();
+    } catch (InvalidCollectorVersionFaultMsg e) {
+      // expected
+    }
+
+    // then
+    assertEquals(0, watcher.size());
+    verify(vimPort, times(2)).destroyPropertyCollector(collector);
+  }
+
+  @Test
+  public void clear() throws Exception {
+    // given
+    watcher.getTaskInfo("task-1");
+
+    // when
+    watcher.clear();
+
+    // then
+    assertEquals(0, watcher.size());
+    verify(vimPort).destroyPropertyFilter(filter);
+    verify(vimPort).destroyPropertyCollector(collector);
+  }
+
+  private static ServiceContent sharedContent() {
+    AboutInfo about = new AboutInfo();
+    about.setInstanceUuid(UUID.randomUUID().toString());
+    ServiceContent content = new ServiceContent();
+    content.setPropertyCollector(moRef("PropertyCollector", "pc"));
+    content.setAbout(about);
+    return content;
+  }
+
+  private void givenUpdates(String version, UpdateSet updates) throws Exception {
+    doReturn(updates).when(vimPort).waitForUpdatesEx(eq(collector), eq(version), any());
+  }
+
+  private UpdateSet updates(String version, ObjectUpdate... objectUpdates) {
+    PropertyFilterUpdate filterUpdate = new PropertyFilterUpdate();
+    filterUpdate.setFilter(filter);
+    for (ObjectUpdate update : objectUpdates) {
+      filterUpdate.getObjectSet().add(update);
+    }
+    UpdateSet updates = new UpdateSet();
+    updates.setVersion(version);
+    updates.getFilterSet().add(filterUpdate);
+    return updates;
+  }
+
+  private static ObjectUpdate update(ObjectUpdateKind kind, TaskInfoState state) {
+    ObjectUpdate update = new ObjectUpdate();
+    update.setKind(kind);
+    update.setObj(moRef("Task", "task-1"));
+    if (state != null) {
+      TaskInfo info = new TaskInfo();
+      info.setKey("task-1");
+      info.setState(state);
+      PropertyChange change = new PropertyChange();
+      change.setName("info");
+      change.setVal(info);
+      update.getChangeSet().add(change);
+    }
+    return update;
+  }
+
+  private static ManagedObjectReference moRef(String type, String value) {
+    ManagedObjectReference mor = new ManagedObjectReference();
+    mor.setType(type);
+    mor.setValue(value);
+    return mor;
+  }
+}
@@ -0,0 +1,148 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright FUJITSU LIMITED 2018
+ *
+ * <p>Creation Date: 17.10.2026
+ *
+ * <p>*****************************************************************************
+ */
+
+package org.oscm.app.vmware.usage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.oscm.app.vmware.remote.vmware.ManagedObjectAccessor;
+import org.oscm.app.vmware.remote.vmware.ServiceConnection;
+import org.oscm.app.vmware.remote.vmware.VMwareClient;
+
+import com.vmware.vim25.ElementDescription;
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.PerfCounterInfo;
+import com.vmware.vim25.PerfSummaryType;
+import com.vmware.vim25.ServiceContent;
+
+public class PerfCounterCatalogTest {
+
+    private PerfCounterCatalog catalog;
+    private VMwareClient vmw;
+    private ManagedObjectAccessor serviceUtil;
+
+    @Before
+    public void before() throws Exception {
+        catalog = new PerfCounterCatalog();
+        vmw = mock(VMwareClient.class);
+        serviceUtil = mock(ManagedObjectAccessor.class);
+        ServiceConnection connection = mock(ServiceConnection.class);
+        ServiceContent content = mock(ServiceContent.class);
+        when(vmw.getServiceUtil()).thenReturn(serviceUtil);
+        when(vmw.getConnection()).thenReturn(connection);
+        when(connection.getServiceContent()).thenReturn(content);
+        when(content.getPerfManager())
+                .thenReturn(mock(ManagedObjectReference.class));
+        List<PerfCounterInfo> infos = new ArrayList<PerfCounterInfo>();
+        infos.add(createCounter(1, "cpu", "usagemhz", PerfSummaryType.AVERAGE));
+        infos.add(createCounter(2, "disk", "used", PerfSummaryType.LATEST));
+        when(serviceUtil.getDynamicProperty(any(ManagedObjectReference.class),
+                anyString())).thenReturn(infos);
+    }
+
+    @Test
+    public void testCreateCounterToNameMapping() {
+        // given
+        ArrayList<PerfCounterInfo> infos = new ArrayList<PerfCounterInfo>();
+        infos.add(createCounter(1, "1", "1", PerfSummaryType.AVERAGE));
+
+        // when
+        Map<String, Integer> result = PerfCounterCatalog
+                .createCounterToNameMapping(infos);
+
+        // then
+        assertEquals(Integer.valueOf(1), result.get("1.1.AVERAGE"));
+    }
+
+    @Test
+    public void testCreateCounterToNameMapping_noCounters() {
+        assertTrue(PerfCounterCatalog.createCounterToNameMapping(null)
+                .isEmpty());
+    }
+
+    @Test
+    public void testGetCounterIds() throws Exception {
+        // when
+        Map<String, Integer> result = catalog.getCounterIds("vc", vmw);
+
+        // then
+        assertEquals(Integer.valueOf(1),
+                result.get(VMMetricCollector.CPU_USAGE_PERCENT));
+        assertEquals(Integer.valueOf(2),
+                result.get(VMMetricCollector.DISK_USAGE_TOTAL));
+    }
+
+    @Test
+    public void testGetCounterIds_cached() throws Exception {
+        // given
+        catalog.getCounterIds("vc", vmw);
+
+        // when
+        catalog.getCounterIds("vc", vmw);
+
+        // then
+        verify(serviceUtil, times(1)).getDynamicProperty(
+                any(ManagedObjectReference.class), anyString());
+    }
+
+    @Test
+    public void testGetCounterIds_perVCenter() throws Exception {
+        // given
+        catalog.getCounterIds("vc", vmw);
+
+        // when
+        catalog.getCounterIds("other", vmw);
+
+        // then
+        verify(serviceUtil, times(2)).getDynamicProperty(
+                any(ManagedObjectReference.class), anyString());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        // given
+        catalog.getCounterIds("vc", vmw);
+
+        // when
+        catalog.invalidate("vc");
+        catalog.getCounterIds("vc", vmw);
+
+        // then
+        verify(serviceUtil, times(2)).getDynamicProperty(
+                any(ManagedObjectReference.class), anyString());
+    }
+
+    private static PerfCounterInfo createCounter(int key, String group,
+            String name, PerfSummaryType rollupType) {
+        PerfCounterInfo perfCounterInfo = mock(PerfCounterInfo.class);
+        ElementDescription groupInfo = mock(ElementDescription.class);
+        ElementDescription nameInfo = mock(ElementDescription.class);
+        when(perfCounterInfo.getKey()).thenReturn(key);
+        when(perfCounterInfo.getGroupInfo()).thenReturn(groupInfo);
+        when(perfCounterInfo.getNameInfo()).thenReturn(nameInfo);
+        when(perfCounterInfo.getRollupType()).thenReturn(rollupType);
+        when(groupInfo.getKey()).thenReturn(group);
+        when(nameInfo.getKey()).thenReturn(name);
+        return perfCounterInfo;
+    }
+}
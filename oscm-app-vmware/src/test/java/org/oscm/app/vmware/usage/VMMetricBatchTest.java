@@ -0,0 +1,537 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright FUJITSU LIMITED 2018
+ *
+ * <p>Creation Date: 17.10.2026
+ *
+ * <p>*****************************************************************************
+ */
+
+package org.oscm.app.vmware.usage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.oscm.app.vmware.remote.vmware.ManagedObjectAccessor;
+import org.oscm.app.vmware.remote.vmware.ServiceConnection;
+import org.oscm.app.vmware.remote.vmware.VMwareClient;
+
+import com.vmware.vim25.ManagedObjectReference;
+import com.vmware.vim25.PerfEntityMetricBase;
+import com.vmware.vim25.PerfEntityMetricCSV;
+import com.vmware.vim25.PerfMetricId;
+import com.vmware.vim25.PerfMetricSeriesCSV;
+import com.vmware.vim25.PerfQuerySpec;
+import com.vmware.vim25.RuntimeFaultFaultMsg;
+import com.vmware.vim25.ServiceContent;
+import com.vmware.vim25.VimPortType;
+
+public class VMMetricBatchTest {
+
+    private static final int CPU = 1;
+    private static final int MEM = 2;
+    private static final int DISK = 3;
+
+    private VMMetricBatch batch;
+    private VMwareClient vmw;
+    private ManagedObjectAccessor serviceUtil;
+    private Map<String, Integer> counterIds;
+    private PerfService perfService;
+    private long now = 1000000L;
+
+    @Before
+    public void before() throws Exception {
+        batch = new VMMetricBatch() {
+            @Override
+            long currentTimeMillis() {
+                return now;
+            }
+        };
+        vmw = mock(VMwareClient.class);
+        serviceUtil = mock(ManagedObjectAccessor.class);
+        ServiceConnection connection = mock(ServiceConnection.class);
+        ServiceContent content = mock(ServiceContent.class);
+        perfService = new PerfService();
+        VimPortType port = mock(VimPortType.class);
+        when(vmw.getServiceUtil()).thenReturn(serviceUtil);
+        when(vmw.getConnection()).thenReturn(connection);
+        when(vmw.getService()).thenReturn(port);
+        when(connection.getServiceContent()).thenReturn(content);
+        when(content.getPerfManager())
+                .thenReturn(mock(ManagedObjectReference.class));
+        when(port.queryPerf(any(ManagedObjectReference.class),
+                Mockito.<PerfQuerySpec> anyList())).thenAnswer(perfService);
+        when(serviceUtil.getDecendentMoRef(any(ManagedObjectReference.class),
+                eq("VirtualMachine"), anyString()))
+                        .thenAnswer(new Answer<ManagedObjectReference>() {
+                            @Override
+                            public ManagedObjectReference answer(
+                                    InvocationOnMock invocation) {
+                                String name = (String) invocation
+                                        .getArguments()[2];
+                                if (name.startsWith("unknown")) {
+                                    return null;
+                                }
+                                return createMoRef("moref-" + name);
+                            }
+                        });
+        counterIds = new HashMap<String, Integer>();
+        counterIds.put(VMMetricCollector.CPU_USAGE_PERCENT,
+                Integer.valueOf(CPU));
+        counterIds.put(VMMetricCollector.MEM_USAGE_PERCENT,
+                Integer.valueOf(MEM));
+        counterIds.put(VMMetricCollector.DISK_USAGE_TOTAL,
+                Integer.valueOf(DISK));
+    }
+
+    @Test
+    public void testGetMetrics() throws Exception {
+        // given
+        perfService.add("vm1", VMMetricCollector.INTERVALL_ONE_YEAR, CPU,
+                "5,7");
+        perfService.add("vm1", VMMetricCollector.INTERVALL_ONE_YEAR, MEM,
+                "1000");
+        perfService.add("vm1", VMMetricCollector.INTERVALL_ONE_YEAR, DISK,
+                "42");
+
+        // when
+        Map<String, ArrayList<String>> result = batch.getMetrics("vc", vmw,
+                counterIds, "vm1");
+
+        // then
+        assertEquals(Arrays.asList("5,7"),
+                result.get(VMMetricCollector.CPU_USAGE_PERCENT));
+        assertEquals(Arrays.asList("1000"),
+                result.get(VMMetricCollector.MEM_USAGE_PERCENT));
+        assertEquals(Arrays.asList("42"),
+                result.get(VMMetricCollector.DISK_USAGE_TOTAL));
+        assertEquals(1, perfService.calls);
+        assertEquals(3, perfService.specs.get(0).getMetricId().size());
+    }
+
+    @Test
+    public void testGetMetrics_batched() throws Exception {
+        // given
+        for (int i = 0; i < 3; i++) {
+            perfService.add("vm" + i, VMMetricCollector.INTERVALL_ONE_YEAR,
+                    CPU, String.valueOf(i));
+            perfService.add("vm" + i, VMMetricCollector.INTERVALL_ONE_YEAR,
+                    MEM, String.valueOf(i));
+            perfService.add("vm" + i, VMMetricCollector.INTERVALL_ONE_YEAR,
+                    DISK, String.valueOf(i));
+        }
+        for (int i = 0; i < 3; i++) {
+            batch.getMetrics("vc", vmw, counterIds, "vm" + i);
+        }
+        expireResults();
+
+        // when
+        Map<String, ArrayList<String>> first = batch.getMetrics("vc", vmw,
+                counterIds, "vm0");
+        Map<String, ArrayList<String>> second = batch.getMetrics("vc", vmw,
+                counterIds, "vm1");
+        Map<String, ArrayList<String>> third = batch.getMetrics("vc", vmw,
+                counterIds, "vm2");
+
+        // then
+        assertEquals(1, perfService.calls);
+        assertEquals(3, perfService.specs.size());
+        assertEquals(Arrays.asList("0"),
+                first.get(VMMetricCollector.CPU_USAGE_PERCENT));
+        assertEquals(Arrays.asList("1"),
+                second.get(VMMetricCollector.CPU_USAGE_PERCENT));
+        assertEquals(Arrays.asList("2"),
+                third.get(VMMetricCollector.CPU_USAGE_PERCENT));
+    }
+
+    @Test
+    public void testGetMetrics_cached() throws Exception {
+        // given
+        perfService.add("vm1", VMMetricCollector.INTERVALL_ONE_YEAR, CPU,
+                "5");
+        batch.getMetrics("vc", vmw, counterIds, "vm1");
+
+        // when
+        batch.getMetrics("vc", vmw, counterIds, "vm1");
+
+        // then
+        assertEquals(2, perfService.calls);
+    }
+
+    @Test
+    public void testGetMetrics_chunked() throws Exception {
+        // given
+        int vms = VMMetricBatch.MAX_VMS_PER_QUERY + 1;
+        for (int i = 0; i < vms; i++) {
+            addAll("vm" + i, "1");
+            batch.getMetrics("vc", vmw, counterIds, "vm" + i);
+        }
+        expireResults();
+
+        // when
+        batch.getMetrics("vc", vmw, counterIds, "vm0");
+
+        // then
+        assertEquals(2, perfService.calls);
+        assertEquals(vms, batch.size("vc"));
+    }
+
+    @Test
+    public void testGetMetrics_dailyAverage() throws Exception {
+        // given
+        perfService.add("vm1", VMMetricCollector.INTERVALL_ONE_YEAR, CPU,
+                "5");
+        perfService.add("vm1", VMMetricCollector.INTERVALL_ONE_DAY, CPU,
+                "1,1");
+        perfService.add("vm1", VMMetricCollector.INTERVALL_ONE_DAY, MEM,
+                "1,2,3,4,5,6,7,8,9");
+
+        // when
+        Map<String, ArrayList<String>> result = batch.getMetrics("vc", vmw,
+                counterIds, "vm1");
+
+        // then
+        assertEquals(Arrays.asList("5"),
+                result.get(VMMetricCollector.CPU_USAGE_PERCENT));
+        assertEquals(Arrays.asList("5"),
+                result.get(VMMetricCollector.MEM_USAGE_PERCENT));
+        assertFalse(
+                result.containsKey(VMMetricCollector.DISK_USAGE_TOTAL));
+        assertEquals(2, perfService.calls);
+    }
+
+    @Test
+    public void testGetMetrics_failingVM() throws Exception {
+        // given
+        addAll("vm1", "1");
+        addAll("vm2", "2");
+        batch.getMetrics("vc", vmw, counterIds, "vm1");
+        batch.getMetrics("vc", vmw, counterIds, "vm2");
+        perfService.failing.add("moref-vm1");
+        expireResults();
+
+        // when
+        Map<String, ArrayList<String>> failed = batch.getMetrics("vc", vmw,
+                counterIds, "vm1");
+        Map<String, ArrayList<String>> result = batch.getMetrics("vc", vmw,
+                counterIds, "vm2");
+
+        // then
+        assertTrue(failed.isEmpty());
+        assertEquals(Arrays.asList("2"),
+                result.get(VMMetricCollector.CPU_USAGE_PERCENT));
+    }
+
+    @Test
+    public void testGetMetrics_idle() throws Exception {
+        // given
+        addAll("vm1", "1");
+        addAll("vm2", "2");
+        batch.getMetrics("vc", vmw, counterIds, "vm1");
+        batch.getMetrics("vc", vmw, counterIds, "vm2");
+        now += VMMetricBatch.IDLE_TIMEOUT_MS + 1;
+        perfService.specs.clear();
+
+        // when
+        batch.getMetrics("vc", vmw, counterIds, "vm1");
+
+        // then
+        assertEquals(1, batch.size("vc"));
+        assertEquals(1, perfService.specs.size());
+    }
+
+    @Test
+    public void testGetMetrics_unknownVM() throws Exception {
+        // when
+        Map<String, ArrayList<String>> result = batch.getMetrics("vc", vmw,
+                counterIds, "unknown");
+
+        // then
+        assertNull(result);
+        assertEquals(0, perfService.calls);
+        assertEquals(0, batch.size("vc"));
+    }
+
+    @Test
+    public void testGetMetrics_invalidDailyValue() throws Exception {
+        // given
+        perfService.add("vm1", VMMetricCollector.INTERVALL_ONE_YEAR, CPU,
+                "5");
+        perfService.add("vm1", VMMetricCollector.INTERVALL_ONE_DAY, MEM,
+                "1,x");
+        perfService.add("vm1", VMMetricCollector.INTERVALL_ONE_DAY, DISK,
+                "2,4");
+        addAll("vm2", "2");
+        batch.getMetrics("vc", vmw, counterIds, "vm1");
+        batch.getMetrics("vc", vmw, counterIds, "vm2");
+        expireResults();
+
+        // when
+        Map<String, ArrayList<String>> invalid = batch.getMetrics("vc", vmw,
+                counterIds, "vm1");
+        Map<String, ArrayList<String>> result = batch.getMetrics("vc", vmw,
+                counterIds, "vm2");
+
+        // then
+        assertEquals(Arrays.asList("5"),
+                invalid.get(VMMetricCollector.CPU_USAGE_PERCENT));
+        assertFalse(
+                invalid.containsKey(VMMetricCollector.MEM_USAGE_PERCENT));
+        assertEquals(Arrays.asList("3"),
+                invalid.get(VMMetricCollector.DISK_USAGE_TOTAL));
+        assertEquals(Arrays.asList("2"),
+                result.get(VMMetricCollector.CPU_USAGE_PERCENT));
+        assertEquals(2, perfService.calls);
+    }
+
+    @Test
+    public void testGetMetrics_queryNotLocked() throws Exception {
+        // given
+        addAll("vm1", "1");
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final List<Integer> sizes = new ArrayList<Integer>();
+        perfService.onQuery = new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                sizes.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        return Integer.valueOf(batch.size("vc"));
+                    }
+                }).get(5, TimeUnit.SECONDS));
+                return null;
+            }
+        };
+
+        // when
+        try {
+            batch.getMetrics("vc", vmw, counterIds, "vm1");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // then
+        assertEquals(Arrays.asList(Integer.valueOf(1)), sizes);
+    }
+
+    @Test
+    public void testAddResults() {
+        // given
+        Map<Integer, String> counterNames = new HashMap<Integer, String>();
+        counterNames.put(Integer.valueOf(CPU),
+                VMMetricCollector.CPU_USAGE_PERCENT);
+        Map<String, String> names = new HashMap<String, String>();
+        names.put("moref-vm1", "vm1");
+        PerfEntityMetricCSV metric = new PerfEntityMetricCSV();
+        metric.setEntity(createMoRef("moref-vm1"));
+        metric.getValue().add(createSeries(CPU, "", "test"));
+        metric.getValue().add(createSeries(CPU, "0", "other"));
+        List<PerfEntityMetricBase> retrievedStats = new ArrayList<PerfEntityMetricBase>();
+        retrievedStats.add(metric);
+        Map<String, Map<String, ArrayList<String>>> values = new HashMap<String, Map<String, ArrayList<String>>>();
+
+        // when
+        VMMetricBatch.addResults(retrievedStats, counterNames, names, values);
+
+        // then
+        assertEquals(Arrays.asList("test"),
+                values.get("vm1").get(VMMetricCollector.CPU_USAGE_PERCENT));
+    }
+
+    @Test
+    public void testAddResults_noValues() {
+        // given
+        PerfEntityMetricCSV metric = new PerfEntityMetricCSV();
+        metric.setEntity(createMoRef("moref-vm1"));
+        List<PerfEntityMetricBase> retrievedStats = new ArrayList<PerfEntityMetricBase>();
+        retrievedStats.add(metric);
+        Map<String, String> names = new HashMap<String, String>();
+        names.put("moref-vm1", "vm1");
+        Map<String, Map<String, ArrayList<String>>> values = new HashMap<String, Map<String, ArrayList<String>>>();
+
+        // when
+        VMMetricBatch.addResults(retrievedStats,
+                new HashMap<Integer, String>(), names, values);
+
+        // then
+        assertTrue(values.isEmpty());
+    }
+
+    @Test
+    public void testCreateMetric() {
+        // when
+        PerfMetricId result = VMMetricBatch.createMetric(1);
+
+        // then
+        assertEquals("*", result.getInstance());
+        assertEquals(1, result.getCounterId());
+    }
+
+    @Test
+    public void testCreatePerfQuerySpecs() {
+        // given
+        ManagedObjectReference vm1 = createMoRef("moref-vm1");
+        ManagedObjectReference vm2 = createMoRef("moref-vm2");
+        List<PerfMetricId> perfMetricIds = new ArrayList<PerfMetricId>();
+        perfMetricIds.add(VMMetricBatch.createMetric(CPU));
+        perfMetricIds.add(VMMetricBatch.createMetric(MEM));
+
+        // when
+        List<PerfQuerySpec> result = VMMetricBatch.createPerfQuerySpecs(
+                Arrays.asList(vm1, vm2), perfMetricIds, 86400);
+
+        // then
+        assertEquals(2, result.size());
+        assertEquals(vm1, result.get(0).getEntity());
+        assertEquals(vm2, result.get(1).getEntity());
+        assertEquals(perfMetricIds, result.get(0).getMetricId());
+        assertEquals(Integer.valueOf(86400), result.get(0).getIntervalId());
+        assertEquals("csv", result.get(0).getFormat());
+    }
+
+    @Test
+    public void testCreateAverage() {
+        // given
+        ArrayList<String> values = new ArrayList<String>();
+        ArrayList<String> expected = new ArrayList<String>();
+        String value = "1,2,3,4,5,6,7,8,9";
+        String expectedValue = "5";
+        values.add(value);
+        expected.add(expectedValue);
+
+        // when
+        ArrayList<String> result = VMMetricBatch.createAverage(values);
+
+        // then
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void testCreateAverage_empty() {
+        // given
+        ArrayList<String> values = new ArrayList<String>();
+        values.add("");
+
+        // when
+        ArrayList<String> result = VMMetricBatch.createAverage(values);
+
+        // then
+        assertNull(result);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testCreateAverage_invalid() {
+        // given
+        ArrayList<String> values = new ArrayList<String>();
+        values.add("1,x");
+
+        // when
+        VMMetricBatch.createAverage(values);
+    }
+
+    private void addAll(String vm, String value) {
+        perfService.add(vm, VMMetricCollector.INTERVALL_ONE_YEAR, CPU, value);
+        perfService.add(vm, VMMetricCollector.INTERVALL_ONE_YEAR, MEM, value);
+        perfService.add(vm, VMMetricCollector.INTERVALL_ONE_YEAR, DISK,
+                value);
+    }
+
+    private void expireResults() {
+        now += VMMetricBatch.RESULT_VALIDITY_MS;
+        perfService.calls = 0;
+        perfService.specs.clear();
+    }
+
+    private static ManagedObjectReference createMoRef(String value) {
+        ManagedObjectReference moRef = new ManagedObjectReference();
+        moRef.setType("VirtualMachine");
+        moRef.setValue(value);
+        return moRef;
+    }
+
+    private static PerfMetricSeriesCSV createSeries(int counterId,
+            String instance, String value) {
+        PerfMetricId id = new PerfMetricId();
+        id.setCounterId(counterId);
+        id.setInstance(instance);
+        PerfMetricSeriesCSV series = new PerfMetricSeriesCSV();
+        series.setId(id);
+        series.setValue(value);
+        return series;
+    }
+
+    /**
+     * Answers the performance queries with the values added for the
+     * interval and counters of each query specification.
+     */
+    private static class PerfService
+            implements Answer<List<PerfEntityMetricBase>> {
+        final Map<String, String> values = new HashMap<String, String>();
+        final Set<String> failing = new HashSet<String>();
+        final List<PerfQuerySpec> specs = new ArrayList<PerfQuerySpec>();
+        Callable<Void> onQuery;
+        int calls;
+
+        void add(String vm, int intervall, int counterId, String value) {
+            values.put("moref-" + vm + "/" + intervall + "/" + counterId,
+                    value);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<PerfEntityMetricBase> answer(InvocationOnMock invocation)
+                throws Throwable {
+            calls++;
+            if (onQuery != null) {
+                onQuery.call();
+            }
+            List<PerfQuerySpec> querySpecs = (List<PerfQuerySpec>) invocation
+                    .getArguments()[1];
+            List<PerfEntityMetricBase> result = new ArrayList<PerfEntityMetricBase>();
+            for (PerfQuerySpec spec : querySpecs) {
+                specs.add(spec);
+                if (failing.contains(spec.getEntity().getValue())) {
+                    throw new RuntimeFaultFaultMsg("failed", null);
+                }
+                PerfEntityMetricCSV metric = new PerfEntityMetricCSV();
+                metric.setEntity(spec.getEntity());
+                for (PerfMetricId id : spec.getMetricId()) {
+                    String value = values.get(spec.getEntity().getValue()
+                            + "/" + spec.getIntervalId() + "/"
+                            + id.getCounterId());
+                    if (value != null) {
+                        metric.getValue()
+                                .add(createSeries(id.getCounterId(), "", value));
+                    }
+                }
+                result.add(metric);
+            }
+            return result;
+        }
+    }
+}
@@ -14,22 +14,20 @@ package org.oscm.app.vmware.usage;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentCaptor.forClass;
 import static org.mockito.Matchers.anyString;
-import static org.mockito.Mockito.doReturn;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
-import java.net.MalformedURLException;
-
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.oscm.app.common.usage.UsageEventSink;
 import org.oscm.app.v2_0.data.PasswordAuthentication;
 import org.oscm.app.vmware.business.VMPropertyHandler;
-import org.oscm.intf.EventService;
 import org.oscm.vo.VOGatheredEvent;
 /**
  * 
@@ -39,12 +37,14 @@ public class VMUsageConverterTest {
     
     private VMUsageConverter converter;
     private VMPropertyHandler ph;
+    private UsageEventSink sink;
     
     @Before
     public void before() {
         ph = mock(VMPropertyHandler.class);
         converter = spy(new VMUsageConverter(ph));
         converter.ph = ph;
+        converter.sink = sink = mock(UsageEventSink.class);
 
     }
 
@@ -57,14 +57,12 @@ public class VMUsageConverterTest {
         long multiplier = 0;
         String eventId = "id";
         String occurence = "2011-12-03T10:15:30";
-        EventService svc = mock(EventService.class);
-        doReturn(svc).when(ph).getWebService(EventService.class);
-        
+
         // when
         converter.submit(eventId, multiplier, occurence);
 
         // then
-        verifyZeroInteractions(svc); 
+        verifyZeroInteractions(sink);
     }
 
     /**
@@ -76,14 +74,12 @@ public class VMUsageConverterTest {
         long multiplier = -1;
         String eventId = "id";
         String occurence = "2011-12-03T10:15:30";
-        EventService svc = mock(EventService.class);
-        doReturn(svc).when(ph).getWebService(EventService.class);
-        
+
         // when
         converter.submit(eventId, multiplier, occurence);
 
         // then
-        verifyZeroInteractions(svc);
+        verifyZeroInteractions(sink);
     }
 
     @Test
@@ -93,11 +89,9 @@ public class VMUsageConverterTest {
         String eventId = "eventId";
         String occurence = "1970-01-01T00:00:01";
 
-        EventService svc = mock(EventService.class);
         PasswordAuthentication pwAuth = mock(PasswordAuthentication.class);
         when(ph.getTPAuthentication()).thenReturn(pwAuth);
         when(pwAuth.getUserName()).thenReturn("user");
-        doReturn(svc).when(ph).getWebService(EventService.class);
         
         ArgumentCaptor<VOGatheredEvent> event = forClass(VOGatheredEvent.class);
 
@@ -105,7 +99,7 @@ public class VMUsageConverterTest {
         converter.submit(eventId, multiplier, occurence);
 
         // then
-        verify(svc).recordEventForInstance(anyString(), anyString(),
+        verify(sink).submit(eq(pwAuth), anyString(), anyString(),
                 event.capture());
         assertEquals(1L, event.getValue().getMultiplier());
         assertEquals(1000L, event.getValue().getOccurrenceTime());
@@ -0,0 +1,8 @@
+CREATE TABLE "configurationversion"
+(
+  "tkey" BIGINT NOT NULL,
+  "version" BIGINT NOT NULL,
+  CONSTRAINT "configurationversion_pk" PRIMARY KEY ("tkey")
+);
+
+INSERT INTO "configurationversion" ("tkey", "version") VALUES (1, 0);
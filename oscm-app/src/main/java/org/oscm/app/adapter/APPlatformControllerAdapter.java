@@ -8,19 +8,35 @@
 
 package org.oscm.app.adapter;
 
+import org.oscm.app.common.intf.ServersNumberController;
 import org.oscm.app.v2_0.data.*;
 import org.oscm.app.v2_0.exceptions.APPlatformException;
 import org.oscm.app.v2_0.exceptions.ConfigurationException;
 import org.oscm.app.v2_0.exceptions.ServiceNotReachableException;
 import org.oscm.app.v2_0.intf.APPlatformController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public class APPlatformControllerAdapter implements APPlatformController {
 
+        private static final Logger LOGGER = LoggerFactory
+                .getLogger(APPlatformControllerAdapter.class);
+
         private APPlatformController delegate;
 
+        private AtomicLong calls;
+
+        private Consumer<APPlatformControllerAdapter> failureHandler;
+
         private APPlatformControllerAdapter() {
         }
 
@@ -28,6 +44,27 @@ public class APPlatformControllerAdapter implements APPlatformController {
                 this.delegate = delegate;
         }
 
+        /**
+         * Creates an adapter that counts the calls to the controller and
+         * reports runtime failures of the controller, e.g. when it has been
+         * undeployed.
+         *
+         * @param delegate
+         *            the controller
+         * @param calls
+         *            incremented on every call to the controller
+         * @param failureHandler
+         *            called with this adapter when the controller throws a
+         *            runtime exception
+         */
+        public APPlatformControllerAdapter(APPlatformController delegate,
+                AtomicLong calls,
+                Consumer<APPlatformControllerAdapter> failureHandler) {
+                this.delegate = delegate;
+                this.calls = calls;
+                this.failureHandler = failureHandler;
+        }
+
         public Object getDelegate() {
                 return delegate;
         }
@@ -39,76 +76,76 @@ public class APPlatformControllerAdapter implements APPlatformController {
         @Override
         public InstanceDescription createInstance(ProvisioningSettings settings)
                 throws APPlatformException {
-                return delegate.createInstance(settings);
+                return invoke(() -> delegate.createInstance(settings));
         }
 
         @Override
         public InstanceStatus modifyInstance(String instanceId,
                 ProvisioningSettings currentSettings,
                 ProvisioningSettings newSettings) throws APPlatformException {
-                return delegate
+                return invoke(() -> delegate
                         .modifyInstance(instanceId, currentSettings,
-                                newSettings);
+                                newSettings));
         }
 
         @Override
         public InstanceStatus deleteInstance(String instanceId,
                 ProvisioningSettings settings) throws APPlatformException {
-                return delegate.deleteInstance(instanceId, settings);
+                return invoke(() -> delegate.deleteInstance(instanceId, settings));
         }
 
         @Override
         public InstanceStatus getInstanceStatus(String instanceId,
                 ProvisioningSettings settings) throws APPlatformException {
-                return delegate.getInstanceStatus(instanceId, settings);
+                return invoke(() -> delegate.getInstanceStatus(instanceId, settings));
         }
 
         @Override
         public InstanceStatus notifyInstance(String instanceId,
                 ProvisioningSettings settings, Properties properties)
                 throws APPlatformException {
-                return delegate
-                        .notifyInstance(instanceId, settings, properties);
+                return invoke(() -> delegate
+                        .notifyInstance(instanceId, settings, properties));
         }
 
         @Override
         public InstanceStatus activateInstance(String instanceId,
                 ProvisioningSettings settings) throws APPlatformException {
-                return delegate.activateInstance(instanceId, settings);
+                return invoke(() -> delegate.activateInstance(instanceId, settings));
         }
 
         @Override
         public InstanceStatus deactivateInstance(String instanceId,
                 ProvisioningSettings settings) throws APPlatformException {
-                return delegate.deactivateInstance(instanceId, settings);
+                return invoke(() -> delegate.deactivateInstance(instanceId, settings));
         }
 
         @Override
         public InstanceStatusUsers createUsers(String instanceId,
                 ProvisioningSettings settings, List<ServiceUser> users)
                 throws APPlatformException {
-                return delegate.createUsers(instanceId, settings, users);
+                return invoke(() -> delegate.createUsers(instanceId, settings, users));
         }
 
         @Override
         public InstanceStatus deleteUsers(String instanceId,
                 ProvisioningSettings settings, List<ServiceUser> users)
                 throws APPlatformException {
-                return delegate.deleteUsers(instanceId, settings, users);
+                return invoke(() -> delegate.deleteUsers(instanceId, settings, users));
         }
 
         @Override
         public InstanceStatus updateUsers(String instanceId,
                 ProvisioningSettings settings, List<ServiceUser> users)
                 throws APPlatformException {
-                return delegate.updateUsers(instanceId, settings, users);
+                return invoke(() -> delegate.updateUsers(instanceId, settings, users));
         }
 
         @Override
         public List<LocalizedText> getControllerStatus(
                 ControllerSettings settings)
                 throws APPlatformException {
-                return delegate.getControllerStatus(settings);
+                return invoke(() -> delegate.getControllerStatus(settings));
         }
 
         @Override
@@ -116,9 +153,9 @@ public class APPlatformControllerAdapter implements APPlatformController {
                 String instanceId, String operationId,
                 ProvisioningSettings settings)
                 throws APPlatformException {
-                return delegate
+                return invoke(() -> delegate
                         .getOperationParameters(userId, instanceId, operationId,
-                                settings);
+                                settings));
         }
 
         @Override
@@ -127,40 +164,139 @@ public class APPlatformControllerAdapter implements APPlatformController {
                 List<OperationParameter> parameters,
                 ProvisioningSettings settings)
                 throws APPlatformException {
-                return delegate.executeServiceOperation(userId, instanceId,
-                        transactionId, operationId, parameters, settings);
+                return invoke(() -> delegate.executeServiceOperation(userId, instanceId,
+                        transactionId, operationId, parameters, settings));
         }
 
         @Override
         public void setControllerSettings(ControllerSettings settings) {
-                delegate.setControllerSettings(settings);
+                invoke(() -> {
+                        delegate.setControllerSettings(settings);
+                        return null;
+                });
         }
 
         @Override
         public int getServersNumber(String instanceId, String subscriptionId,
                 String organizationId)
                 throws APPlatformException {
-                return delegate.getServersNumber(instanceId, subscriptionId,
-                        organizationId);
+                return invoke(() -> delegate.getServersNumber(instanceId, subscriptionId,
+                        organizationId));
+        }
+
+        /**
+         * Returns the number of servers of the given instances. A controller
+         * implementing {@link ServersNumberController} is called once for all
+         * instances, other controllers are called for each instance.
+         *
+         * @param instances
+         *            the provisioning settings of the instances by instance ID
+         * @return the number of servers by instance ID; instances whose
+         *         number cannot be determined are missing
+         * @throws APPlatformException
+         *             if the controller fails to determine the numbers at all
+         */
+        public Map<String, Integer> getServersNumbers(
+                Map<String, ProvisioningSettings> instances)
+                throws APPlatformException {
+                Method bulk = getBulkMethod();
+                if (bulk != null) {
+                        return invoke(() -> invokeBulk(bulk, instances));
+                }
+                Map<String, Integer> result = new HashMap<>();
+                for (Map.Entry<String, ProvisioningSettings> entry : instances
+                        .entrySet()) {
+                        ProvisioningSettings settings = entry.getValue();
+                        try {
+                                result.put(entry.getKey(), Integer.valueOf(
+                                        getServersNumber(entry.getKey(),
+                                                settings.getSubscriptionId(),
+                                                settings.getOrganizationId())));
+                        } catch (APPlatformException e) {
+                                LOGGER.error("Number of servers of instance "
+                                        + entry.getKey()
+                                        + " cannot be determined: ", e);
+                        }
+                }
+                return result;
+        }
+
+        /**
+         * Returns the bulk method of the controller or <code>null</code> if
+         * it does not provide one. The controller interfaces are loaded by the
+         * class loader of the controller application, so the method is looked
+         * up by its name.
+         */
+        private Method getBulkMethod() {
+                try {
+                        return delegate.getClass().getMethod(
+                                ServersNumberController.GET_SERVERS_NUMBERS,
+                                Map.class);
+                } catch (NoSuchMethodException e) {
+                        return null;
+                }
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, Integer> invokeBulk(Method bulk,
+                Map<String, ProvisioningSettings> instances)
+                throws APPlatformException {
+                try {
+                        return (Map<String, Integer>) bulk.invoke(delegate,
+                                new HashMap<>(instances));
+                } catch (InvocationTargetException e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof APPlatformException) {
+                                throw (APPlatformException) cause;
+                        }
+                        if (cause instanceof RuntimeException) {
+                                throw (RuntimeException) cause;
+                        }
+                        if (cause instanceof Error) {
+                                throw (Error) cause;
+                        }
+                        throw new APPlatformException(cause.getMessage(), cause);
+                } catch (IllegalAccessException e) {
+                        throw new APPlatformException(e.getMessage(), e);
+                }
         }
 
         @Override
         public boolean gatherUsageData(String controllerId,
                 String instanceId, String startTime, String endTime,
                 ProvisioningSettings settings) throws APPlatformException {
-                return delegate
+                return invoke(() -> delegate
                         .gatherUsageData(controllerId, instanceId, startTime,
-                                endTime, settings);
+                                endTime, settings));
         }
 
         @Override
         public boolean ping(String controllerId)
                 throws ServiceNotReachableException {
-                return delegate.ping(controllerId);
+                return invoke(() -> delegate.ping(controllerId));
         }
 
         @Override
         public boolean canPing() throws ConfigurationException {
-                return delegate.canPing();
+                return invoke(() -> delegate.canPing());
+        }
+
+        private <T, E extends Exception> T invoke(Call<T, E> call) throws E {
+                if (calls != null) {
+                        calls.incrementAndGet();
+                }
+                try {
+                        return call.execute();
+                } catch (RuntimeException e) {
+                        if (failureHandler != null) {
+                                failureHandler.accept(this);
+                        }
+                        throw e;
+                }
+        }
+
+        @FunctionalInterface
+        private interface Call<T, E extends Exception> {
+                T execute() throws E;
         }
 }
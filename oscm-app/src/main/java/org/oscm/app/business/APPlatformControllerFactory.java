@@ -14,15 +14,76 @@ import org.oscm.app.v2_0.intf.APPlatformController;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Provides the controllers by their id. Each controller is looked up in JNDI
+ * once, and the adapter is kept until the controller fails with a runtime
+ * exception, e.g. because it has been undeployed, or until it is invalidated.
+ * The next request for such a controller looks it up again.
+ */
 public class APPlatformControllerFactory {
 
     private static final Logger logger = LoggerFactory
             .getLogger(APPlatformControllerFactory.class);
 
+    private static final ConcurrentMap<String, APPlatformController> controllers = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<String, AtomicLong> calls = new ConcurrentHashMap<>();
+
     public static APPlatformController getInstance(String controllerId)
             throws ControllerLookupException {
+        APPlatformController controller = controllers.get(controllerId);
+        if (controller != null) {
+            return controller;
+        }
+        synchronized (locks.computeIfAbsent(controllerId, id -> new Object())) {
+            controller = controllers.get(controllerId);
+            if (controller == null) {
+                controller = lookup(controllerId);
+                controllers.put(controllerId, controller);
+            }
+            return controller;
+        }
+    }
+
+    /**
+     * Removes the given controller, so that it is looked up again on the next
+     * request.
+     */
+    public static void invalidate(String controllerId) {
+        controllers.remove(controllerId);
+    }
+
+    /**
+     * Removes all controllers and call counters.
+     */
+    public static void clear() {
+        controllers.clear();
+        calls.clear();
+    }
+
+    /**
+     * Returns the number of calls to each controller since it was first
+     * requested.
+     */
+    public static Map<String, Long> getCallCounts() {
+        Map<String, Long> result = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : calls.entrySet()) {
+            result.put(entry.getKey(), Long.valueOf(entry.getValue().get()));
+        }
+        return result;
+    }
+
+    private static APPlatformController lookup(String controllerId)
+            throws ControllerLookupException {
         String controllerFullId = APPlatformController.JNDI_PREFIX
                 + controllerId;
         try {
@@ -34,8 +95,11 @@ public class APPlatformControllerFactory {
             APPlatformController adapter;
 
             if (APPlatformController.class.isAssignableFrom(lookup.getClass())) {
+                AtomicLong counter = calls.computeIfAbsent(controllerId,
+                        id -> new AtomicLong());
                 adapter = new APPlatformControllerAdapter(
-                        (APPlatformController) lookup);
+                        (APPlatformController) lookup, counter,
+                        failed -> failed(controllerId, failed));
             } else {
                 logger.warn("Exception during controller lookup ["
                         + controllerFullId + "]");
@@ -50,4 +114,12 @@ public class APPlatformControllerFactory {
                     Messages.getAll("error_controller_lookup"), e);
         }
     }
+
+    private static void failed(String controllerId,
+            APPlatformController controller) {
+        if (controllers.remove(controllerId, controller)) {
+            logger.info("Controller [" + controllerId
+                    + "] failed, it will be looked up again on next request");
+        }
+    }
 }
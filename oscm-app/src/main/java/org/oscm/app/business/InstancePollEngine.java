@@ -0,0 +1,235 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.business;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.oscm.app.domain.PlatformConfigurationKey;
+import org.oscm.app.v2_0.exceptions.ConfigurationException;
+import org.oscm.app.v2_0.service.APPConfigurationServiceBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Distributes the polling of service instances to a bounded number of worker
+ * threads. The instances are grouped by a key (usually the controller ID) and
+ * each group has its own concurrency limit, so that one slow controller cannot
+ * occupy all workers. The groups are served in a round robin manner.
+ * <p>
+ * Each instance is handed to exactly one task, so all polling steps of an
+ * instance are executed in sequence by the same worker.
+ */
+public class InstancePollEngine {
+
+    private static final Logger logger = LoggerFactory
+            .getLogger(InstancePollEngine.class);
+
+    public static final int DEFAULT_MAX_THREADS = 10;
+
+    public static final int DEFAULT_MAX_PER_CONTROLLER = 4;
+
+    private final Executor executor;
+    private final int maxThreads;
+    private final int maxPerGroup;
+
+    /**
+     * Creates a new poll engine.
+     *
+     * @param executor
+     *            the executor running the poll tasks
+     * @param maxThreads
+     *            the maximum number of tasks running at the same time
+     * @param maxPerGroup
+     *            the maximum number of tasks of one group running at the same
+     *            time
+     */
+    public InstancePollEngine(Executor executor, int maxThreads,
+            int maxPerGroup) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must be set");
+        }
+        this.executor = executor;
+        this.maxThreads = Math.max(1, maxThreads);
+        this.maxPerGroup = Math.max(1, maxPerGroup);
+    }
+
+    /**
+     * Creates the poll engine of an APP timer. The limits are taken from the
+     * settings {@link PlatformConfigurationKey#APP_TIMER_POLL_THREADS} and
+     * {@link PlatformConfigurationKey#APP_TIMER_POLL_THREADS_PER_CONTROLLER}.
+     * Without an executor or with a single thread configured, the returned
+     * engine processes all items sequentially in the calling thread.
+     *
+     * @param executor
+     *            the executor running the poll tasks, may be <code>null</code>
+     * @param configService
+     *            the service providing the settings
+     * @return the poll engine
+     */
+    public static InstancePollEngine create(Executor executor,
+            APPConfigurationServiceBean configService) {
+        int threads = getSetting(configService,
+                PlatformConfigurationKey.APP_TIMER_POLL_THREADS,
+                DEFAULT_MAX_THREADS);
+        if (executor == null || threads <= 1) {
+            return new InstancePollEngine(Runnable::run, 1, 1);
+        }
+        int threadsPerController = getSetting(configService,
+                PlatformConfigurationKey.APP_TIMER_POLL_THREADS_PER_CONTROLLER,
+                DEFAULT_MAX_PER_CONTROLLER);
+        return new InstancePollEngine(executor, threads, threadsPerController);
+    }
+
+    private static int getSetting(APPConfigurationServiceBean configService,
+            PlatformConfigurationKey key, int defaultValue) {
+        try {
+            String value = configService.getProxyConfigurationSetting(key);
+            return value == null ? defaultValue : Integer.parseInt(value.trim());
+        } catch (ConfigurationException | NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public int getMaxPerGroup() {
+        return maxPerGroup;
+    }
+
+    /**
+     * Runs the given task for all items and returns when all of them have been
+     * processed. Exceptions thrown by a task are logged and do not affect the
+     * processing of the other items.
+     *
+     * @param items
+     *            the items to be processed
+     * @param groupKey
+     *            determines the group (e.g. the controller ID) of an item
+     * @param task
+     *            the task to be executed for each item
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting for the
+     *             tasks to finish
+     */
+    public <T> void execute(Collection<T> items, Function<T, String> groupKey,
+            Consumer<T> task) throws InterruptedException {
+        if (items == null || items.isEmpty()) {
+            return;
+        }
+        new Cycle<>(items, groupKey, task).run();
+    }
+
+    /**
+     * The state of one execution of {@link #execute}.
+     */
+    private class Cycle<T> {
+
+        private final Consumer<T> task;
+        private final Map<String, Deque<T>> pending = new LinkedHashMap<>();
+        private final Map<String, Integer> running = new HashMap<>();
+        private final List<String> groups;
+        private final int total;
+        private int active;
+        private int completed;
+        private int cursor;
+
+        Cycle(Collection<T> items, Function<T, String> groupKey,
+                Consumer<T> task) {
+            this.task = task;
+            for (T item : items) {
+                String key = String.valueOf(groupKey.apply(item));
+                pending.computeIfAbsent(key, k -> new ArrayDeque<>())
+                        .add(item);
+            }
+            groups = new ArrayList<>(pending.keySet());
+            total = items.size();
+        }
+
+        void run() throws InterruptedException {
+            while (true) {
+                String group;
+                T item;
+                synchronized (this) {
+                    group = nextGroup();
+                    while (group == null && completed < total) {
+                        wait();
+                        group = nextGroup();
+                    }
+                    if (group == null) {
+                        return;
+                    }
+                    item = pending.get(group).poll();
+                    running.merge(group, Integer.valueOf(1), Integer::sum);
+                    active++;
+                }
+                submit(group, item);
+            }
+        }
+
+        /**
+         * Returns the next group with pending items and free capacity or
+         * <code>null</code> if no item can be started right now.
+         */
+        private String nextGroup() {
+            if (active >= maxThreads) {
+                return null;
+            }
+            for (int i = 0; i < groups.size(); i++) {
+                String group = groups.get((cursor + i) % groups.size());
+                int count = running.getOrDefault(group, Integer.valueOf(0))
+                        .intValue();
+                if (!pending.get(group).isEmpty() && count < maxPerGroup) {
+                    cursor = (cursor + i + 1) % groups.size();
+                    return group;
+                }
+            }
+            return null;
+        }
+
+        private void submit(String group, T item) {
+            Runnable runnable = () -> {
+                try {
+                    task.accept(item);
+                } catch (RuntimeException e) {
+                    logger.error("Error occured during polling for group "
+                            + group, e);
+                } finally {
+                    finished(group);
+                }
+            };
+            try {
+                executor.execute(runnable);
+            } catch (RejectedExecutionException e) {
+                logger.warn(
+                        "Poll task rejected by executor, running it in the calling thread");
+                runnable.run();
+            }
+        }
+
+        private synchronized void finished(String group) {
+            running.merge(group, Integer.valueOf(-1), Integer::sum);
+            active--;
+            completed++;
+            notifyAll();
+        }
+    }
+}
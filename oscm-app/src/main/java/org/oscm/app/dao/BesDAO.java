@@ -57,8 +57,12 @@ public class BesDAO {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(BesDAO.class);
 
+  private static final ServicePortCache PORT_CACHE = new ServicePortCache();
+
   @EJB protected APPConfigurationServiceBean configService;
 
+  ServicePortCache portCache = PORT_CACHE;
+
   /**
    * Reads the WSDL for any OSCM web service and returns an interface to the service implementation.
    * When a service instance is given, the respective BES credentials will be set. The APP specific
@@ -67,15 +71,17 @@ public class BesDAO {
    * @param serviceClass the class of the requested service interface
    * @param serviceInstance the service instance to retrieve the client for (optional)
    * @param controllerId
-   * @return a service interface to the requested OSCM service
+   * @return a service interface to the requested OSCM service, to be released with {@link
+   *     #releaseBESWebService(Object)} after use
    */
   public <T> T getBESWebService(
       Class<T> serviceClass, ServiceInstance serviceInstance, Optional<String> controllerId)
       throws APPlatformException {
 
+    T client = null;
     try {
       Map<String, Setting> proxySettings = configService.getAllProxyConfigurationSettings();
-      T client = getServicePort(serviceClass, proxySettings);
+      client = getServicePort(serviceClass, proxySettings);
 
       PasswordAuthentication pwAuth =
           configService.getWebServiceAuthentication(serviceInstance, proxySettings, controllerId);
@@ -85,23 +91,45 @@ public class BesDAO {
 
       LOGGER.info("Getting webservice:" + serviceClass + " for user: "+userName);
 
-      setBinding((BindingProvider) client, userName, password);
+      setBinding((BindingProvider) client, userName, password, proxySettings);
       return client;
     } catch (MalformedURLException e) {
+        releaseBESWebService(client);
         throw new ConfigurationException(
             e.getMessage(), PlatformConfigurationKey.BSS_WEBSERVICE_URL.name());
     } catch (APPlatformException e) {
+      releaseBESWebService(client);
       throw e;
     } catch (Exception e) {
+      releaseBESWebService(client);
       APPlatformException pe = new APPlatformException(e.getMessage(), e);
       LOGGER.warn("Retrieving the OSCM service client failed.", pe);
       throw pe;
     }
   }
 
+  /**
+   * Gives back a client returned by {@link #getBESWebService}, so that it can be reused.
+   *
+   * @param client the client, may be <code>null</code>
+   */
+  public void releaseBESWebService(Object client) {
+    portCache.release(client);
+  }
+
   public void setBinding(BindingProvider client, String userName, String password) throws ConfigurationException {
+    setBinding(client, userName, password, configService.getAllProxyConfigurationSettings());
+  }
 
-    Map<String, Setting> proxySettings = configService.getAllProxyConfigurationSettings();
+  /**
+   * Binds the given credentials to the web service client. Since the clients are reused, the
+   * security handler of previous calls is replaced.
+   */
+  void setBinding(
+      BindingProvider client,
+      String userName,
+      String password,
+      Map<String, Setting> proxySettings) {
 
     if (isSsoMode(proxySettings)) {
       password = addPasswordPrefix(password);
@@ -128,9 +156,10 @@ public class BesDAO {
   /** Get all technology managers with specified email address for the service instance. */
   public List<VOUserDetails> getBESTechnologyManagers(ServiceInstance si) {
     List<VOUserDetails> mailUsers = new ArrayList<>();
+    IdentityService is = null;
     try {
       // Get all technology managers of TP organization
-      IdentityService is = getBESWebService(IdentityService.class, si, Optional.empty());
+      is = getBESWebService(IdentityService.class, si, Optional.empty());
       List<VOUserDetails> orgUsers = is.getUsersForOrganization();
       for (VOUserDetails user : orgUsers) {
         if (user.getUserRoles().contains(UserRoleType.TECHNOLOGY_MANAGER)
@@ -144,6 +173,8 @@ public class BesDAO {
               + ex.getMessage()
               + "]",
           ex);
+    } finally {
+      releaseBESWebService(is);
     }
     if (mailUsers.isEmpty()) {
       LOGGER.warn("No technology managers mails set.");
@@ -157,20 +188,25 @@ public class BesDAO {
     String targetNamespace = serviceClass.getAnnotation(WebService.class).targetNamespace();
     QName serviceQName = new QName(targetNamespace, serviceClass.getSimpleName());
 
-    Service service = createWebService(getWsdlUrl(serviceClass, settings), serviceQName);
-
-    return service.getPort(serviceClass);
+    return portCache.getPort(
+        serviceClass,
+        getWsdlSetting(settings),
+        getWsdlUrl(serviceClass, settings),
+        wsdlUrl -> createWebService(wsdlUrl, serviceQName));
   }
 
   <T> URL getWsdlUrl(Class<T> serviceClass, Map<String, Setting> settings)
       throws MalformedURLException {
-    String wsdlUrl =
-        settings.get(PlatformConfigurationKey.BSS_WEBSERVICE_WSDL_URL.name()).getValue();
+    String wsdlUrl = getWsdlSetting(settings);
     wsdlUrl = wsdlUrl.replace("{SERVICE}", serviceClass.getSimpleName());
 
     return new URL(wsdlUrl);
   }
 
+  private String getWsdlSetting(Map<String, Setting> settings) {
+    return settings.get(PlatformConfigurationKey.BSS_WEBSERVICE_WSDL_URL.name()).getValue();
+  }
+
   boolean isSsoMode(Map<String, Setting> settings) {
     return "OIDC".equals(settings.get(PlatformConfigurationKey.BSS_AUTH_MODE.name()).getValue());
   }
@@ -179,9 +215,9 @@ public class BesDAO {
       throws BESNotificationException {
 
     VOSubscription vo;
+    SubscriptionService subServ = null;
     try {
-      SubscriptionService subServ =
-          getBESWebService(SubscriptionService.class, currentSI, Optional.empty());
+      subServ = getBESWebService(SubscriptionService.class, currentSI, Optional.empty());
 
       vo =
           subServ.getSubscriptionForCustomer(
@@ -190,6 +226,8 @@ public class BesDAO {
       subServ.terminateSubscription(vo, reason);
     } catch (Exception e) {
       throw new BESNotificationException("The subscription cannot be terminated.", e);
+    } finally {
+      releaseBESWebService(subServ);
     }
   }
 
@@ -204,9 +242,9 @@ public class BesDAO {
       return;
     }
 
+    SubscriptionService subServ = null;
     try {
-      SubscriptionService subServ =
-          getBESWebService(SubscriptionService.class, currentSI, Optional.empty());
+      subServ = getBESWebService(SubscriptionService.class, currentSI, Optional.empty());
 
       if (isCompleted) {
 
@@ -226,6 +264,8 @@ public class BesDAO {
       handleObjectNotFoundException(currentSI, instanceResult);
     } catch (Exception e) {
       handleException(currentSI, e);
+    } finally {
+      releaseBESWebService(subServ);
     }
   }
 
@@ -242,9 +282,9 @@ public class BesDAO {
 
     VOInstanceInfo voInstanceInfo = getInstanceInfo(currentSI, instanceResult);
 
+    SubscriptionService subServ = null;
     try {
-      SubscriptionService subServ =
-          getBESWebService(SubscriptionService.class, currentSI, Optional.empty());
+      subServ = getBESWebService(SubscriptionService.class, currentSI, Optional.empty());
       if (isCompleted) {
         subServ.completeAsyncModifySubscription(
             currentSI.getSubscriptionId(), currentSI.getOrganizationId(), voInstanceInfo);
@@ -264,23 +304,36 @@ public class BesDAO {
       handleObjectNotFoundException(currentSI, instanceResult);
     } catch (Exception e) {
       handleException(currentSI, e);
+    } finally {
+      releaseBESWebService(subServ);
     }
   }
 
   public void notifySubscriptionAboutVmsNumber(ServiceInstance currentSI)
       throws BESNotificationException {
+    notifySubscriptionAboutVmsNumber(currentSI, currentSI.getVmsNumber());
+  }
+
+  /**
+   * Notifies the subscription of the given instance about the given number of VMs, which does not
+   * have to be stored yet.
+   */
+  public void notifySubscriptionAboutVmsNumber(ServiceInstance currentSI, int vmsNumber)
+      throws BESNotificationException {
     if (currentSI.isDeleted()) {
       return;
     }
     VOInstanceInfo voInstanceInfo = new VOInstanceInfo();
-    voInstanceInfo.setVmsNumber(currentSI.getVmsNumber());
+    voInstanceInfo.setVmsNumber(vmsNumber);
+    SubscriptionService subServ = null;
     try {
-      SubscriptionService subServ =
-          getBESWebService(SubscriptionService.class, currentSI, Optional.empty());
+      subServ = getBESWebService(SubscriptionService.class, currentSI, Optional.empty());
       subServ.notifySubscriptionAboutVmsNumber(
           currentSI.getSubscriptionId(), currentSI.getOrganizationId(), voInstanceInfo);
     } catch (Exception e) {
       handleException(currentSI, e);
+    } finally {
+      releaseBESWebService(subServ);
     }
   }
 
@@ -295,7 +348,7 @@ public class BesDAO {
       return;
     }
 
-    SubscriptionService subServ;
+    SubscriptionService subServ = null;
     try {
       subServ = getBESWebService(SubscriptionService.class, currentSI, Optional.empty());
       subServ.updateAsyncOperationProgress(transactionId, status, toBES(list));
@@ -308,6 +361,8 @@ public class BesDAO {
       }
     } catch (Exception e) {
       handleException(currentSI, e);
+    } finally {
+      releaseBESWebService(subServ);
     }
   }
 
@@ -318,7 +373,7 @@ public class BesDAO {
       return;
     }
 
-    SubscriptionService subServ;
+    SubscriptionService subServ = null;
     try {
       subServ = getBESWebService(SubscriptionService.class, currentSI, Optional.empty());
       VOInstanceInfo vo = new VOInstanceInfo();
@@ -329,6 +384,8 @@ public class BesDAO {
 
     } catch (Exception e) {
       handleException(currentSI, e);
+    } finally {
+      releaseBESWebService(subServ);
     }
   }
 
@@ -393,9 +450,9 @@ public class BesDAO {
 
     VOInstanceInfo voInstanceInfo = getInstanceInfo(currentSI, instanceResult);
 
+    SubscriptionService subServ = null;
     try {
-      SubscriptionService subServ =
-          getBESWebService(SubscriptionService.class, currentSI, Optional.empty());
+      subServ = getBESWebService(SubscriptionService.class, currentSI, Optional.empty());
       if (isCompleted) {
         subServ.completeAsyncUpgradeSubscription(
             currentSI.getSubscriptionId(), currentSI.getOrganizationId(), voInstanceInfo);
@@ -411,6 +468,8 @@ public class BesDAO {
       handleObjectNotFoundException(currentSI, instanceResult);
     } catch (Exception e) {
       handleException(currentSI, e);
+    } finally {
+      releaseBESWebService(subServ);
     }
   }
 
@@ -435,9 +494,9 @@ public class BesDAO {
       return;
     }
 
+    SubscriptionService subServ = null;
     try {
-      SubscriptionService subServ =
-          getBESWebService(SubscriptionService.class, currentSI, Optional.empty());
+      subServ = getBESWebService(SubscriptionService.class, currentSI, Optional.empty());
       subServ.updateAsyncSubscriptionProgress(
           currentSI.getSubscriptionId(), currentSI.getOrganizationId(), toBES(list));
 
@@ -462,6 +521,8 @@ public class BesDAO {
               "Could not notify OSCM on new service provisioning status", e);
       LOGGER.error(bne.getMessage(), bne);
       throw bne;
+    } finally {
+      releaseBESWebService(subServ);
     }
   }
 
@@ -498,14 +559,17 @@ public class BesDAO {
     VOUserDetails userDetails = null;
     IdentityService idServ = getBESWebService(IdentityService.class, si, controllerId);
 
-    if (user != null) {
-      setBinding((BindingProvider) idServ, String.valueOf(user.getKey()), password);
-    }
-
     try {
+      if (user != null) {
+        setBinding((BindingProvider) idServ, String.valueOf(user.getKey()), password);
+      }
       userDetails = idServ.getCurrentUserDetails();
+    } catch (APPlatformException e) {
+      throw e;
     } catch (Exception e) {
       throw new APPlatformException(e.getMessage(), e);
+    } finally {
+      releaseBESWebService(idServ);
     }
 
     return userDetails;
@@ -524,6 +588,8 @@ public class BesDAO {
       throw ae;
     } catch (Exception e) {
       throw new APPlatformException(e.getMessage(), e);
+    } finally {
+      releaseBESWebService(idServ);
     }
     return retrunUser;
   }
@@ -539,11 +605,14 @@ public class BesDAO {
   }
 
   public boolean isBESAvalible() {
+    IdentityService is = null;
     try {
-      IdentityService is = getBESWebService(IdentityService.class, null, Optional.empty());
+      is = getBESWebService(IdentityService.class, null, Optional.empty());
       is.getCurrentUserDetails();
     } catch (APPlatformException e) {
       return !isCausedByConnectionException(e);
+    } finally {
+      releaseBESWebService(is);
     }
     return true;
   }
@@ -23,7 +23,11 @@ import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Stateless
 @LocalBean
@@ -33,6 +37,11 @@ public class ServiceInstanceDAO {
     public EntityManager em;
     private static final Logger LOGGER = LoggerFactory.getLogger(ServiceInstanceDAO.class);
 
+    /**
+     * The maximum number of instance keys passed to one bulk update.
+     */
+    static final int MAX_KEYS_PER_UPDATE = 500;
+
     public ServiceInstance getInstanceById(String instanceId)
             throws ServiceInstanceNotFoundException {
         if (Strings.isEmpty(instanceId)) {
@@ -283,12 +292,69 @@ public class ServiceInstanceDAO {
         return serviceInstance;
     }    
     
+    /**
+     * Reads the value of the given parameter for all service instances with
+     * one query.
+     * 
+     * @param param
+     *            the parameter key
+     * @return the parameter values by technical key of the instance
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Long, String> getParamValues(String param) {
+        if (param == null) {
+            throw new IllegalArgumentException();
+        }
+        Query query = em.createNamedQuery("InstanceParameter.getValuesForKey");
+        query.setParameter("key", param);
+        Map<Long, String> values = new HashMap<>();
+        for (Object[] row : (List<Object[]>) query.getResultList()) {
+            values.put((Long) row[0], (String) row[1]);
+        }
+        return values;
+    }
+
+    /**
+     * Sets the given parameter of the given service instances to the same
+     * value with bulk updates. Instances without the parameter are not
+     * changed.
+     * 
+     * @param instanceKeys
+     *            the technical keys of the instances
+     * @param value
+     *            the new value
+     * @param param
+     *            the parameter key
+     * @return the number of updated parameters
+     */
+    public int updateParams(Collection<Long> instanceKeys, String value,
+            String param) {
+        if (instanceKeys == null || value == null || param == null) {
+            throw new IllegalArgumentException();
+        }
+        List<Long> keys = new ArrayList<>(instanceKeys);
+        int updated = 0;
+        for (int i = 0; i < keys.size(); i += MAX_KEYS_PER_UPDATE) {
+            Query query = em
+                    .createNamedQuery("InstanceParameter.updateValueForInstances");
+            query.setParameter("value", value);
+            query.setParameter("key", param);
+            query.setParameter("keys", keys.subList(i,
+                    Math.min(i + MAX_KEYS_PER_UPDATE, keys.size())));
+            updated += query.executeUpdate();
+        }
+        return updated;
+    }
+
     public ServiceInstance updateVmsNumber(ServiceInstance serviceInstance, Integer vmsNumber) {
-//        Query query = em.createNamedQuery("ServiceInstance.getForKey");
-//        query.setParameter("key", serviceInstance.getInstanceId());
-//        ServiceInstance si = (ServiceInstance) query.getSingleResult();
-//        si.setVmsNumber(vmsNumber);
-//        return em.merge(si);
-        return serviceInstance;
+        if (vmsNumber == null) {
+            throw new IllegalArgumentException();
+        }
+        Query query = em.createNamedQuery("ServiceInstance.getForKey");
+        query.setParameter("key", serviceInstance.getInstanceId());
+        ServiceInstance si = (ServiceInstance) query.getSingleResult();
+        si.setVmsNumber(vmsNumber.intValue());
+        em.flush();
+        return si;
     }
 }
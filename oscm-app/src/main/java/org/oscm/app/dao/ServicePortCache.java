@@ -0,0 +1,139 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+package org.oscm.app.dao;
+
+import java.net.URL;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import javax.xml.ws.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache for the OSCM web service clients. Creating a {@link Service} downloads
+ * and parses the remote WSDL, so the services are created once per service
+ * class and WSDL URL and shared by all threads.
+ *
+ * <p>The ports created from these services are not thread safe. A port is handed out to one
+ * caller at a time and must be given back with {@link #release(Object)} when the caller is done.
+ * At most {@link #MAX_IDLE_PORTS} released ports are kept per service class and WSDL URL; further
+ * ports are dropped.
+ *
+ * <p>The cache is invalidated as soon as the configured WSDL URL changes. All services and idle
+ * ports are dropped then, and ports handed out before are not taken back.
+ */
+class ServicePortCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ServicePortCache.class);
+
+  static final int MAX_IDLE_PORTS = 10;
+
+  private final ConcurrentMap<String, Service> services = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, BlockingQueue<Object>> idlePorts =
+      new ConcurrentHashMap<>();
+
+  /** The key of each port handed out and not yet released. */
+  private final Map<Object, String> leasedPorts = new IdentityHashMap<>();
+
+  private volatile String wsdlSetting;
+
+  /**
+   * Returns a port for the given service interface and WSDL location. The port has to be released
+   * after use.
+   *
+   * @param serviceClass the class of the requested service interface
+   * @param wsdlSetting the configured WSDL URL (with the <code>{SERVICE}</code> placeholder)
+   * @param wsdlUrl the WSDL URL of the requested service
+   * @param serviceFactory creates the service if it is not yet cached
+   * @return the port
+   */
+  <T> T getPort(
+      Class<T> serviceClass,
+      String wsdlSetting,
+      URL wsdlUrl,
+      Function<URL, Service> serviceFactory) {
+
+    checkWsdlSetting(wsdlSetting);
+
+    String key = serviceClass.getName() + "@" + wsdlUrl.toExternalForm();
+    BlockingQueue<Object> idle = idlePorts.get(key);
+    Object port = idle == null ? null : idle.poll();
+    if (port == null) {
+      Service service = services.computeIfAbsent(key, k -> serviceFactory.apply(wsdlUrl));
+      port = service.getPort(serviceClass);
+    }
+    if (port != null) {
+      synchronized (leasedPorts) {
+        leasedPorts.put(port, key);
+      }
+    }
+    return serviceClass.cast(port);
+  }
+
+  /**
+   * Gives back a port handed out by {@link #getPort}, so that it can be reused. Unknown ports and
+   * ports handed out before the last invalidation are dropped.
+   *
+   * @param port the port, may be <code>null</code>
+   */
+  void release(Object port) {
+    if (port == null) {
+      return;
+    }
+    synchronized (leasedPorts) {
+      String key = leasedPorts.remove(port);
+      if (key != null) {
+        idlePorts.computeIfAbsent(key, k -> new ArrayBlockingQueue<>(MAX_IDLE_PORTS)).offer(port);
+      }
+    }
+  }
+
+  /** Removes all cached services and ports. */
+  void invalidate() {
+    services.clear();
+    synchronized (leasedPorts) {
+      leasedPorts.clear();
+      idlePorts.clear();
+    }
+  }
+
+  int size() {
+    return services.size();
+  }
+
+  int idleSize() {
+    int size = 0;
+    for (BlockingQueue<Object> idle : idlePorts.values()) {
+      size += idle.size();
+    }
+    return size;
+  }
+
+  private void checkWsdlSetting(String newSetting) {
+    String current = wsdlSetting;
+    if (current == null || !current.equals(newSetting)) {
+      synchronized (this) {
+        if (wsdlSetting == null || !wsdlSetting.equals(newSetting)) {
+          if (wsdlSetting != null) {
+            LOGGER.info("WSDL location of OSCM services changed, clearing web service cache");
+            invalidate();
+          }
+          wsdlSetting = newSetting;
+        }
+      }
+    }
+  }
+}
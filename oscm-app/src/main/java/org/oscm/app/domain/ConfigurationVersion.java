@@ -0,0 +1,56 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+
+/**
+ * Version of the APP configuration. The single row of this table is
+ * incremented whenever configuration settings or custom attributes are stored,
+ * so that cached configuration data can be detected as outdated on all nodes.
+ */
+@Entity
+@NamedQueries({
+        @NamedQuery(name = "ConfigurationVersion.increment", query = "UPDATE ConfigurationVersion cv SET cv.version = cv.version + 1 WHERE cv.tkey = 1") })
+public class ConfigurationVersion {
+
+    /**
+     * The technical key of the single version row.
+     */
+    public static final Long ID = Long.valueOf(1);
+
+    @Id
+    private long tkey;
+
+    /**
+     * The current version of the configuration.
+     */
+    @Column(nullable = false)
+    private long version;
+
+    public long getTkey() {
+        return tkey;
+    }
+
+    public void setTkey(long tkey) {
+        this.tkey = tkey;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
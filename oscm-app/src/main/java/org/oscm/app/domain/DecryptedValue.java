@@ -0,0 +1,40 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+
+package org.oscm.app.domain;
+
+/**
+ * The decrypted form of an encrypted parameter or attribute value together
+ * with the encrypted value it belongs to. Both are published in one immutable
+ * object, so that a reader never sees the decrypted value of another
+ * encrypted value.
+ */
+final class DecryptedValue {
+
+    private final String encryptedValue;
+
+    private final String value;
+
+    DecryptedValue(String encryptedValue, String value) {
+        this.encryptedValue = encryptedValue;
+        this.value = value;
+    }
+
+    /**
+     * Returns <code>true</code> if this is the decryption of the given
+     * encrypted value.
+     */
+    boolean isDecryptionOf(String encryptedValue) {
+        return this.encryptedValue != null
+                && this.encryptedValue.equals(encryptedValue);
+    }
+
+    String getValue() {
+        return value;
+    }
+}
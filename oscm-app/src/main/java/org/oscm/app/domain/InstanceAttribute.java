@@ -56,6 +56,13 @@ public class InstanceAttribute {
      */
     private boolean encrypted;
 
+    /**
+     * The last decrypted value. Decryption is only repeated when the stored
+     * value has changed.
+     */
+    @Transient
+    private DecryptedValue decrypted;
+
     /**
      * The controller this attribute is meant for.
      */
@@ -82,9 +89,18 @@ public class InstanceAttribute {
     }
 
     public String getDecryptedValue() throws BadResultException {
+        if (!isEncrypted()) {
+            return attributeValue;
+        }
+        String encryptedValue = attributeValue;
+        DecryptedValue cached = decrypted;
+        if (cached != null && cached.isDecryptionOf(encryptedValue)) {
+            return cached.getValue();
+        }
         try {
-            return isEncrypted() ? AESEncrypter.decrypt(attributeValue)
-                    : attributeValue;
+            String value = AESEncrypter.decrypt(encryptedValue);
+            decrypted = new DecryptedValue(encryptedValue, value);
+            return value;
         } catch (GeneralSecurityException e) {
             throw new BadResultException(String.format(
                     "Attribute for key '%s' could not be decrypted",
@@ -101,6 +117,10 @@ public class InstanceAttribute {
         try {
             this.attributeValue = isEncrypted()
                     ? AESEncrypter.encrypt(parameterValue) : parameterValue;
+            if (isEncrypted()) {
+                decrypted = new DecryptedValue(this.attributeValue,
+                        parameterValue);
+            }
         } catch (GeneralSecurityException e) {
             throw new BadResultException(String.format(
                     "Attribute for key '%s' could not be encrypted",
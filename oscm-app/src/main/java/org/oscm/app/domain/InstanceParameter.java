@@ -22,7 +22,9 @@ import org.oscm.encrypter.AESEncrypter;
  * 
  */
 @NamedQueries({
-        @NamedQuery(name = "InstanceParameter.getAllForInstanceId", query = "SELECT ip FROM InstanceParameter ip WHERE ip.serviceInstance.instanceId = :sid and ip.serviceInstance.controllerId = :cid") })
+        @NamedQuery(name = "InstanceParameter.getAllForInstanceId", query = "SELECT ip FROM InstanceParameter ip WHERE ip.serviceInstance.instanceId = :sid and ip.serviceInstance.controllerId = :cid"),
+        @NamedQuery(name = "InstanceParameter.getValuesForKey", query = "SELECT ip.serviceInstance.tkey, ip.parameterValue FROM InstanceParameter ip WHERE ip.parameterKey = :key"),
+        @NamedQuery(name = "InstanceParameter.updateValueForInstances", query = "UPDATE InstanceParameter ip SET ip.parameterValue = :value WHERE ip.parameterKey = :key AND ip.serviceInstance.tkey IN :keys") })
 @Entity
 public class InstanceParameter {
 
@@ -119,6 +121,13 @@ public class InstanceParameter {
      */
     private boolean encrypted;
 
+    /**
+     * The last decrypted value. Decryption is only repeated when the stored
+     * value has changed.
+     */
+    @Transient
+    private DecryptedValue decrypted;
+
     public long getTkey() {
         return tkey;
     }
@@ -140,9 +149,18 @@ public class InstanceParameter {
     }
 
     public String getDecryptedValue() throws BadResultException {
+        if (!isEncrypted()) {
+            return parameterValue;
+        }
+        String encryptedValue = parameterValue;
+        DecryptedValue cached = decrypted;
+        if (cached != null && cached.isDecryptionOf(encryptedValue)) {
+            return cached.getValue();
+        }
         try {
-            return isEncrypted() ? AESEncrypter.decrypt(parameterValue)
-                    : parameterValue;
+            String value = AESEncrypter.decrypt(encryptedValue);
+            decrypted = new DecryptedValue(encryptedValue, value);
+            return value;
         } catch (GeneralSecurityException e) {
             throw new BadResultException(String.format(
                     "Parameter for key '%s' could not be decrypted",
@@ -160,6 +178,10 @@ public class InstanceParameter {
             if (parameterValue == null) parameterValue = "";
             this.parameterValue = isEncrypted()
                     ? AESEncrypter.encrypt(parameterValue) : parameterValue;
+            if (isEncrypted()) {
+                decrypted = new DecryptedValue(this.parameterValue,
+                        parameterValue);
+            }
         } catch (GeneralSecurityException e) {
             throw new BadResultException(String.format(
                     "Parameter for key '%s' could not be encrypted",
@@ -35,6 +35,18 @@ public enum PlatformConfigurationKey {
      */
     APP_TIMER_REFRESH_USAGEDATA(false, "long"),
 
+    /**
+     * The maximum number of threads used by the timer to poll the status of
+     * waiting instances. A value of 1 polls all instances sequentially.
+     */
+    APP_TIMER_POLL_THREADS(false, "long"),
+
+    /**
+     * The maximum number of threads used by the timer to poll the instances of
+     * one controller at the same time.
+     */
+    APP_TIMER_POLL_THREADS_PER_CONTROLLER(false, "long"),
+
 
     /**
      * Defines the mail resource to be used for communication.
@@ -15,11 +15,14 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -35,6 +38,7 @@ import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.TableGenerator;
+import javax.persistence.Transient;
 import javax.persistence.Version;
 
 import org.oscm.app.business.exceptions.BadResultException;
@@ -225,6 +229,18 @@ public class ServiceInstance implements Serializable {
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "serviceInstance", fetch = FetchType.LAZY)
     private List<Operation> operations = new ArrayList<>();
 
+    /**
+     * Index of the instance parameters by key, built on first lookup.
+     */
+    @Transient
+    private transient KeyIndex<InstanceParameter> parameterIndex;
+
+    /**
+     * Index of the instance attributes by key, built on first lookup.
+     */
+    @Transient
+    private transient KeyIndex<InstanceAttribute> attributeIndex;
+
     public long getTkey() {
         return tkey;
     }
@@ -330,6 +346,7 @@ public class ServiceInstance implements Serializable {
     public void setInstanceParameters(
             List<InstanceParameter> instanceParameters) {
         this.instanceParameters = instanceParameters;
+        this.parameterIndex = null;
     }
 
     public String getInstanceId() {
@@ -425,12 +442,13 @@ public class ServiceInstance implements Serializable {
      * @return The instance parameter with the given key.
      */
     public InstanceParameter getParameterForKey(String parameterKey) {
-        for (InstanceParameter param : instanceParameters) {
-            if (param.getParameterKey().equals(parameterKey)) {
-                return param;
-            }
+        KeyIndex<InstanceParameter> index = parameterIndex;
+        if (index == null || !index.isValidFor(instanceParameters, version)) {
+            index = new KeyIndex<>(instanceParameters, version,
+                    InstanceParameter::getParameterKey);
+            parameterIndex = index;
         }
-        return null;
+        return index.get(parameterKey);
     }
 
     /**
@@ -495,12 +513,13 @@ public class ServiceInstance implements Serializable {
      * @return The instance attribute with the given key.
      */
     InstanceAttribute getAttributeForKey(String attributeKey) {
-        for (InstanceAttribute attr : instanceAttributes) {
-            if (attr.getAttributeKey().equals(attributeKey)) {
-                return attr;
-            }
+        KeyIndex<InstanceAttribute> index = attributeIndex;
+        if (index == null || !index.isValidFor(instanceAttributes, version)) {
+            index = new KeyIndex<>(instanceAttributes, version,
+                    InstanceAttribute::getAttributeKey);
+            attributeIndex = index;
         }
-        return null;
+        return index.get(attributeKey);
     }
 
     /**
@@ -534,6 +553,8 @@ public class ServiceInstance implements Serializable {
         if (attributes != null) {
             List<InstanceAttribute> oldList = new ArrayList<>(
                     instanceAttributes);
+            // added after the loop, so that the key index is built only once
+            List<InstanceAttribute> added = new ArrayList<>();
 
             for (String key : attributes.keySet()) {
                 if (key != null) {
@@ -553,19 +574,22 @@ public class ServiceInstance implements Serializable {
                         ia.setDecryptedValue(attr.getValue());
                         ia.setServiceInstance(this);
                     }
-                    instanceAttributes.add(ia);
+                    added.add(ia);
                 }
             }
 
+            instanceAttributes.addAll(added);
             for (InstanceAttribute ia : oldList) {
                 instanceAttributes.remove(ia);
             }
+            attributeIndex = null;
         }
     }
 
     public void setInstanceAttributes(
             List<InstanceAttribute> instanceAttributes) {
         this.instanceAttributes = instanceAttributes;
+        this.attributeIndex = null;
     }
 
     void removeParams(HashMap<String, Setting> parameters, EntityManager em) {
@@ -582,6 +606,7 @@ public class ServiceInstance implements Serializable {
             }
         }
         params.removeAll(paramsToRemove);
+        parameterIndex = null;
     }
 
     void removeAttrs(HashMap<String, Setting> attrs, EntityManager em) {
@@ -596,6 +621,7 @@ public class ServiceInstance implements Serializable {
             }
         }
         getInstanceAttributes().removeAll(attrsToRemove);
+        attributeIndex = null;
     }
 
     /**
@@ -846,4 +872,38 @@ public class ServiceInstance implements Serializable {
         this.vmsNumber = vmsNumber;
     }
 
+    /**
+     * Immutable index of parameters or attributes by key. It belongs to one
+     * list instance, size and entity version and is replaced as soon as one
+     * of them changes. Like the former linear search, the first entry wins for
+     * duplicate keys.
+     */
+    private static final class KeyIndex<T> {
+
+        private final List<T> list;
+        private final int size;
+        private final int version;
+        private final Map<String, T> entries;
+
+        KeyIndex(List<T> list, int version, Function<T, String> key) {
+            this.list = list;
+            this.size = list.size();
+            this.version = version;
+            Map<String, T> map = new HashMap<>(size * 4 / 3 + 1);
+            for (T entry : list) {
+                map.putIfAbsent(key.apply(entry), entry);
+            }
+            this.entries = Collections.unmodifiableMap(map);
+        }
+
+        boolean isValidFor(List<T> list, int version) {
+            return this.list == list && size == list.size()
+                    && this.version == version;
+        }
+
+        T get(String key) {
+            return entries.get(key);
+        }
+    }
+
 }
@@ -18,11 +18,14 @@ import org.oscm.vo.VOUserDetails;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Resource;
 import javax.ejb.LocalBean;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
 import javax.persistence.*;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -46,6 +49,11 @@ public class APPConfigurationServiceBean {
   private static final String APP_SUSPEND = "APP_SUSPEND";
   private static final String KEY_PATH = "APP_KEY_PATH";
 
+  private static final String PROXY_CACHE_KEY = "proxy";
+  private static final String PROXY_SETTING_CACHE_KEY = "proxy:";
+  private static final String CONTROLLER_CACHE_KEY = "controller:";
+  private static final String ORGANIZATION_CACHE_KEY = "organization:";
+
   /**
    * Initialized the encryption for the APP. If the key file specified in the settings is present,
    * it reads the key, otherwise it is generated and saved in file.
@@ -87,9 +95,22 @@ public class APPConfigurationServiceBean {
   @PersistenceContext(name = "persistence/em", unitName = "oscm-app")
   protected EntityManager em;
 
+  @Resource protected TransactionSynchronizationRegistry txRegistry;
+
+  /** Cache for the configuration settings and custom attributes, shared by all bean instances */
+  ConfigurationCache cache = ConfigurationCache.getInstance();
+
   @TransactionAttribute(TransactionAttributeType.MANDATORY)
   public String getProxyConfigurationSetting(PlatformConfigurationKey key)
       throws ConfigurationException {
+    return cache.get(
+        PROXY_SETTING_CACHE_KEY + key.name(),
+        this::getConfigurationVersion,
+        () -> loadProxyConfigurationSetting(key));
+  }
+
+  private String loadProxyConfigurationSetting(PlatformConfigurationKey key)
+      throws ConfigurationException {
 
     LOGGER.debug("Retrieving proxy configuration setting for key {}", key.name());
     Query query = em.createNamedQuery("ConfigurationSetting.getForProxyKey");
@@ -154,6 +175,7 @@ public class APPConfigurationServiceBean {
         em.persist(newSetting);
       }
     }
+    configurationChanged();
   }
 
   @TransactionAttribute(TransactionAttributeType.MANDATORY)
@@ -167,16 +189,8 @@ public class APPConfigurationServiceBean {
   }
 
   private HashMap<String, Setting> getProxySettings() throws ConfigurationException {
-    LOGGER.debug("Retrieving all configuration settings for proxy");
-    HashMap<String, Setting> result = new HashMap<>();
-    Query query = em.createNamedQuery("ConfigurationSetting.getAllProxy");
-    List<?> resultList = query.getResultList();
-    for (Object entry : resultList) {
-      ConfigurationSetting currentCs = (ConfigurationSetting) entry;
-      result.put(
-          currentCs.getSettingKey(),
-          new Setting(currentCs.getSettingKey(), currentCs.getDecryptedValue()));
-    }
+    HashMap<String, Setting> result =
+        copy(cache.get(PROXY_CACHE_KEY, this::getConfigurationVersion, this::loadProxySettings));
     PlatformConfigurationKey[] keys = PlatformConfigurationKey.values();
     StringBuffer missing = new StringBuffer();
     for (PlatformConfigurationKey key : keys) {
@@ -195,6 +209,20 @@ public class APPConfigurationServiceBean {
     return result;
   }
 
+  private Map<String, Setting> loadProxySettings() throws ConfigurationException {
+    LOGGER.debug("Retrieving all configuration settings for proxy");
+    HashMap<String, Setting> result = new HashMap<>();
+    Query query = em.createNamedQuery("ConfigurationSetting.getAllProxy");
+    List<?> resultList = query.getResultList();
+    for (Object entry : resultList) {
+      ConfigurationSetting currentCs = (ConfigurationSetting) entry;
+      result.put(
+          currentCs.getSettingKey(),
+          new Setting(currentCs.getSettingKey(), currentCs.getDecryptedValue()));
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
   @TransactionAttribute(TransactionAttributeType.MANDATORY)
   public VOUserDetails getAPPAdministrator() throws ConfigurationException {
     VOUserDetails adminuser = new VOUserDetails();
@@ -211,18 +239,14 @@ public class APPConfigurationServiceBean {
   public HashMap<String, Setting> getControllerConfigurationSettings(String controllerId)
       throws ConfigurationException {
 
-    LOGGER.debug("Retrieving configuration settings for controller '{}'", controllerId);
     HashMap<String, Setting> result = new HashMap<>();
     if (controllerId != null) {
-      Query query = em.createNamedQuery("ConfigurationSetting.getForController");
-      query.setParameter("controllerId", controllerId);
-      List<?> resultList = query.getResultList();
-      for (Object entry : resultList) {
-        ConfigurationSetting currentCs = (ConfigurationSetting) entry;
-        result.put(
-            currentCs.getSettingKey(),
-            new Setting(currentCs.getSettingKey(), currentCs.getDecryptedValue()));
-      }
+      result =
+          copy(
+              cache.get(
+                  CONTROLLER_CACHE_KEY + controllerId,
+                  this::getConfigurationVersion,
+                  () -> loadControllerConfigurationSettings(controllerId)));
     }
     ControllerConfigurationKey[] keys = ControllerConfigurationKey.values();
     StringBuffer missing = new StringBuffer();
@@ -243,33 +267,69 @@ public class APPConfigurationServiceBean {
     return result;
   }
 
+  private Map<String, Setting> loadControllerConfigurationSettings(String controllerId)
+      throws ConfigurationException {
+    LOGGER.debug("Retrieving configuration settings for controller '{}'", controllerId);
+    HashMap<String, Setting> result = new HashMap<>();
+    Query query = em.createNamedQuery("ConfigurationSetting.getForController");
+    query.setParameter("controllerId", controllerId);
+    List<?> resultList = query.getResultList();
+    for (Object entry : resultList) {
+      ConfigurationSetting currentCs = (ConfigurationSetting) entry;
+      result.put(
+          currentCs.getSettingKey(),
+          new Setting(currentCs.getSettingKey(), currentCs.getDecryptedValue()));
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
   @TransactionAttribute(TransactionAttributeType.MANDATORY)
   public HashMap<String, Setting> getCustomAttributes(String organizationId)
       throws ConfigurationException {
 
+    if (organizationId == null) {
+      return new HashMap<>();
+    }
+    return copy(
+        cache.get(
+            ORGANIZATION_CACHE_KEY + organizationId,
+            this::getConfigurationVersion,
+            () -> loadCustomAttributes(organizationId)));
+  }
+
+  private Map<String, Setting> loadCustomAttributes(String organizationId)
+      throws ConfigurationException {
+
     LOGGER.debug("Retrieving custom settings for organization '{}'", organizationId);
 
     HashMap<String, Setting> result = new HashMap<>();
 
-    if (organizationId != null) {
-      TypedQuery<CustomAttribute> query =
-          em.createNamedQuery("CustomAttribute.getForOrg", CustomAttribute.class);
-      query.setParameter("oid", organizationId);
-      List<CustomAttribute> resultList = query.getResultList();
-      try {
-        for (CustomAttribute entry : resultList) {
-          result.put(
-              entry.getAttributeKey(),
-              new Setting(
-                  entry.getAttributeKey(), entry.getDecryptedValue(),
-                  entry.isEncrypted(), entry.getControllerId()));
-        }
-      } catch (BadResultException e) {
-        throw new ConfigurationException(e.getMessage());
+    TypedQuery<CustomAttribute> query =
+        em.createNamedQuery("CustomAttribute.getForOrg", CustomAttribute.class);
+    query.setParameter("oid", organizationId);
+    List<CustomAttribute> resultList = query.getResultList();
+    try {
+      for (CustomAttribute entry : resultList) {
+        result.put(
+            entry.getAttributeKey(),
+            new Setting(
+                entry.getAttributeKey(), entry.getDecryptedValue(),
+                entry.isEncrypted(), entry.getControllerId()));
       }
+    } catch (BadResultException e) {
+      throw new ConfigurationException(e.getMessage());
     }
 
-    return result;
+    return Collections.unmodifiableMap(result);
+  }
+
+  /**
+   * Has to be called after the custom attributes of an organization have been stored, so that all
+   * nodes read them again.
+   */
+  @TransactionAttribute(TransactionAttributeType.MANDATORY)
+  public void customAttributesChanged() {
+    configurationChanged();
   }
 
   @TransactionAttribute(TransactionAttributeType.MANDATORY)
@@ -329,6 +389,7 @@ public class APPConfigurationServiceBean {
           settings.get(newKey) != null ? settings.get(newKey).getValue() : null);
       em.persist(newSetting);
     }
+    configurationChanged();
   }
 
   @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
@@ -355,6 +416,51 @@ public class APPConfigurationServiceBean {
       }
       settings.remove(key);
     }
+    configurationChanged();
+  }
+
+  /**
+   * Increments the configuration version and drops the cached configuration. The cache is cleared
+   * once more after the transaction has completed, since values reloaded in the meantime may
+   * still be the old ones.
+   */
+  private void configurationChanged() {
+    em.createNamedQuery("ConfigurationVersion.increment").executeUpdate();
+    cache.invalidate();
+    if (txRegistry != null && txRegistry.getTransactionKey() != null) {
+      txRegistry.registerInterposedSynchronization(
+          new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+              cache.invalidate();
+            }
+          });
+    }
+  }
+
+  /** Returns the current configuration version, or null if there is none. */
+  private Long getConfigurationVersion() {
+    ConfigurationVersion version = em.find(ConfigurationVersion.class, ConfigurationVersion.ID);
+    return version == null ? null : Long.valueOf(version.getVersion());
+  }
+
+  /** Copies the given cached settings, since callers may modify the returned ones. */
+  private static HashMap<String, Setting> copy(Map<String, Setting> settings) {
+    HashMap<String, Setting> result = new HashMap<>();
+    for (Map.Entry<String, Setting> entry : settings.entrySet()) {
+      Setting setting = entry.getValue();
+      result.put(
+          entry.getKey(),
+          new Setting(
+              setting.getKey(),
+              setting.getValue(),
+              setting.isEncrypted(),
+              setting.getControllerId()));
+    }
+    return result;
   }
 
   @TransactionAttribute(TransactionAttributeType.MANDATORY)
@@ -13,10 +13,12 @@ import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
@@ -26,12 +28,14 @@ import javax.ejb.ConcurrencyManagementType;
 import javax.ejb.EJB;
 import javax.ejb.EJBException;
 import javax.ejb.LocalBean;
+import javax.ejb.SessionContext;
 import javax.ejb.Singleton;
 import javax.ejb.Timeout;
 import javax.ejb.Timer;
 import javax.ejb.TimerService;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.inject.Inject;
 import javax.naming.NamingException;
 import javax.persistence.EntityManager;
@@ -40,6 +44,7 @@ import javax.persistence.PersistenceContext;
 
 import org.oscm.app.business.APPlatformControllerFactory;
 import org.oscm.app.business.InstanceFilter;
+import org.oscm.app.business.InstancePollEngine;
 import org.oscm.app.business.ProductProvisioningServiceFactoryBean;
 import org.oscm.app.business.exceptions.BESNotificationException;
 import org.oscm.app.business.exceptions.BadResultException;
@@ -92,6 +97,19 @@ public class APPTimerServiceBean implements Cloneable {
     private static final String EVENT_KEY_RESUME = "_resume";
     private static final String EVENT_VALUE_YES = "yes";
     private static final long DEFAULT_TIMER_INTERVAL = 15000;
+    private static final String ERROR_TIMER = "Error occured during timer handling";
+
+    /**
+     * The order in which the waiting service instances are handled.
+     */
+    private static final List<EnumSet<ProvisioningStatus>> POLL_SEQUENCE = Arrays
+            .asList(ProvisioningStatus.getWaitingForCreation(),
+                    ProvisioningStatus.getWaitingForModification(),
+                    ProvisioningStatus.getWaitingForActivation(),
+                    ProvisioningStatus.getWaitingForDeactivation(),
+                    ProvisioningStatus.getWaitingForDeletion(),
+                    ProvisioningStatus.getWaitingForOperation(),
+                    ProvisioningStatus.getWaitingForUserAction());
 
     protected APPTimerServiceBean appTimerServiceBean = null;
 
@@ -111,6 +129,14 @@ public class APPTimerServiceBean implements Cloneable {
     @Resource
     protected TimerService timerService;
 
+    @Resource
+    protected SessionContext sessionCtx;
+
+    @Resource
+    protected ManagedExecutorService pollExecutor;
+
+    private final AtomicBoolean pollCycleRunning = new AtomicBoolean();
+
     @EJB
     protected APPConfigurationServiceBean configService;
 
@@ -213,51 +239,81 @@ public class APPTimerServiceBean implements Cloneable {
             }
         }
 
-        final String ERROR_TIMER = "Error occured during timer handling";
-        try {
-            doHandleSystems(result, ProvisioningStatus.getWaitingForCreation());
-        } catch (Throwable e) {
-            logger.error(ERROR_TIMER, e);
-        }
-        try {
-            doHandleSystems(result,
-                    ProvisioningStatus.getWaitingForModification());
-        } catch (Throwable e) {
-            logger.error(ERROR_TIMER, e);
+        InstancePollEngine engine = getPollEngine();
+        if (engine != null) {
+            doHandleSystemsInParallel(engine, result);
+            return;
         }
 
-        try {
-            doHandleSystems(result,
-                    ProvisioningStatus.getWaitingForActivation());
-        } catch (Throwable e) {
-            logger.error(ERROR_TIMER, e);
+        for (EnumSet<ProvisioningStatus> status : POLL_SEQUENCE) {
+            try {
+                doHandleSystems(result, status);
+            } catch (Throwable e) {
+                logger.error(ERROR_TIMER, e);
+            }
         }
+    }
 
-        try {
-            doHandleSystems(result,
-                    ProvisioningStatus.getWaitingForDeactivation());
-        } catch (Throwable e) {
-            logger.error(ERROR_TIMER, e);
+    /**
+     * Returns the engine for polling the instances in parallel or
+     * <code>null</code> if the instances are to be polled sequentially by the
+     * timer thread.
+     */
+    InstancePollEngine getPollEngine() {
+        if (sessionCtx == null) {
+            return null;
         }
+        InstancePollEngine engine = InstancePollEngine.create(pollExecutor,
+                configService);
+        return engine.getMaxThreads() > 1 ? engine : null;
+    }
 
-        try {
-            doHandleSystems(result, ProvisioningStatus.getWaitingForDeletion());
-        } catch (Throwable e) {
-            logger.error(ERROR_TIMER, e);
+    /**
+     * Polls the given instances with the worker threads of the poll engine.
+     * Every instance is handled in its own transaction and runs through all
+     * steps of {@link #POLL_SEQUENCE} in the same order as the sequential
+     * polling does.
+     */
+    void doHandleSystemsInParallel(InstancePollEngine engine,
+            List<ServiceInstance> result) {
+        if (!pollCycleRunning.compareAndSet(false, true)) {
+            logger.info("Previous poll cycle still running, timer skipped.");
+            return;
         }
-
         try {
-            doHandleSystems(result,
-                    ProvisioningStatus.getWaitingForOperation());
-        } catch (Throwable e) {
+            final APPTimerServiceBean self = sessionCtx
+                    .getBusinessObject(APPTimerServiceBean.class);
+            engine.execute(result, ServiceInstance::getControllerId,
+                    si -> self.doHandleInstance(si.getTkey()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             logger.error(ERROR_TIMER, e);
+        } finally {
+            pollCycleRunning.set(false);
         }
+    }
 
-        try {
-            doHandleSystems(result,
-                    ProvisioningStatus.getWaitingForUserAction());
-        } catch (Throwable e) {
-            logger.error(ERROR_TIMER, e);
+    /**
+     * Handles a single service instance. Called by the worker threads of the
+     * poll engine.
+     * 
+     * @param tkey
+     *            the technical key of the service instance
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void doHandleInstance(long tkey) {
+        ServiceInstance instance = em.find(ServiceInstance.class,
+                Long.valueOf(tkey));
+        if (instance == null) {
+            return;
+        }
+        List<ServiceInstance> single = Collections.singletonList(instance);
+        for (EnumSet<ProvisioningStatus> status : POLL_SEQUENCE) {
+            try {
+                doHandleSystems(single, status);
+            } catch (Throwable e) {
+                logger.error(ERROR_TIMER, e);
+            }
         }
     }
 
@@ -11,30 +11,21 @@ package org.oscm.app.v2_0.service;
 
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
-import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.KeyStore;
-import java.security.KeyStoreException;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.cert.Certificate;
-import java.security.cert.CertificateException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
-import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
-import javax.crypto.IllegalBlockSizeException;
-import javax.crypto.NoSuchPaddingException;
 import javax.ejb.EJB;
 import javax.ejb.Remote;
 import javax.ejb.Stateless;
@@ -76,8 +67,6 @@ public class APPlatformServiceBean implements APPlatformService {
     this.configService = configService;
   }
 
-  private Map<String, APPlatformController> controllers = new HashMap<>();
-
   @EJB protected APPConfigurationServiceBean configService;
 
   public void setConcurrencyService(APPConcurrencyServiceBean concurrencyService) {
@@ -104,6 +93,9 @@ public class APPlatformServiceBean implements APPlatformService {
 
   @EJB protected ServiceInstanceDAO instanceDAO;
 
+  /** Truststore used for the token check, shared by all bean instances */
+  TrustStoreCache trustStoreCache = TrustStoreCache.getInstance();
+
   @Override
   public boolean lockServiceInstance(
       String controllerId, String instanceId, PasswordAuthentication authentication)
@@ -187,12 +179,7 @@ public class APPlatformServiceBean implements APPlatformService {
   }
 
   private APPlatformController lookupController(String id) throws ControllerLookupException {
-    APPlatformController c = controllers.get(id);
-    if (c == null) {
-      c = APPlatformControllerFactory.getInstance(id);
-      controllers.put(id, c);
-    }
-    return c;
+    return APPlatformControllerFactory.getInstance(id);
   }
 
   @Override
@@ -288,7 +275,6 @@ public class APPlatformServiceBean implements APPlatformService {
   @Override
   public boolean checkToken(String token, String signature) {
 
-    InputStream is = null;
     try {
 
       // load configuration settings for truststore
@@ -306,24 +292,24 @@ public class APPlatformServiceBean implements APPlatformService {
         return false;
       }
 
-      // create hash from given token
-      MessageDigest md = MessageDigest.getInstance("SHA-256");
-      md.update(token.getBytes(StandardCharsets.UTF_8));
-      String tokenHash = new String(md.digest());
-
-      // load truststore
-      is = new FileInputStream(loc);
-      KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
-      keystore.load(is, pwd.toCharArray());
-
-      // get certificate for alias
-      Certificate cert = keystore.getCertificate(alias);
+      // get certificate for alias from the cached truststore
+      TrustStoreCache.TrustStore trustStore = trustStoreCache.get(loc, pwd, alias);
+      Certificate cert = trustStore.getCertificate();
 
       if (cert == null) {
         LOGGER.error("Unable to find certificate with alias " + alias);
         return false;
       }
 
+      if (trustStore.isVerified(token, signature)) {
+        return true;
+      }
+
+      // create hash from given token
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      md.update(token.getBytes(StandardCharsets.UTF_8));
+      String tokenHash = new String(md.digest());
+
       // get public key and decrypt signature
       Key key = cert.getPublicKey();
 
@@ -340,26 +326,11 @@ public class APPlatformServiceBean implements APPlatformService {
 
       // compare token hash with decrypted hash
       if (tokenHash.equals(decryptedHash)) {
+        trustStore.addVerified(token, signature);
         return true;
       }
-    } catch (NoSuchAlgorithmException
-        | KeyStoreException
-        | CertificateException
-        | IOException
-        | NoSuchPaddingException
-        | InvalidKeyException
-        | IllegalBlockSizeException
-        | BadPaddingException
-        | ConfigurationException e) {
+    } catch (GeneralSecurityException | IOException | ConfigurationException e) {
       LOGGER.error("An error occur during the token validation", e);
-    } finally {
-      try {
-        if (is != null) {
-          is.close();
-        }
-      } catch (IOException e) {
-        // ignore
-      }
     }
 
     return false;
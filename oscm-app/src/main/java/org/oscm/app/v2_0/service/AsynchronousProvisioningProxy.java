@@ -723,6 +723,7 @@ public class AsynchronousProvisioningProxy implements ProvisioningService {
         ca.setControllerId(attr.getControllerId());
         em.persist(ca);
       }
+      configService.customAttributesChanged();
 
       return provResult.newOkBaseResult();
 
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+package org.oscm.app.v2_0.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.oscm.app.v2_0.exceptions.ConfigurationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-through cache for the configuration settings and custom attributes of the APP.
+ *
+ * <p>The cached values are bound to the configuration version stored in the database. The version
+ * is read at most every {@link #CHECK_INTERVAL} milliseconds, and all values are dropped as soon
+ * as it differs from the version they were loaded with. This way changes stored on other nodes of
+ * a cluster are detected without reading the settings themselves. Values are additionally
+ * reloaded after {@link #MAX_AGE} milliseconds to pick up changes made directly in the database.
+ *
+ * <p>If no version can be read, nothing is cached. Values must be immutable, since they are shared
+ * by all threads.
+ */
+class ConfigurationCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationCache.class);
+
+  static final long CHECK_INTERVAL = 10 * 1000L;
+
+  static final long MAX_AGE = 5 * 60 * 1000L;
+
+  private static final ConfigurationCache INSTANCE = new ConfigurationCache();
+
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private final AtomicLong generation = new AtomicLong();
+
+  private final LongSupplier clock;
+
+  private volatile Long version;
+
+  private volatile long lastCheck;
+
+  private volatile boolean checkRequired = true;
+
+  static ConfigurationCache getInstance() {
+    return INSTANCE;
+  }
+
+  ConfigurationCache() {
+    this(System::currentTimeMillis);
+  }
+
+  ConfigurationCache(LongSupplier clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Returns the value for the given key, loading it if it is not cached or outdated.
+   *
+   * @param key the key of the value
+   * @param versionReader reads the current configuration version, returns <code>null</code> if
+   *     there is none
+   * @param loader loads the value; failures are not cached
+   * @return the value
+   */
+  <T> T get(String key, Supplier<Long> versionReader, Loader<T> loader)
+      throws ConfigurationException {
+
+    long now = clock.getAsLong();
+    checkVersion(now, versionReader);
+    if (version == null) {
+      return loader.load();
+    }
+
+    Entry entry = entries.get(key);
+    if (entry != null && now - entry.loaded < MAX_AGE) {
+      @SuppressWarnings("unchecked")
+      T value = (T) entry.value;
+      return value;
+    }
+
+    long currentGeneration = generation.get();
+    T value = loader.load();
+    synchronized (this) {
+      if (generation.get() == currentGeneration) {
+        entries.put(key, new Entry(value, now));
+      }
+    }
+    return value;
+  }
+
+  /** Removes all cached values and forces the version to be read on the next access. */
+  void invalidate() {
+    synchronized (this) {
+      generation.incrementAndGet();
+      entries.clear();
+      checkRequired = true;
+    }
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  private void checkVersion(long now, Supplier<Long> versionReader) {
+    if (!checkRequired && now - lastCheck < CHECK_INTERVAL) {
+      return;
+    }
+    long currentGeneration = generation.get();
+    Long current = versionReader.get();
+    synchronized (this) {
+      if (generation.get() != currentGeneration) {
+        // invalidated while reading, check again on the next access
+        return;
+      }
+      if (current == null || !current.equals(version)) {
+        if (version != null) {
+          LOGGER.debug("Configuration version changed to {}, clearing configuration cache", current);
+        }
+        generation.incrementAndGet();
+        entries.clear();
+        version = current;
+      }
+      lastCheck = now;
+      checkRequired = false;
+    }
+  }
+
+  /** Loads a value that is not yet cached. */
+  @FunctionalInterface
+  interface Loader<T> {
+    T load() throws ConfigurationException;
+  }
+
+  private static class Entry {
+    final Object value;
+    final long loaded;
+
+    Entry(Object value, long loaded) {
+      this.value = value;
+      this.loaded = loaded;
+    }
+  }
+}
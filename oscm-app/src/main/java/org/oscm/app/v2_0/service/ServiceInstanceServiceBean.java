@@ -7,8 +7,10 @@
  *******************************************************************************/
 package org.oscm.app.v2_0.service;
 
+import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 
 import javax.ejb.EJB;
 import javax.ejb.LocalBean;
@@ -465,13 +467,18 @@ public class ServiceInstanceServiceBean {
         return dao.updateVmsNumber(serviceInstance, vmsNumber);
     }
 
+    /**
+     * Notifies the subscription of the given instance about the given number
+     * of VMs. The number is not stored, so that a failed notification is
+     * repeated with the next refresh.
+     * 
+     * @throws BESNotificationException
+     *             if the subscription cannot be notified
+     */
     public void notifySubscriptionAboutVmsNumber(
-            ServiceInstance serviceInstance) {
-        try {
-            besDao.notifySubscriptionAboutVmsNumber(serviceInstance);
-        } catch (BESNotificationException e) {
-            logger.error(e.getMessage());
-        }
+            ServiceInstance serviceInstance, int vmsNumber)
+            throws BESNotificationException {
+        besDao.notifySubscriptionAboutVmsNumber(serviceInstance, vmsNumber);
     }
 
     public void updateLastUsageFetch(ServiceInstance serviceInstance,
@@ -479,4 +486,28 @@ public class ServiceInstanceServiceBean {
         dao.updateParam(serviceInstance, endTime, "LAST_USAGE_FETCH");
     }
 
+    /**
+     * Sets the time of the last usage data fetch of the given instances in
+     * bulk. The update is committed in its own transaction, so that it is
+     * kept when the calling usage data run fails later on.
+     * 
+     * @param instanceKeys
+     *            the technical keys of the instances
+     * @param endTime
+     *            the end of the fetched usage period
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void updateLastUsageFetch(Collection<Long> instanceKeys,
+            String endTime) {
+        dao.updateParams(instanceKeys, endTime, "LAST_USAGE_FETCH");
+    }
+
+    /**
+     * Returns the time of the last usage data fetch of all instances by
+     * technical key of the instance.
+     */
+    public Map<Long, String> getLastUsageFetches() {
+        return dao.getParamValues("LAST_USAGE_FETCH");
+    }
+
 }
@@ -14,29 +14,35 @@ import static java.time.ZonedDateTime.now;
 import static java.time.ZonedDateTime.ofInstant;
 import static java.time.format.DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
-import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
 import javax.ejb.EJB;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
 import javax.ejb.Timeout;
 import javax.ejb.Timer;
 import javax.ejb.TimerService;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.inject.Inject;
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
 
 import org.oscm.app.business.APPlatformControllerFactory;
-import org.oscm.app.business.exceptions.BadResultException;
+import org.oscm.app.business.InstancePollEngine;
 import org.oscm.app.domain.PlatformConfigurationKey;
 import org.oscm.app.domain.ServiceInstance;
 import org.oscm.app.v2_0.APPlatformServiceFactory;
 import org.oscm.app.v2_0.data.ProvisioningSettings;
-import org.oscm.app.v2_0.data.Setting;
 import org.oscm.app.v2_0.intf.APPlatformController;
 import org.oscm.app.v2_0.intf.APPlatformService;
 import org.slf4j.Logger;
@@ -52,6 +58,7 @@ import org.slf4j.LoggerFactory;
  */
 @Singleton
 @Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 public class TimerHandleUsageData {
 
     private static final Logger LOG = LoggerFactory
@@ -65,20 +72,27 @@ public class TimerHandleUsageData {
 
     private static final String TIMER_INFO = "EVENT_GENERATION_TIMER";
 
-    @PersistenceContext(name = "persistence/em", unitName = "oscm-app")
-    protected EntityManager em;
+    /**
+     * The number of handled instances after which their last usage fetch is
+     * written to the database.
+     */
+    static final int CHECKPOINT_BATCH_SIZE = 100;
 
     @Inject
     protected ServiceInstanceServiceBean serviceInstanceService;
-        
 
     @EJB
     protected APPConfigurationServiceBean configService;
 
     @Resource
-    private TimerService timerService;
+    protected TimerService timerService;
+
+    @Resource
+    protected ManagedExecutorService usageExecutor;
 
-    private long timerInterval;
+    private final AtomicBoolean runActive = new AtomicBoolean();
+
+    private volatile long timerInterval;
 
     @PostConstruct
     public void initializeTimer() {
@@ -90,50 +104,130 @@ public class TimerHandleUsageData {
     }
 
     /**
-     * Handles the timer event.
+     * Handles the timer event. The instances are processed by the workers of
+     * the usage engine, grouped by controller. A run still active when the
+     * timer expires again is not started twice.
      */
     @Timeout
     public void handleTimer(Timer timer) {
-        adaptTimerToNewInterval();
-
-        APPlatformService ps = APPlatformServiceFactory.getInstance();
-        List<ServiceInstance> instances = serviceInstanceService.getInstances();
-        for (ServiceInstance serviceInstance : instances) {
-            try {
-
-                final APPlatformController controller = APPlatformControllerFactory
-                        .getInstance(serviceInstance.getControllerId());
+        if (!runActive.compareAndSet(false, true)) {
+            LOG.info("Previous usage data run still active, timer skipped.");
+            return;
+        }
+        try {
+            adaptTimerToNewInterval();
+            gatherUsageData(getUsageEngine());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("handleTimer", e);
+        } catch (Exception e) {
+            LOG.error("handleTimer", e);
+        } finally {
+            runActive.set(false);
+        }
+    }
 
-                ProvisioningSettings settings = ps.getServiceInstanceDetails(
-                        serviceInstance.getControllerId(),
-                        serviceInstance.getInstanceId(),
-                        serviceInstance.getSubscriptionId(),
-                        serviceInstance.getOrganizationId());
+    /**
+     * Gathers the usage data of all instances not handled within the last
+     * half timer interval. The instances with the oldest last usage fetch are
+     * handled first, so that a run interrupted by a restart resumes with the
+     * instances it did not reach.
+     */
+    void gatherUsageData(InstancePollEngine engine) throws Exception {
+        final String endTime = getEndTime();
+        Map<Long, String> lastUsageFetches = serviceInstanceService
+                .getLastUsageFetches();
+        List<UsagePeriod> periods = getPendingPeriods(
+                serviceInstanceService.getInstances(), lastUsageFetches,
+                endTime);
+        if (periods.isEmpty()) {
+            return;
+        }
+        LOG.info("Gathering usage data of " + periods.size() + " instances");
+        final APPlatformService ps = getPlatformService();
 
-                // handle usage data
-                String startTime = getStartTime(serviceInstance);
-                String endTime = getEndTime(serviceInstance);
+        final Checkpoints checkpoints = new Checkpoints(endTime);
+        try {
+            engine.execute(periods, p -> p.instance.getControllerId(), p -> {
+                if (handleInstance(ps, p.instance, p.startTime, endTime)) {
+                    checkpoints.add(p.instance.getTkey());
+                }
+            });
+        } finally {
+            checkpoints.flush();
+        }
+    }
 
-                handleUsageData(serviceInstance, controller, settings,
-                        startTime, endTime);
+    APPlatformService getPlatformService() {
+        return APPlatformServiceFactory.getInstance();
+    }
 
-            } catch (Exception e) {
-                LOG.error("handleTimer", e);
+    List<UsagePeriod> getPendingPeriods(List<ServiceInstance> instances,
+            Map<Long, String> lastUsageFetches, String endTime)
+            throws Exception {
+        LocalDateTime threshold = LocalDateTime
+                .parse(endTime, ISO_LOCAL_DATE_TIME)
+                .minus(timerInterval / 2, ChronoUnit.MILLIS);
+        List<UsagePeriod> periods = new ArrayList<>();
+        for (ServiceInstance instance : instances) {
+            String lastUsageFetch = lastUsageFetches
+                    .get(Long.valueOf(instance.getTkey()));
+            if (isAfter(lastUsageFetch, threshold)) {
+                continue;
             }
+            periods.add(new UsagePeriod(instance,
+                    getStartTime(instance, lastUsageFetch)));
         }
+        periods.sort(Comparator.comparing(p -> p.startTime));
+        return periods;
     }
 
-    private void handleUsageData(ServiceInstance serviceInstance,
-            final APPlatformController controller,
-            ProvisioningSettings settings, String startTime, String endTime)
-            throws SQLException, Exception {
+    private boolean isAfter(String time, LocalDateTime threshold) {
+        if (time == null || time.trim().length() == 0) {
+            return false;
+        }
+        try {
+            return LocalDateTime.parse(time.trim(), ISO_LOCAL_DATE_TIME)
+                    .isAfter(threshold);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the engine processing the instances in parallel. Without a
+     * managed executor or with a single thread configured, the instances are
+     * processed sequentially by the timer thread.
+     */
+    InstancePollEngine getUsageEngine() {
+        return InstancePollEngine.create(usageExecutor, configService);
+    }
+
+    /**
+     * Gathers the usage data of one instance.
+     * 
+     * @return <code>true</code> if the controller has handled the usage data
+     *         up to the given end time
+     */
+    boolean handleInstance(APPlatformService ps,
+            ServiceInstance serviceInstance, String startTime,
+            String endTime) {
+        try {
+            final APPlatformController controller = APPlatformControllerFactory
+                    .getInstance(serviceInstance.getControllerId());
 
-        boolean updated = handleUsage(serviceInstance, controller, settings,
-                startTime, endTime);
+            ProvisioningSettings settings = ps.getServiceInstanceDetails(
+                    serviceInstance.getControllerId(),
+                    serviceInstance.getInstanceId(),
+                    serviceInstance.getSubscriptionId(),
+                    serviceInstance.getOrganizationId());
 
-        if (updated) {
-            serviceInstanceService.updateLastUsageFetch(serviceInstance, endTime);
+            return handleUsage(serviceInstance, controller, settings,
+                    startTime, endTime);
+        } catch (Exception e) {
+            LOG.error("handleTimer", e);
         }
+        return false;
     }
 
     protected boolean handleUsage(ServiceInstance serviceInstance,
@@ -192,8 +286,9 @@ public class TimerHandleUsageData {
         return DEFAULT_INTERVAL;
     }
 
-    String getStartTime(ServiceInstance serviceInstance) throws Exception {
-        String startTime = getLastUsageTime(serviceInstance);
+    String getStartTime(ServiceInstance serviceInstance, String lastUsageFetch)
+            throws Exception {
+        String startTime = lastUsageFetch;
         if (null == startTime || startTime.trim().length() == 0) {
             startTime = getRequestTime(serviceInstance);
         }
@@ -206,25 +301,59 @@ public class TimerHandleUsageData {
                 .format(ISO_LOCAL_DATE_TIME);
     }
 
-   
-    String getLastUsageTime(ServiceInstance instance) {
-        try {
+    /**
+     * Returns the end of the usage period of a run, which is the same for all
+     * instances, so that their last usage fetch can be updated in bulk.
+     */
+    String getEndTime() {
+        return now(of("UTC")).format(ISO_LOCAL_DATE_TIME);
+    }
 
-            em.refresh(instance);
-            Setting lastUsageFetch = instance.getParameterMap().get("LAST_USAGE_FETCH");
-            if (lastUsageFetch != null) {
-                return lastUsageFetch.getValue();
-            }
-        } catch (BadResultException e) {
-            LOG.debug(e.getMessage());
-        }
+    /**
+     * An instance with the start of its pending usage period.
+     */
+    static class UsagePeriod {
+        final ServiceInstance instance;
+        final String startTime;
 
-        return null;
+        UsagePeriod(ServiceInstance instance, String startTime) {
+            this.instance = instance;
+            this.startTime = startTime;
+        }
     }
 
-    String getEndTime(ServiceInstance serviceInstance) {
-        return now(of("UTC")).format(ISO_LOCAL_DATE_TIME);
-    }
+    /**
+     * Collects the instances whose usage data has been handled and writes
+     * their last usage fetch in batches of {@link #CHECKPOINT_BATCH_SIZE}.
+     */
+    class Checkpoints {
+        private final String endTime;
+        private final List<Long> handled = new ArrayList<>();
+
+        Checkpoints(String endTime) {
+            this.endTime = endTime;
+        }
+
+        synchronized void add(long tkey) {
+            handled.add(Long.valueOf(tkey));
+            if (handled.size() >= CHECKPOINT_BATCH_SIZE) {
+                flush();
+            }
+        }
 
-    
+        synchronized void flush() {
+            if (handled.isEmpty()) {
+                return;
+            }
+            try {
+                serviceInstanceService.updateLastUsageFetch(
+                        new ArrayList<>(handled), endTime);
+            } catch (Exception e) {
+                // the instances are handled again by the next run
+                LOG.error("Failed to update the last usage fetch of "
+                        + handled.size() + " instances", e);
+            }
+            handled.clear();
+        }
+    }
 }
@@ -7,8 +7,13 @@
  *******************************************************************************/
 package org.oscm.app.v2_0.service;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import javax.ejb.ConcurrencyManagement;
@@ -20,13 +25,19 @@ import javax.ejb.Startup;
 import javax.ejb.Timeout;
 import javax.ejb.Timer;
 import javax.ejb.TimerService;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.inject.Inject;
 
 import org.slf4j.Logger;
 
+import org.oscm.app.adapter.APPlatformControllerAdapter;
 import org.oscm.app.business.APPlatformControllerFactory;
+import org.oscm.app.business.InstancePollEngine;
+import org.oscm.app.business.exceptions.BESNotificationException;
+import org.oscm.app.business.exceptions.BadResultException;
 import org.oscm.app.domain.PlatformConfigurationKey;
 import org.oscm.app.domain.ServiceInstance;
+import org.oscm.app.v2_0.data.ProvisioningSettings;
 import org.oscm.app.v2_0.exceptions.APPlatformException;
 import org.oscm.app.v2_0.exceptions.ConfigurationException;
 import org.oscm.app.v2_0.intf.APPlatformController;
@@ -47,6 +58,12 @@ public class TimerRefreshSubscriptions {
 	private static final String VM_TIMER_INFO = "abc2dac0-5f81-11e4-9803-0800200c9a66";
 	private static final long DEFAULT_TIMER_INTERVAL = 86400000;
 
+	/**
+	 * The maximum number of instances of one controller which are queried
+	 * with one call.
+	 */
+	static final int REFRESH_BATCH_SIZE = 100;
+
 	@Inject
 	protected ServiceInstanceServiceBean serviceInstanceService;
 
@@ -59,6 +76,11 @@ public class TimerRefreshSubscriptions {
 	@Inject
 	protected transient Logger logger;
 
+	@Resource
+	protected ManagedExecutorService refreshExecutor;
+
+	private final AtomicBoolean refreshRunning = new AtomicBoolean();
+
 	@PostConstruct
 	public void setTimer() {
 		Collection<Timer> timers = timerService.getTimers();
@@ -86,22 +108,106 @@ public class TimerRefreshSubscriptions {
 		if (!VM_TIMER_INFO.equals(timer.getInfo())) {
 			return;
 		}
-		List<ServiceInstance> instances = serviceInstanceService.getInstances();
-		for (ServiceInstance serviceInstance : instances) {
-			try {
-				final APPlatformController controller = APPlatformControllerFactory
-						.getInstance(serviceInstance.getControllerId());
+		if (!refreshRunning.compareAndSet(false, true)) {
+			logger.info("Previous refresh of subscription VMs still running, timer skipped.");
+			return;
+		}
+		try {
+			List<ServiceInstance> instances = serviceInstanceService.getInstances();
+			getRefreshEngine().execute(getBatches(instances), batch -> batch.get(0).getControllerId(),
+					this::refreshVmsNumbers);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.error("Refresh of subscription VMs interrupted: ", e);
+		} finally {
+			refreshRunning.set(false);
+		}
+	}
 
-				int vmsNumber = controller.getServersNumber(serviceInstance.getInstanceId(),
-						serviceInstance.getSubscriptionId(), serviceInstance.getOrganizationId());
+	/**
+	 * Splits the instances into batches of at most
+	 * {@link #REFRESH_BATCH_SIZE} instances of the same controller.
+	 */
+	List<List<ServiceInstance>> getBatches(List<ServiceInstance> instances) {
+		Map<String, List<ServiceInstance>> byController = new LinkedHashMap<>();
+		List<List<ServiceInstance>> batches = new ArrayList<>();
+		for (ServiceInstance instance : instances) {
+			List<ServiceInstance> batch = byController.get(instance.getControllerId());
+			if (batch == null || batch.size() >= REFRESH_BATCH_SIZE) {
+				batch = new ArrayList<>();
+				byController.put(instance.getControllerId(), batch);
+				batches.add(batch);
+			}
+			batch.add(instance);
+		}
+		return batches;
+	}
+
+	/**
+	 * Reads the number of VMs of the given instances of one controller with a
+	 * single call. A subscription is only notified if the number of its
+	 * instance has changed. The number is stored after the subscription has
+	 * been notified, so that a failed notification is repeated with the next
+	 * refresh.
+	 */
+	void refreshVmsNumbers(List<ServiceInstance> batch) {
+		Map<String, ServiceInstance> instances = new HashMap<>();
+		Map<String, ProvisioningSettings> settings = new HashMap<>();
+		for (ServiceInstance instance : batch) {
+			try {
+				settings.put(instance.getInstanceId(), configService.getProvisioningSettings(instance, null, true));
+				instances.put(instance.getInstanceId(), instance);
+			} catch (BadResultException | ConfigurationException e) {
+				logger.error("Settings of instance " + instance.getInstanceId() + " cannot be read: ", e);
+			}
+		}
+		if (settings.isEmpty()) {
+			return;
+		}
 
-				ServiceInstance updatedServiceInstance = serviceInstanceService.updateVmsNumber(serviceInstance,
-						vmsNumber);
-				serviceInstanceService.notifySubscriptionAboutVmsNumber(updatedServiceInstance);
-			} catch (APPlatformException e) {
-				logger.error("Subscription cannot be notified about VMs number: ", e);
+		Map<String, Integer> vmsNumbers;
+		try {
+			vmsNumbers = getController(batch.get(0).getControllerId()).getServersNumbers(settings);
+		} catch (APPlatformException e) {
+			logger.error("Subscriptions cannot be notified about VMs number: ", e);
+			return;
+		}
+		for (Map.Entry<String, Integer> entry : vmsNumbers.entrySet()) {
+			ServiceInstance instance = instances.get(entry.getKey());
+			if (instance == null || entry.getValue() == null) {
+				continue;
+			}
+			int vmsNumber = entry.getValue().intValue();
+			if (vmsNumber == instance.getVmsNumber()) {
+				continue;
 			}
+			try {
+				serviceInstanceService.notifySubscriptionAboutVmsNumber(instance, vmsNumber);
+			} catch (BESNotificationException e) {
+				logger.error("Subscription of instance " + instance.getInstanceId()
+						+ " cannot be notified about VMs number: ", e);
+				continue;
+			}
+			serviceInstanceService.updateVmsNumber(instance, Integer.valueOf(vmsNumber));
 		}
 	}
 
+	APPlatformControllerAdapter getController(String controllerId) throws APPlatformException {
+		APPlatformController controller = APPlatformControllerFactory.getInstance(controllerId);
+		if (controller instanceof APPlatformControllerAdapter) {
+			return (APPlatformControllerAdapter) controller;
+		}
+		return new APPlatformControllerAdapter(controller);
+	}
+
+	/**
+	 * Returns the engine querying the controllers. The instances of different
+	 * controllers are queried in parallel, those of one controller with the
+	 * configured limit. Without a managed executor the instances are queried
+	 * sequentially by the timer thread.
+	 */
+	InstancePollEngine getRefreshEngine() {
+		return InstancePollEngine.create(refreshExecutor, configService);
+	}
+
 }
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+package org.oscm.app.v2_0.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache for the truststore used to check the signatures of single sign-on tokens. The truststore
+ * is read once and kept until its location, password or alias setting changes or the file itself
+ * is modified.
+ *
+ * <p>Each loaded truststore remembers the last {@link #MAX_VERIFIED} token and signature pairs
+ * that were verified with it, so that repeated checks of the same token do not decrypt the
+ * signature again.
+ */
+class TrustStoreCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TrustStoreCache.class);
+
+  static final int MAX_VERIFIED = 1000;
+
+  private static final TrustStoreCache INSTANCE = new TrustStoreCache();
+
+  private volatile TrustStore trustStore;
+
+  static TrustStoreCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the truststore at the given location, reading it if it is not cached or has changed.
+   *
+   * @param location the path of the truststore file
+   * @param password the password of the truststore
+   * @param alias the alias of the certificate used to check signatures
+   * @return the truststore
+   */
+  TrustStore get(String location, String password, String alias)
+      throws IOException, GeneralSecurityException {
+
+    File file = new File(location);
+    long lastModified = file.lastModified();
+    long length = file.length();
+
+    TrustStore current = trustStore;
+    if (current != null && current.matches(location, password, alias, lastModified, length)) {
+      return current;
+    }
+    synchronized (this) {
+      current = trustStore;
+      if (current == null || !current.matches(location, password, alias, lastModified, length)) {
+        LOGGER.debug("Reading truststore {}", location);
+        current = load(location, password, alias, lastModified, length);
+        trustStore = current;
+      }
+      return current;
+    }
+  }
+
+  /** Removes the cached truststore. */
+  void invalidate() {
+    trustStore = null;
+  }
+
+  private TrustStore load(
+      String location, String password, String alias, long lastModified, long length)
+      throws IOException, GeneralSecurityException {
+
+    try (InputStream is = new FileInputStream(location)) {
+      KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
+      keystore.load(is, password.toCharArray());
+      Certificate certificate = keystore.getCertificate(alias);
+      return new TrustStore(location, password, alias, lastModified, length, certificate);
+    }
+  }
+
+  /** A loaded truststore with the signatures verified by its certificate. */
+  static class TrustStore {
+
+    private final String location;
+    private final String password;
+    private final String alias;
+    private final long lastModified;
+    private final long length;
+    private final Certificate certificate;
+
+    private final Map<String, Boolean> verified =
+        new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_VERIFIED;
+          }
+        };
+
+    TrustStore(
+        String location,
+        String password,
+        String alias,
+        long lastModified,
+        long length,
+        Certificate certificate) {
+      this.location = location;
+      this.password = password;
+      this.alias = alias;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.certificate = certificate;
+    }
+
+    /** Returns the certificate for the configured alias, or null if there is none. */
+    Certificate getCertificate() {
+      return certificate;
+    }
+
+    /** Returns whether the given token and signature have already been verified. */
+    boolean isVerified(String token, String signature) {
+      synchronized (verified) {
+        return verified.get(key(token, signature)) != null;
+      }
+    }
+
+    /** Remembers that the given signature is valid for the given token. */
+    void addVerified(String token, String signature) {
+      synchronized (verified) {
+        verified.put(key(token, signature), Boolean.TRUE);
+      }
+    }
+
+    int getVerifiedCount() {
+      synchronized (verified) {
+        return verified.size();
+      }
+    }
+
+    boolean matches(
+        String location, String password, String alias, long lastModified, long length) {
+      return this.location.equals(location)
+          && this.password.equals(password)
+          && this.alias.equals(alias)
+          && this.lastModified == lastModified
+          && this.length == length;
+    }
+
+    private static String key(String token, String signature) {
+      return Objects.toString(token) + '\n' + Objects.toString(signature);
+    }
+  }
+}
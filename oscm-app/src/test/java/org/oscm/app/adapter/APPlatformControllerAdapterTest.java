@@ -18,12 +18,21 @@ import org.oscm.app.v2_0.data.ControllerSettings;
 import org.oscm.app.v2_0.data.OperationParameter;
 import org.oscm.app.v2_0.data.ProvisioningSettings;
 import org.oscm.app.v2_0.data.ServiceUser;
+import org.oscm.app.v2_0.exceptions.APPlatformException;
 import org.oscm.app.v2_0.intf.APPlatformController;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -252,4 +261,144 @@ public class APPlatformControllerAdapterTest {
     // then
     verify(delegate, times(1)).canPing();
   }
+
+  @Test
+  public void testCallsCounted() throws Exception {
+    // given
+    AtomicLong calls = new AtomicLong();
+    adapter = new APPlatformControllerAdapter(delegate, calls, failed -> fail());
+
+    // when
+    adapter.ping("controller_id");
+    adapter.canPing();
+
+    // then
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testFailureReported() throws Exception {
+    // given
+    List<APPlatformControllerAdapter> failures = new ArrayList<>();
+    adapter = new APPlatformControllerAdapter(delegate, new AtomicLong(), failures::add);
+    doThrow(new IllegalStateException()).when(delegate).canPing();
+
+    // when
+    try {
+      adapter.canPing();
+      fail();
+    } catch (IllegalStateException e) {
+      // then
+      assertEquals(Collections.singletonList(adapter), failures);
+    }
+  }
+
+  @Test
+  public void testCheckedExceptionNotReported() throws Exception {
+    // given
+    List<APPlatformControllerAdapter> failures = new ArrayList<>();
+    adapter = new APPlatformControllerAdapter(delegate, new AtomicLong(), failures::add);
+    ProvisioningSettings provisioningSettings = mock(ProvisioningSettings.class);
+    doThrow(new APPlatformException("failed"))
+        .when(delegate)
+        .getInstanceStatus("instance_id", provisioningSettings);
+
+    // when
+    try {
+      adapter.getInstanceStatus("instance_id", provisioningSettings);
+      fail();
+    } catch (APPlatformException e) {
+      // then
+      assertTrue(failures.isEmpty());
+    }
+  }
+
+  @Test
+  public void testGetServersNumbers_bulk() throws Exception {
+    // given
+    BulkController bulkDelegate = mock(BulkController.class);
+    List<APPlatformControllerAdapter> failures = new ArrayList<>();
+    adapter = new APPlatformControllerAdapter(bulkDelegate, new AtomicLong(), failures::add);
+    Map<String, ProvisioningSettings> instances = instances("instance1", "instance2");
+    Map<String, Integer> numbers = Collections.singletonMap("instance1", Integer.valueOf(2));
+    when(bulkDelegate.getServersNumbers(instances)).thenReturn(numbers);
+
+    // when
+    Map<String, Integer> result = adapter.getServersNumbers(instances);
+
+    // then
+    assertEquals(numbers, result);
+    verify(bulkDelegate, never()).getServersNumber(anyString(), anyString(), anyString());
+  }
+
+  @Test
+  public void testGetServersNumbers_bulkFailed() throws Exception {
+    // given
+    BulkController bulkDelegate = mock(BulkController.class);
+    List<APPlatformControllerAdapter> failures = new ArrayList<>();
+    adapter = new APPlatformControllerAdapter(bulkDelegate, new AtomicLong(), failures::add);
+    Map<String, ProvisioningSettings> instances = instances("instance1");
+    when(bulkDelegate.getServersNumbers(instances)).thenThrow(new APPlatformException("failed"));
+
+    // when
+    try {
+      adapter.getServersNumbers(instances);
+      fail();
+    } catch (APPlatformException e) {
+      // then
+      assertEquals("failed", e.getMessage());
+      assertTrue(failures.isEmpty());
+    }
+  }
+
+  @Test
+  public void testGetServersNumbers_bulkRuntimeFailureReported() throws Exception {
+    // given
+    BulkController bulkDelegate = mock(BulkController.class);
+    List<APPlatformControllerAdapter> failures = new ArrayList<>();
+    adapter = new APPlatformControllerAdapter(bulkDelegate, new AtomicLong(), failures::add);
+    Map<String, ProvisioningSettings> instances = instances("instance1");
+    when(bulkDelegate.getServersNumbers(instances)).thenThrow(new IllegalStateException());
+
+    // when
+    try {
+      adapter.getServersNumbers(instances);
+      fail();
+    } catch (IllegalStateException e) {
+      // then
+      assertEquals(Collections.singletonList(adapter), failures);
+    }
+  }
+
+  @Test
+  public void testGetServersNumbers_perInstance() throws Exception {
+    // given
+    Map<String, ProvisioningSettings> instances = instances("instance1", "instance2");
+    when(delegate.getServersNumber("instance1", "sub_instance1", "org")).thenReturn(1);
+    when(delegate.getServersNumber("instance2", "sub_instance2", "org"))
+        .thenThrow(new APPlatformException("failed"));
+
+    // when
+    Map<String, Integer> result = adapter.getServersNumbers(instances);
+
+    // then
+    assertEquals(Collections.singletonMap("instance1", Integer.valueOf(1)), result);
+  }
+
+  private Map<String, ProvisioningSettings> instances(String... instanceIds) {
+    Map<String, ProvisioningSettings> instances = new HashMap<>();
+    for (String instanceId : instanceIds) {
+      ProvisioningSettings settings = mock(ProvisioningSettings.class);
+      when(settings.getSubscriptionId()).thenReturn("sub_" + instanceId);
+      when(settings.getOrganizationId()).thenReturn("org");
+      instances.put(instanceId, settings);
+    }
+    return instances;
+  }
+
+  /** A controller providing the bulk method, as seen through its remote proxy. */
+  public interface BulkController extends APPlatformController {
+    Map<String, Integer> getServersNumbers(Map<String, ProvisioningSettings> instances)
+        throws APPlatformException;
+  }
 }
@@ -21,8 +21,14 @@ import org.powermock.reflect.Whitebox;
 import javax.naming.InitialContext;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(PowerMockRunner.class)
@@ -36,6 +42,7 @@ public class APPlatformControllerFactoryTest {
 
   @Before
   public void setUp() {
+    APPlatformControllerFactory.clear();
     controllerFactory = PowerMockito.spy(new APPlatformControllerFactory());
     PowerMockito.mockStatic(APPlatformController.class);
     context = mock(InitialContext.class);
@@ -61,4 +68,37 @@ public class APPlatformControllerFactoryTest {
     APPlatformControllerAdapter result = Whitebox.invokeMethod(controllerFactory, "getInstance", "ControllerID");
   }
 
+  @Test
+  public void testGetInstance_cached() throws Exception {
+    PowerMockito.whenNew(InitialContext.class).withAnyArguments().thenReturn(context);
+    when(context.lookup(anyString())).thenReturn(lookup);
+    PowerMockito.when(APPlatformController.class.isAssignableFrom(lookup.getClass())).thenReturn(true);
+
+    APPlatformController first = APPlatformControllerFactory.getInstance("ControllerID");
+    APPlatformController second = APPlatformControllerFactory.getInstance("ControllerID");
+
+    assertSame(first, second);
+    verify(context, times(1)).lookup(anyString());
+  }
+
+  @Test
+  public void testGetInstance_lookupAgainAfterFailure() throws Exception {
+    PowerMockito.whenNew(InitialContext.class).withAnyArguments().thenReturn(context);
+    when(context.lookup(anyString())).thenReturn(lookup);
+    PowerMockito.when(APPlatformController.class.isAssignableFrom(lookup.getClass())).thenReturn(true);
+    doThrow(new IllegalStateException()).when(lookup).canPing();
+    APPlatformController first = APPlatformControllerFactory.getInstance("ControllerID");
+    try {
+      first.canPing();
+      fail();
+    } catch (IllegalStateException e) {
+      // expected, controller is gone
+    }
+
+    APPlatformController second = APPlatformControllerFactory.getInstance("ControllerID");
+
+    assertNotSame(first, second);
+    verify(context, times(2)).lookup(anyString());
+    assertEquals(Long.valueOf(1), APPlatformControllerFactory.getCallCounts().get("ControllerID"));
+  }
 }
@@ -0,0 +1,271 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+package org.oscm.app.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oscm.app.domain.PlatformConfigurationKey;
+import org.oscm.app.v2_0.exceptions.ConfigurationException;
+import org.oscm.app.v2_0.service.APPConfigurationServiceBean;
+
+public class InstancePollEngineTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void execute_allItemsProcessed() throws Exception {
+        // given
+        InstancePollEngine engine = new InstancePollEngine(executor, 4, 2);
+        List<String> items = items("ctrl1", 10, "ctrl2", 7);
+        List<String> processed = Collections
+                .synchronizedList(new ArrayList<>());
+
+        // when
+        engine.execute(items, this::group, processed::add);
+
+        // then
+        assertEquals(17, processed.size());
+        assertTrue(processed.containsAll(items));
+    }
+
+    @Test
+    public void execute_limitsRespected() throws Exception {
+        // given
+        InstancePollEngine engine = new InstancePollEngine(executor, 3, 2);
+        List<String> items = items("ctrl1", 10, "ctrl2", 10);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        Map<String, AtomicInteger> activePerGroup = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> maxPerGroup = new ConcurrentHashMap<>();
+
+        // when
+        engine.execute(items, this::group, item -> {
+            AtomicInteger groupActive = activePerGroup
+                    .computeIfAbsent(group(item), k -> new AtomicInteger());
+            AtomicInteger groupMax = maxPerGroup.computeIfAbsent(group(item),
+                    k -> new AtomicInteger());
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            groupMax.accumulateAndGet(groupActive.incrementAndGet(),
+                    Math::max);
+            sleep(5);
+            groupActive.decrementAndGet();
+            active.decrementAndGet();
+        });
+
+        // then
+        assertTrue(maxActive.get() <= 3);
+        assertTrue(maxPerGroup.get("ctrl1").get() <= 2);
+        assertTrue(maxPerGroup.get("ctrl2").get() <= 2);
+    }
+
+    @Test
+    public void execute_slowGroupDoesNotBlockOthers() throws Exception {
+        // given
+        InstancePollEngine engine = new InstancePollEngine(executor, 4, 1);
+        List<String> items = items("slow", 3, "fast", 20);
+        List<String> processed = Collections
+                .synchronizedList(new ArrayList<>());
+
+        // when
+        engine.execute(items, this::group, item -> {
+            if (item.startsWith("slow")) {
+                sleep(100);
+            }
+            processed.add(item);
+        });
+
+        // then
+        assertEquals("fast", group(processed.get(0)));
+        assertEquals(23, processed.size());
+    }
+
+    @Test
+    public void execute_exceptionDoesNotAffectOthers() throws Exception {
+        // given
+        InstancePollEngine engine = new InstancePollEngine(executor, 2, 2);
+        List<String> items = items("ctrl1", 5, "ctrl2", 5);
+        AtomicInteger count = new AtomicInteger();
+
+        // when
+        engine.execute(items, this::group, item -> {
+            count.incrementAndGet();
+            throw new IllegalStateException(item);
+        });
+
+        // then
+        assertEquals(10, count.get());
+    }
+
+    @Test
+    public void execute_rejectedTaskRunsInCaller() throws Exception {
+        // given
+        executor.shutdown();
+        InstancePollEngine engine = new InstancePollEngine(executor, 2, 1);
+        List<String> processed = new ArrayList<>();
+
+        // when
+        engine.execute(items("ctrl1", 3, "ctrl2", 1), this::group,
+                processed::add);
+
+        // then
+        assertEquals(4, processed.size());
+    }
+
+    @Test
+    public void execute_empty() throws Exception {
+        new InstancePollEngine(executor, 2, 1).execute(
+                Collections.<String> emptyList(), this::group, item -> {
+                    throw new IllegalStateException();
+                });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_noExecutor() {
+        new InstancePollEngine(null, 2, 1);
+    }
+
+    @Test
+    public void create_settings() throws Exception {
+        // given
+        APPConfigurationServiceBean configService = mock(
+                APPConfigurationServiceBean.class);
+        doReturn("8").when(configService).getProxyConfigurationSetting(
+                PlatformConfigurationKey.APP_TIMER_POLL_THREADS);
+        doReturn(" 3 ").when(configService).getProxyConfigurationSetting(
+                PlatformConfigurationKey.APP_TIMER_POLL_THREADS_PER_CONTROLLER);
+
+        // when
+        InstancePollEngine engine = InstancePollEngine.create(executor,
+                configService);
+
+        // then
+        assertEquals(8, engine.getMaxThreads());
+        assertEquals(3, engine.getMaxPerGroup());
+    }
+
+    @Test
+    public void create_defaults() throws Exception {
+        // given
+        APPConfigurationServiceBean configService = mock(
+                APPConfigurationServiceBean.class);
+        doThrow(new ConfigurationException("not set")).when(configService)
+                .getProxyConfigurationSetting(
+                        any(PlatformConfigurationKey.class));
+
+        // when
+        InstancePollEngine engine = InstancePollEngine.create(executor,
+                configService);
+
+        // then
+        assertEquals(InstancePollEngine.DEFAULT_MAX_THREADS,
+                engine.getMaxThreads());
+        assertEquals(InstancePollEngine.DEFAULT_MAX_PER_CONTROLLER,
+                engine.getMaxPerGroup());
+    }
+
+    @Test
+    public void create_invalidSetting() throws Exception {
+        // given
+        APPConfigurationServiceBean configService = mock(
+                APPConfigurationServiceBean.class);
+        doReturn("many").when(configService).getProxyConfigurationSetting(
+                any(PlatformConfigurationKey.class));
+
+        // when
+        InstancePollEngine engine = InstancePollEngine.create(executor,
+                configService);
+
+        // then
+        assertEquals(InstancePollEngine.DEFAULT_MAX_THREADS,
+                engine.getMaxThreads());
+    }
+
+    @Test
+    public void create_singleThread() throws Exception {
+        // given
+        APPConfigurationServiceBean configService = mock(
+                APPConfigurationServiceBean.class);
+        doReturn("1").when(configService).getProxyConfigurationSetting(
+                PlatformConfigurationKey.APP_TIMER_POLL_THREADS);
+        List<Thread> threads = new ArrayList<>();
+
+        // when
+        InstancePollEngine engine = InstancePollEngine.create(executor,
+                configService);
+        engine.execute(items("ctrl1", 2, "ctrl2", 1), this::group,
+                i -> threads.add(Thread.currentThread()));
+
+        // then
+        assertEquals(1, engine.getMaxThreads());
+        assertEquals(Collections.nCopies(3, Thread.currentThread()), threads);
+    }
+
+    @Test
+    public void create_noExecutorSequential() throws Exception {
+        // when
+        InstancePollEngine engine = InstancePollEngine.create(null,
+                mock(APPConfigurationServiceBean.class));
+
+        // then
+        assertEquals(1, engine.getMaxThreads());
+        assertEquals(1, engine.getMaxPerGroup());
+    }
+
+    private List<String> items(String group1, int count1, String group2,
+            int count2) {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < Math.max(count1, count2); i++) {
+            if (i < count1) {
+                items.add(group1 + ":" + i);
+            }
+            if (i < count2) {
+                items.add(group2 + ":" + i);
+            }
+        }
+        return items;
+    }
+
+    private String group(String item) {
+        return item.substring(0, item.indexOf(':'));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -12,6 +12,7 @@ package org.oscm.app.dao;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mockito;
 import org.oscm.app.business.exceptions.BESNotificationException;
@@ -124,6 +125,7 @@ public class BesDAOTest {
   public void getServicePort() throws MalformedURLException {
     // given
     Map<String, Setting> settings = getSettingsForMode("OIDC");
+    besDAO.portCache = new ServicePortCache();
     IdentityService idSvcMock = Mockito.mock(IdentityService.class);
     Service serviceMock = Mockito.mock(Service.class);
     doReturn(serviceMock).when(besDAO).createWebService(any(URL.class), any(QName.class));
@@ -356,6 +358,7 @@ public class BesDAOTest {
 
     // then
     verify(subServ).completeAsyncSubscription(si.getSubscriptionId(), si.getOrganizationId(), info);
+    verify(besDAO).releaseBESWebService(subServ);
   }
 
   @Test
@@ -985,6 +988,26 @@ public class BesDAOTest {
     return si;
   }
 
+  @Test
+  public void notifySubscriptionAboutVmsNumber_failed_released() throws Exception {
+    // given
+    ServiceInstance si = givenServiceInstance(false);
+    doThrow(new RuntimeException())
+        .when(subServ)
+        .notifySubscriptionAboutVmsNumber(anyString(), anyString(), any(VOInstanceInfo.class));
+
+    // when
+    try {
+      besDAO.notifySubscriptionAboutVmsNumber(si);
+      fail();
+    } catch (BESNotificationException e) {
+      // expected
+    }
+
+    // then
+    verify(besDAO).releaseBESWebService(subServ);
+  }
+
   @Test(expected = BESNotificationException.class)
   public void notifyAsyncSubscription_APPlatformException()
       throws APPlatformException, BESNotificationException {
@@ -1082,7 +1105,8 @@ public class BesDAOTest {
     IdentityService client = besDAO.getBESWebService(IdentityService.class, null, Optional.empty());
 
     // then
-    verify(besDAO, times(1)).setBinding((BindingProvider) client, USER_KEY, USER_PWD);
+    verify(besDAO, times(1))
+        .setBinding(eq((BindingProvider) client), eq(USER_KEY), eq(USER_PWD), anyMap());
   }
 
   @Test(expected = ConfigurationException.class)
@@ -1113,7 +1137,8 @@ public class BesDAOTest {
     IdentityService client = besDAO.getBESWebService(IdentityService.class, null, Optional.empty());
 
     // then
-    verify(besDAO, times(1)).setBinding((BindingProvider) client, USER_KEY, USER_WS_PWD);
+    verify(besDAO, times(1))
+        .setBinding(eq((BindingProvider) client), eq(USER_KEY), eq(USER_WS_PWD), anyMap());
   }
 
   @Test(expected = ConfigurationException.class)
@@ -1147,7 +1172,8 @@ public class BesDAOTest {
         besDAO.getBESWebService(IdentityService.class, new ServiceInstance(), Optional.empty());
 
     // then
-    verify(besDAO, times(1)).setBinding((BindingProvider) client, USER_KEY, USER_PWD);
+    verify(besDAO, times(1))
+        .setBinding(eq((BindingProvider) client), eq(USER_KEY), eq(USER_PWD), anyMap());
   }
 
   @Test
@@ -1163,7 +1189,8 @@ public class BesDAOTest {
     IdentityService client = besDAO.getBESWebService(IdentityService.class, si, Optional.empty());
 
     // then
-    verify(besDAO, times(1)).setBinding((BindingProvider) client, USER_TM_TechSvc, USER_PWD);
+    verify(besDAO, times(1))
+        .setBinding(eq((BindingProvider) client), eq(USER_TM_TechSvc), eq(USER_PWD), anyMap());
   }
 
   @Test
@@ -1179,7 +1206,8 @@ public class BesDAOTest {
     IdentityService client = besDAO.getBESWebService(IdentityService.class, si, Optional.empty());
 
     // then
-    verify(besDAO, times(1)).setBinding((BindingProvider) client, USER_TM_TechSvc, USER_PWD);
+    verify(besDAO, times(1))
+        .setBinding(eq((BindingProvider) client), eq(USER_TM_TechSvc), eq(USER_PWD), anyMap());
   }
 
   @Test(expected = ConfigurationException.class)
@@ -1239,7 +1267,8 @@ public class BesDAOTest {
         besDAO.getBESWebService(IdentityService.class, new ServiceInstance(), Optional.empty());
 
     // then
-    verify(besDAO, times(1)).setBinding((BindingProvider) client, USER_KEY, USER_WS_PWD);
+    verify(besDAO, times(1))
+        .setBinding(eq((BindingProvider) client), eq(USER_KEY), eq(USER_WS_PWD), anyMap());
   }
 
   @Test
@@ -1255,7 +1284,8 @@ public class BesDAOTest {
     IdentityService client = besDAO.getBESWebService(IdentityService.class, si, Optional.empty());
 
     // then
-    verify(besDAO, times(1)).setBinding((BindingProvider) client, USER_KEY, USER_WS_PWD);
+    verify(besDAO, times(1))
+        .setBinding(eq((BindingProvider) client), eq(USER_KEY), eq(USER_WS_PWD), anyMap());
   }
 
   @Test
@@ -1271,7 +1301,8 @@ public class BesDAOTest {
     IdentityService client = besDAO.getBESWebService(IdentityService.class, si, Optional.of(""));
 
     // then
-    verify(besDAO, times(1)).setBinding((BindingProvider) client, USER_TM_TechSvc, USER_WS_PWD);
+    verify(besDAO, times(1))
+        .setBinding(eq((BindingProvider) client), eq(USER_TM_TechSvc), eq(USER_WS_PWD), anyMap());
   }
 
   @Test(expected = ConfigurationException.class)
@@ -1363,6 +1394,28 @@ public class BesDAOTest {
     verify(besDAO.configService).getAllProxyConfigurationSettings();
   }
 
+  @Test
+  public void getBESWebService_authenticationFails_portReleased() throws Exception {
+    // given
+    BesDAO besDAO = spy(new BesDAO());
+    besDAO.portCache = mock(ServicePortCache.class);
+    besDAO.configService = mock(APPConfigurationServiceBean.class);
+    doReturn(new HashMap<>()).when(besDAO.configService).getAllProxyConfigurationSettings();
+    doReturn(idServ).when(besDAO).getServicePort(eq(IdentityService.class), anyMap());
+    doThrow(new ConfigurationException("not set"))
+        .when(besDAO.configService)
+        .getWebServiceAuthentication(any(), anyMap(), any(Optional.class));
+
+    // when
+    try {
+      besDAO.getBESWebService(IdentityService.class, null, Optional.empty());
+      fail();
+    } catch (ConfigurationException e) {
+      // then
+      verify(besDAO.portCache).release(idServ);
+    }
+  }
+
   @Test(expected = ConfigurationException.class)
   public void getBESWebService_malformedURL() throws MalformedURLException, APPlatformException {
     // given
@@ -1568,6 +1621,26 @@ public class BesDAOTest {
         .notifySubscriptionAboutVmsNumber(anyString(), anyString(), any(VOInstanceInfo.class));
   }
 
+  @Test
+  public void notifySubscriptionAboutVmsNumber_givenNumber() throws Exception {
+    // given
+    ServiceInstance si = givenServiceInstance(false);
+    si.setVmsNumber(1);
+    doReturn(subServ)
+        .when(besDAO)
+        .getBESWebService(
+            eq(SubscriptionService.class), any(ServiceInstance.class), any(Optional.class));
+    ArgumentCaptor<VOInstanceInfo> info = ArgumentCaptor.forClass(VOInstanceInfo.class);
+
+    // when
+    besDAO.notifySubscriptionAboutVmsNumber(si, 3);
+
+    // then
+    verify(subServ).notifySubscriptionAboutVmsNumber(anyString(), anyString(), info.capture());
+    assertEquals(3, info.getValue().getVmsNumber());
+    assertEquals(1, si.getVmsNumber());
+  }
+
   @Test
   public void testNotifyAsyncOperationStatus() throws Exception {
     // given
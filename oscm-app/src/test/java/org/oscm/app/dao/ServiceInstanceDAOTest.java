@@ -12,8 +12,11 @@ import org.oscm.app.domain.ServiceInstance;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.*;
@@ -313,4 +316,64 @@ public class ServiceInstanceDAOTest {
     // then
     verify(em, times(1)).flush();
   }
+
+  @Test
+  public void testGetParamValues() {
+    // given
+    List<Object[]> rows = new ArrayList<>();
+    rows.add(new Object[] {Long.valueOf(1), "2026-10-17T08:00:00"});
+    rows.add(new Object[] {Long.valueOf(2), "2026-10-17T09:00:00"});
+    when(query.getResultList()).thenReturn(rows);
+
+    // when
+    Map<Long, String> values = siDAO.getParamValues("LAST_USAGE_FETCH");
+
+    // then
+    verify(em).createNamedQuery("InstanceParameter.getValuesForKey");
+    verify(query).setParameter("key", "LAST_USAGE_FETCH");
+    assertEquals(2, values.size());
+    assertEquals("2026-10-17T09:00:00", values.get(Long.valueOf(2)));
+  }
+
+  @Test
+  public void testUpdateParams() {
+    // given
+    List<Long> keys = new ArrayList<>();
+    for (long i = 0; i < ServiceInstanceDAO.MAX_KEYS_PER_UPDATE + 1; i++) {
+      keys.add(Long.valueOf(i));
+    }
+    when(query.executeUpdate()).thenReturn(ServiceInstanceDAO.MAX_KEYS_PER_UPDATE, 1);
+
+    // when
+    int updated = siDAO.updateParams(keys, "VALUE", "KEY");
+
+    // then
+    assertEquals(ServiceInstanceDAO.MAX_KEYS_PER_UPDATE + 1, updated);
+    verify(em, times(2)).createNamedQuery("InstanceParameter.updateValueForInstances");
+    verify(query).setParameter("keys", keys.subList(0, ServiceInstanceDAO.MAX_KEYS_PER_UPDATE));
+    verify(query).setParameter("keys", Arrays.asList(Long.valueOf(ServiceInstanceDAO.MAX_KEYS_PER_UPDATE)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUpdateParams_noValue() {
+    siDAO.updateParams(Collections.<Long>emptyList(), null, "KEY");
+  }
+
+  @Test
+  public void testUpdateVmsNumber() {
+    // given
+    ServiceInstance serviceInstance = new ServiceInstance();
+    serviceInstance.setInstanceId("instance");
+    ServiceInstance stored = new ServiceInstance();
+    when(query.getSingleResult()).thenReturn(stored);
+
+    // when
+    ServiceInstance result = siDAO.updateVmsNumber(serviceInstance, Integer.valueOf(3));
+
+    // then
+    verify(query).setParameter("key", "instance");
+    verify(em).flush();
+    assertEquals(stored, result);
+    assertEquals(3, result.getVmsNumber());
+  }
 }
@@ -0,0 +1,196 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright FUJITSU LIMITED 2018
+ *
+ * <p>Creation Date: 17.10.2026
+ *
+ * <p>*****************************************************************************
+ */
+package org.oscm.app.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import javax.xml.ws.Service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.oscm.intf.IdentityService;
+import org.oscm.intf.SubscriptionService;
+
+public class ServicePortCacheTest {
+
+  private static final String WSDL = "https://localhost:8181/oscm/v1.9/{SERVICE}/BASIC?wsdl";
+  private static final String WSDL_NEW = "https://otherhost:8181/oscm/v1.9/{SERVICE}/BASIC?wsdl";
+
+  private ServicePortCache cache;
+  private AtomicInteger created;
+  private Function<URL, Service> factory;
+
+  @Before
+  public void setup() {
+    cache = new ServicePortCache();
+    created = new AtomicInteger();
+    factory =
+        url -> {
+          created.incrementAndGet();
+          Service service = mock(Service.class);
+          when(service.getPort(IdentityService.class))
+              .thenAnswer(invocation -> mock(IdentityService.class));
+          when(service.getPort(SubscriptionService.class))
+              .thenAnswer(invocation -> mock(SubscriptionService.class));
+          return service;
+        };
+  }
+
+  @Test
+  public void getPort_released_reused() throws Exception {
+    // given
+    IdentityService port1 = identityPort(WSDL);
+    cache.release(port1);
+
+    // when
+    IdentityService port2 = identityPort(WSDL);
+
+    // then
+    assertSame(port1, port2);
+    assertEquals(1, created.get());
+    assertEquals(0, cache.idleSize());
+  }
+
+  @Test
+  public void getPort_notReleased() throws Exception {
+    // when
+    IdentityService port1 = identityPort(WSDL);
+    IdentityService port2 = identityPort(WSDL);
+
+    // then
+    assertNotSame(port1, port2);
+    assertEquals(1, created.get());
+  }
+
+  @Test
+  public void release_bounded() throws Exception {
+    // given
+    List<IdentityService> ports = new ArrayList<>();
+    for (int i = 0; i < ServicePortCache.MAX_IDLE_PORTS + 5; i++) {
+      ports.add(identityPort(WSDL));
+    }
+
+    // when
+    ports.forEach(cache::release);
+
+    // then
+    assertEquals(ServicePortCache.MAX_IDLE_PORTS, cache.idleSize());
+  }
+
+  @Test
+  public void release_twice() throws Exception {
+    // given
+    IdentityService port = identityPort(WSDL);
+
+    // when
+    cache.release(port);
+    cache.release(port);
+    cache.release(null);
+
+    // then
+    assertEquals(1, cache.idleSize());
+  }
+
+  @Test
+  public void getPort_differentServices() throws Exception {
+    // when
+    identityPort(WSDL);
+    cache.getPort(SubscriptionService.class, WSDL, url(WSDL, "SubscriptionService"), factory);
+
+    // then
+    assertEquals(2, created.get());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void getPort_otherThread_sharesService() throws Exception {
+    // given
+    IdentityService port1 = identityPort(WSDL);
+    AtomicReference<IdentityService> port2 = new AtomicReference<>();
+
+    // when
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                port2.set(identityPort(WSDL));
+              } catch (Exception e) {
+                throw new RuntimeException(e);
+              }
+            });
+    thread.start();
+    thread.join();
+
+    // then
+    assertNotSame(port1, port2.get());
+    assertEquals(1, created.get());
+  }
+
+  @Test
+  public void getPort_wsdlChanged() throws Exception {
+    // given
+    IdentityService port1 = identityPort(WSDL);
+
+    // when
+    IdentityService port2 = identityPort(WSDL_NEW);
+
+    // then
+    assertNotSame(port1, port2);
+    assertEquals(2, created.get());
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void invalidate() throws Exception {
+    // given
+    IdentityService port1 = identityPort(WSDL);
+    cache.release(port1);
+
+    // when
+    cache.invalidate();
+    IdentityService port2 = identityPort(WSDL);
+
+    // then
+    assertNotSame(port1, port2);
+    assertEquals(2, created.get());
+  }
+
+  @Test
+  public void invalidate_leasedPortDropped() throws Exception {
+    // given
+    IdentityService port = identityPort(WSDL);
+
+    // when
+    cache.invalidate();
+    cache.release(port);
+
+    // then
+    assertEquals(0, cache.idleSize());
+  }
+
+  private IdentityService identityPort(String wsdl) throws Exception {
+    return cache.getPort(IdentityService.class, wsdl, url(wsdl, "IdentityService"), factory);
+  }
+
+  private static URL url(String wsdl, String service) throws Exception {
+    return new URL(wsdl.replace("{SERVICE}", service));
+  }
+}
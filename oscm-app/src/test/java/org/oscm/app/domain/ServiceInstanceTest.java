@@ -24,6 +24,7 @@ import org.mockito.Mockito;
 import org.oscm.app.business.exceptions.BadResultException;
 import org.oscm.app.v2_0.data.InstanceStatus;
 import org.oscm.app.v2_0.data.Setting;
+import org.oscm.encrypter.AESEncrypter;
 
 /**
  * Unit tests for {@link ServiceInstance}.
@@ -70,6 +71,86 @@ public class ServiceInstanceTest {
                 instance.getAttributeForKey("param1").getAttributeValue());
     }
 
+    @Test
+    public void testGetParameterForKey_listChanged() {
+        final InstanceParameter p1 = new InstanceParameter();
+        p1.setParameterKey("param1");
+        instance.setInstanceParameters(new ArrayList<>(Arrays.asList(p1)));
+        assertNull(instance.getParameterForKey("param2"));
+
+        final InstanceParameter p2 = new InstanceParameter();
+        p2.setParameterKey("param2");
+        instance.getInstanceParameters().add(p2);
+
+        assertSame(p2, instance.getParameterForKey("param2"));
+    }
+
+    @Test
+    public void testGetParameterForKey_listReplaced() {
+        final InstanceParameter p1 = new InstanceParameter();
+        p1.setParameterKey("param1");
+        instance.setInstanceParameters(Arrays.asList(p1));
+        assertSame(p1, instance.getParameterForKey("param1"));
+
+        final InstanceParameter p2 = new InstanceParameter();
+        p2.setParameterKey("param1");
+        instance.setInstanceParameters(Arrays.asList(p2));
+
+        assertSame(p2, instance.getParameterForKey("param1"));
+    }
+
+    @Test
+    public void testGetParameterForKey_duplicateKey() {
+        final InstanceParameter p1 = new InstanceParameter();
+        p1.setParameterKey("param1");
+        final InstanceParameter p2 = new InstanceParameter();
+        p2.setParameterKey("param1");
+        instance.setInstanceParameters(Arrays.asList(p1, p2));
+
+        assertSame(p1, instance.getParameterForKey("param1"));
+    }
+
+    @Test
+    public void testGetAttributeForKey_listChanged() {
+        final InstanceAttribute a1 = new InstanceAttribute();
+        a1.setAttributeKey("attr1");
+        instance.setInstanceAttributes(new ArrayList<>(Arrays.asList(a1)));
+        assertNull(instance.getAttributeForKey("attr2"));
+
+        final InstanceAttribute a2 = new InstanceAttribute();
+        a2.setAttributeKey("attr2");
+        instance.getInstanceAttributes().add(a2);
+
+        assertSame(a2, instance.getAttributeForKey("attr2"));
+    }
+
+    @Test
+    public void testGetDecryptedValue_valueChanged() throws Exception {
+        AESEncrypter.generateKey();
+        final InstanceParameter p = new InstanceParameter();
+        p.setParameterKey("param1");
+        p.setEncrypted(true);
+        p.setDecryptedValue("value1");
+        assertEquals("value1", p.getDecryptedValue());
+
+        p.setParameterValue(AESEncrypter.encrypt("value2"));
+
+        assertEquals("value2", p.getDecryptedValue());
+        assertEquals("value2", p.getDecryptedValue());
+    }
+
+    @Test
+    public void testGetDecryptedValue_notEncrypted() throws Exception {
+        final InstanceParameter p = new InstanceParameter();
+        p.setParameterKey("param1");
+        p.setParameterValue("value1");
+        assertEquals("value1", p.getDecryptedValue());
+
+        p.setParameterValue("value2");
+
+        assertEquals("value2", p.getDecryptedValue());
+    }
+
     @Test
     public void getIdentifier_nullId() {
         // given
@@ -525,6 +606,33 @@ public class ServiceInstanceTest {
         assertEquals("NEWVALUE2", si.getAttributeMap().get("KEY2").getValue());
     }
 
+    @Test
+    public void setInstanceAttributes_addedAndRemoved() throws Exception {
+        // given
+        InstanceAttribute unchanged = new InstanceAttribute();
+        unchanged.setAttributeKey("KEY1");
+        unchanged.setDecryptedValue("VALUE1");
+        InstanceAttribute removed = new InstanceAttribute();
+        removed.setAttributeKey("KEY3");
+        removed.setDecryptedValue("VALUE3");
+        ServiceInstance si = new ServiceInstance();
+        si.setInstanceAttributes(
+                new ArrayList<>(Arrays.asList(unchanged, removed)));
+        HashMap<String, Setting> newAttributes = new HashMap<>();
+        newAttributes.put("KEY1", new Setting("KEY1", "VALUE1"));
+        newAttributes.put("KEY2", new Setting("KEY2", "VALUE2"));
+
+        // when
+        si.setInstanceAttributes(newAttributes);
+
+        // then
+        assertEquals(2, si.getInstanceAttributes().size());
+        assertSame(unchanged, si.getAttributeForKey("KEY1"));
+        assertEquals("VALUE2",
+                si.getAttributeForKey("KEY2").getDecryptedValue());
+        assertNull(si.getAttributeForKey("KEY3"));
+    }
+
     @Test
     public void removeParams() {
         // given
@@ -12,6 +12,7 @@ package org.oscm.app.v2_0.service;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
@@ -25,9 +26,13 @@ import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.*;
@@ -406,6 +411,134 @@ public class APPConfigurationServiceBeanTest {
     serviceBean.getAuthenticationForAPPAdmin(proxySettings);
   }
 
+  @Test
+  public void testGetControllerConfigurationSettings_cached() throws Exception {
+    // given
+    enableCache();
+    Query query = mock(Query.class);
+    when(entityManager.createNamedQuery(anyString())).thenReturn(query);
+    List<ConfigurationSetting> mandatorySettings = new ArrayList<>();
+    mandatorySettings.add(newConfigurationSetting("BSS_ORGANIZATION_ID", "orgId"));
+    when(query.getResultList()).thenReturn(mandatorySettings);
+    serviceBean.getControllerConfigurationSettings("CONTROLLER_ID").clear();
+
+    // when
+    HashMap<String, Setting> controllerSettings =
+        serviceBean.getControllerConfigurationSettings("CONTROLLER_ID");
+
+    // then
+    assertEquals("orgId", controllerSettings.get("BSS_ORGANIZATION_ID").getValue());
+    verify(entityManager, times(1)).createNamedQuery("ConfigurationSetting.getForController");
+  }
+
+  @Test
+  public void testGetCustomAttributes_cached() throws Exception {
+    // given
+    enableCache();
+    TypedQuery query = mock(TypedQuery.class);
+    when(entityManager.createNamedQuery(anyString(), any())).thenReturn(query);
+    List<CustomAttribute> customAttributes = new ArrayList<>();
+    customAttributes.add(newAttribute("KEY", "value", false, "controller_id"));
+    when(query.getResultList()).thenReturn(customAttributes);
+    serviceBean.getCustomAttributes("orgId");
+
+    // when
+    HashMap<String, Setting> attributes = serviceBean.getCustomAttributes("orgId");
+
+    // then
+    assertEquals("value", attributes.get("KEY").getValue());
+    verify(entityManager, times(1))
+        .createNamedQuery("CustomAttribute.getForOrg", CustomAttribute.class);
+  }
+
+  @Test
+  public void testIsAPPSuspend_cached() throws Exception {
+    // given
+    enableCache();
+    Query query = mock(Query.class);
+    when(entityManager.createNamedQuery(anyString())).thenReturn(query);
+    when(query.getSingleResult()).thenThrow(new NoResultException());
+    serviceBean.isAPPSuspend();
+
+    // when
+    boolean suspended = serviceBean.isAPPSuspend();
+
+    // then
+    assertFalse(suspended);
+    verify(entityManager, times(1)).createNamedQuery("ConfigurationSetting.getForProxyKey");
+  }
+
+  @Test
+  public void testGetProxySettings_missingMandatorySettingNotCached() throws Exception {
+    // given
+    enableCache();
+    Query query = mock(Query.class);
+    when(entityManager.createNamedQuery(anyString())).thenReturn(query);
+    when(query.getResultList()).thenReturn(mandatoryProxySettings());
+    HashMap<String, Setting> proxySettings = serviceBean.getProxyConfigurationSettings();
+    proxySettings.remove("APP_BASE_URL");
+
+    // when
+    proxySettings = serviceBean.getProxyConfigurationSettings();
+
+    // then
+    assertTrue(proxySettings.containsKey("APP_BASE_URL"));
+    verify(entityManager, times(1)).createNamedQuery("ConfigurationSetting.getAllProxy");
+  }
+
+  @Test
+  public void testStoreControllerConfigurationSettings_invalidatesCache() throws Exception {
+    // given
+    enableCache();
+    Query query = mock(Query.class);
+    when(entityManager.createNamedQuery(anyString())).thenReturn(query);
+    List<ConfigurationSetting> settings = new ArrayList<>();
+    settings.add(newConfigurationSetting("BSS_ORGANIZATION_ID", "orgId"));
+    when(query.getResultList()).thenReturn(settings);
+    serviceBean.getControllerConfigurationSettings("CONTROLLER_ID");
+
+    // when
+    HashMap<String, Setting> settingsToStore = new HashMap<>();
+    settingsToStore.put("BSS_ORGANIZATION_ID", new Setting("BSS_ORGANIZATION_ID", "newOrgId"));
+    serviceBean.storeControllerConfigurationSettings("CONTROLLER_ID", settingsToStore);
+    HashMap<String, Setting> controllerSettings =
+        serviceBean.getControllerConfigurationSettings("CONTROLLER_ID");
+
+    // then
+    assertEquals("newOrgId", controllerSettings.get("BSS_ORGANIZATION_ID").getValue());
+    verify(entityManager).createNamedQuery("ConfigurationVersion.increment");
+    verify(query).executeUpdate();
+  }
+
+  @Test
+  public void testSetAPPSuspend_registersInvalidation() throws Exception {
+    // given
+    enableCache();
+    serviceBean.txRegistry = mock(TransactionSynchronizationRegistry.class);
+    when(serviceBean.txRegistry.getTransactionKey()).thenReturn(new Object());
+    Query query = mock(Query.class);
+    when(entityManager.createNamedQuery(anyString())).thenReturn(query);
+    serviceBean.setAPPSuspend("true");
+    when(query.getSingleResult()).thenThrow(new NoResultException());
+    serviceBean.isAPPSuspend();
+
+    // when
+    ArgumentCaptor<Synchronization> sync = ArgumentCaptor.forClass(Synchronization.class);
+    verify(serviceBean.txRegistry).registerInterposedSynchronization(sync.capture());
+    sync.getValue().afterCompletion(Status.STATUS_ROLLEDBACK);
+
+    // then
+    assertEquals(0, serviceBean.cache.size());
+  }
+
+  private void enableCache() {
+    serviceBean.cache = new ConfigurationCache();
+    ConfigurationVersion version = new ConfigurationVersion();
+    version.setVersion(1);
+    when(entityManager.find(ConfigurationVersion.class, ConfigurationVersion.ID))
+        .thenReturn(version);
+  }
+
   private static List<ConfigurationSetting> mandatoryProxySettings() throws ConfigurationException {
     ArrayList<ConfigurationSetting> settings = new ArrayList<>();
     settings.add(newConfigurationSetting("APP_BASE_URL", "value"));
@@ -17,6 +17,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.oscm.app.business.APPlatformControllerFactory;
+import org.oscm.app.business.InstancePollEngine;
 import org.oscm.app.business.ProductProvisioningServiceFactoryBean;
 import org.oscm.app.business.exceptions.BESNotificationException;
 import org.oscm.app.dao.BesDAO;
@@ -42,8 +43,10 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.slf4j.Logger;
 
+import javax.ejb.SessionContext;
 import javax.ejb.Timer;
 import javax.ejb.TimerService;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.persistence.EntityManager;
 import java.util.*;
 
@@ -524,6 +527,95 @@ public class APPTimerServiceBeanTest {
         .doHandleSystems(anyListOf(ServiceInstance.class), any(EnumSet.class));
   }
 
+  @Test
+  public void testHandleTimer_parallel() throws Exception {
+    // given
+    mockPollExecutor();
+    doReturn("5")
+        .when(configService)
+        .getProxyConfigurationSetting(PlatformConfigurationKey.APP_TIMER_POLL_THREADS);
+
+    // when
+    timerService.handleTimer(timer);
+
+    // then
+    verify(timerBean, times(1)).doHandleInstance(anyLong());
+    verify(timerService, never())
+        .doHandleSystems(anyListOf(ServiceInstance.class), any(EnumSet.class));
+  }
+
+  @Test
+  public void testHandleTimer_parallelDisabled() throws Exception {
+    // given
+    mockPollExecutor();
+    doReturn("1")
+        .when(configService)
+        .getProxyConfigurationSetting(PlatformConfigurationKey.APP_TIMER_POLL_THREADS);
+
+    // when
+    timerService.handleTimer(timer);
+
+    // then
+    verify(timerBean, never()).doHandleInstance(anyLong());
+    verify(timerService, times(7))
+        .doHandleSystems(anyListOf(ServiceInstance.class), any(EnumSet.class));
+  }
+
+  @Test
+  public void testGetPollEngine_defaults() throws Exception {
+    // given
+    mockPollExecutor();
+    doThrow(new ConfigurationException("not set"))
+        .when(configService)
+        .getProxyConfigurationSetting(any(PlatformConfigurationKey.class));
+
+    // when
+    InstancePollEngine engine = timerService.getPollEngine();
+
+    // then
+    assertEquals(InstancePollEngine.DEFAULT_MAX_THREADS, engine.getMaxThreads());
+    assertEquals(InstancePollEngine.DEFAULT_MAX_PER_CONTROLLER, engine.getMaxPerGroup());
+  }
+
+  @Test
+  public void testDoHandleInstance() {
+    // given
+    ServiceInstance instance = getResult().get(0);
+    doReturn(instance).when(em).find(ServiceInstance.class, Long.valueOf(1L));
+
+    // when
+    timerService.doHandleInstance(1L);
+
+    // then
+    verify(timerService, times(7))
+        .doHandleSystems(eq(Collections.singletonList(instance)), any(EnumSet.class));
+  }
+
+  @Test
+  public void testDoHandleInstance_notFound() {
+    // when
+    timerService.doHandleInstance(1L);
+
+    // then
+    verify(timerService, never())
+        .doHandleSystems(anyListOf(ServiceInstance.class), any(EnumSet.class));
+  }
+
+  private void mockPollExecutor() {
+    ManagedExecutorService executor = mock(ManagedExecutorService.class);
+    doAnswer(
+            invocation -> {
+              ((Runnable) invocation.getArguments()[0]).run();
+              return null;
+            })
+        .when(executor)
+        .execute(any(Runnable.class));
+    SessionContext sessionCtx = mock(SessionContext.class);
+    doReturn(timerBean).when(sessionCtx).getBusinessObject(APPTimerServiceBean.class);
+    timerService.pollExecutor = executor;
+    timerService.sessionCtx = sessionCtx;
+  }
+
   @Test
   public void testHandleException_instanceWaitingForCreation() {
     // given
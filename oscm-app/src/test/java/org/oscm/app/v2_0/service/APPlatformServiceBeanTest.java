@@ -473,6 +473,30 @@ public class APPlatformServiceBeanTest {
     assertFalse(check);
   }
 
+  @Test
+  public void testCheckToken_verifiedBefore() throws Exception {
+
+    Certificate certificate = mock(Certificate.class);
+    TrustStoreCache trustStoreCache = mock(TrustStoreCache.class);
+    TrustStoreCache.TrustStore trustStore =
+        new TrustStoreCache.TrustStore("locale", "password", "alias", 0, 0, certificate);
+    trustStore.addVerified("token", "signature");
+
+    when(appConfigurationService.getProxyConfigurationSetting(PlatformConfigurationKey.APP_TRUSTSTORE))
+        .thenReturn("locale");
+    when(appConfigurationService.getProxyConfigurationSetting(PlatformConfigurationKey.APP_TRUSTSTORE_PASSWORD))
+        .thenReturn("password");
+    when(appConfigurationService.getProxyConfigurationSetting(PlatformConfigurationKey.APP_TRUSTSTORE_BSS_ALIAS))
+        .thenReturn("alias");
+    when(trustStoreCache.get("locale", "password", "alias")).thenReturn(trustStore);
+    applatformService.trustStoreCache = trustStoreCache;
+
+    boolean check = applatformService.checkToken("token", "signature");
+
+    assertTrue(check);
+    verify(certificate, never()).getPublicKey();
+  }
+
   @Test
   public void testDecryptPassword_FailedDecryption() throws Exception {
 
@@ -232,6 +232,7 @@ public class AsynchronousProvisioningProxyTest {
     assertEquals(0, result.getRc());
     assertEquals("Ok", result.getDesc());
     verify(entityManager, times(attributes.size())).persist(any(CustomAttribute.class));
+    verify(configService).customAttributesChanged();
   }
 
   @Test
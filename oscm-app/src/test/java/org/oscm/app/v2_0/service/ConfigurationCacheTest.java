@@ -0,0 +1,179 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+package org.oscm.app.v2_0.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.oscm.app.v2_0.exceptions.ConfigurationException;
+
+public class ConfigurationCacheTest {
+
+  private AtomicLong time;
+  private AtomicLong version;
+  private AtomicInteger versionReads;
+  private AtomicInteger loads;
+  private ConfigurationCache cache;
+  private Supplier<Long> versionReader;
+
+  @Before
+  public void setup() {
+    time = new AtomicLong(1000);
+    version = new AtomicLong(1);
+    versionReads = new AtomicInteger();
+    loads = new AtomicInteger();
+    cache = new ConfigurationCache(time::get);
+    versionReader =
+        () -> {
+          versionReads.incrementAndGet();
+          return Long.valueOf(version.get());
+        };
+  }
+
+  @Test
+  public void get() throws Exception {
+    // given
+    get("key");
+
+    // when
+    String value = get("key");
+
+    // then
+    assertEquals("value1", value);
+    assertEquals(1, loads.get());
+    assertEquals(1, versionReads.get());
+  }
+
+  @Test
+  public void get_perKey() throws Exception {
+    // when
+    get("key");
+    get("other");
+
+    // then
+    assertEquals(2, loads.get());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void get_versionCheckedAfterInterval() throws Exception {
+    // given
+    get("key");
+    time.addAndGet(ConfigurationCache.CHECK_INTERVAL);
+
+    // when
+    get("key");
+
+    // then
+    assertEquals(1, loads.get());
+    assertEquals(2, versionReads.get());
+  }
+
+  @Test
+  public void get_versionChanged() throws Exception {
+    // given
+    get("key");
+    version.incrementAndGet();
+
+    // when
+    String beforeCheck = get("key");
+    time.addAndGet(ConfigurationCache.CHECK_INTERVAL);
+    String afterCheck = get("key");
+
+    // then
+    assertEquals("value1", beforeCheck);
+    assertEquals("value2", afterCheck);
+  }
+
+  @Test
+  public void get_maxAge() throws Exception {
+    // given
+    get("key");
+    time.addAndGet(ConfigurationCache.MAX_AGE);
+
+    // when
+    String value = get("key");
+
+    // then
+    assertEquals("value2", value);
+  }
+
+  @Test
+  public void get_noVersion() throws Exception {
+    // given
+    versionReader = () -> null;
+    get("key");
+
+    // when
+    get("key");
+
+    // then
+    assertEquals(2, loads.get());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void get_failureNotCached() throws Exception {
+    // given
+    try {
+      cache.get(
+          "key",
+          versionReader,
+          () -> {
+            throw new ConfigurationException("failed");
+          });
+    } catch (ConfigurationException e) {
+      // expected
+    }
+
+    // when
+    String value = get("key");
+
+    // then
+    assertEquals("value1", value);
+  }
+
+  @Test
+  public void invalidate() throws Exception {
+    // given
+    get("key");
+
+    // when
+    cache.invalidate();
+    String value = get("key");
+
+    // then
+    assertEquals("value2", value);
+    assertEquals(2, versionReads.get());
+  }
+
+  @Test
+  public void invalidate_whileLoading() throws Exception {
+    // when
+    cache.get(
+        "key",
+        versionReader,
+        () -> {
+          cache.invalidate();
+          return "stale";
+        });
+
+    // then
+    assertEquals(0, cache.size());
+    assertEquals("value1", get("key"));
+  }
+
+  private String get(String key) throws ConfigurationException {
+    return cache.get(key, versionReader, () -> "value" + loads.incrementAndGet());
+  }
+}
@@ -0,0 +1,281 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright FUJITSU LIMITED 2018
+ *
+ * <p>Creation Date: 17.10.2026
+ *
+ * <p>*****************************************************************************
+ */
+package org.oscm.app.v2_0.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.ejb.Timer;
+import javax.ejb.TimerService;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.oscm.app.business.InstancePollEngine;
+import org.oscm.app.domain.PlatformConfigurationKey;
+import org.oscm.app.domain.ServiceInstance;
+import org.oscm.app.v2_0.intf.APPlatformService;
+
+public class TimerHandleUsageDataTest {
+
+  private static final String END_TIME = "2026-10-17T12:00:00";
+  private static final long INTERVAL = 4 * 60 * 60 * 1000L;
+
+  private TimerHandleUsageData timer;
+  private ServiceInstanceServiceBean instanceService;
+  private APPConfigurationServiceBean configService;
+  private APPlatformService ps;
+  private List<ServiceInstance> instances;
+  private Map<Long, String> lastUsageFetches;
+  private ExecutorService executor;
+
+  @Before
+  public void setup() throws Exception {
+    timer = spy(new TimerHandleUsageData());
+    instanceService = mock(ServiceInstanceServiceBean.class);
+    configService = mock(APPConfigurationServiceBean.class);
+    ps = mock(APPlatformService.class);
+    timer.serviceInstanceService = instanceService;
+    timer.configService = configService;
+    timer.timerService = mock(TimerService.class);
+    when(timer.timerService.getTimers()).thenReturn(Collections.<Timer>emptyList());
+    when(configService.getProxyConfigurationSetting(
+            PlatformConfigurationKey.APP_TIMER_REFRESH_USAGEDATA))
+        .thenReturn(String.valueOf(INTERVAL));
+    timer.initializeTimer();
+
+    instances = new ArrayList<>();
+    lastUsageFetches = new HashMap<>();
+    when(instanceService.getInstances()).thenReturn(instances);
+    when(instanceService.getLastUsageFetches()).thenReturn(lastUsageFetches);
+    doReturn(ps).when(timer).getPlatformService();
+    doReturn(END_TIME).when(timer).getEndTime();
+    doReturn(Boolean.TRUE)
+        .when(timer)
+        .handleInstance(eq(ps), any(ServiceInstance.class), anyString(), eq(END_TIME));
+  }
+
+  @After
+  public void tearDown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void gatherUsageData() throws Exception {
+    // given
+    ServiceInstance first = addInstance(1, "ctrl1", hoursBefore(5));
+    ServiceInstance second = addInstance(2, "ctrl2", null);
+
+    // when
+    timer.gatherUsageData(sequentialEngine());
+
+    // then
+    verify(timer).handleInstance(ps, first, hoursBefore(5), END_TIME);
+    verify(timer).handleInstance(ps, second, timer.getRequestTime(second), END_TIME);
+    assertEquals(keys(2, 1), updatedKeys(1).get(0));
+  }
+
+  @Test
+  public void gatherUsageData_resume() throws Exception {
+    // given
+    addInstance(1, "ctrl1", hoursBefore(1));
+    ServiceInstance pending = addInstance(2, "ctrl1", hoursBefore(5));
+
+    // when
+    timer.gatherUsageData(sequentialEngine());
+
+    // then
+    verify(timer, times(1))
+        .handleInstance(eq(ps), any(ServiceInstance.class), anyString(), eq(END_TIME));
+    verify(timer).handleInstance(ps, pending, hoursBefore(5), END_TIME);
+  }
+
+  @Test
+  public void gatherUsageData_oldestFirst() throws Exception {
+    // given
+    addInstance(1, "ctrl1", hoursBefore(3));
+    addInstance(2, "ctrl1", hoursBefore(9));
+    addInstance(3, "ctrl1", hoursBefore(6));
+    final List<Long> order = Collections.synchronizedList(new ArrayList<Long>());
+    doAnswer(
+            invocation -> {
+              order.add(Long.valueOf(((ServiceInstance) invocation.getArguments()[1]).getTkey()));
+              return Boolean.TRUE;
+            })
+        .when(timer)
+        .handleInstance(eq(ps), any(ServiceInstance.class), anyString(), eq(END_TIME));
+
+    // when
+    timer.gatherUsageData(sequentialEngine());
+
+    // then
+    assertEquals(keys(2, 3, 1), order);
+  }
+
+  @Test
+  public void gatherUsageData_notUpdated() throws Exception {
+    // given
+    ServiceInstance failed = addInstance(1, "ctrl1", null);
+    addInstance(2, "ctrl1", null);
+    String startTime = timer.getRequestTime(failed);
+    doReturn(Boolean.FALSE).when(timer).handleInstance(ps, failed, startTime, END_TIME);
+
+    // when
+    timer.gatherUsageData(sequentialEngine());
+
+    // then
+    assertEquals(keys(2), updatedKeys(1).get(0));
+  }
+
+  @Test
+  public void gatherUsageData_checkpointBatches() throws Exception {
+    // given
+    int count = TimerHandleUsageData.CHECKPOINT_BATCH_SIZE * 2 + 1;
+    for (int i = 0; i < count; i++) {
+      addInstance(i, "ctrl" + i % 3, null);
+    }
+    executor = Executors.newFixedThreadPool(4);
+
+    // when
+    timer.gatherUsageData(new InstancePollEngine(executor, 4, 2));
+
+    // then
+    List<Collection<Long>> updates = updatedKeys(3);
+    int updated = 0;
+    for (Collection<Long> keys : updates) {
+      assertTrue(keys.size() <= TimerHandleUsageData.CHECKPOINT_BATCH_SIZE);
+      updated += keys.size();
+    }
+    assertEquals(count, updated);
+  }
+
+  @Test
+  public void gatherUsageData_checkpointFailed() throws Exception {
+    // given
+    addInstance(1, "ctrl1", null);
+    doThrow(new RuntimeException())
+        .when(instanceService)
+        .updateLastUsageFetch(anyCollectionOf(Long.class), anyString());
+
+    // when
+    timer.gatherUsageData(sequentialEngine());
+
+    // then
+    verify(timer).handleInstance(eq(ps), any(ServiceInstance.class), anyString(), eq(END_TIME));
+  }
+
+  @Test
+  public void gatherUsageData_nothingPending() throws Exception {
+    // given
+    addInstance(1, "ctrl1", hoursBefore(1));
+
+    // when
+    timer.gatherUsageData(sequentialEngine());
+
+    // then
+    verify(instanceService, never()).updateLastUsageFetch(anyCollectionOf(Long.class), anyString());
+    verify(timer, never()).getPlatformService();
+  }
+
+  @Test
+  public void getUsageEngine() throws Exception {
+    // given
+    timer.usageExecutor = mock(ManagedExecutorService.class);
+    when(configService.getProxyConfigurationSetting(
+            PlatformConfigurationKey.APP_TIMER_POLL_THREADS))
+        .thenReturn("8");
+    when(configService.getProxyConfigurationSetting(
+            PlatformConfigurationKey.APP_TIMER_POLL_THREADS_PER_CONTROLLER))
+        .thenReturn("3");
+
+    // when
+    InstancePollEngine engine = timer.getUsageEngine();
+
+    // then
+    assertEquals(8, engine.getMaxThreads());
+    assertEquals(3, engine.getMaxPerGroup());
+  }
+
+  @Test
+  public void getUsageEngine_noExecutor() throws Exception {
+    // when
+    InstancePollEngine engine = timer.getUsageEngine();
+
+    // then
+    assertEquals(1, engine.getMaxThreads());
+  }
+
+  private ServiceInstance addInstance(long tkey, String controllerId, String lastUsageFetch) {
+    ServiceInstance instance = mock(ServiceInstance.class);
+    when(instance.getTkey()).thenReturn(tkey);
+    when(instance.getControllerId()).thenReturn(controllerId);
+    when(instance.getRequestTime()).thenReturn(Long.valueOf(tkey * 1000L));
+    instances.add(instance);
+    if (lastUsageFetch != null) {
+      lastUsageFetches.put(Long.valueOf(tkey), lastUsageFetch);
+    }
+    return instance;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private List<Collection<Long>> updatedKeys(int updates) {
+    ArgumentCaptor<Collection> keys = ArgumentCaptor.forClass(Collection.class);
+    verify(instanceService, times(updates)).updateLastUsageFetch(keys.capture(), eq(END_TIME));
+    List<Collection<Long>> result = new ArrayList<>();
+    for (Collection key : keys.getAllValues()) {
+      result.add(new ArrayList<Long>(key));
+    }
+    return result;
+  }
+
+  private static String hoursBefore(int hours) {
+    return LocalDateTime.parse(END_TIME)
+        .minusHours(hours)
+        .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+  }
+
+  private static InstancePollEngine sequentialEngine() {
+    return new InstancePollEngine(Runnable::run, 1, 1);
+  }
+
+  private static List<Long> keys(long... keys) {
+    List<Long> result = new ArrayList<>();
+    for (long key : keys) {
+      result.add(Long.valueOf(key));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,285 @@
+/**
+ * *****************************************************************************
+ *
+ * <p>Copyright FUJITSU LIMITED 2018
+ *
+ * <p>Creation Date: 17.10.2026
+ *
+ * <p>*****************************************************************************
+ */
+package org.oscm.app.v2_0.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.ejb.Timer;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.oscm.app.adapter.APPlatformControllerAdapter;
+import org.oscm.app.business.InstancePollEngine;
+import org.oscm.app.business.exceptions.BESNotificationException;
+import org.oscm.app.business.exceptions.BadResultException;
+import org.oscm.app.domain.PlatformConfigurationKey;
+import org.oscm.app.domain.ServiceInstance;
+import org.oscm.app.v2_0.data.ProvisioningSettings;
+import org.oscm.app.v2_0.data.ServiceUser;
+import org.oscm.app.v2_0.exceptions.APPlatformException;
+import org.oscm.app.v2_0.intf.APPlatformController;
+import org.slf4j.Logger;
+
+public class TimerRefreshSubscriptionsTest {
+
+  private static final String VM_TIMER_INFO = "abc2dac0-5f81-11e4-9803-0800200c9a66";
+
+  private TimerRefreshSubscriptions timer;
+  private ServiceInstanceServiceBean instanceService;
+  private APPConfigurationServiceBean configService;
+  private APPlatformController controller;
+  private List<ServiceInstance> instances;
+  private Timer vmTimer;
+
+  @Before
+  public void setup() throws Exception {
+    timer = spy(new TimerRefreshSubscriptions());
+    instanceService = mock(ServiceInstanceServiceBean.class);
+    configService = mock(APPConfigurationServiceBean.class);
+    controller = mock(APPlatformController.class);
+    timer.serviceInstanceService = instanceService;
+    timer.configService = configService;
+    timer.logger = mock(Logger.class);
+    instances = new ArrayList<>();
+    when(instanceService.getInstances()).thenReturn(instances);
+    doReturn(new APPlatformControllerAdapter(controller)).when(timer).getController(anyString());
+    ProvisioningSettings settings = mock(ProvisioningSettings.class);
+    when(settings.getSubscriptionId()).thenReturn("sub");
+    when(settings.getOrganizationId()).thenReturn("org");
+    doReturn(settings)
+        .when(configService)
+        .getProvisioningSettings(any(ServiceInstance.class), isNull(ServiceUser.class), eq(true));
+    vmTimer = mock(Timer.class);
+    when(vmTimer.getInfo()).thenReturn(VM_TIMER_INFO);
+  }
+
+  @Test
+  public void execute_changed() throws Exception {
+    // given
+    ServiceInstance instance = addInstance("instance1", "ctrl1", 1);
+    givenServersNumber(instance, 2);
+
+    // when
+    timer.execute(vmTimer);
+
+    // then
+    InOrder inOrder = inOrder(instanceService);
+    inOrder.verify(instanceService).notifySubscriptionAboutVmsNumber(instance, 2);
+    inOrder.verify(instanceService).updateVmsNumber(instance, Integer.valueOf(2));
+  }
+
+  @Test
+  public void execute_notificationFailed() throws Exception {
+    // given
+    ServiceInstance failed = addInstance("instance1", "ctrl1", 1);
+    ServiceInstance instance = addInstance("instance2", "ctrl1", 1);
+    givenServersNumber(failed, 2);
+    givenServersNumber(instance, 3);
+    doThrow(new BESNotificationException("failed", new Exception()))
+        .when(instanceService)
+        .notifySubscriptionAboutVmsNumber(failed, 2);
+
+    // when
+    timer.execute(vmTimer);
+
+    // then
+    verify(instanceService, never()).updateVmsNumber(eq(failed), any(Integer.class));
+    verify(instanceService).updateVmsNumber(instance, Integer.valueOf(3));
+  }
+
+  @Test
+  public void execute_unchanged() throws Exception {
+    // given
+    ServiceInstance instance = addInstance("instance1", "ctrl1", 2);
+    givenServersNumber(instance, 2);
+
+    // when
+    timer.execute(vmTimer);
+
+    // then
+    verify(instanceService, never()).updateVmsNumber(any(ServiceInstance.class), any(Integer.class));
+    verify(instanceService, never())
+        .notifySubscriptionAboutVmsNumber(any(ServiceInstance.class), anyInt());
+  }
+
+  @Test
+  public void execute_controllerFailed() throws Exception {
+    // given
+    ServiceInstance failed = addInstance("instance1", "ctrl1", 1);
+    ServiceInstance instance = addInstance("instance2", "ctrl2", 0);
+    when(controller.getServersNumber("instance1", "sub", "org"))
+        .thenThrow(new APPlatformException("failed"));
+    givenServersNumber(instance, 1);
+
+    // when
+    timer.execute(vmTimer);
+
+    // then
+    verify(instanceService, never()).updateVmsNumber(failed, Integer.valueOf(0));
+    verify(instanceService).updateVmsNumber(instance, Integer.valueOf(1));
+  }
+
+  @Test
+  public void execute_bulk() throws Exception {
+    // given
+    ServiceInstance unchanged = addInstance("instance1", "ctrl1", 1);
+    ServiceInstance changed = addInstance("instance2", "ctrl1", 1);
+    addInstance("instance3", "ctrl1", 1);
+    APPlatformControllerAdapter adapter = mock(APPlatformControllerAdapter.class);
+    doReturn(adapter).when(timer).getController("ctrl1");
+    Map<String, Integer> numbers = new HashMap<>();
+    numbers.put("instance1", Integer.valueOf(1));
+    numbers.put("instance2", Integer.valueOf(3));
+    when(adapter.getServersNumbers(anyMapOf(String.class, ProvisioningSettings.class)))
+        .thenReturn(numbers);
+
+    // when
+    timer.execute(vmTimer);
+
+    // then
+    verify(adapter, times(1))
+        .getServersNumbers(anyMapOf(String.class, ProvisioningSettings.class));
+    verify(instanceService, never()).updateVmsNumber(eq(unchanged), any(Integer.class));
+    verify(instanceService).updateVmsNumber(changed, Integer.valueOf(3));
+    verify(instanceService, times(1)).updateVmsNumber(any(ServiceInstance.class), any(Integer.class));
+  }
+
+  @Test
+  public void execute_bulkFailed() throws Exception {
+    // given
+    addInstance("instance1", "ctrl1", 1);
+    APPlatformControllerAdapter adapter = mock(APPlatformControllerAdapter.class);
+    doReturn(adapter).when(timer).getController("ctrl1");
+    when(adapter.getServersNumbers(anyMapOf(String.class, ProvisioningSettings.class)))
+        .thenThrow(new APPlatformException("failed"));
+
+    // when
+    timer.execute(vmTimer);
+
+    // then
+    verify(instanceService, never()).updateVmsNumber(any(ServiceInstance.class), any(Integer.class));
+  }
+
+  @Test
+  public void execute_settingsFailed() throws Exception {
+    // given
+    ServiceInstance failed = addInstance("instance1", "ctrl1", 1);
+    ServiceInstance instance = addInstance("instance2", "ctrl1", 0);
+    doThrow(new BadResultException("failed"))
+        .when(configService)
+        .getProvisioningSettings(eq(failed), isNull(ServiceUser.class), eq(true));
+    givenServersNumber(failed, 2);
+    givenServersNumber(instance, 2);
+
+    // when
+    timer.execute(vmTimer);
+
+    // then
+    verify(controller, never()).getServersNumber("instance1", "sub", "org");
+    verify(instanceService).updateVmsNumber(instance, Integer.valueOf(2));
+  }
+
+  @Test
+  public void getBatches() {
+    // given
+    for (int i = 0; i < TimerRefreshSubscriptions.REFRESH_BATCH_SIZE + 1; i++) {
+      addInstance("a" + i, "ctrl1", 0);
+      if (i < 2) {
+        addInstance("b" + i, "ctrl2", 0);
+      }
+    }
+
+    // when
+    List<List<ServiceInstance>> batches = timer.getBatches(instances);
+
+    // then
+    assertEquals(3, batches.size());
+    assertEquals(TimerRefreshSubscriptions.REFRESH_BATCH_SIZE, batches.get(0).size());
+    assertEquals(2, batches.get(1).size());
+    assertEquals("ctrl2", batches.get(1).get(0).getControllerId());
+    assertEquals(Collections.singletonList(instances.get(instances.size() - 1)), batches.get(2));
+  }
+
+  @Test
+  public void execute_otherTimer() throws Exception {
+    // given
+    when(vmTimer.getInfo()).thenReturn("other");
+
+    // when
+    timer.execute(vmTimer);
+
+    // then
+    verify(instanceService, never()).getInstances();
+  }
+
+  @Test
+  public void getRefreshEngine() throws Exception {
+    // given
+    timer.refreshExecutor = mock(ManagedExecutorService.class);
+    when(configService.getProxyConfigurationSetting(
+            PlatformConfigurationKey.APP_TIMER_POLL_THREADS))
+        .thenReturn("6");
+    when(configService.getProxyConfigurationSetting(
+            PlatformConfigurationKey.APP_TIMER_POLL_THREADS_PER_CONTROLLER))
+        .thenReturn("2");
+
+    // when
+    InstancePollEngine engine = timer.getRefreshEngine();
+
+    // then
+    assertEquals(6, engine.getMaxThreads());
+    assertEquals(2, engine.getMaxPerGroup());
+  }
+
+  @Test
+  public void getRefreshEngine_noExecutor() throws Exception {
+    // when
+    InstancePollEngine engine = timer.getRefreshEngine();
+
+    // then
+    assertEquals(1, engine.getMaxThreads());
+  }
+
+  private ServiceInstance addInstance(String instanceId, String controllerId, int vmsNumber) {
+    ServiceInstance instance = mock(ServiceInstance.class);
+    when(instance.getInstanceId()).thenReturn(instanceId);
+    when(instance.getControllerId()).thenReturn(controllerId);
+    when(instance.getSubscriptionId()).thenReturn("sub");
+    when(instance.getOrganizationId()).thenReturn("org");
+    when(instance.getVmsNumber()).thenReturn(vmsNumber);
+    instances.add(instance);
+    return instance;
+  }
+
+  private void givenServersNumber(ServiceInstance instance, int number) throws Exception {
+    when(controller.getServersNumber(instance.getInstanceId(), "sub", "org")).thenReturn(number);
+  }
+}
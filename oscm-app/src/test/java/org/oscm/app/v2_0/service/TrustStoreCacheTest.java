@@ -0,0 +1,157 @@
+/*******************************************************************************
+ *
+ *  Copyright FUJITSU LIMITED 2018
+ *
+ *  Creation Date: 17.10.2026
+ *
+ *******************************************************************************/
+package org.oscm.app.v2_0.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.KeyStore;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TrustStoreCacheTest {
+
+  private static final String PASSWORD = "changeit";
+  private static final String ALIAS = "bss";
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private TrustStoreCache cache;
+  private File file;
+
+  @Before
+  public void setup() throws Exception {
+    cache = new TrustStoreCache();
+    file = folder.newFile("truststore");
+    writeTrustStore(file, PASSWORD);
+  }
+
+  @Test
+  public void get() throws Exception {
+    // when
+    TrustStoreCache.TrustStore trustStore = get(PASSWORD, ALIAS);
+
+    // then
+    assertNull(trustStore.getCertificate());
+  }
+
+  @Test
+  public void get_cached() throws Exception {
+    // given
+    TrustStoreCache.TrustStore first = get(PASSWORD, ALIAS);
+
+    // when
+    TrustStoreCache.TrustStore second = get(PASSWORD, ALIAS);
+
+    // then
+    assertSame(first, second);
+  }
+
+  @Test
+  public void get_aliasChanged() throws Exception {
+    // given
+    TrustStoreCache.TrustStore first = get(PASSWORD, ALIAS);
+
+    // when
+    TrustStoreCache.TrustStore second = get(PASSWORD, "other");
+
+    // then
+    assertNotSame(first, second);
+  }
+
+  @Test
+  public void get_fileModified() throws Exception {
+    // given
+    TrustStoreCache.TrustStore first = get(PASSWORD, ALIAS);
+    writeTrustStore(file, "other");
+    file.setLastModified(file.lastModified() + 2000);
+
+    // when
+    TrustStoreCache.TrustStore second = get("other", ALIAS);
+
+    // then
+    assertNotSame(first, second);
+  }
+
+  @Test(expected = IOException.class)
+  public void get_wrongPassword() throws Exception {
+    // given
+    get(PASSWORD, ALIAS);
+
+    // when
+    get("wrong", ALIAS);
+  }
+
+  @Test
+  public void invalidate() throws Exception {
+    // given
+    TrustStoreCache.TrustStore first = get(PASSWORD, ALIAS);
+
+    // when
+    cache.invalidate();
+
+    // then
+    assertNotSame(first, get(PASSWORD, ALIAS));
+  }
+
+  @Test
+  public void isVerified() throws Exception {
+    // given
+    TrustStoreCache.TrustStore trustStore = get(PASSWORD, ALIAS);
+
+    // when
+    trustStore.addVerified("token", "signature");
+
+    // then
+    assertTrue(trustStore.isVerified("token", "signature"));
+    assertFalse(trustStore.isVerified("token", "other"));
+    assertFalse(get(PASSWORD, "other").isVerified("token", "signature"));
+  }
+
+  @Test
+  public void isVerified_leastRecentlyUsedRemoved() throws Exception {
+    // given
+    TrustStoreCache.TrustStore trustStore = get(PASSWORD, ALIAS);
+    trustStore.addVerified("token0", "signature");
+    trustStore.addVerified("token1", "signature");
+    trustStore.isVerified("token0", "signature");
+
+    // when
+    for (int i = 2; i <= TrustStoreCache.MAX_VERIFIED; i++) {
+      trustStore.addVerified("token" + i, "signature");
+    }
+
+    // then
+    assertEquals(TrustStoreCache.MAX_VERIFIED, trustStore.getVerifiedCount());
+    assertTrue(trustStore.isVerified("token0", "signature"));
+    assertFalse(trustStore.isVerified("token1", "signature"));
+  }
+
+  private TrustStoreCache.TrustStore get(String password, String alias) throws Exception {
+    return cache.get(file.getAbsolutePath(), password, alias);
+  }
+
+  private static void writeTrustStore(File file, String password) throws Exception {
+    KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
+    keystore.load(null, password.toCharArray());
+    try (OutputStream os = new FileOutputStream(file)) {
+      keystore.store(os, password.toCharArray());
+    }
+  }
+}